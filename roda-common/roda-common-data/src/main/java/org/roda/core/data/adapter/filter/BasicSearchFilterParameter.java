@@ -31,6 +31,7 @@ public class BasicSearchFilterParameter extends FilterParameter {
    */
   public BasicSearchFilterParameter(BasicSearchFilterParameter basicSearchFilterParameter) {
     this(basicSearchFilterParameter.getName(), basicSearchFilterParameter.getValue());
+    setCacheable(basicSearchFilterParameter.getCacheable());
   }
 
   /**
@@ -42,6 +42,7 @@ public class DateIntervalFilterParameter extends RangeFilterParameter<Date> {
     this(dateIntervalFilterParameter.getFromName(), dateIntervalFilterParameter.getToName(),
       dateIntervalFilterParameter.getFromValue(), dateIntervalFilterParameter.getToValue(), dateIntervalFilterParameter
         .getGranularity());
+    setCacheable(dateIntervalFilterParameter.getCacheable());
   }
 
   public DateGranularity getGranularity() {
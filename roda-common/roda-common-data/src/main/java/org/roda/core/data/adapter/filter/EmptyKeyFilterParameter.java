@@ -22,6 +22,7 @@ public class EmptyKeyFilterParameter extends FilterParameter {
 
   public EmptyKeyFilterParameter(EmptyKeyFilterParameter emptyKeyFilterParameter) {
     this(emptyKeyFilterParameter.getName());
+    setCacheable(emptyKeyFilterParameter.getCacheable());
   }
 
   public EmptyKeyFilterParameter(String name) {
@@ -36,6 +36,7 @@ public abstract class FilterParameter implements Serializable {
   private static final long serialVersionUID = 3744111668897879761L;
 
   private String name;
+  private Boolean cacheable = null;
 
   /**
    * Constructs an empty {@link FilterParameter}.
@@ -88,4 +89,24 @@ public abstract class FilterParameter implements Serializable {
     this.name = name;
   }
 
+  /**
+   * @return if the parameter should be used as a (cached) filter query, which
+   *         does not influence the relevance of the results, or as part of the
+   *         main query. If {@code null}, the index decides based on the type of
+   *         the parameter (e.g. exact matches and ranges are cacheable while
+   *         full-text searches are not).
+   */
+  public Boolean getCacheable() {
+    return cacheable;
+  }
+
+  /**
+   * @param cacheable
+   *          if the parameter should be used as a (cached) filter query, or
+   *          {@code null} to let the index decide
+   */
+  public void setCacheable(Boolean cacheable) {
+    this.cacheable = cacheable;
+  }
+
 }
@@ -30,6 +30,7 @@ public class LikeFilterParameter extends FilterParameter {
    */
   public LikeFilterParameter(LikeFilterParameter likeFilterParameter) {
     this(likeFilterParameter.getName(), likeFilterParameter.getExpression());
+    setCacheable(likeFilterParameter.getCacheable());
   }
 
   /**
@@ -31,6 +31,7 @@ public class NotSimpleFilterParameter extends FilterParameter {
    */
   public NotSimpleFilterParameter(NotSimpleFilterParameter simpleFilterParameter) {
     this(simpleFilterParameter.getName(), simpleFilterParameter.getValue());
+    setCacheable(simpleFilterParameter.getCacheable());
   }
 
   /**
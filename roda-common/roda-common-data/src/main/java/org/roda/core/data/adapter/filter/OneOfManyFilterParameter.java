@@ -34,6 +34,7 @@ public class OneOfManyFilterParameter extends FilterParameter {
    */
   public OneOfManyFilterParameter(OneOfManyFilterParameter oneOfManyFilterParameter) {
     this(oneOfManyFilterParameter.getName(), oneOfManyFilterParameter.getValues());
+    setCacheable(oneOfManyFilterParameter.getCacheable());
   }
 
   /**
@@ -29,6 +29,7 @@ public class OrFiltersParameters extends FilterParameter {
    */
   public OrFiltersParameters(OrFiltersParameters orFiltersParameters) {
     this(orFiltersParameters.getName(), orFiltersParameters.getValues());
+    setCacheable(orFiltersParameters.getCacheable());
   }
 
   /**
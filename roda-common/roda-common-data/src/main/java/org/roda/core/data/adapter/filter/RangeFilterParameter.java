@@ -34,6 +34,7 @@ public abstract class RangeFilterParameter<T extends Serializable> extends Filte
    */
   public RangeFilterParameter(RangeFilterParameter<T> rangeFilterParameter) {
     this(rangeFilterParameter.getName(), rangeFilterParameter.getFromValue(), rangeFilterParameter.getToValue());
+    setCacheable(rangeFilterParameter.getCacheable());
   }
 
   /**
@@ -30,6 +30,7 @@ public class RegexFilterParameter extends FilterParameter {
    */
   public RegexFilterParameter(RegexFilterParameter regexFilterParameter) {
     this(regexFilterParameter.getName(), regexFilterParameter.getRegex());
+    setCacheable(regexFilterParameter.getCacheable());
   }
 
   /**
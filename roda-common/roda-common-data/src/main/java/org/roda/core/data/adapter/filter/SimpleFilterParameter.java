@@ -31,6 +31,7 @@ public class SimpleFilterParameter extends FilterParameter {
    */
   public SimpleFilterParameter(SimpleFilterParameter simpleFilterParameter) {
     this(simpleFilterParameter.getName(), simpleFilterParameter.getValue());
+    setCacheable(simpleFilterParameter.getCacheable());
   }
 
   /**
@@ -77,6 +77,7 @@ public final class RodaConstants {
   public static final String CORE_CROSSWALKS_FOLDER = "crosswalks";
   public static final String CORE_ORCHESTRATOR_FOLDER = "orchestrator";
   public static final String CORE_JOBREPORT_FOLDER = "jobreport";
+  public static final String CORE_JOBREPORT_SEGMENTS_FOLDER = "jobreport-segments";
   public static final String CORE_JOB_FOLDER = "job";
   public static final String CORE_TRANSFERREDRESOURCE_FOLDER = "transferredresource";
   public static final String CORE_MEMBERS_FOLDER = "members";
@@ -149,6 +150,7 @@ public final class RodaConstants {
   public static final String API_QUERY_KEY_FILTER = "filter";
   public static final String API_QUERY_KEY_SORT = "sort";
   public static final String API_QUERY_KEY_FACET_LIMIT = "facetLimit";
+  public static final String API_QUERY_KEY_FIELD = "field";
   // "http path param" related strings
   public static final String API_PATH_PARAM_AIP_ID = "aip_id";
   public static final String API_PATH_PARAM_REPRESENTATION_ID = "representation_id";
@@ -264,6 +266,12 @@ public final class RodaConstants {
   public static final String INDEX_FORMAT = "Format";
   public static final String INDEX_NOTIFICATION = "Notification";
   public static final String INDEX_RISK_INCIDENCE = "RiskIncidence";
+
+  // unique key fields of the index collections
+  public static final String INDEX_ID = "id";
+  public static final String INDEX_UUID = "uuid";
+  // generation of the last full reindex that (re)indexed a document
+  public static final String INDEX_REINDEX_GENERATION = "reindexGeneration_l";
   // FIXME not in use. are the following to remove?
   // public static final String INDEX_DESCRIPTIVE_METADATA =
   // "DescriptiveMetadata";
@@ -481,6 +489,8 @@ public final class RodaConstants {
   public static final String PLUGIN_PARAMS_STRING_VALUE = "parameter.string_value";
   public static final String PLUGIN_PARAMS_BOOLEAN_VALUE = "parameter.boolean_value";
   public static final String PLUGIN_PARAMS_CLEAR_INDEXES = "parameter.clear_indexes";
+  public static final String PLUGIN_PARAMS_RESUME = "parameter.resume";
+  public static final String PLUGIN_PARAMS_PERMISSIONS_JSON = "parameter.permissions_json";
   public static final String PLUGIN_PARAMS_OBJECT_CLASS = "parameter.object_class";
   public static final String PLUGIN_PARAMS_CLASS_CANONICAL_NAME = "parameter.class_canonical_name";
   public static final String PLUGIN_PARAMS_SIP_TO_AIP_CLASS = "parameter.sip_to_aip_class";
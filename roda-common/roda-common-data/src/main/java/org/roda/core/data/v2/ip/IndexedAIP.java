@@ -7,6 +7,7 @@
  */
 package org.roda.core.data.v2.ip;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -54,16 +55,23 @@ public class IndexedAIP implements IsIndexed {
   }
 
   /**
-   * Constructs a new {@link IndexedAIP} cloning the one given by argument.
+   * Constructs a new {@link IndexedAIP} cloning the one given by argument
+   * (dates, ancestors and permissions are copied too, so the clone can be
+   * changed without changing the original).
    * 
    * @param other
    *          the {@link IndexedAIP} to be cloned.
    */
   public IndexedAIP(IndexedAIP other) {
-    this(other.getId(), other.getState(), other.getLevel(), other.getTitle(), other.getDateInitial(),
-      other.getDateFinal(), other.getDescription(), other.getParentID(), other.getAncestors(), other.getPermissions(),
+    this(other.getId(), other.getState(), other.getLevel(), other.getTitle(),
+      other.getDateInitial() != null ? new Date(other.getDateInitial().getTime()) : null,
+      other.getDateFinal() != null ? new Date(other.getDateFinal().getTime()) : null, other.getDescription(),
+      other.getParentID(), other.getAncestors() != null ? new ArrayList<>(other.getAncestors()) : null,
+      other.getPermissions() != null ? new Permissions(other.getPermissions()) : null,
       other.getNumberOfSubmissionFiles(), other.getNumberOfDocumentationFiles(), other.getNumberOfSchemaFiles(),
       other.getHasRepresentations(), other.getGhost());
+    this.ingestSIPId = other.getIngestSIPId();
+    this.ingestJobId = other.getIngestJobId();
   }
 
   /**
@@ -40,6 +40,28 @@ public class Permissions implements Serializable {
     init(groups);
   }
 
+  /**
+   * Constructs a new {@link Permissions} copying the users and groups of the
+   * one given by argument.
+   * 
+   * @param other
+   *          the {@link Permissions} to be copied.
+   */
+  public Permissions(Permissions other) {
+    users = copy(other.getUsers());
+    groups = copy(other.getGroups());
+  }
+
+  private static Map<PermissionType, Set<String>> copy(Map<PermissionType, Set<String>> permissionsMap) {
+    Map<PermissionType, Set<String>> ret = new HashMap<>();
+    if (permissionsMap != null) {
+      for (Entry<PermissionType, Set<String>> entry : permissionsMap.entrySet()) {
+        ret.put(entry.getKey(), entry.getValue() != null ? new HashSet<>(entry.getValue()) : null);
+      }
+    }
+    return ret;
+  }
+
   private void init(Map<PermissionType, Set<String>> permissionsMap) {
 
     for (PermissionType type : PermissionType.values()) {
@@ -13,6 +13,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.DigestInputStream;
@@ -21,6 +25,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,6 +44,12 @@ public class FileUtility {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileUtility.class);
 
+  // reads files in 1Mbyte chunks (1048576 bytes - 2^20 bytes), using a direct
+  // buffer per thread that is reused between digests
+  private static final int DIGEST_BUFFER_SIZE = 1048576;
+  private static final ThreadLocal<ByteBuffer> DIGEST_BUFFER = ThreadLocal
+    .withInitial(() -> ByteBuffer.allocateDirect(DIGEST_BUFFER_SIZE));
+
   public static InputStream getConfigurationFile(Path configPath, String relativePath) {
     InputStream ret;
     Path staticConfig = configPath.resolve(relativePath);
@@ -101,31 +112,72 @@ public class FileUtility {
   public static Map<String, String> checksums(InputStream is, Collection<String> algorithms)
     throws NoSuchAlgorithmException, IOException {
     Map<String, String> ret = new HashMap<>();
-    Map<String, MessageDigest> digestors = new HashMap<>();
 
+    try {
+      for (Entry<String, byte[]> entry : digests(Channels.newChannel(is), algorithms).entrySet()) {
+        ret.put(entry.getKey(), byteArrayToHexString(entry.getValue()));
+      }
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+
+    return ret;
+  }
+
+  public static Map<String, String> checksums(Path path, Collection<String> algorithms)
+    throws NoSuchAlgorithmException, IOException {
+    Map<String, String> ret = new HashMap<>();
+
+    try (FileChannel channel = FileChannel.open(path)) {
+      for (Entry<String, byte[]> entry : digests(channel, algorithms).entrySet()) {
+        ret.put(entry.getKey(), byteArrayToHexString(entry.getValue()));
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Computes several digests reading the content only once, i.e. each chunk
+   * read is fed to all the digest algorithms before reading the next one.
+   * 
+   * @param channel
+   *          the content to digest (which is not closed by this method)
+   * @param algorithms
+   *          the digest algorithms (e.g. MD5, SHA-1, SHA-256)
+   * @return a map from algorithm to the calculated digest.
+   * @throws NoSuchAlgorithmException
+   * @throws IOException
+   */
+  public static Map<String, byte[]> digests(ReadableByteChannel channel, Collection<String> algorithms)
+    throws NoSuchAlgorithmException, IOException {
+    Map<String, MessageDigest> digestors = new LinkedHashMap<>();
     for (String algorithm : algorithms) {
       digestors.put(algorithm, MessageDigest.getInstance(algorithm));
     }
 
-    // reads file in 1Mbyte chunks (1048576 bytes - 2^20 bytes)
-    int bufSize = 1048576; // 1 MByte
-    byte[] buffer = new byte[bufSize];
-    int n = is.read(buffer, 0, bufSize);
-    while (n != -1) {
+    ByteBuffer buffer = DIGEST_BUFFER.get();
+    buffer.clear();
+    boolean eof = false;
+    while (!eof) {
+      // fill the buffer as much as possible as some channels read in small
+      // chunks
+      while (buffer.hasRemaining() && !eof) {
+        eof = channel.read(buffer) == -1;
+      }
 
+      buffer.flip();
       for (MessageDigest digestor : digestors.values()) {
-        digestor.update(buffer, 0, n);
+        buffer.rewind();
+        digestor.update(buffer);
       }
-
-      n = is.read(buffer, 0, bufSize);
+      buffer.clear();
     }
 
+    Map<String, byte[]> ret = new LinkedHashMap<>();
     for (Entry<String, MessageDigest> entry : digestors.entrySet()) {
-      ret.put(entry.getKey(), byteArrayToHexString(entry.getValue().digest()));
+      ret.put(entry.getKey(), entry.getValue().digest());
     }
-
-    IOUtils.closeQuietly(is);
-
     return ret;
   }
 
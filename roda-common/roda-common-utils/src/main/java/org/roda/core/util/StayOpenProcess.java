@@ -0,0 +1,314 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A command that is kept running and receives requests on its standard input,
+ * one argument per line (e.g. <code>exiftool -stay_open True -@ -</code>).
+ * The response to each request is everything the command writes to its
+ * standard output until a line equal to the ready marker (e.g.
+ * <code>{ready}</code>). Anything written to the standard error while
+ * answering a request fails that request; if the command can also mark the
+ * end of each response on its standard error (e.g. with
+ * <code>-echo4 {ready}</code>), the error ready marker is used to wait for it.
+ */
+public class StayOpenProcess {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StayOpenProcess.class);
+
+  private static final String END_OF_STREAM = new String("EOF");
+  private static final long EXIT_TIMEOUT_IN_SECONDS = 5;
+
+  private final List<String> command;
+  private final String readyMarker;
+  private final String errorReadyMarker;
+  private final List<String> exitRequest;
+  private final Process process;
+  private final Writer input;
+  private final BlockingQueue<String> outputLines = new LinkedBlockingQueue<>();
+  private final BlockingQueue<String> errorLines = new LinkedBlockingQueue<>();
+
+  /**
+   * Starts the command.
+   *
+   * @param command
+   *          the command line as a list of arguments.
+   * @param readyMarker
+   *          the output line that ends each response.
+   * @param exitRequest
+   *          the lines that ask the command to terminate.
+   */
+  public StayOpenProcess(List<String> command, String readyMarker, List<String> exitRequest)
+    throws CommandException {
+    this(command, readyMarker, null, exitRequest);
+  }
+
+  /**
+   * Starts the command.
+   *
+   * @param command
+   *          the command line as a list of arguments.
+   * @param readyMarker
+   *          the output line that ends each response.
+   * @param errorReadyMarker
+   *          the error line that ends each response, or <code>null</code> if
+   *          the command does not write one.
+   * @param exitRequest
+   *          the lines that ask the command to terminate.
+   */
+  public StayOpenProcess(List<String> command, String readyMarker, String errorReadyMarker,
+    List<String> exitRequest) throws CommandException {
+    this.command = command;
+    this.readyMarker = readyMarker;
+    this.errorReadyMarker = errorReadyMarker;
+    this.exitRequest = exitRequest;
+
+    LOGGER.debug("Starting {}", command);
+    try {
+      process = new ProcessBuilder(command).start();
+    } catch (IOException e) {
+      throw new CommandException("Error executing command " + command + " - " + e.getMessage(), e);
+    }
+
+    input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    startReader(process.getInputStream(), true);
+    startReader(process.getErrorStream(), false);
+  }
+
+  private void startReader(final InputStream stream, final boolean output) {
+    Thread reader = new Thread(() -> {
+      try (BufferedReader lines = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = lines.readLine()) != null) {
+          if (output) {
+            outputLines.add(line);
+          } else {
+            LOGGER.debug("{}: {}", command.get(0), line);
+            errorLines.add(line);
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Stopped reading output of {}", command, e);
+      } finally {
+        (output ? outputLines : errorLines).add(END_OF_STREAM);
+      }
+    }, "StayOpenProcess-" + (output ? "out" : "err"));
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  public boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /**
+   * Sends a request and waits for its response. If the command terminates or
+   * does not answer in time it is destroyed, and must not be used again. If
+   * the command reports errors the request fails, but the command can still be
+   * used.
+   *
+   * @param request
+   *          the request lines, which must not contain line separators.
+   * @param timeoutInMillis
+   *          how long to wait for the response.
+   * @return the output of the command for this request.
+   */
+  public synchronized String execute(List<String> request, long timeoutInMillis) throws CommandException {
+    for (String line : request) {
+      // a line separator would split the line into another argument
+      if (line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0) {
+        throw new CommandException("Request line contains a line separator: " + line);
+      }
+    }
+
+    try {
+      // errors written after a previous response ended are not part of this one
+      errorLines.clear();
+      for (String line : request) {
+        input.write(line);
+        input.write('\n');
+      }
+      input.flush();
+
+      StringBuilder output = new StringBuilder();
+      long deadline = System.currentTimeMillis() + timeoutInMillis;
+      while (true) {
+        String line = outputLines.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        if (line == null) {
+          destroy();
+          throw new CommandException("Command " + command + " did not answer in " + timeoutInMillis + " ms");
+        } else if (line == END_OF_STREAM) {
+          destroy();
+          throw new CommandException("Command " + command + " terminated unexpectedly", exitValue(), output.toString());
+        } else if (line.trim().equals(readyMarker)) {
+          break;
+        } else {
+          output.append(line).append(System.lineSeparator());
+        }
+      }
+
+      String error = readErrors(deadline, timeoutInMillis);
+      if (error.length() > 0) {
+        throw new CommandException("Command " + command + " reported errors: " + error.trim(), 0, output.toString());
+      }
+      return output.toString();
+    } catch (IOException e) {
+      destroy();
+      throw new CommandException("Error sending request to command " + command + " - " + e.getMessage(), e);
+    } catch (InterruptedException e) {
+      // the response to this request would be read by the next one
+      destroy();
+      Thread.currentThread().interrupt();
+      throw new CommandException("Interrupted while waiting for command " + command, e);
+    }
+  }
+
+  private String readErrors(long deadline, long timeoutInMillis) throws InterruptedException, CommandException {
+    StringBuilder error = new StringBuilder();
+    if (errorReadyMarker == null) {
+      // without a marker only the errors already read can be told apart
+      String line;
+      while ((line = errorLines.poll()) != null) {
+        if (line != END_OF_STREAM) {
+          error.append(line).append(System.lineSeparator());
+        }
+      }
+    } else {
+      while (true) {
+        String line = errorLines.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        if (line == null) {
+          destroy();
+          throw new CommandException("Command " + command + " did not answer in " + timeoutInMillis + " ms");
+        } else if (line == END_OF_STREAM) {
+          destroy();
+          throw new CommandException("Command " + command + " terminated unexpectedly", exitValue(), error.toString());
+        } else if (line.trim().equals(errorReadyMarker)) {
+          break;
+        } else {
+          error.append(line).append(System.lineSeparator());
+        }
+      }
+    }
+    return error.toString();
+  }
+
+  /**
+   * Asks the command to terminate, destroying it if it does not.
+   */
+  public void close() {
+    if (process.isAlive()) {
+      try {
+        for (String line : exitRequest) {
+          input.write(line);
+          input.write('\n');
+        }
+        input.close();
+        if (!process.waitFor(EXIT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+          LOGGER.warn("Command {} did not terminate, destroying it", command);
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Error asking command {} to terminate", command, e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    destroy();
+  }
+
+  private void destroy() {
+    try {
+      process.destroyForcibly().waitFor(EXIT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private int exitValue() {
+    try {
+      return process.waitFor(EXIT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS) ? process.exitValue() : -1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+  }
+
+  /**
+   * Creates a pool of instances of the given command.
+   */
+  public static ToolInstancePool<StayOpenProcess> createPool(String name, int maxSize, List<String> command,
+    String readyMarker, List<String> exitRequest) {
+    return createPool(name, maxSize, command, readyMarker, null, exitRequest);
+  }
+
+  /**
+   * Creates a pool of instances of the given command, which also marks the end
+   * of each response on its standard error.
+   */
+  public static ToolInstancePool<StayOpenProcess> createPool(String name, int maxSize, List<String> command,
+    String readyMarker, String errorReadyMarker, List<String> exitRequest) {
+    final List<String> commandCopy = Collections.unmodifiableList(new ArrayList<>(command));
+    return new ToolInstancePool<>(name, maxSize, new ToolInstancePool.Factory<StayOpenProcess>() {
+      @Override
+      public StayOpenProcess create() throws CommandException {
+        return new StayOpenProcess(commandCopy, readyMarker, errorReadyMarker, exitRequest);
+      }
+
+      @Override
+      public boolean isAlive(StayOpenProcess instance) {
+        return instance.isAlive();
+      }
+
+      @Override
+      public void destroy(StayOpenProcess instance) {
+        instance.close();
+      }
+    });
+  }
+
+  /**
+   * Executes a request on an instance of the pool, discarding the instance if
+   * it is no longer running.
+   */
+  public static String execute(ToolInstancePool<StayOpenProcess> pool, List<String> request, long timeoutInMillis)
+    throws CommandException {
+    StayOpenProcess process = pool.borrow();
+    try {
+      String output = process.execute(request, timeoutInMillis);
+      pool.release(process);
+      return output;
+    } catch (CommandException e) {
+      if (process.isAlive()) {
+        pool.release(process);
+      } else {
+        pool.invalidate(process);
+      }
+      throw e;
+    } catch (RuntimeException e) {
+      pool.invalidate(process);
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of long-lived tool instances (e.g. a running process or an
+ * initialized in-process tool), so that tools with an expensive start-up are
+ * started once and reused instead of being started for every file.
+ * <p>
+ * At most <code>maxSize</code> instances exist at any time and are created
+ * only when needed. Idle instances that are no longer alive (see
+ * {@link Factory#isAlive(Object)}) are discarded and replaced by new ones.
+ * </p>
+ * <p>
+ * Pools are meant to be shared by all the instances of a plugin, so they are
+ * not closed by each of them but all at once (see {@link #closeAll()}).
+ * </p>
+ */
+public class ToolInstancePool<T> implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ToolInstancePool.class);
+
+  // pools not closed yet
+  private static final Set<ToolInstancePool<?>> POOLS = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Creates, checks and destroys the instances of a pool.
+   */
+  public interface Factory<T> {
+    T create() throws CommandException;
+
+    boolean isAlive(T instance);
+
+    void destroy(T instance);
+  }
+
+  private final String name;
+  private final Factory<T> factory;
+  private final Semaphore permits;
+  private final LinkedBlockingDeque<T> idle = new LinkedBlockingDeque<>();
+  private volatile boolean closed = false;
+
+  public ToolInstancePool(String name, int maxSize, Factory<T> factory) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Pool size must be greater than zero");
+    }
+    this.name = name;
+    this.factory = factory;
+    this.permits = new Semaphore(maxSize, true);
+    POOLS.add(this);
+  }
+
+  /**
+   * Gets an instance, waiting until one is available, which must then be
+   * given back with {@link #release(Object)} or, if it can no longer be used,
+   * with {@link #invalidate(Object)}.
+   */
+  public T borrow() throws CommandException {
+    if (closed) {
+      throw new CommandException("Tool pool " + name + " is closed");
+    }
+
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CommandException("Interrupted while waiting for a " + name + " instance", e);
+    }
+
+    try {
+      T instance;
+      while ((instance = idle.pollFirst()) != null) {
+        if (factory.isAlive(instance)) {
+          return instance;
+        }
+        LOGGER.warn("Discarding {} instance that is no longer alive", name);
+        factory.destroy(instance);
+      }
+
+      LOGGER.debug("Starting new {} instance", name);
+      return factory.create();
+    } catch (CommandException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  public void release(T instance) {
+    idle.offerFirst(instance);
+    // the pool may have been closed meanwhile
+    if (closed && idle.remove(instance)) {
+      factory.destroy(instance);
+    }
+    permits.release();
+  }
+
+  public void invalidate(T instance) {
+    factory.destroy(instance);
+    permits.release();
+  }
+
+  /**
+   * Destroys all idle instances. Instances currently in use are destroyed
+   * when they are given back.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    POOLS.remove(this);
+    List<T> instances = new ArrayList<>();
+    idle.drainTo(instances);
+    for (T instance : instances) {
+      factory.destroy(instance);
+    }
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Closes all the pools, e.g. when RODA shuts down or the plugins that
+   * created them are reloaded. Whoever keeps a pool must check if it was
+   * closed and create a new one when needed.
+   */
+  public static void closeAll() {
+    for (ToolInstancePool<?> pool : new ArrayList<>(POOLS)) {
+      pool.close();
+    }
+  }
+
+}
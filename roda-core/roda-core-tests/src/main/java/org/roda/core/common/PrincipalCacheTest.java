@@ -0,0 +1,63 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.mockito.Mockito;
+import org.roda.core.data.exceptions.AuthenticationDeniedException;
+import org.roda.core.data.v2.user.User;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class PrincipalCacheTest {
+
+  @Test
+  public void testUsersAreCachedAndCopied() throws LdapUtilityException {
+    LdapUtility ldap = Mockito.mock(LdapUtility.class);
+    Mockito.when(ldap.getUser("john")).thenReturn(new User("john"));
+    PrincipalCache cache = new PrincipalCache(60, 100);
+
+    cache.getUser(ldap, "john").setIpAddress("1.1.1.1");
+    assertEquals("", cache.getUser(ldap, "john").getIpAddress());
+
+    Mockito.verify(ldap, Mockito.times(1)).getUser("john");
+    assertEquals(1, cache.getUserStats().hitCount());
+
+    cache.invalidateUser("john");
+    cache.getUser(ldap, "john");
+    Mockito.verify(ldap, Mockito.times(2)).getUser("john");
+  }
+
+  @Test
+  public void testCredentialsAreCached() throws AuthenticationDeniedException, ServiceException {
+    LdapUtility ldap = Mockito.mock(LdapUtility.class);
+    Mockito.when(ldap.getAuthenticatedUser("john", "secret")).thenReturn(new User("john"));
+    Mockito.when(ldap.getAuthenticatedUser("john", "wrong"))
+      .thenThrow(new AuthenticationDeniedException("wrong password"));
+    PrincipalCache cache = new PrincipalCache(60, 100);
+
+    cache.getAuthenticatedUser(ldap, "john", "secret");
+    cache.getAuthenticatedUser(ldap, "john", "secret");
+    Mockito.verify(ldap, Mockito.times(1)).getAuthenticatedUser("john", "secret");
+
+    try {
+      cache.getAuthenticatedUser(ldap, "john", "wrong");
+      Assert.fail("Should have thrown AuthenticationDeniedException");
+    } catch (AuthenticationDeniedException e) {
+      // do nothing
+    }
+
+    // e.g. password changed
+    cache.invalidateUser("john");
+    cache.getAuthenticatedUser(ldap, "john", "secret");
+    Mockito.verify(ldap, Mockito.times(2)).getAuthenticatedUser("john", "secret");
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.index.IndexService;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class IncrementalTransferredResourcesScannerTest {
+
+  private static Path basePath;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(IncrementalTransferredResourcesScannerTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testRefusedResourcesAreRetried() throws RODAException, IOException {
+    Path folder = Files.createDirectory(basePath.resolve("transferred"));
+    Path snapshotFile = basePath.resolve("transferred.snapshot");
+
+    // Solr refusing the resources sent in batch is simulated by not sending
+    // them and counting them as failed
+    AtomicBoolean refusing = new AtomicBoolean(false);
+    AtomicLong failedDocuments = new AtomicLong(0);
+    IndexService index = Mockito.spy(RodaCoreFactory.getIndexService());
+    Mockito.doAnswer(invocation -> {
+      if (refusing.get()) {
+        failedDocuments.incrementAndGet();
+        return null;
+      }
+      return invocation.callRealMethod();
+    }).when(index).createInBatch(Matchers.eq(TransferredResource.class), Matchers.any(TransferredResource.class));
+    Mockito.doAnswer(invocation -> failedDocuments.get()).when(index)
+      .getFailedDocumentCount(TransferredResource.class);
+
+    boolean watch = false;
+    IncrementalTransferredResourcesScanner scanner = new IncrementalTransferredResourcesScanner(folder, snapshotFile,
+      index, watch, 0, 0);
+    try {
+      String indexed = write(folder);
+      scanner.update(folder, true);
+      assertIndexed(index, indexed);
+
+      refusing.set(true);
+      String refused = write(folder);
+      scanner.update(folder, true);
+      index.commit(TransferredResource.class);
+      try {
+        index.retrieve(TransferredResource.class, TransferredResourcesScanner.getTransferredResourceUUID(refused));
+        fail("Refused resources should not be indexed");
+      } catch (NotFoundException e) {
+        // expected
+      }
+
+      // the snapshot was rolled back, so the next update finds them again
+      refusing.set(false);
+      scanner.update(folder, true);
+      assertIndexed(index, indexed);
+      assertIndexed(index, refused);
+    } finally {
+      scanner.shutdown();
+      FSUtils.deletePathQuietly(snapshotFile);
+    }
+  }
+
+  private static String write(Path folder) throws IOException {
+    String name = UUID.randomUUID().toString() + ".txt";
+    Files.write(folder.resolve(name), name.getBytes(StandardCharsets.UTF_8));
+    return name;
+  }
+
+  private static void assertIndexed(IndexService index, String relativePath) throws RODAException {
+    TransferredResource resource = index.retrieve(TransferredResource.class,
+      TransferredResourcesScanner.getTransferredResourceUUID(relativePath));
+    assertEquals(relativePath, resource.getRelativePath());
+  }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class TransferredResourcesSnapshotTest {
+
+  @Test
+  public void testOnlyChangesAreNotified() throws IOException {
+    Path basePath = Files.createTempDirectory(getClass().getSimpleName());
+    Path snapshotFile = Files.createTempFile(getClass().getSimpleName(), ".snapshot");
+    try {
+      Files.createDirectories(basePath.resolve(Paths.get("a", "b")));
+      write(basePath.resolve(Paths.get("a", "1.txt")), "abc");
+      write(basePath.resolve(Paths.get("a", "b", "2.txt")), "de");
+      write(basePath.resolve("3.txt"), "f");
+
+      TransferredResourcesSnapshot snapshot = new TransferredResourcesSnapshot(basePath);
+      RecordingListener listener = update(snapshot, basePath);
+      assertEquals(new HashSet<>(Arrays.asList(path("a"), path("a", "1.txt"), path("a", "b"), path("a", "b", "2.txt"),
+        path("3.txt"))), listener.changed.keySet());
+      assertEquals(5L, listener.changed.get(path("a")).getSize());
+
+      assertTrue(update(snapshot, basePath).changed.isEmpty());
+
+      // the ancestors of a changed file change as well
+      write(basePath.resolve(Paths.get("a", "b", "2.txt")), "defg");
+      listener = update(snapshot, basePath.resolve(Paths.get("a", "b", "2.txt")));
+      assertEquals(new HashSet<>(Arrays.asList(path("a"), path("a", "b"), path("a", "b", "2.txt"))),
+        listener.changed.keySet());
+      assertEquals(7L, listener.changed.get(path("a")).getSize());
+
+      FSUtils.deletePath(basePath.resolve(Paths.get("a", "b")));
+      listener = update(snapshot, basePath.resolve(Paths.get("a", "b")));
+      assertEquals(new HashSet<>(Arrays.asList(TransferredResourcesScanner.getTransferredResourceUUID(path("a", "b")),
+        TransferredResourcesScanner.getTransferredResourceUUID(path("a", "b", "2.txt")))),
+        new HashSet<>(listener.removed));
+      assertEquals(3L, listener.changed.get(path("a")).getSize());
+
+      // nothing changes after saving and loading it
+      snapshot.save(snapshotFile);
+      snapshot = TransferredResourcesSnapshot.load(basePath, snapshotFile);
+      assertEquals(3, snapshot.size());
+      listener = update(snapshot, basePath);
+      assertTrue(listener.changed.isEmpty());
+      assertTrue(listener.removed.isEmpty());
+    } finally {
+      FSUtils.deletePathQuietly(basePath);
+      FSUtils.deletePathQuietly(snapshotFile);
+    }
+  }
+
+  @Test
+  public void testRolledBackChangesAreNotifiedAgain() throws IOException {
+    Path basePath = Files.createTempDirectory(getClass().getSimpleName());
+    try {
+      Files.createDirectories(basePath.resolve("a"));
+      write(basePath.resolve(Paths.get("a", "1.txt")), "abc");
+      write(basePath.resolve(Paths.get("a", "2.txt")), "de");
+
+      TransferredResourcesSnapshot snapshot = new TransferredResourcesSnapshot(basePath);
+      update(snapshot, basePath);
+
+      write(basePath.resolve(Paths.get("a", "1.txt")), "abcd");
+      FSUtils.deletePath(basePath.resolve(Paths.get("a", "2.txt")));
+      write(basePath.resolve("3.txt"), "f");
+      RecordingListener listener = new RecordingListener();
+      snapshot.update(basePath, new Date(), listener);
+      // e.g. the changes could not be indexed
+      snapshot.rollback();
+      assertEquals(3, snapshot.size());
+
+      RecordingListener retryListener = update(snapshot, basePath);
+      assertEquals(new HashSet<>(Arrays.asList(path("a"), path("a", "1.txt"), path("3.txt"))),
+        retryListener.changed.keySet());
+      assertEquals(listener.changed.keySet(), retryListener.changed.keySet());
+      assertEquals(Arrays.asList(TransferredResourcesScanner.getTransferredResourceUUID(path("a", "2.txt"))),
+        retryListener.removed);
+      assertEquals(4L, retryListener.changed.get(path("a")).getSize());
+
+      assertTrue(update(snapshot, basePath).changed.isEmpty());
+    } finally {
+      FSUtils.deletePathQuietly(basePath);
+    }
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String path(String first, String... more) {
+    return Paths.get(first, more).toString();
+  }
+
+  private static RecordingListener update(TransferredResourcesSnapshot snapshot, Path path) throws IOException {
+    RecordingListener listener = new RecordingListener();
+    snapshot.update(path, new Date(), listener);
+    snapshot.commit();
+    return listener;
+  }
+
+  private static class RecordingListener implements TransferredResourcesSnapshot.Listener {
+    private final Map<String, TransferredResource> changed = new HashMap<>();
+    private final List<String> removed = new ArrayList<>();
+
+    @Override
+    public void changed(TransferredResource resource) {
+      changed.put(resource.getRelativePath(), resource);
+    }
+
+    @Override
+    public void removed(String uuid) {
+      removed.add(uuid);
+    }
+  }
+
+}
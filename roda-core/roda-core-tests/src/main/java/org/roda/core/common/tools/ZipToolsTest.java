@@ -0,0 +1,57 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.tools;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class ZipToolsTest {
+
+  @Test
+  public void testZipWithAndWithoutCompression() throws IOException {
+    Path dir = Files.createTempDirectory(getClass().getSimpleName());
+    try {
+      Path file1 = Files.write(dir.resolve("file1.txt"), "content 1".getBytes(StandardCharsets.UTF_8));
+      Path file2 = Files.write(dir.resolve("file2.txt"), "content 2".getBytes(StandardCharsets.UTF_8));
+
+      for (boolean compress : Arrays.asList(true, false)) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipTools.zip(Arrays.asList(new ZipEntryInfo("a/file1.txt", file1), new ZipEntryInfo("file2.txt", file2)), out,
+          compress);
+
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+          ZipEntry entry = zis.getNextEntry();
+          assertEquals("a/file1.txt", entry.getName());
+          assertEquals("content 1", IOUtils.toString(zis, StandardCharsets.UTF_8));
+          entry = zis.getNextEntry();
+          assertEquals("file2.txt", entry.getName());
+          assertEquals("content 2", IOUtils.toString(zis, StandardCharsets.UTF_8));
+          assertNull(zis.getNextEntry());
+        }
+      }
+    } finally {
+      FSUtils.deletePathQuietly(dir);
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+
+import org.mockito.Mockito;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.index.utils.AIPAncestorsCache;
+import org.roda.core.model.ModelService;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class AIPAncestorsCacheTest {
+
+  private static ModelService createModel() throws RODAException {
+    // fonds <- series <- file
+    ModelService model = Mockito.mock(ModelService.class);
+    Mockito.when(model.retrieveAIP("fonds"))
+      .thenReturn(new AIP("fonds", null, "fonds", AIPState.ACTIVE, new Permissions()));
+    Mockito.when(model.retrieveAIP("series"))
+      .thenReturn(new AIP("series", "fonds", "series", AIPState.ACTIVE, new Permissions()));
+    Mockito.when(model.retrieveAIP("file"))
+      .thenReturn(new AIP("file", "series", "file", AIPState.ACTIVE, new Permissions()));
+    return model;
+  }
+
+  @Test
+  public void testAncestorsAreCached() throws RODAException {
+    ModelService model = createModel();
+    AIPAncestorsCache cache = new AIPAncestorsCache(model, 100);
+
+    assertEquals(Arrays.asList("file", "series", "fonds"), cache.getAncestors("file"));
+    assertEquals(Arrays.asList("file", "series", "fonds"), cache.getAncestors("file"));
+    assertEquals(Arrays.asList("series", "fonds"), cache.getAncestors("series"));
+
+    Mockito.verify(model, Mockito.times(1)).retrieveAIP("file");
+    Mockito.verify(model, Mockito.times(1)).retrieveAIP("series");
+    Mockito.verify(model, Mockito.times(1)).retrieveAIP("fonds");
+    assertEquals(5, cache.getStats().hitCount());
+  }
+
+  @Test
+  public void testInvalidateDescendants() throws RODAException {
+    ModelService model = createModel();
+    AIPAncestorsCache cache = new AIPAncestorsCache(model, 100);
+    cache.getAncestors("file");
+
+    // series is moved to the top
+    Mockito.when(model.retrieveAIP("series"))
+      .thenReturn(new AIP("series", null, "series", AIPState.ACTIVE, new Permissions()));
+    cache.invalidate("series");
+
+    assertEquals(Arrays.asList("file", "series"), cache.getAncestors("file"));
+  }
+
+  @Test
+  public void testInvalidateIfParentChanged() throws RODAException {
+    ModelService model = createModel();
+    AIPAncestorsCache cache = new AIPAncestorsCache(model, 100);
+    cache.getAncestors("file");
+
+    cache.invalidateIfParentChanged("series", "fonds");
+    assertEquals(Arrays.asList("file", "series", "fonds"), cache.getAncestors("file"));
+    Mockito.verify(model, Mockito.times(1)).retrieveAIP("file");
+
+    Mockito.when(model.retrieveAIP("file"))
+      .thenReturn(new AIP("file", "fonds", "file", AIPState.ACTIVE, new Permissions()));
+    cache.invalidateIfParentChanged("file", "fonds");
+    assertEquals(Arrays.asList("file", "fonds"), cache.getAncestors("file"));
+  }
+
+  @Test
+  public void testParentInvalidatedWhileLoadingIsNotCached() throws RODAException {
+    ModelService model = createModel();
+    AIPAncestorsCache cache = new AIPAncestorsCache(model, 100);
+
+    // file is moved to the top while its old parent is being loaded
+    Mockito.when(model.retrieveAIP("file")).thenAnswer(invocation -> {
+      Mockito.doReturn(new AIP("file", null, "file", AIPState.ACTIVE, new Permissions())).when(model)
+        .retrieveAIP("file");
+      cache.invalidate("file");
+      return new AIP("file", "series", "file", AIPState.ACTIVE, new Permissions());
+    });
+
+    assertEquals(Arrays.asList("file", "series", "fonds"), cache.getAncestors("file"));
+    assertEquals(Arrays.asList("file"), cache.getAncestors("file"));
+  }
+
+}
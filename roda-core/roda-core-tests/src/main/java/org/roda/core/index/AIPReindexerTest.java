@@ -0,0 +1,247 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.CorporaConstants;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.adapter.filter.SimpleFilterParameter;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.IndexRunnable;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
+import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class AIPReindexerTest {
+
+  private static Path basePath;
+  private static ModelService model;
+  private static IndexService index;
+  private static StorageService storage;
+
+  private static StorageService corporaService;
+  private static String aipCreator = "admin";
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(AIPReindexerTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = true;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+
+    model = RodaCoreFactory.getModelService();
+    index = RodaCoreFactory.getIndexService();
+    storage = RodaCoreFactory.getStorageService();
+
+    URL corporaURL = AIPReindexerTest.class.getResource("/corpora");
+    corporaService = new FileStorageService(Paths.get(corporaURL.toURI()));
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @AfterMethod
+  public void cleanUp() throws RODAException {
+    index.execute(IndexedAIP.class, Filter.ALL, new IndexRunnable<IndexedAIP>() {
+      @Override
+      public void run(IndexedAIP item) throws GenericException, RequestNotValidException, AuthorizationDeniedException {
+        try {
+          model.deleteAIP(item.getId());
+        } catch (NotFoundException e) {
+          // do nothing
+        }
+      }
+    });
+  }
+
+  private String createAIP() throws RODAException {
+    String aipId = UUID.randomUUID().toString();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+    return aipId;
+  }
+
+  private long countRepresentations(String aipId) throws RODAException {
+    return index.count(IndexedRepresentation.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipId)));
+  }
+
+  private void assertIndexed(String aipId) throws RODAException {
+    assertEquals(aipId, index.retrieve(IndexedAIP.class, aipId).getId());
+    assertTrue(countRepresentations(aipId) > 0);
+  }
+
+  @Test
+  public void testReindexDeletesOnlyOrphanedDocuments() throws RODAException {
+    String aipId = createAIP();
+    String orphanId = createAIP();
+    index.commitAIPs();
+
+    // removed from storage without the index being notified
+    storage.deleteResource(ModelUtils.getAIPStoragePath(orphanId));
+
+    AIPReindexer.Progress progress = index.reindexAIPs(false, null);
+    assertTrue(progress.isComplete());
+    assertEquals(1, progress.getReindexedCount());
+    assertEquals(0, progress.getFailedCount());
+
+    assertIndexed(aipId);
+    try {
+      index.retrieve(IndexedAIP.class, orphanId);
+      fail("Documents of AIPs that no longer exist should be deleted");
+    } catch (NotFoundException e) {
+      // expected
+    }
+    assertEquals(0, countRepresentations(orphanId));
+  }
+
+  @Test
+  public void testFailedAIPSurvivesAndIsRetriedOnResume() throws RODAException, IOException {
+    String aipId1 = createAIP();
+    String aipId2 = createAIP();
+    String failingAipId = createAIP();
+    index.commitAIPs();
+
+    // the AIP cannot be listed while its metadata is invalid
+    StoragePath metadataPath = DefaultStoragePath.parse(ModelUtils.getAIPStoragePath(failingAipId),
+      RodaConstants.STORAGE_AIP_METADATA_FILENAME);
+    String metadata;
+    try (InputStream content = storage.getBinary(metadataPath).getContent().createInputStream()) {
+      metadata = IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+    storage.updateBinaryContent(metadataPath, new StringContentPayload("{"), false, false);
+
+    AIPReindexer.Progress progress = index.reindexAIPs(false, null);
+    assertFalse(progress.isComplete());
+    assertEquals(2, progress.getReindexedCount());
+    assertEquals(1, progress.getFailedCount());
+
+    // outdated documents are kept when an AIP fails
+    assertIndexed(aipId1);
+    assertIndexed(aipId2);
+    assertIndexed(failingAipId);
+
+    // resuming only reindexes the AIP that failed
+    storage.updateBinaryContent(metadataPath, new StringContentPayload(metadata), false, false);
+    progress = index.reindexAIPs(true, null);
+    assertTrue(progress.isComplete());
+    assertEquals(2, progress.getPreviouslyReindexedCount());
+    assertEquals(2, progress.getSkippedCount());
+    assertEquals(1, progress.getReindexedCount());
+    assertEquals(0, progress.getFailedCount());
+
+    assertIndexed(aipId1);
+    assertIndexed(aipId2);
+    assertIndexed(failingAipId);
+  }
+
+  @Test
+  public void testAIPWithRefusedDocumentsFailsAndIsRetriedOnResume() throws RODAException, IOException {
+    String aipId = createAIP();
+    String failingAipId = createAIP();
+    index.commitAIPs();
+
+    // Solr refuses the event document, as its date is invalid
+    StoragePath eventPath = ModelUtils.getPreservationMetadataStoragePath(
+      CorporaConstants.REPRESENTATION_1_PREMIS_EVENT_ID, PreservationMetadataType.EVENT, failingAipId,
+      CorporaConstants.REPRESENTATION_1_ID);
+    String event;
+    try (InputStream content = storage.getBinary(eventPath).getContent().createInputStream()) {
+      event = IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+    String invalidEvent = event.replaceAll("<eventDateTime>[^<]*</eventDateTime>",
+      "<eventDateTime>not a date</eventDateTime>");
+    storage.updateBinaryContent(eventPath, new StringContentPayload(invalidEvent), false, false);
+
+    AIPReindexer.Progress progress = index.reindexAIPs(false, null);
+    assertFalse(progress.isComplete());
+    assertEquals(1, progress.getReindexedCount());
+    assertEquals(1, progress.getFailedCount());
+
+    // outdated documents are kept when an AIP fails
+    assertIndexed(aipId);
+    assertIndexed(failingAipId);
+
+    // the AIP was not checkpointed, so resuming retries it
+    storage.updateBinaryContent(eventPath, new StringContentPayload(event), false, false);
+    progress = index.reindexAIPs(true, null);
+    assertTrue(progress.isComplete());
+    assertEquals(1, progress.getSkippedCount());
+    assertEquals(1, progress.getReindexedCount());
+    assertEquals(0, progress.getFailedCount());
+
+    assertIndexed(aipId);
+    assertIndexed(failingAipId);
+  }
+
+  @Test
+  public void testReindexRefusedWhileAnotherIsRunning() throws RODAException, IOException {
+    String aipId = createAIP();
+    index.commitAIPs();
+
+    Path lockFile = RodaCoreFactory.getDataPath().resolve("reindex").resolve("aip.checkpoint.lock");
+    Files.createDirectories(lockFile.getParent());
+    try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock lock = channel.lock()) {
+      index.reindexAIPs(false, null);
+      fail("A reindex should not start while another one is running");
+    } catch (GenericException e) {
+      // expected
+    }
+
+    assertIndexed(aipId);
+    assertTrue(index.reindexAIPs(false, null).isComplete());
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.ArrayList;
+
+import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.index.utils.IndexResultCache;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class IndexResultCacheTest {
+
+  private static IndexResult<IndexedAIP> createResult(long totalCount) {
+    return new IndexResult<>(0, 0, totalCount, new ArrayList<>(), new ArrayList<>());
+  }
+
+  @Test
+  public void testResultsAreCopiedAndCountedPerCollection() {
+    IndexResultCache cache = new IndexResultCache(60000, 10);
+    IndexResult<IndexedAIP> result = createResult(3);
+
+    assertNull(cache.get("AIP", "q=*:*"));
+    cache.put("AIP", "q=*:*", result, cache.getGeneration("AIP"));
+    IndexResult<IndexedAIP> cached = cache.get("AIP", "q=*:*");
+    assertEquals(3, cached.getTotalCount());
+    assertNotSame(result, cached);
+    assertNull(cache.get("File", "q=*:*"));
+
+    assertEquals(1, cache.getStats().get("AIP").hitCount());
+    assertEquals(1, cache.getStats().get("AIP").missCount());
+    assertEquals(0, cache.getStats().get("File").hitCount());
+  }
+
+  @Test
+  public void testInvalidate() {
+    IndexResultCache cache = new IndexResultCache(60000, 10);
+    cache.put("AIP", "q=*:*", createResult(3), cache.getGeneration("AIP"));
+    cache.put("File", "q=*:*", createResult(5), cache.getGeneration("File"));
+
+    cache.invalidate("AIP");
+    assertNull(cache.get("AIP", "q=*:*"));
+    assertEquals(5, cache.<IndexResult<IndexedAIP>> get("File", "q=*:*").getTotalCount());
+  }
+
+  @Test
+  public void testResultsLoadedWhileTheCollectionChangesAreNotCached() {
+    IndexResultCache cache = new IndexResultCache(60000, 10);
+    long generation = cache.getGeneration("AIP");
+
+    // documents are sent to Solr while the query is running
+    cache.invalidate("AIP");
+    cache.put("AIP", "q=*:*", createResult(3), generation);
+    assertNull(cache.get("AIP", "q=*:*"));
+  }
+
+}
@@ -8,9 +8,12 @@
 package org.roda.core.index;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -18,6 +21,7 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -34,9 +38,11 @@ import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
 import org.roda.core.common.IdUtils;
 import org.roda.core.common.RodaUtils;
+import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.common.notifications.EmailNotificationProcessor;
 import org.roda.core.data.adapter.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.adapter.filter.FilterParameter;
 import org.roda.core.data.adapter.filter.SimpleFilterParameter;
 import org.roda.core.data.adapter.sublist.Sublist;
 import org.roda.core.data.common.RodaConstants;
@@ -50,16 +56,21 @@ import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.exceptions.UserAlreadyExistsException;
 import org.roda.core.data.v2.agents.Agent;
+import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.formats.Format;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IndexRunnable;
+import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.log.LogEntry;
 import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
 import org.roda.core.data.v2.log.LogEntryParameter;
@@ -72,9 +83,12 @@ import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.fs.FileStorageService;
 import org.slf4j.Logger;
@@ -296,6 +310,163 @@ public class IndexServiceTest {
     model.deleteAIP(aipId);
   }
 
+  private String createAIP() throws RODAException {
+    String aipId = UUID.randomUUID().toString();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+    return aipId;
+  }
+
+  private <T extends IsIndexed> long count(Class<T> indexedClass, String aipIdField, String aipId,
+    FilterParameter... parameters) throws RODAException {
+    Filter filter = new Filter(new SimpleFilterParameter(aipIdField, aipId));
+    for (FilterParameter parameter : parameters) {
+      filter.add(parameter);
+    }
+    return index.count(indexedClass, filter);
+  }
+
+  @Test
+  public void testAIPUpdateIndexesAddedAndRemovedRepresentations() throws RODAException {
+    String aipId = createAIP();
+    index.commitAIPs();
+    SimpleFilterParameter secondRepresentation = new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_ID,
+      CorporaConstants.REPRESENTATION_2_ID);
+    long secondRepresentationFiles = count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, secondRepresentation);
+    assertTrue(secondRepresentationFiles > 0);
+
+    AIP aip = model.retrieveAIP(aipId);
+    Representation removed = aip.getRepresentations().stream()
+      .filter(r -> CorporaConstants.REPRESENTATION_2_ID.equals(r.getId())).findFirst().get();
+    aip.getRepresentations().remove(removed);
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    assertEquals(1, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId));
+    assertEquals(0, count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, secondRepresentation));
+    assertEquals(aipId, index.retrieve(IndexedAIP.class, aipId).getId());
+
+    aip.getRepresentations().add(removed);
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    assertEquals(2, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId));
+    assertEquals(secondRepresentationFiles,
+      count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, secondRepresentation));
+  }
+
+  @Test
+  public void testAIPUpdatePropagatesStateChange() throws RODAException {
+    String aipId = createAIP();
+    index.commitAIPs();
+    long files = count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId);
+    long events = count(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId);
+    assertTrue(files > 0);
+    assertTrue(events > 0);
+
+    AIP aip = model.retrieveAIP(aipId);
+    aip.setState(AIPState.INACTIVE);
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    SimpleFilterParameter inactive = new SimpleFilterParameter(RodaConstants.STATE, AIPState.INACTIVE.toString());
+    assertEquals(AIPState.INACTIVE, index.retrieve(IndexedAIP.class, aipId).getState());
+    assertEquals(2, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId, inactive));
+    assertEquals(files, count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, inactive));
+    assertEquals(events,
+      count(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId, inactive));
+  }
+
+  @Test
+  public void testAIPUpdatePropagatesPermissionsChange() throws RODAException {
+    String aipId = createAIP();
+    index.commitAIPs();
+    long files = count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId);
+    SimpleFilterParameter readable = new SimpleFilterParameter(
+      RodaConstants.INDEX_PERMISSION_USERS_PREFIX + PermissionType.READ, "testuser");
+    assertEquals(0, count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, readable));
+
+    AIP aip = model.retrieveAIP(aipId);
+    aip.getPermissions().setUserPermissions("testuser", new HashSet<>(Arrays.asList(PermissionType.READ)));
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    assertTrue(index.retrieve(IndexedAIP.class, aipId).getPermissions().getUsers().get(PermissionType.READ)
+      .contains("testuser"));
+    assertEquals(2, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId, readable));
+    assertEquals(files, count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, readable));
+  }
+
+  @Test
+  public void testAIPUpdateOfParentUpdatesDescendantsAncestors() throws RODAException {
+    String parentId = createAIP();
+    String newParentId = createAIP();
+    String aipId = createAIP();
+    String childId = createAIP();
+    model.moveAIP(aipId, parentId);
+    model.moveAIP(childId, aipId);
+    index.commitAIPs();
+    assertEquals(Arrays.asList(aipId, parentId), index.retrieve(IndexedAIP.class, childId).getAncestors());
+
+    AIP aip = model.retrieveAIP(aipId);
+    aip.setParentId(newParentId);
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    assertEquals(Arrays.asList(newParentId), index.retrieve(IndexedAIP.class, aipId).getAncestors());
+    assertEquals(Arrays.asList(aipId, newParentId), index.retrieve(IndexedAIP.class, childId).getAncestors());
+    for (String id : Arrays.asList(aipId, childId)) {
+      assertEquals(2, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, id,
+        new SimpleFilterParameter(RodaConstants.REPRESENTATION_ANCESTORS, newParentId)));
+      assertEquals(0, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, id,
+        new SimpleFilterParameter(RodaConstants.REPRESENTATION_ANCESTORS, parentId)));
+      assertEquals(count(IndexedFile.class, RodaConstants.FILE_AIPID, id), count(IndexedFile.class,
+        RodaConstants.FILE_AIPID, id, new SimpleFilterParameter(RodaConstants.FILE_ANCESTORS, newParentId)));
+      assertEquals(0, count(IndexedFile.class, RodaConstants.FILE_AIPID, id,
+        new SimpleFilterParameter(RodaConstants.FILE_ANCESTORS, parentId)));
+    }
+  }
+
+  @Test
+  public void testAIPUpdateOfIngestIdsReindexesAllDocuments() throws RODAException {
+    String aipId = createAIP();
+    index.commitAIPs();
+    long files = count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId);
+
+    AIP aip = model.retrieveAIP(aipId);
+    String ingestSIPId = UUID.randomUUID().toString();
+    aip.setIngestSIPId(ingestSIPId);
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    SimpleFilterParameter ingested = new SimpleFilterParameter(RodaConstants.INGEST_SIP_ID, ingestSIPId);
+    assertEquals(ingestSIPId, index.retrieve(IndexedAIP.class, aipId).getIngestSIPId());
+    assertEquals(2, count(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId, ingested));
+    assertEquals(files, count(IndexedFile.class, RodaConstants.FILE_AIPID, aipId, ingested));
+  }
+
+  @Test
+  public void testFindAllIteratesOverSeveralPages() throws RODAException, IOException {
+    Set<String> aipIds = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      String aipId = UUID.randomUUID().toString();
+      model.createAIP(aipId, corporaService,
+        DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+      aipIds.add(aipId);
+    }
+    index.commitAIPs();
+
+    // pages of 2 AIPs, so the last one is incomplete
+    Set<String> iteratedIds = new HashSet<>();
+    try (IterableIndexResult<IndexedAIP> aips = index.findAll(IndexedAIP.class, Filter.ALL, 2)) {
+      assertEquals(5, aips.getTotalCount());
+      for (IndexedAIP aip : aips) {
+        assertTrue("AIP " + aip.getId() + " iterated twice", iteratedIds.add(aip.getId()));
+      }
+    }
+    assertEquals(aipIds, iteratedIds);
+  }
+
   @Test
   public void testListCollections() throws RODAException {
     // set up
@@ -362,6 +533,72 @@ public class IndexServiceTest {
       Matchers.hasItem(Matchers.<IndexedAIP> hasProperty("id", Matchers.equalTo(CorporaConstants.SOURCE_AIP_ID))));
   }
 
+  @Test
+  public void testCachedAncestorsAreCopiedAndInvalidated() throws RODAException {
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID), aipCreator);
+    index.commitAIPs();
+
+    IndexedAIP aip = index.retrieve(IndexedAIP.class, CorporaConstants.OTHER_AIP_ID);
+    List<IndexedAIP> ancestors = index.retrieveAncestors(aip);
+    assertEquals(1, ancestors.size());
+    assertEquals("My example", ancestors.get(0).getTitle());
+
+    // changing the ancestors returned does not change the cached ones
+    ancestors.get(0).setTitle("Changed by the caller");
+    ancestors.get(0).getPermissions().getUsers().get(PermissionType.READ).add("testuser");
+    IndexedAIP cachedAncestor = index.retrieveAncestors(aip).get(0);
+    assertEquals("My example", cachedAncestor.getTitle());
+    assertFalse(cachedAncestor.getPermissions().getUsers().get(PermissionType.READ).contains("testuser"));
+
+    // updating the ancestor discards its cached copy
+    AIP parent = model.retrieveAIP(CorporaConstants.SOURCE_AIP_ID);
+    parent.getPermissions().setUserPermissions("testuser", new HashSet<>(Arrays.asList(PermissionType.READ)));
+    model.updateAIPPermissions(parent, aipCreator);
+    index.commitAIPs();
+    assertTrue(index.retrieveAncestors(aip).get(0).getPermissions().getUsers().get(PermissionType.READ)
+      .contains("testuser"));
+
+    // deleting the ancestor discards its cached copy
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+    index.commitAIPs();
+    assertTrue(index.retrieveAncestors(aip).isEmpty());
+  }
+
+  @Test
+  public void testRetrieveAndFindWithFieldsToReturn() throws RODAException {
+    final String aipId = UUID.randomUUID().toString();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+    index.commitAIPs();
+
+    IndexedAIP aip = index.retrieve(IndexedAIP.class, aipId);
+    assertNotNull(aip.getTitle());
+    assertNotNull(aip.getLevel());
+
+    // only the given fields and the unique key are set
+    List<String> fieldsToReturn = Arrays.asList(RodaConstants.AIP_TITLE);
+    IndexedAIP projectedAIP = index.retrieve(IndexedAIP.class, aipId, fieldsToReturn);
+    assertEquals(aipId, projectedAIP.getId());
+    assertEquals(aip.getTitle(), projectedAIP.getTitle());
+    assertNull(projectedAIP.getLevel());
+
+    IndexResult<IndexedAIP> found = index.find(IndexedAIP.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.AIP_ID, aipId)), null, new Sublist(0, 10), null, null, false,
+      fieldsToReturn);
+    assertEquals(1, found.getTotalCount());
+    assertEquals(aipId, found.getResults().get(0).getId());
+    assertEquals(aip.getTitle(), found.getResults().get(0).getTitle());
+    assertNull(found.getResults().get(0).getLevel());
+
+    // no fields to return means all of them
+    assertEquals(aip.getLevel(), index.retrieve(IndexedAIP.class, aipId, Collections.emptyList()).getLevel());
+
+    model.deleteAIP(aipId);
+  }
+
   @Test
   public void testGetElementWithoutParentId() throws RODAException {
     // generate AIP ID
@@ -511,6 +748,47 @@ public class IndexServiceTest {
 
   }
 
+  @Test
+  public void testIndexRepresentationWithManyFiles() throws RODAException, IOException {
+    final String aipId = UUID.randomUUID().toString();
+    final AIP aip = model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), false,
+      aipCreator);
+    final String representationId = aip.getRepresentations().get(0).getId();
+
+    // more files than file indexing threads, so that they are indexed in
+    // parallel (and some by the thread listing them)
+    for (int i = 0; i < 200; i++) {
+      model.createFile(aipId, representationId, Collections.emptyList(), "file" + i + ".txt",
+        new StringContentPayload("content of file " + i), false);
+    }
+
+    long expectedFiles = 0;
+    long expectedSize = 0;
+    StorageService storage = RodaCoreFactory.getStorageService();
+    try (CloseableIterable<OptionalWithCause<File>> files = model.listFilesUnder(aipId, representationId, true)) {
+      for (OptionalWithCause<File> file : files) {
+        if (file.isPresent() && !file.get().isDirectory()) {
+          expectedFiles++;
+          expectedSize += storage.getBinary(ModelUtils.getFileStoragePath(file.get())).getSizeInBytes();
+        }
+      }
+    }
+
+    index.reindexAIP(model.retrieveAIP(aipId));
+    index.commitAIPs();
+
+    IndexedRepresentation representation = index.retrieve(IndexedRepresentation.class,
+      IdUtils.getRepresentationId(aipId, representationId));
+    assertEquals(expectedFiles, representation.getNumberOfDataFiles());
+    assertEquals(expectedSize, representation.getSizeInBytes());
+
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_UUID,
+      representation.getUUID()));
+    filter.add(new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, Boolean.FALSE.toString()));
+    assertEquals(Long.valueOf(expectedFiles), index.count(IndexedFile.class, filter));
+  }
+
   @Test
   public void indexMembers() throws AlreadyExistsException, GenericException, RequestNotValidException,
     EmailAlreadyExistsException, UserAlreadyExistsException, IllegalOperationException, NotFoundException {
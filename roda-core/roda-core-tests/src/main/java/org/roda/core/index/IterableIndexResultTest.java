@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.SolrParams;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.index.utils.SolrUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class IterableIndexResultTest {
+
+  @Test
+  public void testErrorsWhileIteratingAreNotHidden() throws RODAException, SolrServerException, IOException {
+    // the first page is empty but not the last, so a second page is queried
+    QueryResponse firstPage = Mockito.mock(QueryResponse.class);
+    SolrDocumentList documents = new SolrDocumentList();
+    documents.setNumFound(3);
+    Mockito.when(firstPage.getResults()).thenReturn(documents);
+    Mockito.when(firstPage.getNextCursorMark()).thenReturn("nextCursorMark");
+
+    SolrClient solrClient = Mockito.mock(SolrClient.class);
+    Mockito.when(solrClient.query(Matchers.anyString(), Matchers.any(SolrParams.class)))
+      .thenReturn(firstPage).thenThrow(new SolrServerException("Solr is down"));
+
+    IterableIndexResult<IndexedAIP> aips = SolrUtils.findAll(solrClient, IndexedAIP.class, Filter.ALL, 2, null, false);
+    assertEquals(3, aips.getTotalCount());
+
+    Iterator<IndexedAIP> iterator = aips.iterator();
+    try {
+      iterator.hasNext();
+      fail("An error querying the index should not end the iteration as if there were no more results");
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof GenericException);
+    }
+  }
+
+}
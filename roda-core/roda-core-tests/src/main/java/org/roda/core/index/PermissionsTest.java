@@ -8,23 +8,37 @@
 package org.roda.core.index;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.UUID;
 
 import org.roda.core.CorporaConstants;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
+import org.roda.core.common.UserUtility;
+import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.adapter.filter.OneOfManyFilterParameter;
+import org.roda.core.data.adapter.filter.SimpleFilterParameter;
 import org.roda.core.data.adapter.sublist.Sublist;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.index.SelectedItemsFilter;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.model.ModelService;
@@ -297,4 +311,80 @@ public class PermissionsTest {
     model.deleteAIP(aipId);
   }
 
+  @Test
+  public void testCheckPermissionsOnFilterSelection() throws RODAException {
+    final String aipWithPermissionId = UUID.randomUUID().toString();
+    model.createAIP(aipWithPermissionId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_PERMISSIONS),
+      aipCreator);
+    final String aipWithoutPermissionId = UUID.randomUUID().toString();
+    model.createAIP(aipWithoutPermissionId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+
+    index.commitAIPs();
+
+    User user = new User("testuser", "User with access", "", false);
+    Filter mixedFilter = new Filter(new OneOfManyFilterParameter(RodaConstants.AIP_ID,
+      Arrays.asList(aipWithPermissionId, aipWithoutPermissionId)));
+    Filter permittedFilter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ID, aipWithPermissionId));
+
+    assertEquals(Long.valueOf(1), index.countWithoutPermission(IndexedAIP.class, mixedFilter, user,
+      PermissionType.READ));
+    assertEquals(Long.valueOf(0), index.countWithoutPermission(IndexedAIP.class, permittedFilter, user,
+      PermissionType.READ));
+    assertEquals(Long.valueOf(1), index.countWithoutPermission(IndexedAIP.class, permittedFilter, user,
+      PermissionType.UPDATE));
+
+    try {
+      UserUtility.checkObjectPermissions(user,
+        new SelectedItemsFilter<>(mixedFilter, IndexedAIP.class.getName(), false), PermissionType.READ);
+      fail("The user does not have permission on all the selected AIPs");
+    } catch (AuthorizationDeniedException e) {
+      // expected
+    }
+
+    UserUtility.checkObjectPermissions(user,
+      new SelectedItemsFilter<>(permittedFilter, IndexedAIP.class.getName(), false), PermissionType.READ);
+
+    model.deleteAIP(aipWithPermissionId);
+    model.deleteAIP(aipWithoutPermissionId);
+  }
+
+  @Test
+  public void testUpdateAIPsPermissions() throws RODAException {
+    final String aipId = UUID.randomUUID().toString();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_PERMISSIONS),
+      aipCreator);
+    index.commitAIPs();
+
+    User user = new User("otheruser", "User without access", "", false);
+    boolean justActive = false;
+    Filter aipFilter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ID, aipId));
+    Filter representationsFilter = new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipId));
+    Filter filesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIPID, aipId));
+    Filter eventsFilter = new Filter(new SimpleFilterParameter(RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId));
+    assertEquals(Long.valueOf(0), index.count(IndexedAIP.class, aipFilter, user, justActive));
+    assertEquals(Long.valueOf(0), index.count(IndexedFile.class, filesFilter, user, justActive));
+
+    Permissions permissions = new Permissions();
+    permissions.setUserPermissions(user.getName(), new HashSet<>(Arrays.asList(PermissionType.READ)));
+    index.updateAIPsPermissions(Collections.singletonList(aipId), permissions);
+    index.commitAIPs();
+
+    // the AIP and all its representations, files and preservation events
+    assertEquals(Long.valueOf(1), index.count(IndexedAIP.class, aipFilter, user, justActive));
+    assertTrue(index.count(IndexedRepresentation.class, representationsFilter) > 0);
+    assertEquals(index.count(IndexedRepresentation.class, representationsFilter),
+      index.count(IndexedRepresentation.class, representationsFilter, user, justActive));
+    assertTrue(index.count(IndexedFile.class, filesFilter) > 0);
+    assertEquals(index.count(IndexedFile.class, filesFilter),
+      index.count(IndexedFile.class, filesFilter, user, justActive));
+    assertTrue(index.count(IndexedPreservationEvent.class, eventsFilter) > 0);
+    assertEquals(index.count(IndexedPreservationEvent.class, eventsFilter),
+      index.count(IndexedPreservationEvent.class, eventsFilter, user, justActive));
+
+    model.deleteAIP(aipId);
+  }
+
 }
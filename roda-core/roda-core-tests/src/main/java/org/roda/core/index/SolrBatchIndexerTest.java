@@ -0,0 +1,128 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.index.utils.SolrBatchIndexer;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class SolrBatchIndexerTest {
+
+  private static SolrInputDocument document(String id) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.FILE_UUID, id);
+    return doc;
+  }
+
+  @Test
+  public void testDocumentsAreSentInBatches() throws SolrServerException, IOException {
+    SolrClient index = Mockito.mock(SolrClient.class);
+    SolrBatchIndexer indexer = new SolrBatchIndexer(index, 3, 0);
+
+    for (int i = 0; i < 7; i++) {
+      indexer.add(RodaConstants.INDEX_FILE, document("file" + i));
+    }
+    Mockito.verify(index, Mockito.times(2)).add(Matchers.eq(RodaConstants.INDEX_FILE),
+      Matchers.<Collection<SolrInputDocument>> any());
+
+    indexer.shutdown();
+    Mockito.verify(index, Mockito.times(3)).add(Matchers.eq(RodaConstants.INDEX_FILE),
+      Matchers.<Collection<SolrInputDocument>> any());
+    assertEquals(3, indexer.getFlushCount());
+    assertEquals(7, indexer.getDocumentCount());
+    assertEquals(3, indexer.getMaxBatchSize());
+  }
+
+  @Test
+  public void testFlushOnlyAffectsCollection() throws SolrServerException, IOException {
+    SolrClient index = Mockito.mock(SolrClient.class);
+    SolrBatchIndexer indexer = new SolrBatchIndexer(index, 10, 0);
+
+    indexer.add(RodaConstants.INDEX_FILE, document("file"));
+    indexer.add(RodaConstants.INDEX_REPRESENTATION, document("representation"));
+    indexer.flush(RodaConstants.INDEX_FILE);
+
+    Mockito.verify(index, Mockito.times(1)).add(Matchers.eq(RodaConstants.INDEX_FILE),
+      Matchers.<Collection<SolrInputDocument>> any());
+    Mockito.verify(index, Mockito.never()).add(Matchers.eq(RodaConstants.INDEX_REPRESENTATION),
+      Matchers.<Collection<SolrInputDocument>> any());
+  }
+
+  @Test
+  public void testFailedBatchIsSentOneByOne() throws SolrServerException, IOException {
+    SolrClient index = Mockito.mock(SolrClient.class);
+    Mockito.when(index.add(Matchers.eq(RodaConstants.INDEX_FILE), Matchers.<Collection<SolrInputDocument>> any()))
+      .thenThrow(new SolrServerException("batch refused"));
+
+    SolrBatchIndexer indexer = new SolrBatchIndexer(index, 2, 0);
+    SolrInputDocument good = document("good");
+    SolrInputDocument bad = document("bad");
+    Mockito.when(index.add(RodaConstants.INDEX_FILE, bad)).thenThrow(new SolrServerException("document refused"));
+    indexer.add(RodaConstants.INDEX_FILE, good);
+    indexer.add(RodaConstants.INDEX_FILE, bad);
+
+    Mockito.verify(index).add(RodaConstants.INDEX_FILE, good);
+    Mockito.verify(index).add(RodaConstants.INDEX_FILE, bad);
+    assertEquals(1, indexer.getFailedDocumentCount());
+  }
+
+  @Test
+  public void testFailuresAreReportedPerCollection() throws SolrServerException, IOException {
+    SolrClient index = Mockito.mock(SolrClient.class);
+    Mockito.when(index.add(Matchers.eq(RodaConstants.INDEX_FILE), Matchers.<Collection<SolrInputDocument>> any()))
+      .thenThrow(new SolrServerException("batch refused"));
+
+    SolrBatchIndexer indexer = new SolrBatchIndexer(index, 10, 0);
+    List<SolrInputDocument> failed = new ArrayList<>();
+    indexer.addFailureListener((collection, document) -> failed.add(document));
+
+    SolrInputDocument good = document("good");
+    SolrInputDocument bad = document("bad");
+    Mockito.when(index.add(RodaConstants.INDEX_FILE, bad)).thenThrow(new SolrServerException("document refused"));
+    indexer.add(RodaConstants.INDEX_FILE, good);
+    indexer.add(RodaConstants.INDEX_FILE, bad);
+    indexer.add(RodaConstants.INDEX_REPRESENTATION, document("representation"));
+    indexer.flush();
+
+    assertEquals(1, failed.size());
+    assertEquals(bad, failed.get(0));
+    assertEquals(1, indexer.getFailedDocumentCount(RodaConstants.INDEX_FILE));
+    assertEquals(0, indexer.getFailedDocumentCount(RodaConstants.INDEX_REPRESENTATION));
+
+    // the refused batch is not counted as a flush
+    assertEquals(1, indexer.getFlushCount());
+    assertEquals(2, indexer.getDocumentCount());
+  }
+
+  @Test
+  public void testDiscardDropsBufferedDocuments() throws SolrServerException, IOException {
+    SolrClient index = Mockito.mock(SolrClient.class);
+    SolrBatchIndexer indexer = new SolrBatchIndexer(index, 10, 0);
+
+    indexer.add(RodaConstants.INDEX_FILE, document("file"));
+    indexer.discard(RodaConstants.INDEX_FILE);
+    indexer.flush();
+
+    Mockito.verify(index, Mockito.never()).add(Matchers.eq(RodaConstants.INDEX_FILE),
+      Matchers.<Collection<SolrInputDocument>> any());
+  }
+
+}
@@ -10,6 +10,7 @@ package org.roda.core.index;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -17,8 +18,10 @@ import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.SolrQuery.SortClause;
 import org.apache.solr.common.SolrInputDocument;
@@ -43,6 +46,8 @@ import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultStoragePath;
@@ -255,6 +260,57 @@ public class SolrUtilsTest {
 
   }
 
+  @Test
+  public void testParseAndConfigureFilter() throws RODAException {
+    String fonds = "fonds";
+
+    // 1) exact matches become filter queries, full-text searches are kept in
+    // the main query
+    SolrQuery query = new SolrQuery();
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_PARENT_ID, fonds),
+      new BasicSearchFilterParameter(RodaConstants.AIP_SEARCH, fonds));
+    SolrUtils.parseAndConfigureFilter(filter, query);
+    assertEquals(String.format("(%s: (%s))", RodaConstants.AIP_SEARCH, fonds), query.getQuery());
+    assertEquals(Arrays.asList(String.format("(%s: \"%s\")", RodaConstants.AIP_PARENT_ID, fonds)),
+      Arrays.asList(query.getFilterQueries()));
+
+    // 2) the hint of the parameter prevails
+    query = new SolrQuery();
+    SimpleFilterParameter notCacheable = new SimpleFilterParameter(RodaConstants.AIP_PARENT_ID, fonds);
+    notCacheable.setCacheable(false);
+    SolrUtils.parseAndConfigureFilter(new Filter(notCacheable), query);
+    assertEquals(String.format("(%s: \"%s\")", RodaConstants.AIP_PARENT_ID, fonds), query.getQuery());
+    assertNull(query.getFilterQueries());
+
+    // 3) empty parameters are not added as filter queries
+    query = new SolrQuery();
+    SolrUtils.parseAndConfigureFilter(new Filter(new DateRangeFilterParameter()), query);
+    assertEquals("*:*", query.getQuery());
+    assertNull(query.getFilterQueries());
+  }
+
+  @Test
+  public void testParseAndConfigureFields() throws RODAException {
+    // no fields to return means all of them
+    SolrQuery query = new SolrQuery();
+    SolrUtils.parseAndConfigureFields(IndexedAIP.class, Collections.emptyList(), query);
+    assertNull(query.getFields());
+
+    // the unique key is always returned
+    query = new SolrQuery();
+    SolrUtils.parseAndConfigureFields(IndexedAIP.class, Arrays.asList(RodaConstants.AIP_TITLE), query);
+    assertEquals(RodaConstants.AIP_TITLE + "," + RodaConstants.INDEX_ID, query.getFields());
+
+    query = new SolrQuery();
+    SolrUtils.parseAndConfigureFields(IndexedAIP.class,
+      Arrays.asList(RodaConstants.INDEX_ID, RodaConstants.AIP_TITLE), query);
+    assertEquals(RodaConstants.INDEX_ID + "," + RodaConstants.AIP_TITLE, query.getFields());
+
+    query = new SolrQuery();
+    SolrUtils.parseAndConfigureFields(IndexedFile.class, Arrays.asList(RodaConstants.FILE_SIZE), query);
+    assertEquals(RodaConstants.FILE_SIZE + "," + RodaConstants.INDEX_UUID, query.getFields());
+  }
+
   @Test
   public void testParseSorter() {
     Sorter sorter = null;
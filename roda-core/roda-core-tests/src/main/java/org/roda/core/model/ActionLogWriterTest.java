@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class ActionLogWriterTest {
+
+  private static LogEntry createLogEntry(int i) {
+    LogEntry entry = new LogEntry();
+    entry.setId("ID" + i);
+    entry.setActionComponent("Action");
+    entry.setActionMethod("Method");
+    entry.setAddress("Address");
+    entry.setDatetime(new Date());
+    entry.setDuration(i);
+    entry.setUsername("Username");
+    entry.setState(LOG_ENTRY_STATE.SUCCESS);
+    return entry;
+  }
+
+  @Test
+  public void testEntriesAreWrittenAndNotified() throws IOException, RODAException {
+    Path logDirectory = Files.createTempDirectory(getClass().getSimpleName());
+    try {
+      ModelService model = Mockito.mock(ModelService.class);
+      ActionLogWriter writer = new ActionLogWriter(model, logDirectory, 10, 3, true, true);
+
+      int number = 25;
+      for (int i = 0; i < number; i++) {
+        writer.log(createLogEntry(i));
+      }
+      writer.shutdown();
+
+      assertEquals(number, writer.getWrittenCount());
+      assertEquals(0, writer.getDroppedCount());
+      Mockito.verify(model, Mockito.times(number)).notifyLogEntryCreated(Matchers.any(LogEntry.class));
+
+      try (DirectoryStream<Path> logFiles = Files.newDirectoryStream(logDirectory)) {
+        for (Path logFile : logFiles) {
+          List<String> lines = Files.readAllLines(logFile);
+          assertEquals(number, lines.size());
+          assertEquals("ID0", JsonUtils.getObjectFromJson(lines.get(0), LogEntry.class).getId());
+        }
+      }
+    } finally {
+      FSUtils.deletePathQuietly(logDirectory);
+    }
+  }
+
+  @Test
+  public void testEntriesAreDroppedAfterShutdown() throws IOException {
+    Path logDirectory = Files.createTempDirectory(getClass().getSimpleName());
+    try {
+      ModelService model = Mockito.mock(ModelService.class);
+      ActionLogWriter writer = new ActionLogWriter(model, logDirectory, 10, 3, true, true);
+      writer.shutdown();
+
+      assertEquals(false, writer.log(createLogEntry(0)));
+      assertEquals(1, writer.getDroppedCount());
+    } finally {
+      FSUtils.deletePathQuietly(logDirectory);
+    }
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class JobReportStoreTest {
+
+  @Test
+  public void testChangesAreOnlyWrittenOnCompaction() throws IOException, RODAException {
+    Path segments = Files.createTempDirectory(getClass().getSimpleName());
+    try {
+      ModelService model = Mockito.mock(ModelService.class);
+      JobReportStore store = new JobReportStore(model, segments, 100, 0);
+
+      store.updateJobReport(newJobReport("job", "job-aip"));
+      store.addReportItem("job", "job-aip", newReportItem("plugin1"), false, null);
+      store.addReportItem("job", "job-aip", newReportItem("plugin2"), false, null);
+      store.addReportItem("job", "job-aip", newReportItem("plugin2"), true, null);
+
+      Mockito.verify(model, Mockito.never()).writeJobReport(Mockito.any(Report.class));
+      assertTrue(Files.exists(segments.resolve("job.segment")));
+      assertEquals(2, store.retrieveJobReport("job", "job-aip").getReports().size());
+
+      store.compact();
+      ArgumentCaptor<Report> written = ArgumentCaptor.forClass(Report.class);
+      Mockito.verify(model, Mockito.times(1)).writeJobReport(written.capture());
+      assertEquals(2, written.getValue().getReports().size());
+      Mockito.verify(model, Mockito.times(1)).notifyJobReportCreatedOrUpdated(written.getValue());
+      assertFalse(Files.exists(segments.resolve("job.segment")));
+      assertNull(store.retrieveJobReport("job", "job-aip"));
+    } finally {
+      FSUtils.deletePathQuietly(segments);
+    }
+  }
+
+  @Test
+  public void testSegmentsAreReplayedOnlyOnce() throws IOException, RODAException {
+    Path segments = Files.createTempDirectory(getClass().getSimpleName());
+    try {
+      Report stored = newJobReport("job", "job-aip");
+      ModelService model = Mockito.mock(ModelService.class);
+      Mockito.when(model.readJobReport("job", "job-aip")).thenReturn(stored);
+      Mockito.when(model.readJobReport("job", "job-other")).thenThrow(new NotFoundException());
+      JobReportStore store = new JobReportStore(model, segments, 100, 0);
+      store.addReportItem("job", "job-aip", newReportItem("plugin1"), false, null);
+      store.addReportItem("job", "job-other", newReportItem("plugin1"), false,
+        () -> newJobReport("job", "job-other"));
+
+      // stopped before compacting, without some changes reaching the storage
+      ModelService restartedModel = Mockito.mock(ModelService.class);
+      Mockito.when(restartedModel.readJobReport("job", "job-aip"))
+        .thenReturn(store.retrieveJobReport("job", "job-aip"));
+      new JobReportStore(restartedModel, segments, 100, 0);
+
+      ArgumentCaptor<Report> written = ArgumentCaptor.forClass(Report.class);
+      Mockito.verify(restartedModel, Mockito.times(2)).writeJobReport(written.capture());
+      for (Report jobReport : written.getAllValues()) {
+        assertEquals(1, jobReport.getReports().size());
+      }
+      assertFalse(Files.exists(segments.resolve("job.segment")));
+    } finally {
+      FSUtils.deletePathQuietly(segments);
+    }
+  }
+
+  private static Report newJobReport(String jobId, String jobReportId) {
+    Report jobReport = new Report();
+    jobReport.setId(jobReportId);
+    jobReport.setJobId(jobId);
+    return jobReport;
+  }
+
+  private static Report newReportItem(String plugin) {
+    Report reportItem = new Report();
+    reportItem.setPlugin(plugin);
+    return reportItem;
+  }
+
+}
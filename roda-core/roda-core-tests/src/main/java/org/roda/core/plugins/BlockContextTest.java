@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import static org.testng.AssertJUnit.assertSame;
+
+import org.mockito.Mockito;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class BlockContextTest {
+
+  @Test
+  public void testJobIsRetrievedOnceAndChangesAreWrittenOnFlush() throws RODAException {
+    IndexService index = Mockito.mock(IndexService.class);
+    ModelService model = Mockito.mock(ModelService.class);
+    Job job = new Job();
+    Mockito.when(index.retrieve(Job.class, "job")).thenReturn(job);
+    Report storedReport = new Report();
+    Mockito.when(model.retrieveJobReport("job", "aip")).thenReturn(storedReport);
+    BlockContext context = new BlockContext(index, model);
+
+    assertSame(job, context.getJob("job"));
+    assertSame(job, context.getJob("job"));
+    Mockito.verify(index, Mockito.times(1)).retrieve(Job.class, "job");
+
+    // job reports are retrieved from the model until they change
+    Report report = context.retrieveJobReport("job", "aip");
+    assertSame(storedReport, report);
+    context.updateJobReport("aip", report);
+    assertSame(report, context.retrieveJobReport("job", "aip"));
+    Mockito.verify(model, Mockito.times(1)).retrieveJobReport("job", "aip");
+
+    PreservationMetadata event = new PreservationMetadata();
+    context.addEvent(event);
+    Mockito.verify(model, Mockito.never()).createOrUpdateJobReport(Mockito.any(Report.class));
+    Mockito.verify(model, Mockito.never()).notifyPreservationMetadataCreated(event);
+
+    context.flush();
+    Mockito.verify(model, Mockito.times(1)).createOrUpdateJobReport(report);
+    Mockito.verify(model, Mockito.times(1)).notifyPreservationMetadataCreated(event);
+
+    // nothing is written twice
+    context.flush();
+    Mockito.verify(model, Mockito.times(1)).createOrUpdateJobReport(report);
+    Mockito.verify(model, Mockito.times(1)).notifyPreservationMetadataCreated(event);
+  }
+
+}
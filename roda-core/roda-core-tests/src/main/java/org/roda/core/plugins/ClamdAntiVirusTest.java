@@ -0,0 +1,302 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.roda.core.plugins.plugins.antivirus.ClamdAntiVirus;
+import org.roda.core.plugins.plugins.antivirus.VirusCheckResult;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class ClamdAntiVirusTest {
+
+  private static final String INFECTED_CONTENT = "X5O!P%@AP[4\\PZX54(P^)7CC)7}"
+    + "$EICAR-STANDARD-ANTIVIRUS-TEST-FILE!$H+H*";
+  private static final int POOL_SIZE = 2;
+  private static final int TIMEOUT = 10000;
+
+  private StubClamd clamd;
+  private Path basePath;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    clamd = new StubClamd();
+    basePath = Files.createTempDirectory("clamdAntiVirusTest");
+    for (int i = 0; i < 10; i++) {
+      Files.write(basePath.resolve("file" + i + ".txt"), ("content " + i).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    clamd.close();
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Test
+  public void testInstreamScansFilesOverPooledConnections() throws IOException {
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus("localhost", clamd.getPort(), POOL_SIZE, TIMEOUT, false);
+    try {
+      VirusCheckResult result = antiVirus.checkForVirus(basePath);
+      assertTrue(result.getReport(), result.isClean());
+      assertTrue(result.getReport().contains("Scanned: 10"));
+
+      Path folder = Files.createDirectory(basePath.resolve("folder"));
+      Files.write(folder.resolve("infected.txt"), INFECTED_CONTENT.getBytes(StandardCharsets.UTF_8));
+      result = antiVirus.checkForVirus(basePath);
+      assertFalse(result.isClean());
+      assertTrue(result.getReport(),
+        result.getReport().contains(Paths.get("folder", "infected.txt") + ": stream: Eicar-Test-Signature FOUND"));
+
+      // connections are reused
+      assertTrue(clamd.getConnectionCount() <= POOL_SIZE);
+      assertEquals(21, clamd.getScanCount());
+    } finally {
+      antiVirus.close();
+    }
+  }
+
+  @Test
+  public void testIdleConnectionsClosedByClamdAreReplaced() throws IOException {
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus("localhost", clamd.getPort(), POOL_SIZE, TIMEOUT, false);
+    try {
+      assertTrue(antiVirus.checkForVirus(basePath).isClean());
+      clamd.closeConnections();
+      assertTrue(antiVirus.checkForVirus(basePath).isClean());
+    } finally {
+      antiVirus.close();
+    }
+  }
+
+  @Test
+  public void testMultiscan() throws IOException {
+    Files.write(basePath.resolve("infected.txt"), INFECTED_CONTENT.getBytes(StandardCharsets.UTF_8));
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus("localhost", clamd.getPort(), POOL_SIZE, TIMEOUT, true);
+    try {
+      VirusCheckResult result = antiVirus.checkForVirus(basePath);
+      assertFalse(result.isClean());
+      assertTrue(result.getReport(), result.getReport().contains("infected.txt: Eicar-Test-Signature FOUND"));
+      assertTrue(result.getReport().contains("Scanned: 11"));
+      assertTrue(result.getReport().contains("Infected files: 1"));
+
+      Files.delete(basePath.resolve("infected.txt"));
+      result = antiVirus.checkForVirus(basePath);
+      assertTrue(result.getReport(), result.isClean());
+      assertTrue(result.getReport().contains("Scanned: 10"));
+    } finally {
+      antiVirus.close();
+    }
+  }
+
+  @Test
+  public void testStreamOverSizeLimitIsReportedAsError() throws IOException {
+    Files.write(basePath.resolve("large.bin"), new byte[4 * 1024 * 1024]);
+    clamd.setStreamMaxLength(1024 * 1024);
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus("localhost", clamd.getPort(), POOL_SIZE, TIMEOUT, false);
+    try {
+      VirusCheckResult result = antiVirus.checkForVirus(basePath);
+      assertFalse(result.isClean());
+      assertTrue(result.getReport(), result.getReport().contains("large.bin: INSTREAM size limit exceeded. ERROR"));
+      assertTrue(result.getReport().contains("Scanned: 11"));
+      assertTrue(result.getReport().contains("Errors: 1"));
+      // not sent again
+      assertEquals(11, clamd.getScanCount());
+    } finally {
+      antiVirus.close();
+    }
+  }
+
+  @Test
+  public void testVersion() throws IOException {
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus("localhost", clamd.getPort(), POOL_SIZE, TIMEOUT, false);
+    try {
+      assertEquals("ClamAV stub", antiVirus.getVersion());
+    } finally {
+      antiVirus.close();
+    }
+  }
+
+  /**
+   * Answers the clamd commands used by {@link ClamdAntiVirus} (with "z"
+   * prefix), reporting files with the EICAR test string as infected. Like
+   * clamd, MULTISCAN only replies with the infected files or with a single OK,
+   * and INSTREAM replies as soon as the stream exceeds its size limit, closing
+   * the connection.
+   */
+  private static class StubClamd implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger scanCount = new AtomicInteger();
+    private volatile int streamMaxLength = Integer.MAX_VALUE;
+
+    public StubClamd() throws IOException {
+      serverSocket = new ServerSocket(0);
+      Thread acceptor = new Thread(() -> {
+        try {
+          while (true) {
+            Socket socket = serverSocket.accept();
+            connections.add(socket);
+            connectionCount.incrementAndGet();
+            Thread handler = new Thread(() -> handle(socket));
+            handler.setDaemon(true);
+            handler.start();
+          }
+        } catch (IOException e) {
+          // closed
+        }
+      });
+      acceptor.setDaemon(true);
+      acceptor.start();
+    }
+
+    public int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    public int getConnectionCount() {
+      return connectionCount.get();
+    }
+
+    public int getScanCount() {
+      return scanCount.get();
+    }
+
+    public void setStreamMaxLength(int streamMaxLength) {
+      this.streamMaxLength = streamMaxLength;
+    }
+
+    public void closeConnections() throws IOException {
+      for (Socket socket : connections) {
+        socket.close();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      serverSocket.close();
+      closeConnections();
+    }
+
+    private void handle(Socket socket) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream out = socket.getOutputStream()) {
+        boolean session = false;
+        int id = 0;
+        String command;
+        while ((command = readCommand(in)) != null) {
+          String reply;
+          if ("zIDSESSION".equals(command)) {
+            session = true;
+            continue;
+          } else if ("zEND".equals(command)) {
+            break;
+          } else if ("zVERSION".equals(command)) {
+            reply = "ClamAV stub";
+          } else if ("zINSTREAM".equals(command)) {
+            scanCount.incrementAndGet();
+            byte[] content = readStream(in, streamMaxLength);
+            if (content == null) {
+              reply = "INSTREAM size limit exceeded. ERROR";
+              out.write(((session ? ++id + ": " : "") + reply + "\0").getBytes(StandardCharsets.UTF_8));
+              out.flush();
+              break;
+            }
+            reply = "stream: " + scan(content);
+          } else if (command.startsWith("zMULTISCAN ")) {
+            Path path = Paths.get(command.substring("zMULTISCAN ".length()));
+            boolean found = false;
+            try (Stream<Path> files = Files.walk(path)) {
+              for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String result = scan(Files.readAllBytes(file));
+                if (!"OK".equals(result)) {
+                  found = true;
+                  out.write((file + ": " + result + "\0").getBytes(StandardCharsets.UTF_8));
+                }
+              }
+            }
+            if (!found) {
+              out.write((path + ": OK\0").getBytes(StandardCharsets.UTF_8));
+            }
+            break;
+          } else {
+            reply = "UNKNOWN COMMAND";
+          }
+
+          if (session) {
+            reply = ++id + ": " + reply;
+          }
+          out.write((reply + "\0").getBytes(StandardCharsets.UTF_8));
+          out.flush();
+          if (!session) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        // connection closed
+      } finally {
+        connections.remove(socket);
+      }
+    }
+
+    private static String readCommand(DataInputStream in) throws IOException {
+      ByteArrayOutputStream command = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) > 0) {
+        command.write(b);
+      }
+      return b < 0 ? null : new String(command.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the content of the stream, or <code>null</code> if it exceeds
+     *         the maximum length.
+     */
+    private static byte[] readStream(DataInputStream in, int maxLength) throws IOException {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      int length;
+      while ((length = in.readInt()) > 0) {
+        byte[] chunk = new byte[length];
+        in.readFully(chunk);
+        content.write(chunk);
+        if (content.size() > maxLength) {
+          return null;
+        }
+      }
+      return content.toByteArray();
+    }
+
+    private static String scan(byte[] content) {
+      return new String(content, StandardCharsets.UTF_8).contains("EICAR") ? "Eicar-Test-Signature FOUND" : "OK";
+    }
+  }
+
+}
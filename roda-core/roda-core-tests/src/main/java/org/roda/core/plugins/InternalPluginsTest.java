@@ -47,6 +47,7 @@ import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.index.IndexResult;
@@ -57,16 +58,20 @@ import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.user.User;
 import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.plugins.antivirus.AntivirusPlugin;
+import org.roda.core.plugins.plugins.base.PropagatePermissionsPlugin;
 import org.roda.core.plugins.plugins.ingest.AutoAcceptSIPPlugin;
 import org.roda.core.plugins.plugins.ingest.TransferredResourceToAIPPlugin;
 import org.roda.core.plugins.plugins.ingest.characterization.PremisSkeletonPlugin;
@@ -459,4 +464,39 @@ public class InternalPluginsTest {
     MatcherAssert.assertThat(aip.getState(), Is.is(AIPState.ACTIVE));
   }
 
+  @Test
+  public void testPropagatePermissions() throws RODAException, FileAlreadyExistsException, InterruptedException,
+    IOException, SolrServerException {
+    AIP aip = ingestCorpora();
+    String rootId = aip.getParentId();
+
+    Permissions permissions = new Permissions();
+    permissions.setUserPermissions("testuser", new HashSet<>(Arrays.asList(PermissionType.READ)));
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON, JsonUtils.getJsonFromObject(permissions));
+
+    TestsHelper.executeJob(PropagatePermissionsPlugin.class, parameters, PluginType.MISC,
+      SelectedItemsList.create(AIP.class, rootId));
+    index.commitAIPs();
+
+    // only the descendants are updated, the AIP itself was already updated
+    AssertJUnit.assertTrue(model.retrieveAIP(rootId).getPermissions().getUserPermissions("testuser").isEmpty());
+    AssertJUnit.assertEquals(permissions.getUserPermissions("testuser"),
+      model.retrieveAIP(aip.getId()).getPermissions().getUserPermissions("testuser"));
+
+    User user = new User("testuser", "User with access", "", false);
+    boolean justActive = false;
+    Filter representationsFilter = new Filter(
+      new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aip.getId()));
+    Filter filesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIPID, aip.getId()));
+    AssertJUnit.assertEquals(1, index.count(IndexedAIP.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.AIP_ID, aip.getId())), user, justActive).longValue());
+    AssertJUnit.assertEquals(index.count(IndexedRepresentation.class, representationsFilter).longValue(),
+      index.count(IndexedRepresentation.class, representationsFilter, user, justActive).longValue());
+    AssertJUnit.assertEquals(index.count(IndexedFile.class, filesFilter).longValue(),
+      index.count(IndexedFile.class, filesFilter, user, justActive).longValue());
+    AssertJUnit.assertEquals(0, index.count(IndexedAIP.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.AIP_ID, rootId)), user, justActive).longValue());
+  }
+
 }
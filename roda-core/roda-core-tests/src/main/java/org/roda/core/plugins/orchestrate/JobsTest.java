@@ -9,9 +9,12 @@ package org.roda.core.plugins.orchestrate;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
@@ -28,12 +31,14 @@ import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.Job.JOB_STATE;
+import org.roda.core.data.v2.jobs.JobStats;
 import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.plugins.DummyPlugin;
 import org.roda.core.plugins.plugins.PluginThatFailsDuringInit;
 import org.roda.core.plugins.plugins.PluginThatFailsDuringXMethod;
+import org.roda.core.plugins.plugins.PluginThatProcessesObjects;
 import org.roda.core.plugins.plugins.PluginThatStopsItself;
 import org.roda.core.storage.fs.FSUtils;
 import org.slf4j.Logger;
@@ -141,6 +146,93 @@ public class JobsTest {
     JobsHelper.setBlockSize(originalBlockSize);
   }
 
+  @Test
+  public void testJobRunningOnEmptyListOfObjects()
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    int originalSyncTimeout = JobsHelper.getSyncTimeout();
+    JobsHelper.setSyncTimeout(5);
+    try {
+      TestsHelper.executeJob(DummyPlugin.class, PluginType.MISC,
+        (SelectedItems) SelectedItemsList.create(AIP.class, Collections.emptyList()), JOB_STATE.COMPLETED);
+    } finally {
+      JobsHelper.setSyncTimeout(originalSyncTimeout);
+    }
+  }
+
+  @Test
+  public void testJobRunningOnObjectsThatCannotBeRetrieved()
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    int originalSyncTimeout = JobsHelper.getSyncTimeout();
+    JobsHelper.setSyncTimeout(5);
+    try {
+      TestsHelper.executeJob(DummyPlugin.class, PluginType.MISC, (SelectedItems) SelectedItemsList.create(AIP.class,
+        UUID.randomUUID().toString(), UUID.randomUUID().toString()), JOB_STATE.FAILED_TO_COMPLETE);
+    } finally {
+      JobsHelper.setSyncTimeout(originalSyncTimeout);
+    }
+  }
+
+  @Test
+  public void testJobRunningOnObjectsSomeOfWhichCannotBeRetrieved() throws RequestNotValidException,
+    GenericException, NotFoundException, AuthorizationDeniedException, AlreadyExistsException {
+    String aipId = RodaCoreFactory.getModelService().createAIP(null, "MIXED", new Permissions(), "admin").getId();
+
+    int originalBlockSize = JobsHelper.getBlockSize();
+    // the first and the last blocks cannot be retrieved
+    JobsHelper.setBlockSize(1);
+    try {
+      TestsHelper.executeJob(DummyPlugin.class, PluginType.MISC, (SelectedItems) SelectedItemsList.create(AIP.class,
+        UUID.randomUUID().toString(), aipId, UUID.randomUUID().toString()), JOB_STATE.COMPLETED);
+    } finally {
+      JobsHelper.setBlockSize(originalBlockSize);
+    }
+  }
+
+  @Test
+  public void testJobInformationIsPersistedWhenUpdatesAreCoalesced() throws RequestNotValidException,
+    GenericException, NotFoundException, AuthorizationDeniedException, AlreadyExistsException {
+    // longer than the job, so only the first update is persisted as it happens
+    assertJobInformationIsPersisted(60000);
+  }
+
+  @Test
+  public void testJobInformationIsPersistedWhenUpdatesAreNotCoalesced() throws RequestNotValidException,
+    GenericException, NotFoundException, AuthorizationDeniedException, AlreadyExistsException {
+    assertJobInformationIsPersisted(0);
+  }
+
+  private void assertJobInformationIsPersisted(int jobInfoUpdateInterval) throws RequestNotValidException,
+    GenericException, NotFoundException, AuthorizationDeniedException, AlreadyExistsException {
+    ModelService model = RodaCoreFactory.getModelService();
+    List<String> aips = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      aips.add(model.createAIP(null, "MIXED", new Permissions(), "admin").getId());
+    }
+
+    int originalBlockSize = JobsHelper.getBlockSize();
+    int originalJobInfoUpdateInterval = JobsHelper.getJobInfoUpdateInterval();
+    JobsHelper.setBlockSize(2);
+    JobsHelper.setJobInfoUpdateInterval(jobInfoUpdateInterval);
+    try {
+      Job job = TestsHelper.executeJob(PluginThatProcessesObjects.class, PluginType.MISC,
+        (SelectedItems) SelectedItemsList.create(AIP.class, aips), JOB_STATE.COMPLETED);
+
+      // the counters are persisted before the job reaches its final state
+      for (Job persisted : Arrays.asList(job, RodaCoreFactory.getIndexService().retrieve(Job.class, job.getId()))) {
+        JobStats stats = persisted.getJobStats();
+        Assert.assertEquals(stats.getSourceObjectsCount(), aips.size());
+        Assert.assertEquals(stats.getSourceObjectsProcessedWithSuccess(), aips.size());
+        Assert.assertEquals(stats.getSourceObjectsProcessedWithFailure(), 0);
+        Assert.assertEquals(stats.getSourceObjectsBeingProcessed(), 0);
+        Assert.assertEquals(stats.getSourceObjectsWaitingToBeProcessed(), 0);
+        Assert.assertEquals(stats.getCompletionPercentage(), 100);
+      }
+    } finally {
+      JobsHelper.setBlockSize(originalBlockSize);
+      JobsHelper.setJobInfoUpdateInterval(originalJobInfoUpdateInterval);
+    }
+  }
+
   /**
    * 20160914 hsilva: this method tests orchestration to ensure that, even if
    * there are no objects to pass to the plugin, the job comes to an end (i.e.
@@ -0,0 +1,142 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.jobs.Report.PluginState;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plugin that does nothing to each AIP but, like most plugins, updates the job
+ * information (i.e. counters) after processing each block of AIPs.
+ */
+public class PluginThatProcessesObjects extends AbstractPlugin<AIP> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PluginThatProcessesObjects.class);
+
+  @Override
+  public String getName() {
+    return getClass().getName();
+  }
+
+  @Override
+  public String getDescription() {
+    return getClass().getName();
+  }
+
+  @Override
+  public PreservationEventType getPreservationEventType() {
+    return null;
+  }
+
+  @Override
+  public String getPreservationEventDescription() {
+    return null;
+  }
+
+  @Override
+  public String getPreservationEventSuccessMessage() {
+    return null;
+  }
+
+  @Override
+  public String getPreservationEventFailureMessage() {
+    return null;
+  }
+
+  @Override
+  public PluginType getType() {
+    return PluginType.MISC;
+  }
+
+  @Override
+  public List<String> getCategories() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public Plugin<AIP> cloneMe() {
+    return new PluginThatProcessesObjects();
+  }
+
+  @Override
+  public boolean areParameterValuesValid() {
+    return true;
+  }
+
+  @Override
+  public void init() throws PluginException {
+    LOGGER.info("Doing nothing during init");
+  }
+
+  @Override
+  public List<Class<AIP>> getObjectClasses() {
+    return Arrays.asList(AIP.class);
+  }
+
+  @Override
+  public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
+    throws PluginException {
+    return new Report();
+  }
+
+  @Override
+  public Report execute(IndexService index, ModelService model, StorageService storage, List<AIP> list)
+    throws PluginException {
+    Report report = PluginHelper.initPluginReport(this);
+
+    try {
+      SimpleJobPluginInfo jobPluginInfo = PluginHelper.getInitialJobInformation(this, list.size());
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+      for (AIP aip : list) {
+        Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
+        reportItem.setPluginState(PluginState.SUCCESS);
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+        report.addReport(reportItem);
+        PluginHelper.updatePartialJobReport(this, model, index, reportItem, true);
+      }
+      jobPluginInfo.finalizeInfo();
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+    } catch (JobException e) {
+      LOGGER.error("Could not update Job information");
+    }
+    return report;
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    return new Report();
+  }
+
+  @Override
+  public void shutdown() {
+    LOGGER.info("Doing nothing during shutdown");
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return null;
+  }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class FSPathContentPayloadTest {
+
+  @Test
+  public void testTransferPartOfTheContent() throws IOException {
+    Path file = Files.createTempFile(getClass().getSimpleName(), ".txt");
+    try {
+      Files.write(file, "0123456789".getBytes(StandardCharsets.UTF_8));
+      FSPathContentPayload payload = new FSPathContentPayload(file);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      payload.transferTo(out, 2, 5);
+      assertEquals("23456", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+      // past the end of the file
+      out = new ByteArrayOutputStream();
+      payload.transferTo(out, 7, 100);
+      assertEquals("789", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    } finally {
+      FSUtils.deletePathQuietly(file);
+    }
+  }
+
+}
@@ -18,8 +18,12 @@ import org.roda.core.TestsHelper;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.storage.AbstractStorageServiceTest;
+import org.roda.core.storage.BinaryVersion;
+import org.roda.core.storage.RandomMockContentPayload;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StorageTestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -109,6 +113,30 @@ public class FileStorageServiceTest extends AbstractStorageServiceTest<FileStora
     }
   }
 
+  @Test
+  public void testBinaryVersionsWithSameContentAreShared() throws RODAException, IOException {
+    final StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    storage.createContainer(containerStoragePath);
+    final StoragePath binaryStoragePath = StorageTestUtils.generateRandomResourceStoragePathUnder(containerStoragePath);
+    storage.createBinary(binaryStoragePath, new RandomMockContentPayload(), false);
+
+    BinaryVersion v1 = storage.createBinaryVersion(binaryStoragePath, "v1");
+    BinaryVersion v2 = storage.createBinaryVersion(binaryStoragePath, "v2");
+    storage.updateBinaryContent(binaryStoragePath, new RandomMockContentPayload(), false, false);
+    BinaryVersion v3 = storage.createBinaryVersion(binaryStoragePath, "v3");
+
+    Path v1Path = ((FSPathContentPayload) v1.getBinary().getContent()).getPath();
+    Path v2Path = ((FSPathContentPayload) v2.getBinary().getContent()).getPath();
+    Path v3Path = ((FSPathContentPayload) v3.getBinary().getContent()).getPath();
+    Assert.assertTrue(Files.isSameFile(v1Path, v2Path));
+    Assert.assertFalse(Files.isSameFile(v1Path, v3Path));
+
+    // reverting must not change the versions
+    storage.revertBinaryVersion(binaryStoragePath, v1.getId());
+    storage.updateBinaryContent(binaryStoragePath, new RandomMockContentPayload(), false, false);
+    Assert.assertEquals(Files.readAllBytes(v1Path), Files.readAllBytes(v2Path));
+  }
+
   @Override
   protected FileStorageService getStorage() {
     return storage;
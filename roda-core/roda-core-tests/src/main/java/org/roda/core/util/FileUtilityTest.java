@@ -0,0 +1,90 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class FileUtilityTest {
+
+  private static final List<String> ALGORITHMS = Arrays.asList("MD5", "SHA-1", "SHA-256");
+
+  // digests of CONTENT, which spans several 1 MB read chunks
+  private static final String MD5 = "ae064164f9546906a0c737a53dacaaf1";
+  private static final String SHA1 = "57806d1b12cfc169ffaf33d0924917e068084915";
+  private static final String SHA256 = "5484bbdbfa09aaf96421d09d2c57be9d4fdbffe2ef1d33964a754591a0ac11ba";
+
+  private static final byte[] CONTENT = new byte[3 * 1048576 + 12345];
+
+  static {
+    for (int i = 0; i < CONTENT.length; i++) {
+      CONTENT[i] = (byte) ((i * 31 + 7) % 256);
+    }
+  }
+
+  private static Path file;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    file = Files.createTempFile(FileUtilityTest.class.getSimpleName(), ".bin");
+    Files.write(file, CONTENT);
+  }
+
+  @AfterClass
+  public static void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private static void assertDigests(Map<String, String> checksums) {
+    assertEquals(MD5, checksums.get("MD5").toLowerCase());
+    assertEquals(SHA1, checksums.get("SHA-1").toLowerCase());
+    assertEquals(SHA256, checksums.get("SHA-256").toLowerCase());
+  }
+
+  @Test
+  public void testChecksumsOfPath() throws NoSuchAlgorithmException, IOException {
+    assertDigests(FileUtility.checksums(file, ALGORITHMS));
+  }
+
+  @Test
+  public void testChecksumsOfStreamReadInSmallChunks() throws NoSuchAlgorithmException, IOException {
+    InputStream stream = new FilterInputStream(new ByteArrayInputStream(CONTENT)) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 1000));
+      }
+    };
+    assertDigests(FileUtility.checksums(stream, ALGORITHMS));
+  }
+
+  @Test
+  public void testContentDigestsAreInLowerCase() throws GenericException {
+    Map<String, String> digests = FSUtils.generateContentDigest(file, "MD5", "SHA-256");
+    assertEquals(MD5, digests.get("MD5"));
+    assertEquals(SHA256, digests.get("SHA-256"));
+    assertEquals(SHA1, FSUtils.computeContentDigest(file, "SHA-1"));
+  }
+
+}
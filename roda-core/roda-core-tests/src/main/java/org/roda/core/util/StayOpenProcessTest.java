@@ -0,0 +1,131 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class StayOpenProcessTest {
+
+  // echoes each request line in upper case until "-execute", then "{ready}";
+  // like ExifTool, "-echo4 <text>" writes the text to the standard error
+  private static final List<String> STUB_COMMAND = Arrays.asList("sh", "-c",
+    "while read line; do case \"$line\" in -execute) echo '{ready}';; -exit) exit 0;; -crash) exit 3;; -fail) echo 'Error: failed' >&2;; -echo4) read text; echo \"$text\" >&2;; *) echo \"$line\" | tr a-z A-Z;; esac; done");
+  private static final String READY = "{ready}";
+  private static final List<String> EXIT = Collections.singletonList("-exit");
+  private static final long TIMEOUT = 10000;
+
+  private ToolInstancePool<StayOpenProcess> pool;
+
+  @BeforeMethod
+  public void setUp() {
+    pool = StayOpenProcess.createPool("stub", 1, STUB_COMMAND, READY, EXIT);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    pool.close();
+  }
+
+  @Test
+  public void testRequestsReuseTheSameProcess() throws CommandException {
+    StayOpenProcess process = pool.borrow();
+    assertEquals("A" + System.lineSeparator() + "B" + System.lineSeparator(),
+      process.execute(Arrays.asList("a", "b", "-execute"), TIMEOUT));
+    pool.release(process);
+
+    assertEquals("C" + System.lineSeparator(), StayOpenProcess.execute(pool, Arrays.asList("c", "-execute"), TIMEOUT));
+    StayOpenProcess reused = pool.borrow();
+    assertSame(process, reused);
+    pool.release(reused);
+  }
+
+  @Test
+  public void testProcessThatTerminatesIsReplaced() throws CommandException {
+    StayOpenProcess process = pool.borrow();
+    pool.release(process);
+
+    try {
+      StayOpenProcess.execute(pool, Arrays.asList("-crash"), TIMEOUT);
+      fail("A command that terminates should fail the request");
+    } catch (CommandException e) {
+      assertEquals(3, e.getExitCode());
+    }
+    assertFalse(process.isAlive());
+
+    // the pool is bounded to one process, so this only works if the failed one
+    // was given back
+    StayOpenProcess replacement = pool.borrow();
+    assertNotSame(process, replacement);
+    assertEquals("D" + System.lineSeparator(), replacement.execute(Arrays.asList("d", "-execute"), TIMEOUT));
+    pool.release(replacement);
+  }
+
+  @Test
+  public void testProcessThatDoesNotAnswerIsDestroyed() throws CommandException {
+    StayOpenProcess process = pool.borrow();
+    try {
+      process.execute(Arrays.asList("e"), 200);
+      fail("A command that does not answer should fail the request");
+    } catch (CommandException e) {
+      pool.invalidate(process);
+    }
+    assertFalse(process.isAlive());
+  }
+
+  @Test
+  public void testErrorsFailOnlyTheirRequest() throws CommandException {
+    pool.close();
+    pool = StayOpenProcess.createPool("stub", 1, STUB_COMMAND, READY, READY, EXIT);
+
+    StayOpenProcess process = pool.borrow();
+    pool.release(process);
+
+    try {
+      StayOpenProcess.execute(pool, Arrays.asList("f", "-fail", "-echo4", READY, "-execute"), TIMEOUT);
+      fail("A command that reports errors should fail the request");
+    } catch (CommandException e) {
+      assertTrue(e.getMessage().contains("Error: failed"));
+      assertEquals("F" + System.lineSeparator(), e.getOutput());
+    }
+
+    // the process is kept and the errors are not reported again
+    StayOpenProcess reused = pool.borrow();
+    assertSame(process, reused);
+    assertEquals("G" + System.lineSeparator(), reused.execute(Arrays.asList("g", "-echo4", READY, "-execute"), TIMEOUT));
+    pool.release(reused);
+  }
+
+  @Test
+  public void testRequestLinesWithLineSeparatorsAreRejected() throws CommandException {
+    StayOpenProcess process = pool.borrow();
+    try {
+      process.execute(Arrays.asList("h\n-crash", "-execute"), TIMEOUT);
+      fail("A request line with a line separator should be rejected");
+    } catch (CommandException e) {
+      // expected
+    }
+    assertTrue(process.isAlive());
+    assertEquals("I" + System.lineSeparator(), process.execute(Arrays.asList("i", "-execute"), TIMEOUT));
+    pool.release(process);
+  }
+
+}
@@ -60,6 +60,7 @@ import org.reflections.util.FilterBuilder;
 import org.roda.core.common.LdapUtility;
 import org.roda.core.common.LdapUtilityException;
 import org.roda.core.common.Messages;
+import org.roda.core.common.PrincipalCache;
 import org.roda.core.common.RodaUtils;
 import org.roda.core.common.UserUtility;
 import org.roda.core.common.iterables.CloseableIterable;
@@ -96,8 +97,11 @@ import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.AIPReindexer;
 import org.roda.core.index.IndexService;
 import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.model.ActionLogWriter;
+import org.roda.core.model.JobReportStore;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.PluginManager;
 import org.roda.core.plugins.PluginManagerException;
@@ -105,12 +109,14 @@ import org.roda.core.plugins.PluginOrchestrator;
 import org.roda.core.plugins.orchestrate.AkkaDistributedPluginOrchestrator;
 import org.roda.core.plugins.orchestrate.AkkaEmbeddedPluginOrchestrator;
 import org.roda.core.plugins.orchestrate.akka.distributed.AkkaDistributedPluginWorker;
+import org.roda.core.plugins.plugins.antivirus.AntivirusPlugin;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fedora.FedoraStorageService;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.fs.FileStorageService;
+import org.roda.core.util.ToolInstancePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -149,6 +155,8 @@ public class RodaCoreFactory {
   private static ModelService model;
   private static IndexService index;
   private static SolrClient solr;
+  private static ActionLogWriter actionLogWriter;
+  private static JobReportStore jobReportStore;
   private static boolean FEATURE_OVERRIDE_INDEX_CONFIGS = true;
 
   private static boolean TEST_DEPLOY_SOLR = true;
@@ -262,6 +270,14 @@ public class RodaCoreFactory {
         instantiateSolrAndIndexService();
         LOGGER.debug("Finished instantiating solr & index");
 
+        // instantiate action log writer
+        instantiateActionLogWriter();
+        LOGGER.debug("Finished instantiating action log writer");
+
+        // instantiate job report store
+        instantiateJobReportStore();
+        LOGGER.debug("Finished instantiating job report store");
+
         // instantiate plugin manager
         instantiatePluginManager();
         LOGGER.debug("Finished instantiating plugin manager");
@@ -606,6 +622,33 @@ public class RodaCoreFactory {
     }
   }
 
+  private static void instantiateActionLogWriter() {
+    if (nodeType == NodeType.MASTER || (nodeType == NodeType.TEST && TEST_DEPLOY_SOLR)) {
+      int queueSize = getRodaConfigurationAsInt(10000, "core", "actionlogs", "async", "queue_size");
+      int batchSize = getRodaConfigurationAsInt(500, "core", "actionlogs", "async", "batch_size");
+      boolean blockWhenFull = getRodaConfigurationAsBoolean(true, "core", "actionlogs", "async", "block_when_full");
+      boolean fsync = getRodaConfigurationAsBoolean(true, "core", "actionlogs", "async", "fsync");
+      actionLogWriter = new ActionLogWriter(model, logPath, queueSize, batchSize, blockWhenFull, fsync);
+    }
+  }
+
+  private static void instantiateJobReportStore() {
+    if ((nodeType == NodeType.MASTER || (nodeType == NodeType.TEST && TEST_DEPLOY_SOLR))
+      && getRodaConfigurationAsBoolean(false, "core", "jobreports", "segments", "enabled")) {
+      int compactionThreshold = getRodaConfigurationAsInt(10000, "core", "jobreports", "segments",
+        "compaction_threshold");
+      int compactionInterval = getRodaConfigurationAsInt(5000, "core", "jobreports", "segments",
+        "compaction_interval_in_ms");
+      try {
+        jobReportStore = new JobReportStore(model,
+          dataPath.resolve(RodaConstants.CORE_JOBREPORT_SEGMENTS_FOLDER), compactionThreshold, compactionInterval);
+        model.setJobReportStore(jobReportStore);
+      } catch (IOException e) {
+        LOGGER.error("Error instantiating job report store, job reports will be written directly", e);
+      }
+    }
+  }
+
   private static SolrClient instantiateSolr(Path solrHome) {
     SolrType solrType = SolrType.valueOf(
       getRodaConfiguration().getString(RodaConstants.CORE_SOLR_TYPE, RodaConstants.DEFAULT_SOLR_TYPE.toString()));
@@ -747,6 +790,14 @@ public class RodaCoreFactory {
     if (instantiated) {
 
       if (nodeType == NodeType.MASTER) {
+        if (transferredResourcesScanner != null) {
+          transferredResourcesScanner.shutdown();
+        }
+        actionLogWriter.shutdown();
+        if (jobReportStore != null) {
+          jobReportStore.shutdown();
+        }
+        index.shutdown();
         solr.close();
         stopApacheDS();
         pluginManager.shutdown();
@@ -754,7 +805,15 @@ public class RodaCoreFactory {
       } else if (nodeType == NodeType.WORKER) {
         pluginManager.shutdown();
       } else if (nodeType == NodeType.TEST) {
+        if (TEST_DEPLOY_SCANNER && transferredResourcesScanner != null) {
+          transferredResourcesScanner.shutdown();
+        }
         if (TEST_DEPLOY_SOLR) {
+          actionLogWriter.shutdown();
+          if (jobReportStore != null) {
+            jobReportStore.shutdown();
+          }
+          index.shutdown();
           solr.close();
         }
         if (TEST_DEPLOY_LDAP) {
@@ -767,6 +826,9 @@ public class RodaCoreFactory {
         FSUtils.deletePathQuietly(workingDirectoryPath);
       }
 
+      AntivirusPlugin.closeAntiViruses();
+      ToolInstancePool.closeAll();
+
     }
   }
 
@@ -801,6 +863,14 @@ public class RodaCoreFactory {
 
       UserUtility.setLdapUtility(ldapUtility);
 
+      final int principalCacheTTL = rodaConfig.getInt("core.authentication.principal_cache.ttl_in_seconds", 60);
+      if (principalCacheTTL > 0) {
+        final int principalCacheMaxSize = rodaConfig.getInt("core.authentication.principal_cache.max_size", 1000);
+        UserUtility.setPrincipalCache(new PrincipalCache(principalCacheTTL, principalCacheMaxSize));
+      } else {
+        UserUtility.setPrincipalCache(null);
+      }
+
       if (!Files.exists(rodaApacheDSDataDirectory)) {
         Files.createDirectories(rodaApacheDSDataDirectory);
         final List<String> ldifFileNames = Arrays.asList("users.ldif", "groups.ldif", "roles.ldif");
@@ -828,6 +898,11 @@ public class RodaCoreFactory {
   }
 
   private static void stopApacheDS() {
+    PrincipalCache principalCache = UserUtility.getPrincipalCache();
+    if (principalCache != null) {
+      LOGGER.info("Principal cache statistics: users {}, credentials {}", principalCache.getUserStats(),
+        principalCache.getCredentialsStats());
+    }
     try {
       RodaCoreFactory.ldapUtility.stopService();
     } catch (final Exception e) {
@@ -886,6 +961,13 @@ public class RodaCoreFactory {
       }
 
       transferredResourcesScanner = new TransferredResourcesScanner(transferredResourcesFolderPath, getIndexService());
+      if (getRodaConfigurationAsBoolean(false, "transferredResources", "incremental", "enabled")) {
+        boolean watch = getRodaConfigurationAsBoolean(true, "transferredResources", "incremental", "watch");
+        int changesDelay = getRodaConfigurationAsInt(2000, "transferredResources", "incremental", "delay_in_ms");
+        int reconciliationInterval = getRodaConfigurationAsInt(60, "transferredResources", "incremental",
+          "reconciliation_interval_in_minutes");
+        transferredResourcesScanner.enableIncrementalUpdates(watch, changesDelay, reconciliationInterval);
+      }
     } catch (final Exception e) {
       LOGGER.error("Error starting Transferred Resources Scanner: " + e.getMessage(), e);
       instantiatedWithoutErrors = false;
@@ -912,6 +994,14 @@ public class RodaCoreFactory {
     return index;
   }
 
+  /**
+   * @return the asynchronous action log writer (null if this node does not
+   *         index action log entries)
+   */
+  public static ActionLogWriter getActionLogWriter() {
+    return actionLogWriter;
+  }
+
   public static SolrClient getSolr() {
     return solr;
   }
@@ -1161,6 +1251,10 @@ public class RodaCoreFactory {
     return rodaConfiguration.getInt(getConfigurationKey(keyParts), defaultValue);
   }
 
+  public static boolean getRodaConfigurationAsBoolean(boolean defaultValue, String... keyParts) {
+    return rodaConfiguration.getBoolean(getConfigurationKey(keyParts), defaultValue);
+  }
+
   public static List<String> getRodaConfigurationAsList(String... keyParts) {
     return Arrays.asList(rodaConfiguration.getStringArray(getConfigurationKey(keyParts)));
   }
@@ -1268,6 +1362,19 @@ public class RodaCoreFactory {
           | LdapUtilityException | GenericException | NotFoundException | AlreadyExistsException e) {
           LOGGER.error("Unable to reindex users & groups from LDAP.", e);
         }
+      } else if ("aip".equalsIgnoreCase(entity)) {
+        boolean resume = args.size() > 3 && "resume".equalsIgnoreCase(args.get(3));
+        try {
+          AIPReindexer.Progress progress = index.reindexAIPs(resume,
+            p -> System.out.println("Reindexing AIPs: " + p));
+          System.out.println("AIPs reindexed: " + progress);
+          if (!progress.isComplete()) {
+            System.out.println("Some AIPs could not be reindexed, so outdated documents were kept "
+              + "(the failed AIPs can be retried with 'index reindex aip resume')");
+          }
+        } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException e) {
+          LOGGER.error("Unable to reindex AIPs (it can be resumed with 'index reindex aip resume').", e);
+        }
       }
     }
   }
@@ -1354,13 +1461,14 @@ public class RodaCoreFactory {
     // System.err.println("Syntax:");
     // System.err.println(
     // "java -jar x.jar index reindex
-    // aip|job|risk|agent|format|notification|transferred_resources|actionlogs|users_and_groups");
+    // aip [resume]|job|risk|agent|format|notification|transferred_resources|actionlogs|users_and_groups");
     // System.err.println("java -jar x.jar index list
     // users|groups|sips|file");
     // System.err.println("java -jar x.jar orphans [newParentID]");
     // System.err.println("java -jar x.jar fixity");
     // System.err.println("java -jar x.jar antivirus");
     // System.err.println("java -jar x.jar premisskeleton");
+    // System.err.println("java -jar x.jar storage deduplicate_versions");
   }
 
   private static void mainMasterTasks(List<String> args) throws GenericException, RequestNotValidException {
@@ -1383,6 +1491,12 @@ public class RodaCoreFactory {
       } else if ("reindex".equals(args.get(1))) {
         runReindex(args);
       }
+    } else if ("storage".equals(args.get(0)) && args.size() == 2 && "deduplicate_versions".equals(args.get(1))) {
+      if (storage instanceof FileStorageService) {
+        ((FileStorageService) storage).deduplicateBinaryVersions();
+      } else {
+        System.err.println("Binary versions deduplication is only available for the file system storage");
+      }
     } else {
       printMainUsage();
     }
@@ -0,0 +1,87 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.fs.FSPathContentPayload;
+
+/**
+ * Sends the content of a binary, whole or partially. Partial content of files
+ * in the file system is read from the requested position, otherwise the
+ * content before it is skipped.
+ */
+public class BinaryConsumesOutputStream implements RangeConsumesOutputStream {
+
+  private static final String BIN_MEDIA_TYPE = "application/octet-stream";
+
+  private final Binary binary;
+  private final String mediaType;
+
+  public BinaryConsumesOutputStream(Binary binary) {
+    this(binary, BIN_MEDIA_TYPE);
+  }
+
+  public BinaryConsumesOutputStream(Binary binary, String mediaType) {
+    this.binary = binary;
+    this.mediaType = mediaType;
+  }
+
+  @Override
+  public void consumeOutputStream(OutputStream out) throws IOException {
+    BufferedOutputStream bos = new BufferedOutputStream(out);
+    InputStream inputStream = null;
+    try {
+      inputStream = binary.getContent().createInputStream();
+      IOUtils.copyLarge(inputStream, bos);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+      IOUtils.closeQuietly(bos);
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  @Override
+  public void consumeOutputStream(OutputStream out, long position, long count) throws IOException {
+    ContentPayload content = binary.getContent();
+    if (content instanceof FSPathContentPayload) {
+      ((FSPathContentPayload) content).transferTo(out, position, count);
+    } else {
+      InputStream inputStream = null;
+      try {
+        inputStream = content.createInputStream();
+        IOUtils.copyLarge(inputStream, out, position, count);
+      } finally {
+        IOUtils.closeQuietly(inputStream);
+      }
+    }
+  }
+
+  @Override
+  public long getSize() {
+    Long size = binary.getSizeInBytes();
+    return size != null ? size : -1;
+  }
+
+  @Override
+  public String getFileName() {
+    return binary.getStoragePath().getName();
+  }
+
+  @Override
+  public String getMediaType() {
+    return mediaType;
+  }
+
+}
@@ -99,6 +99,9 @@ public class DownloadUtils {
         }
       };
 
+    } else if (resource instanceof Binary) {
+      // send the one file, whole or partially
+      stream = new BinaryConsumesOutputStream((Binary) resource, BIN_MEDIA_TYPE);
     } else {
       // send the one file
       stream = new ConsumesOutputStream() {
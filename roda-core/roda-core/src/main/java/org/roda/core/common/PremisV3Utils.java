@@ -53,6 +53,7 @@ import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.fs.FSPathContentPayload;
 import org.roda.core.util.FileUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,9 +104,7 @@ public final class PremisV3Utils {
     throws IOException, NoSuchAlgorithmException {
     List<Fixity> ret = new ArrayList<>();
 
-    InputStream stream = binary.getContent().createInputStream();
-
-    Map<String, String> checksums = FileUtility.checksums(stream, algorithms);
+    Map<String, String> checksums = calculateChecksums(binary, algorithms);
 
     for (Entry<String, String> entry : checksums.entrySet()) {
       String algorithm = entry.getKey();
@@ -113,11 +112,23 @@ public final class PremisV3Utils {
       ret.add(new Fixity(algorithm, checksum, originator));
     }
 
-    IOUtils.closeQuietly(stream);
-
     return ret;
   }
 
+  /**
+   * Calculates all the checksums of a binary reading its content only once
+   * (directly from the file system when the binary is stored there).
+   */
+  public static Map<String, String> calculateChecksums(Binary binary, Collection<String> algorithms)
+    throws IOException, NoSuchAlgorithmException {
+    ContentPayload content = binary.getContent();
+    if (content instanceof FSPathContentPayload) {
+      return FileUtility.checksums(((FSPathContentPayload) content).getPath(), algorithms);
+    } else {
+      return FileUtility.checksums(content.createInputStream(), algorithms);
+    }
+  }
+
   public static boolean isPremisV2(Binary binary) throws IOException, SAXException {
     boolean premisV2 = true;
     InputStream inputStream = binary.getContent().createInputStream();
@@ -0,0 +1,154 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.exceptions.AuthenticationDeniedException;
+import org.roda.core.data.v2.user.User;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Cache of the users (with their roles and groups) retrieved from LDAP, and of
+ * the credentials already authenticated against LDAP, so that requests of
+ * logged in users and API (basic auth) requests do not need to reach LDAP
+ * every time.
+ * <p>
+ * Credentials are never kept in memory: they are identified by a salted
+ * digest (the salt is random and only lives in memory). Entries expire after
+ * the configured time and must be invalidated when users or groups change.
+ * Cached users are copied when stored and when returned, as callers change
+ * them (e.g. to set the IP address).
+ * </p>
+ */
+public class PrincipalCache {
+
+  private static final String CREDENTIALS_DIGEST_ALGORITHM = "SHA-256";
+  private static final int SALT_LENGTH = 16;
+
+  private final Cache<String, User> users;
+  private final Cache<String, String> credentials;
+  private final byte[] salt;
+
+  /**
+   * @param ttlInSeconds
+   *          time after which a cached user (or credential) must be retrieved
+   *          (or authenticated) again
+   * @param maximumSize
+   *          max number of users (and credentials) cached
+   */
+  public PrincipalCache(long ttlInSeconds, long maximumSize) {
+    this.users = CacheBuilder.newBuilder().expireAfterWrite(ttlInSeconds, TimeUnit.SECONDS).maximumSize(maximumSize)
+      .recordStats().build();
+    this.credentials = CacheBuilder.newBuilder().expireAfterWrite(ttlInSeconds, TimeUnit.SECONDS)
+      .maximumSize(maximumSize).recordStats().build();
+    this.salt = new byte[SALT_LENGTH];
+    new SecureRandom().nextBytes(salt);
+  }
+
+  /**
+   * Gets a user from the cache or, if not cached, from LDAP.
+   *
+   * @return the user or null if it does not exist
+   */
+  public User getUser(LdapUtility ldapUtility, String id) throws LdapUtilityException {
+    User user = users.getIfPresent(id);
+    if (user == null) {
+      user = ldapUtility.getUser(id);
+      if (user != null) {
+        users.put(id, copy(user));
+      }
+    } else {
+      user = copy(user);
+    }
+    return user;
+  }
+
+  /**
+   * Gets the user with the given credentials, authenticating them against LDAP
+   * if they were not authenticated before (or have changed since).
+   */
+  public User getAuthenticatedUser(LdapUtility ldapUtility, String username, String password)
+    throws AuthenticationDeniedException, ServiceException {
+    String credentialsKey = getCredentialsKey(username, password);
+    String id = credentials.getIfPresent(credentialsKey);
+    User user = id != null ? users.getIfPresent(id) : null;
+
+    if (user == null) {
+      user = ldapUtility.getAuthenticatedUser(username, password);
+      users.put(user.getId(), copy(user));
+      credentials.put(credentialsKey, user.getId());
+    } else {
+      user = copy(user);
+    }
+    return user;
+  }
+
+  /**
+   * Removes a user, and the credentials authenticated as that user, from the
+   * cache.
+   */
+  public void invalidateUser(String id) {
+    users.invalidate(id);
+    credentials.asMap().values().removeIf(userId -> userId.equals(id));
+  }
+
+  /**
+   * Removes all users and credentials from the cache (e.g. when a group
+   * changes, as that might change the roles of many users).
+   */
+  public void invalidateAll() {
+    users.invalidateAll();
+    credentials.invalidateAll();
+  }
+
+  public CacheStats getUserStats() {
+    return users.stats();
+  }
+
+  public CacheStats getCredentialsStats() {
+    return credentials.stats();
+  }
+
+  private String getCredentialsKey(String username, String password) throws ServiceException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(CREDENTIALS_DIGEST_ALGORITHM);
+      digest.update(salt);
+      digest.update(username.getBytes(StandardCharsets.UTF_8));
+      // separator, so that different username/password splits do not collide
+      digest.update((byte) 0);
+      digest.update(password.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new ServiceException(e.getMessage(), ServiceException.INTERNAL_SERVER_ERROR, e);
+    }
+  }
+
+  private static User copy(User user) {
+    User copy = new User(user);
+    copy.setAllRoles(copy(user.getAllRoles()));
+    copy.setDirectRoles(copy(user.getDirectRoles()));
+    copy.setGroups(copy(user.getGroups()));
+    return copy;
+  }
+
+  private static Set<String> copy(Set<String> set) {
+    return set != null ? new HashSet<>(set) : null;
+  }
+
+}
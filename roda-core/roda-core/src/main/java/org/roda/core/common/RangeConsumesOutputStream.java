@@ -0,0 +1,29 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Content of a known size which can also be written partially (e.g. to answer
+ * HTTP range requests).
+ */
+public interface RangeConsumesOutputStream extends ConsumesOutputStream {
+
+  /**
+   * Writes the given number of bytes, starting at the given position.
+   */
+  void consumeOutputStream(OutputStream out, long position, long count) throws IOException;
+
+  /**
+   * @return the size of the content or -1 if it is not known
+   */
+  long getSize();
+
+}
@@ -0,0 +1,46 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Stream response whose content can also be sent partially, identified by an
+ * entity tag (so that HTTP range and conditional requests can be answered).
+ */
+public class RangeStreamResponse extends StreamResponse {
+  private RangeConsumesOutputStream content;
+  private String entityTag;
+
+  public RangeStreamResponse(String filename, String mediaType, StreamingOutput stream,
+    RangeConsumesOutputStream content, String entityTag) {
+    super(filename, mediaType, stream);
+    this.content = content;
+    this.entityTag = entityTag;
+  }
+
+  public RangeConsumesOutputStream getContent() {
+    return content;
+  }
+
+  public void setContent(RangeConsumesOutputStream content) {
+    this.content = content;
+  }
+
+  /**
+   * @return the entity tag of the content or null if it is not known
+   */
+  public String getEntityTag() {
+    return entityTag;
+  }
+
+  public void setEntityTag(String entityTag) {
+    this.entityTag = entityTag;
+  }
+
+}
@@ -0,0 +1,377 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.adapter.filter.NotSimpleFilterParameter;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps the transferred resources index up to date by only reindexing the
+ * paths that were created, changed or removed, as found by comparing them with
+ * a {@link TransferredResourcesSnapshot}.
+ * <p>
+ * Changed paths are detected by a {@link WatchService} and reindexed
+ * periodically (in batch). As fallback for the changes it cannot detect (e.g.
+ * events lost due to overflow, too many directories to watch or changes made
+ * while RODA was not running) the whole folder is compared with the snapshot
+ * on start up and periodically. The snapshot is saved on shutdown and read on
+ * start up; without it, the first update reindexes everything.
+ * </p>
+ */
+public class IncrementalTransferredResourcesScanner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalTransferredResourcesScanner.class);
+
+  private static final int DELETE_BATCH_SIZE = 1000;
+  // above this, walking the whole folder is cheaper than walking each path
+  private static final int MAX_CHANGED_PATHS = 10000;
+  private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 60;
+
+  private final Path basePath;
+  private final Path snapshotFile;
+  private final IndexService index;
+  private final TransferredResourcesSnapshot snapshot;
+  private final ScheduledExecutorService scheduler;
+
+  private final Set<Path> changedPaths = ConcurrentHashMap.newKeySet();
+  private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+  private WatchService watchService = null;
+  private volatile boolean watching = false;
+  private boolean fullUpdatePending;
+
+  /**
+   * @param watch
+   *          use a {@link WatchService} to detect changes as they happen
+   * @param changesDelayInMillis
+   *          interval between the updates of the changes detected by the
+   *          {@link WatchService}
+   * @param reconciliationIntervalInMinutes
+   *          interval between the comparisons of the whole folder with the
+   *          snapshot (values lower than 1 only compare it on start up)
+   */
+  public IncrementalTransferredResourcesScanner(Path basePath, Path snapshotFile, IndexService index, boolean watch,
+    long changesDelayInMillis, long reconciliationIntervalInMinutes) {
+    this.basePath = basePath;
+    this.snapshotFile = snapshotFile;
+    this.index = index;
+
+    // the saved snapshot stops being valid as soon as the index is updated, so
+    // it is removed and only saved again on shutdown
+    snapshot = TransferredResourcesSnapshot.load(basePath, snapshotFile);
+    FSUtils.deletePathQuietly(snapshotFile);
+    fullUpdatePending = snapshot.size() == 0;
+    LOGGER.info("Transferred resources snapshot has {} paths", snapshot.size());
+
+    ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("transferred-resources-scanner-%d")
+      .setDaemon(true).build();
+    scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+    if (watch) {
+      // directories are registered before the first reconciliation so that no
+      // change made meanwhile is lost
+      scheduler.execute(() -> startWatching());
+      scheduler.scheduleWithFixedDelay(() -> updateChangedPaths(), changesDelayInMillis, changesDelayInMillis,
+        TimeUnit.MILLISECONDS);
+    }
+
+    if (reconciliationIntervalInMinutes > 0) {
+      scheduler.scheduleWithFixedDelay(() -> reconcile(), 0, reconciliationIntervalInMinutes, TimeUnit.MINUTES);
+    } else {
+      scheduler.execute(() -> reconcile());
+    }
+  }
+
+  /**
+   * Updates the index of a folder and of all the changes detected meanwhile.
+   *
+   * @param folder
+   *          the folder to update (the base path updates everything)
+   */
+  public void update(Path folder, boolean waitToFinish) {
+    List<Path> paths = takeChangedPaths();
+    // while watching, the whole folder does not need to be walked, but specific
+    // folders are, as changes just made to them (e.g. moves) may not have been
+    // detected yet
+    if (!watching || !folder.equals(basePath)) {
+      paths.add(folder);
+    }
+
+    if (waitToFinish) {
+      update(paths);
+    } else {
+      scheduler.execute(() -> update(paths));
+    }
+  }
+
+  public void shutdown() {
+    stopWatching();
+    scheduler.shutdownNow();
+    try {
+      if (scheduler.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+        saveSnapshot();
+      } else {
+        LOGGER.warn("Transferred resources are still being updated, snapshot will not be saved");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized void saveSnapshot() {
+    // an incomplete snapshot would hide resources that were never indexed
+    if (!fullUpdatePending) {
+      try {
+        snapshot.save(snapshotFile);
+      } catch (IOException e) {
+        LOGGER.warn("Cannot save transferred resources snapshot {}", snapshotFile, e);
+      }
+    }
+  }
+
+  private void reconcile() {
+    changedPaths.clear();
+    update(Collections.singletonList(basePath));
+  }
+
+  private void updateChangedPaths() {
+    List<Path> paths = takeChangedPaths();
+    if (!paths.isEmpty()) {
+      update(paths);
+    }
+  }
+
+  private List<Path> takeChangedPaths() {
+    List<Path> paths = new ArrayList<>(changedPaths);
+    changedPaths.removeAll(paths);
+
+    List<Path> ret = new ArrayList<>();
+    if (paths.size() > MAX_CHANGED_PATHS) {
+      ret.add(basePath);
+    } else {
+      // paths under others that also changed are walked with them
+      paths.sort(Comparator.comparingInt(Path::getNameCount));
+      for (Path path : paths) {
+        if (ret.stream().noneMatch(p -> path.startsWith(p))) {
+          ret.add(path);
+        }
+      }
+    }
+    return ret;
+  }
+
+  private synchronized void update(List<Path> paths) {
+    List<Path> pathsToUpdate = fullUpdatePending ? Collections.singletonList(basePath) : paths;
+    boolean updatingAll = pathsToUpdate.contains(basePath);
+    long start = System.currentTimeMillis();
+    Date scanDate = new Date();
+    IndexingListener listener = new IndexingListener();
+
+    if (updatingAll) {
+      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(true);
+    }
+    boolean indexed = false;
+    try {
+      long failedDocuments = index.getFailedDocumentCount(TransferredResource.class);
+      for (Path path : pathsToUpdate) {
+        snapshot.update(path, scanDate, listener);
+      }
+      listener.deleteRemoved();
+      // the changed resources are indexed in batch, so Solr may only refuse
+      // them when they are sent
+      index.flush(TransferredResource.class);
+      if (index.getFailedDocumentCount(TransferredResource.class) > failedDocuments) {
+        listener.failed = true;
+      }
+
+      if (listener.failed) {
+        // the snapshot is rolled back, so that the changes are found again
+        LOGGER.error("Could not index all the changes of transferred resources {}, they will be retried",
+          pathsToUpdate);
+        return;
+      }
+
+      if (fullUpdatePending) {
+        // without a snapshot all the existing resources were reindexed, so all
+        // the others no longer exist
+        index.delete(TransferredResource.class, new Filter(new NotSimpleFilterParameter(
+          RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE, SolrUtils.getLastScanDate(scanDate))));
+        fullUpdatePending = false;
+      }
+
+      if (listener.changedCount > 0 || listener.removedCount > 0) {
+        index.commit(TransferredResource.class);
+      }
+      indexed = true;
+      LOGGER.debug("Updated transferred resources {} in {} ms: {} changed, {} removed", pathsToUpdate,
+        System.currentTimeMillis() - start, listener.changedCount, listener.removedCount);
+    } catch (IOException | GenericException | RequestNotValidException | RuntimeException e) {
+      LOGGER.error("Error updating transferred resources {}", pathsToUpdate, e);
+    } finally {
+      if (indexed) {
+        snapshot.commit();
+      } else {
+        // retried with the next changes (or on the next reconciliation)
+        snapshot.rollback();
+        if (watching) {
+          changedPaths.addAll(pathsToUpdate);
+        }
+      }
+      if (updatingAll) {
+        RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(false);
+      }
+    }
+  }
+
+  private void startWatching() {
+    try {
+      watchService = basePath.getFileSystem().newWatchService();
+      watching = true;
+      register(basePath);
+
+      Thread watcher = new Thread(() -> watch(), "transferred-resources-watcher");
+      watcher.setDaemon(true);
+      watcher.start();
+    } catch (IOException e) {
+      LOGGER.warn("Cannot watch transferred resources, only periodic updates will be done", e);
+      stopWatching();
+    }
+  }
+
+  private void stopWatching() {
+    watching = false;
+    IOUtils.closeQuietly(watchService);
+    watchedDirectories.clear();
+  }
+
+  private void register(Path directory) throws IOException {
+    Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+      new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+          WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+          watchedDirectories.put(key, dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+  }
+
+  private void watch() {
+    try {
+      while (watching) {
+        WatchKey key = watchService.take();
+        Path directory = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+            changedPaths.add(basePath);
+          } else {
+            Path path = directory.resolve((Path) event.context());
+            changedPaths.add(path);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+              register(path);
+            }
+          }
+        }
+
+        if (!key.reset()) {
+          watchedDirectories.remove(key);
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      // stopped watching
+    } catch (IOException e) {
+      // e.g. too many directories to watch
+      LOGGER.warn("Cannot keep watching transferred resources, only periodic updates will be done", e);
+      stopWatching();
+      changedPaths.add(basePath);
+    }
+  }
+
+  private class IndexingListener implements TransferredResourcesSnapshot.Listener {
+    private final List<String> removed = new ArrayList<>();
+    private long changedCount = 0;
+    private long removedCount = 0;
+    private boolean failed = false;
+
+    @Override
+    public void changed(TransferredResource resource) {
+      try {
+        index.createInBatch(TransferredResource.class, resource);
+        changedCount++;
+      } catch (GenericException e) {
+        LOGGER.error("Error adding path to Transferred Resources index", e);
+        failed = true;
+      }
+    }
+
+    @Override
+    public void removed(String uuid) {
+      removed.add(uuid);
+      removedCount++;
+      if (removed.size() >= DELETE_BATCH_SIZE) {
+        deleteRemoved();
+      }
+    }
+
+    public void deleteRemoved() {
+      if (!removed.isEmpty()) {
+        try {
+          index.delete(TransferredResource.class, removed);
+        } catch (GenericException | RequestNotValidException e) {
+          LOGGER.error("Error removing paths from Transferred Resources index", e);
+          failed = true;
+        }
+        removed.clear();
+      }
+    }
+  }
+
+}
@@ -41,15 +41,36 @@ import org.slf4j.LoggerFactory;
 
 public class TransferredResourcesScanner {
   private static final Logger LOGGER = LoggerFactory.getLogger(TransferredResourcesScanner.class);
+  private static final String SNAPSHOT_FILE_EXTENSION = ".snapshot";
 
   private final Path basePath;
   private IndexService index;
+  private IncrementalTransferredResourcesScanner incrementalScanner = null;
 
   public TransferredResourcesScanner(Path basePath, IndexService index) throws Exception {
     this.basePath = basePath;
     this.index = index;
   }
 
+  /**
+   * Makes updates only reindex what changed since the last update, instead of
+   * the whole folder (see {@link IncrementalTransferredResourcesScanner}).
+   */
+  public void enableIncrementalUpdates(boolean watch, long changesDelayInMillis,
+    long reconciliationIntervalInMinutes) {
+    if (incrementalScanner == null && index != null) {
+      Path snapshotFile = basePath.resolveSibling(basePath.getFileName() + SNAPSHOT_FILE_EXTENSION);
+      incrementalScanner = new IncrementalTransferredResourcesScanner(basePath, snapshotFile, index, watch,
+        changesDelayInMillis, reconciliationIntervalInMinutes);
+    }
+  }
+
+  public void shutdown() {
+    if (incrementalScanner != null) {
+      incrementalScanner.shutdown();
+    }
+  }
+
   public void commit() throws GenericException {
     index.commit(TransferredResource.class);
   }
@@ -133,7 +154,7 @@ public class TransferredResourcesScanner {
     return UUID.nameUUIDFromBytes(relativeToBase.toString().getBytes()).toString();
   }
 
-  private static String getTransferredResourceUUID(String relativeToBase) {
+  static String getTransferredResourceUUID(String relativeToBase) {
     return UUID.nameUUIDFromBytes(relativeToBase.getBytes()).toString();
   }
 
@@ -199,7 +220,17 @@ public class TransferredResourcesScanner {
   }
 
   public void updateAllTransferredResources(String folderUUID, boolean waitToFinish) throws IsStillUpdatingException {
-    if (!RodaCoreFactory.getTransferredResourcesScannerUpdateStatus()) {
+    if (incrementalScanner != null) {
+      Path folderPath = basePath;
+      if (folderUUID != null) {
+        try {
+          folderPath = basePath.resolve(index.retrieve(TransferredResource.class, folderUUID).getRelativePath());
+        } catch (NotFoundException | GenericException e) {
+          LOGGER.error("Specific folder is not indexed or does not exist");
+        }
+      }
+      incrementalScanner.update(folderPath, waitToFinish);
+    } else if (!RodaCoreFactory.getTransferredResourcesScannerUpdateStatus()) {
       if (index != null) {
         ReindexTransferredResourcesRunnable reindexRunnable;
         reindexRunnable = new ReindexTransferredResourcesRunnable(basePath, folderUUID, index);
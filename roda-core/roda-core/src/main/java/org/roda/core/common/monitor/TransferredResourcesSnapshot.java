@@ -0,0 +1,355 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.Stack;
+import java.util.TreeMap;
+
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Last known size and modification time of all the paths under the
+ * transferred resources folder, used to find out which of them were created,
+ * changed or removed since they were last indexed (so that only those are
+ * indexed again).
+ * <p>
+ * As in the index, the size of a directory is the sum of the sizes of all the
+ * files under it, so a change in a file also changes all its ancestors.
+ * </p>
+ * <p>
+ * Updates are kept until they are committed or rolled back, so that the
+ * changes that could not be indexed are found again on the next update.
+ * </p>
+ */
+public class TransferredResourcesSnapshot {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransferredResourcesSnapshot.class);
+
+  private static final String FIELD_SEPARATOR = "\t";
+  private static final String DIRECTORY = "d";
+  private static final String FILE = "f";
+
+  /**
+   * Receives the changes found while updating the snapshot.
+   */
+  public interface Listener {
+    /**
+     * A path was created or changed, so its resource must be (re)indexed.
+     */
+    void changed(TransferredResource resource);
+
+    /**
+     * A path no longer exists, so its resource must be removed from the index.
+     */
+    void removed(String uuid);
+  }
+
+  private final Path basePath;
+  private final String separator;
+  private final NavigableMap<String, Entry> entries = new TreeMap<>();
+  // previous entries (null if there was none) of the paths changed since the
+  // last commit or rollback
+  private final Map<String, Entry> uncommitted = new HashMap<>();
+
+  public TransferredResourcesSnapshot(Path basePath) {
+    this.basePath = basePath;
+    this.separator = basePath.getFileSystem().getSeparator();
+  }
+
+  public Path getBasePath() {
+    return basePath;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Keeps the updates made since the last commit or rollback (i.e. after the
+   * changes were indexed).
+   */
+  public synchronized void commit() {
+    uncommitted.clear();
+  }
+
+  /**
+   * Discards the updates made since the last commit or rollback (e.g. because
+   * the changes could not be indexed).
+   */
+  public synchronized void rollback() {
+    for (Map.Entry<String, Entry> previous : uncommitted.entrySet()) {
+      if (previous.getValue() == null) {
+        entries.remove(previous.getKey());
+      } else {
+        entries.put(previous.getKey(), previous.getValue());
+      }
+    }
+    uncommitted.clear();
+  }
+
+  /**
+   * Updates the snapshot of a path (and everything under it) by walking it,
+   * notifying the listener of the paths that were created, changed or removed
+   * since the last update, including the ancestors whose size changed.
+   *
+   * @param path
+   *          the path to update, absolute or relative to the base path (if it
+   *          no longer exists, it and everything under it are removed)
+   */
+  public synchronized void update(Path path, Date scanDate, Listener listener) throws IOException {
+    Path target = basePath.resolve(path).normalize();
+    if (!target.startsWith(basePath)) {
+      throw new IllegalArgumentException("Path is not under the transferred resources folder: " + path);
+    }
+
+    // ancestors unknown to the snapshot must be walked as well, as their size
+    // can only be calculated from the whole content
+    for (Path parent = target.getParent(); isResource(parent); parent = parent.getParent()) {
+      if (!entries.containsKey(key(parent))) {
+        target = parent;
+      }
+    }
+
+    Entry previous = entries.get(key(target));
+    long previousSize = previous != null ? previous.size : 0;
+    long size;
+    if (Files.exists(target)) {
+      size = walk(target, scanDate, listener);
+    } else {
+      remove(target, listener);
+      size = 0;
+    }
+
+    updateAncestors(target, size - previousSize, scanDate, listener);
+  }
+
+  private long walk(Path target, Date scanDate, Listener listener) throws IOException {
+    Set<String> missing = new HashSet<>(keysUnder(target));
+    long[] totalSize = new long[] {0};
+
+    Files.walkFileTree(target, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+      new SimpleFileVisitor<Path>() {
+        Stack<BasicFileAttributes> directoryAttributesStack = new Stack<>();
+        Stack<Long> sizeStack = new Stack<>();
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          directoryAttributesStack.push(attrs);
+          sizeStack.push(0L);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          long size = attrs.size();
+          if (sizeStack.isEmpty()) {
+            totalSize[0] = size;
+          } else {
+            sizeStack.push(sizeStack.pop() + size);
+          }
+          visit(file, attrs, false, size);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          // keep what was known about it, as it may be a transient failure
+          LOGGER.warn("Cannot read transferred resource {}: {}", file, exc.getMessage());
+          missing.removeAll(keysUnder(file));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+          BasicFileAttributes attrs = directoryAttributesStack.pop();
+          long size = sizeStack.pop();
+          if (sizeStack.isEmpty()) {
+            totalSize[0] = size;
+          } else {
+            sizeStack.push(sizeStack.pop() + size);
+          }
+          if (!dir.equals(basePath)) {
+            visit(dir, attrs, true, size);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        private void visit(Path resourcePath, BasicFileAttributes attrs, boolean directory, long size) {
+          String key = key(resourcePath);
+          missing.remove(key);
+          Entry entry = new Entry(directory, size, attrs.lastModifiedTime().toMillis());
+          Entry previous = entries.put(key, entry);
+          if (!entry.equals(previous)) {
+            remember(key, previous);
+            listener.changed(
+              TransferredResourcesScanner.createTransferredResource(resourcePath, attrs, size, basePath, scanDate));
+          }
+        }
+      });
+
+    for (String key : missing) {
+      remember(key, entries.remove(key));
+      listener.removed(TransferredResourcesScanner.getTransferredResourceUUID(key));
+    }
+
+    return totalSize[0];
+  }
+
+  private void remove(Path target, Listener listener) {
+    for (String key : keysUnder(target)) {
+      remember(key, entries.remove(key));
+      listener.removed(TransferredResourcesScanner.getTransferredResourceUUID(key));
+    }
+  }
+
+  private void updateAncestors(Path target, long sizeDelta, Date scanDate, Listener listener) {
+    for (Path parent = target.getParent(); isResource(parent); parent = parent.getParent()) {
+      String key = key(parent);
+      Entry previous = entries.get(key);
+      if (previous == null) {
+        continue;
+      }
+      try {
+        BasicFileAttributes attrs = Files.readAttributes(parent, BasicFileAttributes.class);
+        Entry entry = new Entry(true, previous.size + sizeDelta, attrs.lastModifiedTime().toMillis());
+        if (!entry.equals(previous)) {
+          entries.put(key, entry);
+          remember(key, previous);
+          listener.changed(
+            TransferredResourcesScanner.createTransferredResource(parent, attrs, entry.size, basePath, scanDate));
+        }
+      } catch (NoSuchFileException e) {
+        // removed meanwhile, it will be updated on its own
+      } catch (IOException e) {
+        LOGGER.warn("Cannot read transferred resource {}: {}", parent, e.getMessage());
+      }
+    }
+  }
+
+  private void remember(String key, Entry previous) {
+    if (!uncommitted.containsKey(key)) {
+      uncommitted.put(key, previous);
+    }
+  }
+
+  private boolean isResource(Path path) {
+    return path != null && path.startsWith(basePath) && !path.equals(basePath);
+  }
+
+  private String key(Path path) {
+    return basePath.relativize(path).toString();
+  }
+
+  private List<String> keysUnder(Path path) {
+    String key = key(path);
+    List<String> ret = new ArrayList<>();
+    if (key.isEmpty()) {
+      ret.addAll(entries.keySet());
+    } else {
+      if (entries.containsKey(key)) {
+        ret.add(key);
+      }
+      ret.addAll(entries.subMap(key + separator, true, key + separator + Character.MAX_VALUE, false).keySet());
+    }
+    return ret;
+  }
+
+  /**
+   * Saves the snapshot to a file (atomically replacing it).
+   */
+  public synchronized void save(Path file) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      writer.write(basePath.toString());
+      writer.newLine();
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        // paths with line breaks cannot be saved, they will be found again
+        if (entry.getKey().indexOf('\n') < 0 && entry.getKey().indexOf('\r') < 0) {
+          Entry e = entry.getValue();
+          writer.write((e.directory ? DIRECTORY : FILE) + FIELD_SEPARATOR + e.size + FIELD_SEPARATOR + e.modified
+            + FIELD_SEPARATOR + entry.getKey());
+          writer.newLine();
+        }
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Loads a snapshot saved by {@link #save(Path)}, returning an empty snapshot
+   * if the file does not exist, cannot be read or belongs to another base path.
+   */
+  public static TransferredResourcesSnapshot load(Path basePath, Path file) {
+    TransferredResourcesSnapshot snapshot = new TransferredResourcesSnapshot(basePath);
+    if (Files.exists(file)) {
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        if (basePath.toString().equals(reader.readLine())) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(FIELD_SEPARATOR, 4);
+            snapshot.entries.put(fields[3],
+              new Entry(DIRECTORY.equals(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        LOGGER.warn("Cannot load transferred resources snapshot {}, ignoring it", file, e);
+        snapshot.entries.clear();
+      }
+    }
+    return snapshot;
+  }
+
+  private static class Entry {
+    private final boolean directory;
+    private final long size;
+    private final long modified;
+
+    public Entry(boolean directory, long size, long modified) {
+      this.directory = directory;
+      this.size = size;
+      this.modified = modified;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Entry)) {
+        return false;
+      }
+      Entry other = (Entry) obj;
+      return directory == other.directory && size == other.size && modified == other.modified;
+    }
+
+    @Override
+    public int hashCode() {
+      return Boolean.hashCode(directory) + 31 * Long.hashCode(size) + 961 * Long.hashCode(modified);
+    }
+  }
+
+}
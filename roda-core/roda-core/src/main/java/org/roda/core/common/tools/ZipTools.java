@@ -7,10 +7,12 @@
  */
 package org.roda.core.common.tools;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -24,6 +26,8 @@ import org.apache.commons.io.IOUtils;
  */
 public class ZipTools {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   /**
    * Zip a list of files into an output stream
    * 
@@ -32,19 +36,41 @@ public class ZipTools {
    * @throws IOException
    */
   public static void zip(List<ZipEntryInfo> files, OutputStream out) throws IOException {
-    ZipOutputStream zos = new ZipOutputStream(out);
+    zip(files, out, true);
+  }
 
-    for (ZipEntryInfo file : files) {
-      ZipEntry entry = new ZipEntry(file.getName());
-      zos.putNextEntry(entry);
-      InputStream inputStream = file.getPayload().createInputStream();
-      sendToZip(inputStream, zos);
-      IOUtils.closeQuietly(inputStream);
-      zos.closeEntry();
+  /**
+   * Zip files into an output stream, as they are iterated (so files can be
+   * listed lazily and the zip starts being sent right away). Entries over 4 GB
+   * or more than 65535 entries are written as ZIP64.
+   * 
+   * @param files
+   * @param out
+   * @param compress
+   *          if false, files are stored without being compressed (which is
+   *          faster and better for already compressed formats)
+   * @throws IOException
+   */
+  public static void zip(Iterable<ZipEntryInfo> files, OutputStream out, boolean compress) throws IOException {
+    ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    if (!compress) {
+      zos.setLevel(Deflater.NO_COMPRESSION);
     }
+    byte[] buffer = new byte[BUFFER_SIZE];
 
-    IOUtils.closeQuietly(zos);
-    IOUtils.closeQuietly(out);
+    try {
+      for (ZipEntryInfo file : files) {
+        ZipEntry entry = new ZipEntry(file.getName());
+        zos.putNextEntry(entry);
+        InputStream inputStream = file.getPayload().createInputStream();
+        sendToZip(inputStream, zos, buffer);
+        IOUtils.closeQuietly(inputStream);
+        zos.closeEntry();
+      }
+    } finally {
+      IOUtils.closeQuietly(zos);
+      IOUtils.closeQuietly(out);
+    }
   }
 
   private static String createFileName(String original, int append) {
@@ -60,18 +86,8 @@ public class ZipTools {
     return ret;
   }
 
-  private static void sendToZip(InputStream in, ZipOutputStream zos) throws IOException {
-    byte[] buffer = new byte[4096];
-    int retval;
-
-    do {
-      retval = in.read(buffer, 0, 4096);
-      if (retval != -1) {
-        zos.write(buffer, 0, retval);
-      }
-    } while (retval != -1);
-
+  private static void sendToZip(InputStream in, ZipOutputStream zos, byte[] buffer) throws IOException {
+    IOUtils.copyLarge(in, zos, buffer);
     in.close();
-
   }
 }
@@ -0,0 +1,449 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.common.OptionalWithCause;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.index.utils.SolrBatchIndexer;
+import org.roda.core.model.ModelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Reindexes all the AIPs (and their representations, files, preservation
+ * events and agents) without clearing the index first.
+ * <p>
+ * Each full reindex has a generation and, while it runs, all the documents
+ * added to the AIP related collections are stamped with it (see
+ * {@link RodaConstants#INDEX_REINDEX_GENERATION}). AIPs are listed from the
+ * model and reindexed by several workers and, when all are done, the documents
+ * not stamped with the current generation (i.e. of objects that no longer
+ * exist) are deleted. The index is therefore usable, and complete, during the
+ * whole reindex.
+ * </p>
+ * <p>
+ * Progress is checkpointed to a file (the generation followed by the ids of the
+ * AIPs already reindexed and committed), so that an interrupted reindex can be
+ * resumed, skipping those AIPs. The checkpoint file is deleted when the
+ * reindex finishes. If some AIPs could not be reindexed, their documents are
+ * not stamped, so the outdated documents are kept and the checkpoint too: the
+ * reindex is incomplete and resuming it retries only the AIPs that failed. An
+ * AIP also fails when Solr refuses some of its (batched) documents, which is
+ * only known when they are sent, so AIPs are checkpointed only after their
+ * documents were committed.
+ * </p>
+ * <p>
+ * Only one reindex can run at a time (in this or in another process, e.g. the
+ * command line), which is enforced with a lock on a file next to the
+ * checkpoint.
+ * </p>
+ */
+public class AIPReindexer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AIPReindexer.class);
+
+  public static final List<String> COLLECTIONS = Arrays.asList(RodaConstants.INDEX_AIP,
+    RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE, RodaConstants.INDEX_PRESERVATION_EVENTS,
+    RodaConstants.INDEX_PRESERVATION_AGENTS);
+
+  // AIPs waiting for a worker (per worker), the listing waits when full
+  private static final int QUEUE_SIZE_PER_THREAD = 10;
+
+  // field with the id of the AIP of the documents of each collection
+  private static final Map<String, String> AIP_ID_FIELDS = new HashMap<>();
+  static {
+    AIP_ID_FIELDS.put(RodaConstants.INDEX_AIP, RodaConstants.AIP_ID);
+    AIP_ID_FIELDS.put(RodaConstants.INDEX_REPRESENTATION, RodaConstants.REPRESENTATION_AIP_ID);
+    AIP_ID_FIELDS.put(RodaConstants.INDEX_FILE, RodaConstants.FILE_AIPID);
+    AIP_ID_FIELDS.put(RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.PRESERVATION_EVENT_AIP_ID);
+  }
+
+  private final IndexService indexService;
+  private final ModelService model;
+  private final SolrClient index;
+  private final SolrBatchIndexer indexer;
+  private final Path checkpointFile;
+  private final Path lockFile;
+  private final int threads;
+  private final int checkpointInterval;
+
+  /**
+   * @param checkpointFile
+   *          file where progress is kept while reindexing
+   * @param threads
+   *          number of AIPs reindexed at the same time
+   * @param checkpointInterval
+   *          number of AIPs reindexed between checkpoints (i.e. commits)
+   */
+  public AIPReindexer(IndexService indexService, ModelService model, SolrClient index, SolrBatchIndexer indexer,
+    Path checkpointFile, int threads, int checkpointInterval) {
+    this.indexService = indexService;
+    this.model = model;
+    this.index = index;
+    this.indexer = indexer;
+    this.checkpointFile = checkpointFile;
+    this.lockFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".lock");
+    this.threads = Math.max(1, threads);
+    this.checkpointInterval = Math.max(1, checkpointInterval);
+  }
+
+  /**
+   * If a reindex was interrupted (e.g. RODA stopped), keeps stamping documents
+   * with its generation until it is resumed, so that documents changed in the
+   * meantime are not deleted at the end.
+   */
+  public void continueStampingIfInterrupted() {
+    if (Files.exists(checkpointFile)) {
+      try {
+        long generation = readCheckpoint(new HashSet<>());
+        indexer.startStamping(RodaConstants.INDEX_REINDEX_GENERATION, generation, COLLECTIONS);
+        LOGGER.warn("AIP reindex (generation {}) was interrupted and should be resumed", generation);
+      } catch (IOException | NumberFormatException e) {
+        LOGGER.error("Could not read AIP reindex checkpoint {}", checkpointFile, e);
+      }
+    }
+  }
+
+  /**
+   * Reindexes all AIPs.
+   *
+   * @param resume
+   *          if true and there is a checkpoint of an interrupted reindex, the
+   *          AIPs reindexed before the interruption are skipped
+   * @param listener
+   *          notified of the progress at each checkpoint and at the end (can
+   *          be null)
+   * @throws GenericException
+   *           if another reindex is running, or if the reindex could not be
+   *           done
+   */
+  public Progress reindex(boolean resume, Consumer<Progress> listener)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    try {
+      Files.createDirectories(lockFile.getParent());
+    } catch (IOException e) {
+      throw new GenericException("Error creating AIP reindex lock " + lockFile, e);
+    }
+
+    try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock lock = tryLock(lockChannel)) {
+      if (lock == null) {
+        throw new GenericException("Another AIP reindex is running (" + lockFile + " is locked)");
+      }
+      return reindexWhileLocked(resume, listener);
+    } catch (IOException e) {
+      throw new GenericException("Error locking AIP reindex " + lockFile, e);
+    }
+  }
+
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // held by a reindex running in this process
+      return null;
+    }
+  }
+
+  private Progress reindexWhileLocked(boolean resume, Consumer<Progress> listener)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    Set<String> reindexed = new HashSet<>();
+    long generation = startCheckpoint(resume, reindexed);
+    Progress progress = new Progress(generation, reindexed.size());
+    LOGGER.info("Reindexing AIPs (generation {}, {} already reindexed, {} threads)", generation, reindexed.size(),
+      threads);
+
+    indexer.startStamping(RodaConstants.INDEX_REINDEX_GENERATION, generation, COLLECTIONS);
+    Queue<String> done = new ConcurrentLinkedQueue<>();
+    Set<String> refused = ConcurrentHashMap.newKeySet();
+    BiConsumer<String, SolrInputDocument> refusedListener = (collection, doc) -> refused(collection, doc, refused,
+      progress);
+    indexer.addFailureListener(refusedListener);
+    ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("aip-reindexer-%d").setDaemon(true).build();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD), threadFactory,
+      new ThreadPoolExecutor.CallerRunsPolicy());
+
+    CloseableIterable<OptionalWithCause<AIP>> aips = null;
+    try (FileChannel checkpoint = FileChannel.open(checkpointFile, StandardOpenOption.WRITE,
+      StandardOpenOption.APPEND)) {
+      aips = model.listAIPs();
+      long listed = 0;
+      for (OptionalWithCause<AIP> aip : aips) {
+        if (!aip.isPresent()) {
+          LOGGER.error("Could not reindex AIP: {}", aip.getCause());
+          progress.failed.incrementAndGet();
+        } else if (reindexed.contains(aip.get().getId())) {
+          progress.skipped.incrementAndGet();
+        } else {
+          executor.execute(() -> reindex(aip.get(), done, progress));
+        }
+
+        if (++listed % checkpointInterval == 0) {
+          checkpoint(checkpoint, done, refused, progress, listener);
+        }
+      }
+
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      indexService.reindexPreservationAgents();
+      checkpoint(checkpoint, done, refused, progress, listener);
+      // the preservation agents are not checkpointed, but refused ones must be
+      // known too
+      indexService.commitAIPs();
+
+      // the documents of the AIPs that failed were not stamped, so they would
+      // be deleted as outdated
+      if (progress.getFailedCount() == 0) {
+        deleteDocumentsOfOtherGenerations(generation);
+        progress.complete = true;
+      } else {
+        LOGGER.warn("{} AIPs could not be reindexed, outdated documents were kept (resume the reindex to retry them)",
+          progress.getFailedCount());
+      }
+    } catch (IOException e) {
+      throw new GenericException("Error writing AIP reindex checkpoint " + checkpointFile, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while reindexing AIPs", e);
+    } finally {
+      executor.shutdownNow();
+      indexer.removeFailureListener(refusedListener);
+      IOUtils.closeQuietly(aips);
+    }
+
+    // if the reindex fails or is incomplete, documents keep being stamped until
+    // it is resumed
+    if (progress.isComplete()) {
+      indexer.stopStamping();
+      try {
+        Files.deleteIfExists(checkpointFile);
+      } catch (IOException e) {
+        LOGGER.warn("Could not delete AIP reindex checkpoint {}", checkpointFile, e);
+      }
+    }
+
+    LOGGER.info("AIPs reindexed: {}", progress);
+    if (listener != null) {
+      listener.accept(progress);
+    }
+    return progress;
+  }
+
+  private void reindex(AIP aip, Queue<String> done, Progress progress) {
+    try {
+      LOGGER.debug("Reindexing AIP {}", aip.getId());
+      indexService.reindexAIPOrFail(aip);
+      done.add(aip.getId());
+      progress.reindexed.incrementAndGet();
+    } catch (GenericException | RuntimeException e) {
+      LOGGER.error("Could not reindex AIP {}", aip.getId(), e);
+      progress.failed.incrementAndGet();
+    }
+  }
+
+  /**
+   * Notified of the documents refused by Solr while reindexing.
+   */
+  private void refused(String collection, SolrInputDocument doc, Set<String> refused, Progress progress) {
+    String field = AIP_ID_FIELDS.get(collection);
+    Object aipId = field != null ? doc.getFieldValue(field) : null;
+    if (aipId != null) {
+      refused.add(aipId.toString());
+    } else if (COLLECTIONS.contains(collection)) {
+      // e.g. a preservation agent, which is not reindexed with an AIP
+      LOGGER.error("Could not reindex document of {}: {}", collection, doc.getFieldValue(RodaConstants.INDEX_ID));
+      progress.failed.incrementAndGet();
+    }
+  }
+
+  /**
+   * Commits the documents of the AIPs reindexed so far and only then adds them
+   * to the checkpoint, except the ones with documents refused by Solr, which
+   * count as failed.
+   */
+  private void checkpoint(FileChannel checkpoint, Queue<String> done, Set<String> refused, Progress progress,
+    Consumer<Progress> listener) throws GenericException, IOException {
+    List<String> ids = new ArrayList<>();
+    for (String id = done.poll(); id != null; id = done.poll()) {
+      ids.add(id);
+    }
+
+    if (!ids.isEmpty()) {
+      // sends the buffered documents, so that refused ones are known
+      indexService.commitAIPs();
+      List<String> reindexed = new ArrayList<>();
+      for (String id : ids) {
+        if (refused.remove(id)) {
+          LOGGER.error("Could not reindex AIP {}: some of its documents were refused", id);
+          progress.reindexed.decrementAndGet();
+          progress.failed.incrementAndGet();
+        } else {
+          reindexed.add(id);
+        }
+      }
+      if (!reindexed.isEmpty()) {
+        write(checkpoint, String.join("\n", reindexed) + "\n");
+      }
+    }
+
+    LOGGER.info("Reindexing AIPs: {}", progress);
+    if (listener != null) {
+      listener.accept(progress);
+    }
+  }
+
+  private void deleteDocumentsOfOtherGenerations(long generation) throws GenericException {
+    String query = "*:* -" + RodaConstants.INDEX_REINDEX_GENERATION + ":" + generation;
+    for (String collection : COLLECTIONS) {
+      try {
+        index.deleteByQuery(collection, query);
+      } catch (SolrServerException | IOException e) {
+        throw new GenericException("Error deleting outdated documents from " + collection, e);
+      }
+    }
+    indexService.commitAIPs();
+  }
+
+  private long startCheckpoint(boolean resume, Set<String> reindexed) throws GenericException {
+    try {
+      if (resume && Files.exists(checkpointFile)) {
+        return readCheckpoint(reindexed);
+      }
+
+      long generation = System.currentTimeMillis();
+      Files.createDirectories(checkpointFile.getParent());
+      try (FileChannel checkpoint = FileChannel.open(checkpointFile, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        write(checkpoint, generation + "\n");
+      }
+      return generation;
+    } catch (IOException | NumberFormatException e) {
+      throw new GenericException("Error starting AIP reindex checkpoint " + checkpointFile, e);
+    }
+  }
+
+  private long readCheckpoint(Set<String> reindexed) throws IOException {
+    List<String> lines = Files.readAllLines(checkpointFile, StandardCharsets.UTF_8);
+    if (lines.isEmpty()) {
+      throw new IOException("Empty AIP reindex checkpoint " + checkpointFile);
+    }
+    for (String id : lines.subList(1, lines.size())) {
+      if (!id.isEmpty()) {
+        reindexed.add(id);
+      }
+    }
+    return Long.parseLong(lines.get(0).trim());
+  }
+
+  private static void write(FileChannel channel, String text) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Progress of a reindex (AIPs reindexed by this run, skipped because they had
+   * been reindexed before being resumed, and failed). A reindex is complete
+   * when no AIP failed and the outdated documents were deleted.
+   */
+  public static class Progress {
+    private final long generation;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong reindexed = new AtomicLong(0);
+    private final AtomicLong skipped = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final long previouslyReindexed;
+    private volatile boolean complete = false;
+
+    private Progress(long generation, long previouslyReindexed) {
+      this.generation = generation;
+      this.previouslyReindexed = previouslyReindexed;
+    }
+
+    public long getGeneration() {
+      return generation;
+    }
+
+    public long getReindexedCount() {
+      return reindexed.get();
+    }
+
+    public long getSkippedCount() {
+      return skipped.get();
+    }
+
+    public long getFailedCount() {
+      return failed.get();
+    }
+
+    public long getPreviouslyReindexedCount() {
+      return previouslyReindexed;
+    }
+
+    public boolean isComplete() {
+      return complete;
+    }
+
+    /**
+     * @return AIPs reindexed per second by this run
+     */
+    public double getThroughput() {
+      long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+      return reindexed.get() * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("generation=%d; reindexed=%d; skipped=%d; failed=%d; throughput=%.2f AIPs/s; complete=%b",
+        generation, getReindexedCount(), getSkippedCount(), getFailedCount(), getThroughput(), isComplete());
+    }
+  }
+
+}
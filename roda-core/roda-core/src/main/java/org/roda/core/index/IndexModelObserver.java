@@ -9,15 +9,34 @@ package org.roda.core.index;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.roda.core.RodaCoreFactory;
@@ -45,6 +64,7 @@ import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.TransferredResource;
@@ -64,6 +84,9 @@ import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.AIPAncestorsCache;
+import org.roda.core.index.utils.IndexResultCache;
+import org.roda.core.index.utils.SolrBatchIndexer;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelObserver;
 import org.roda.core.model.ModelService;
@@ -76,6 +99,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * 
  * @author Luis Faria <lfaria@keep.pt>
@@ -84,40 +109,117 @@ import org.xml.sax.SAXException;
 public class IndexModelObserver implements ModelObserver {
 
   private static final int TEN_MB_IN_BYTES = 10485760;
+  // files waiting to be indexed, per thread, when indexing files in parallel
+  private static final int FILE_INDEXING_QUEUE_SIZE_PER_THREAD = 100;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexModelObserver.class);
 
   private final SolrClient index;
   private final ModelService model;
-
-  public IndexModelObserver(SolrClient index, ModelService model) {
+  private final SolrBatchIndexer indexer;
+  private final AIPAncestorsCache ancestorsCache;
+  private final IndexResultCache resultCache;
+  private final ExecutorService fileIndexingExecutor;
+  private final int maxPendingFiles;
+  private volatile Consumer<String> aipChangedListener = null;
+
+  /**
+   * @param resultCache
+   *          cache of query results, whose collections are invalidated as
+   *          their documents change (may be {@code null})
+   */
+  public IndexModelObserver(SolrClient index, ModelService model, SolrBatchIndexer indexer,
+    AIPAncestorsCache ancestorsCache, IndexResultCache resultCache) {
     super();
     this.index = index;
     this.model = model;
+    this.indexer = indexer;
+    this.ancestorsCache = ancestorsCache;
+    this.resultCache = resultCache;
+    if (resultCache != null) {
+      indexer.setSentListener(collection -> resultCache.invalidate(collection));
+    }
+
+    int threads = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+      "index", "file_indexing_threads");
+    if (threads > 1) {
+      // when the queue is full, files are indexed by the thread submitting them
+      ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("index-file-%d").setDaemon(true).build();
+      this.maxPendingFiles = threads * FILE_INDEXING_QUEUE_SIZE_PER_THREAD;
+      this.fileIndexingExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(maxPendingFiles), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    } else {
+      this.maxPendingFiles = 0;
+      this.fileIndexingExecutor = null;
+    }
+  }
+
+  /**
+   * Sets a listener that is invoked with the id of each AIP whose index
+   * document changes or is deleted (e.g. to discard cached copies of it).
+   */
+  public void setAIPChangedListener(Consumer<String> aipChangedListener) {
+    this.aipChangedListener = aipChangedListener;
+  }
+
+  private void aipChanged(String aipId) {
+    Consumer<String> listener = aipChangedListener;
+    if (listener != null) {
+      listener.accept(aipId);
+    }
   }
 
   @Override
   public void aipCreated(final AIP aip) {
+    indexCreatedAIP(aip);
+  }
+
+  /**
+   * Indexes an AIP like {@link #aipCreated(AIP)} but, instead of only logging
+   * them, reports the errors that left some of its documents unindexed.
+   * Documents that are buffered and later refused by Solr are reported by the
+   * batch indexer (see {@link SolrBatchIndexer#addFailureListener}).
+   * 
+   * @throws GenericException
+   *           if the AIP, or some of its representations, files or preservation
+   *           events, could not be indexed
+   */
+  public void aipReindexed(final AIP aip) throws GenericException {
+    if (!indexCreatedAIP(aip)) {
+      throw new GenericException("Could not index all the documents of AIP " + aip.getId());
+    }
+  }
+
+  private boolean indexCreatedAIP(final AIP aip) {
+    boolean indexed;
     try {
-      List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
-      indexAIP(aip, ancestors);
-      indexRepresentations(aip, ancestors);
-      indexPreservationsEvents(aip);
+      List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
+      indexed = indexAIP(aip, ancestors);
+      indexed &= indexRepresentations(aip, ancestors);
+      indexed &= indexPreservationsEvents(aip);
       // indexOtherMetadata(aip);
     } catch (RequestNotValidException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Error getting ancestors when creating AIP");
+      indexed = false;
     }
+    return indexed;
   }
 
-  private void indexAIP(final AIP aip, final List<String> ancestors) {
+  private boolean indexAIP(final AIP aip, final List<String> ancestors) {
     boolean safemode = false;
-    indexAIP(aip, ancestors, safemode);
+    return indexAIP(aip, ancestors, safemode);
   }
 
-  private void indexAIP(final AIP aip, final List<String> ancestors, boolean safemode) {
+  private boolean indexAIP(final AIP aip, final List<String> ancestors, boolean safemode) {
+    boolean indexed = true;
+    aipChanged(aip.getId());
     try {
       SolrInputDocument aipDoc = SolrUtils.aipToSolrInputDocument(aip, ancestors, model, safemode);
-      index.add(RodaConstants.INDEX_AIP, aipDoc);
+      // sent right away (instead of being buffered) so that safe mode can be
+      // used if Solr refuses the document
+      indexer.flush(RodaConstants.INDEX_AIP);
+      index.add(RodaConstants.INDEX_AIP, indexer.stamp(RodaConstants.INDEX_AIP, aipDoc));
+      invalidateCachedResults(RodaConstants.INDEX_AIP);
 
       LOGGER.trace("Adding AIP: {}", aipDoc);
     } catch (SolrException | SolrServerException | IOException | RequestNotValidException | GenericException
@@ -125,16 +227,18 @@ public class IndexModelObserver implements ModelObserver {
       if (!safemode) {
         LOGGER.error("Error indexing AIP, trying safe mode", e);
         safemode = true;
-        indexAIP(aip, ancestors, safemode);
+        indexed = indexAIP(aip, ancestors, safemode);
       } else {
         LOGGER.error("Cannot index created AIP", e);
+        indexed = false;
       }
 
     }
+    return indexed;
   }
 
-  private void indexPreservationsEvents(final AIP aip) {
-
+  private boolean indexPreservationsEvents(final AIP aip) {
+    boolean indexed = true;
     CloseableIterable<OptionalWithCause<PreservationMetadata>> preservationMetadata = null;
     try {
       boolean includeRepresentations = true;
@@ -145,44 +249,51 @@ public class IndexModelObserver implements ModelObserver {
           if (pm.getType().equals(PreservationMetadataType.EVENT)) {
             try {
               indexPreservationEvent(pm);
-            } catch (SolrServerException | IOException | RequestNotValidException | GenericException | NotFoundException
+            } catch (RequestNotValidException | GenericException | NotFoundException
               | AuthorizationDeniedException e) {
               LOGGER.error("Cannot index premis event", e);
+              indexed = false;
             }
           }
         } else {
           LOGGER.error("Cannot index premis event", opm.getCause());
+          indexed = false;
         }
       }
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Cannot index preservation events", e);
+      indexed = false;
     } finally {
       IOUtils.closeQuietly(preservationMetadata);
     }
-
+    return indexed;
   }
 
-  private void indexPreservationEvent(PreservationMetadata pm) throws RequestNotValidException, GenericException,
-    NotFoundException, AuthorizationDeniedException, SolrServerException, IOException {
+  private void indexPreservationEvent(PreservationMetadata pm)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
     StoragePath filePath = ModelUtils.getPreservationMetadataStoragePath(pm);
     Binary binary = model.getStorage().getBinary(filePath);
     AIP aip = model.retrieveAIP(pm.getAipId());
     SolrInputDocument premisEventDocument = SolrUtils.premisToSolr(pm.getType(), aip, pm.getRepresentationId(),
       pm.getId(), binary);
-    index.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
+    indexer.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
   }
 
   private void indexOtherMetadata(final AIP aip) {
     // TODO index other metadata
   }
 
-  private void indexRepresentations(final AIP aip, final List<String> ancestors) {
+  private boolean indexRepresentations(final AIP aip, final List<String> ancestors) {
+    boolean indexed = true;
     for (Representation representation : aip.getRepresentations()) {
-      indexRepresentation(aip, representation, ancestors);
+      indexed &= indexRepresentation(aip, representation, ancestors);
     }
+    return indexed;
   }
 
-  private void indexRepresentation(final AIP aip, final Representation representation, final List<String> ancestors) {
+  private boolean indexRepresentation(final AIP aip, final Representation representation,
+    final List<String> ancestors) {
+    boolean indexed = true;
     CloseableIterable<OptionalWithCause<File>> allFiles = null;
     try {
       Long sizeInBytes = 0L;
@@ -190,17 +301,38 @@ public class IndexModelObserver implements ModelObserver {
 
       final boolean recursive = true;
       allFiles = model.listFilesUnder(representation.getAipId(), representation.getId(), recursive);
+      Deque<Future<Long>> pendingFiles = new ArrayDeque<>();
       for (OptionalWithCause<File> file : allFiles) {
         if (file.isPresent()) {
           boolean recursiveIndexFile = false;
-          sizeInBytes += indexFile(aip, file.get(), ancestors, recursiveIndexFile);
+          if (fileIndexingExecutor != null) {
+            File presentFile = file.get();
+            pendingFiles
+              .add(fileIndexingExecutor.submit(() -> indexFile(aip, presentFile, ancestors, recursiveIndexFile)));
+            // the size of the files already indexed is collected as we go so
+            // that the number of pending files stays bounded
+            while (pendingFiles.size() > maxPendingFiles) {
+              Long indexedFileSize = getIndexedFileSize(pendingFiles.poll());
+              indexed &= indexedFileSize != null;
+              sizeInBytes += indexedFileSize != null ? indexedFileSize : 0L;
+            }
+          } else {
+            sizeInBytes += indexFile(aip, file.get(), ancestors, recursiveIndexFile);
+          }
         } else {
           LOGGER.error("Cannot index representation file", file.getCause());
+          indexed = false;
         }
         numberOfDataFiles++;
       }
       allFiles.close();
 
+      while (!pendingFiles.isEmpty()) {
+        Long indexedFileSize = getIndexedFileSize(pendingFiles.poll());
+        indexed &= indexedFileSize != null;
+        sizeInBytes += indexedFileSize != null ? indexedFileSize : 0L;
+      }
+
       // Calculate number of documentation and schema files
       StorageService storage = model.getStorage();
       Long numberOfDocumentationFiles;
@@ -222,14 +354,41 @@ public class IndexModelObserver implements ModelObserver {
 
       SolrInputDocument representationDocument = SolrUtils.representationToSolrDocument(aip, representation,
         sizeInBytes, numberOfDataFiles, numberOfDocumentationFiles, numberOfSchemaFiles, ancestors);
-      index.add(RodaConstants.INDEX_REPRESENTATION, representationDocument);
+      indexer.add(RodaConstants.INDEX_REPRESENTATION, representationDocument);
 
-    } catch (SolrServerException | IOException | RequestNotValidException | GenericException | NotFoundException
+    } catch (IOException | RequestNotValidException | GenericException | NotFoundException
       | AuthorizationDeniedException e) {
       LOGGER.error("Cannot index representation", e);
+      indexed = false;
     } finally {
       IOUtils.closeQuietly(allFiles);
     }
+    return indexed;
+  }
+
+  /**
+   * @return the size of the indexed file, or null if it could not be indexed
+   */
+  private Long getIndexedFileSize(Future<Long> indexedFile) {
+    Long sizeInBytes = null;
+    try {
+      sizeInBytes = indexedFile.get();
+    } catch (ExecutionException e) {
+      LOGGER.error("Cannot index representation file", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while indexing representation file", e);
+    }
+    return sizeInBytes;
+  }
+
+  /**
+   * Stops the threads used to index files (if any).
+   */
+  public void shutdown() {
+    if (fileIndexingExecutor != null) {
+      fileIndexingExecutor.shutdown();
+    }
   }
 
   // private void indexFile(OptionalWithCause<AIP> aip, OptionalWithCause<File>
@@ -266,12 +425,7 @@ public class IndexModelObserver implements ModelObserver {
 
     }
 
-    try {
-      index.add(RodaConstants.INDEX_FILE, fileDocument);
-
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot index file: {}", file, e);
-    }
+    indexer.add(RodaConstants.INDEX_FILE, fileDocument);
 
     if (recursive && file.isDirectory()) {
       try {
@@ -329,21 +483,121 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public void aipUpdated(AIP aip) {
-    // TODO Is this the best way to update?
-    aipDeleted(aip.getId(), false);
-    aipCreated(aip);
-  }
+    ancestorsCache.invalidateIfParentChanged(aip.getId(), aip.getParentId());
 
-  @Override
-  public void aipStateUpdated(AIP aip) {
+    SolrDocument previousAIPDoc = null;
     try {
-      // change AIP
-      SolrInputDocument aipDoc = SolrUtils.aipStateUpdateToSolrDocument(aip);
-      index.add(RodaConstants.INDEX_AIP, aipDoc);
+      indexer.flush(RodaConstants.INDEX_AIP);
+      previousAIPDoc = index.getById(RodaConstants.INDEX_AIP, aip.getId());
     } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot do a partial update", e);
+      LOGGER.warn("Could not retrieve indexed AIP {}, re-indexing it completely", aip.getId(), e);
+    }
+
+    if (previousAIPDoc != null) {
+      try {
+        aipUpdated(aip, previousAIPDoc);
+      } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException e) {
+        LOGGER.error("Error updating AIP {} in the index", aip.getId(), e);
+      }
+    } else {
+      aipDeleted(aip.getId(), false);
+      aipCreated(aip);
+    }
+  }
+
+  /**
+   * Updates only the index documents affected by what changed in the AIP,
+   * instead of removing and re-creating all its representations, files and
+   * preservation events.
+   */
+  private void aipUpdated(AIP aip, SolrDocument previousAIPDoc)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    IndexedAIP previous = SolrUtils.solrDocumentToIndexedAIP(previousAIPDoc);
+
+    if (!StringUtils.defaultString(aip.getIngestSIPId()).equals(previous.getIngestSIPId())
+      || !StringUtils.defaultString(aip.getIngestJobId()).equals(previous.getIngestJobId())) {
+      // ingest information is copied to every document of the AIP
+      aipDeleted(aip.getId(), false);
+      aipCreated(aip);
+      return;
+    }
+
+    List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
+    indexAIP(aip, ancestors);
+
+    // representations added, removed or changed
+    Set<String> removedRepresentationIds = new HashSet<>(SolrUtils.getAIPRepresentationIds(previousAIPDoc));
+    List<String> keptRepresentationUUIDs = new ArrayList<>();
+    for (Representation representation : aip.getRepresentations()) {
+      if (removedRepresentationIds.remove(representation.getId())) {
+        keptRepresentationUUIDs.add(IdUtils.getRepresentationId(representation));
+      } else {
+        indexRepresentation(aip, representation, ancestors);
+      }
     }
 
+    for (String representationId : removedRepresentationIds) {
+      representationDeleted(aip.getId(), representationId, false);
+    }
+
+    if (!keptRepresentationUUIDs.isEmpty()) {
+      indexer.flush(RodaConstants.INDEX_REPRESENTATION);
+      Map<String, IndexedRepresentation> indexedRepresentations = new HashMap<>();
+      for (IndexedRepresentation indexedRepresentation : SolrUtils.retrieve(index, IndexedRepresentation.class,
+        keptRepresentationUUIDs)) {
+        indexedRepresentations.put(indexedRepresentation.getId(), indexedRepresentation);
+      }
+
+      for (Representation representation : aip.getRepresentations()) {
+        IndexedRepresentation indexedRepresentation = indexedRepresentations.get(representation.getId());
+        if (indexedRepresentation != null && (indexedRepresentation.isOriginal() != representation.isOriginal()
+          || !Objects.equals(indexedRepresentation.getType(), representation.getType()))) {
+          indexer.add(RodaConstants.INDEX_REPRESENTATION,
+            SolrUtils.representationInfoUpdateToSolrDocument(representation));
+        }
+      }
+    }
+
+    // information inherited from the AIP
+    if (previous.getState() != aip.getState()) {
+      representationsStateUpdated(aip);
+      preservationEventsStateUpdated(aip);
+    }
+
+    if (!samePermissions(previous.getPermissions(), aip.getPermissions())) {
+      representationsPermissionsUpdated(aip);
+      preservationEventsPermissionsUpdated(aip);
+    }
+
+    if (!ancestors.equals(previous.getAncestors())) {
+      updateRepresentationAndFileAncestors(aip, ancestors);
+      updateDescendantsAncestors(aip);
+    }
+  }
+
+  private boolean samePermissions(Permissions indexed, Permissions current) {
+    // indexed permissions have all permission types, even if empty
+    for (PermissionType type : PermissionType.values()) {
+      if (!getPermission(indexed.getUsers(), type).equals(getPermission(current.getUsers(), type))
+        || !getPermission(indexed.getGroups(), type).equals(getPermission(current.getGroups(), type))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Set<String> getPermission(Map<PermissionType, Set<String>> permissions, PermissionType type) {
+    Set<String> ret = permissions != null ? permissions.get(type) : null;
+    return ret != null ? ret : Collections.<String> emptySet();
+  }
+
+  @Override
+  public void aipStateUpdated(AIP aip) {
+    aipChanged(aip.getId());
+    // change AIP
+    SolrInputDocument aipDoc = SolrUtils.aipStateUpdateToSolrDocument(aip);
+    indexer.add(RodaConstants.INDEX_AIP, aipDoc);
+
     // change Representations and Files
     representationsStateUpdated(aip);
     // change Preservation events
@@ -361,7 +615,7 @@ public class IndexModelObserver implements ModelObserver {
     CloseableIterable<OptionalWithCause<File>> allFiles = null;
     try {
       SolrInputDocument repDoc = SolrUtils.representationStateUpdateToSolrDocument(representation, aip.getState());
-      index.add(RodaConstants.INDEX_REPRESENTATION, repDoc);
+      indexer.add(RodaConstants.INDEX_REPRESENTATION, repDoc);
       final boolean recursive = true;
       allFiles = model.listFilesUnder(representation.getAipId(), representation.getId(), recursive);
       for (OptionalWithCause<File> file : allFiles) {
@@ -373,7 +627,7 @@ public class IndexModelObserver implements ModelObserver {
         }
       }
 
-    } catch (SolrServerException | AuthorizationDeniedException | IOException | NotFoundException | GenericException
+    } catch (AuthorizationDeniedException | NotFoundException | GenericException
       | RequestNotValidException e) {
       LOGGER.error("Cannot do a partial update", e);
     } finally {
@@ -383,12 +637,7 @@ public class IndexModelObserver implements ModelObserver {
 
   private void fileStateUpdated(AIP aip, File file, boolean recursive) {
     SolrInputDocument fileDoc = SolrUtils.fileStateUpdateToSolrDocument(file, aip.getState());
-    try {
-      index.add(RodaConstants.INDEX_FILE, fileDoc);
-
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot index file: {}", file, e);
-    }
+    indexer.add(RodaConstants.INDEX_FILE, fileDoc);
 
     if (recursive && file.isDirectory()) {
       try {
@@ -420,7 +669,7 @@ public class IndexModelObserver implements ModelObserver {
           if (pm.getType().equals(PreservationMetadataType.EVENT)) {
             try {
               preservationEventStateUpdated(pm, aip.getState());
-            } catch (SolrServerException | IOException | RequestNotValidException | GenericException | NotFoundException
+            } catch (RequestNotValidException | GenericException | NotFoundException
               | AuthorizationDeniedException e) {
               LOGGER.error("Cannot index premis event", e);
             }
@@ -437,62 +686,65 @@ public class IndexModelObserver implements ModelObserver {
 
   }
 
-  private void preservationEventStateUpdated(PreservationMetadata pm, AIPState state) throws RequestNotValidException,
-    GenericException, NotFoundException, AuthorizationDeniedException, SolrServerException, IOException {
+  private void preservationEventStateUpdated(PreservationMetadata pm, AIPState state)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
     SolrInputDocument premisEventDocument = SolrUtils.preservationEventStateUpdateToSolrDocument(pm.getId(),
       pm.getAipId(), state);
 
-    index.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
+    indexer.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
   }
 
   @Override
   public void aipMoved(AIP aip, String oldParentId, String newParentId) {
+    ancestorsCache.invalidate(aip.getId());
+    aipChanged(aip.getId());
 
     try {
       LOGGER.debug("Reindexing moved aip {}", aip.getId());
-      List<String> topAncestors = SolrUtils.getAncestors(newParentId, model);
+      List<String> topAncestors = ancestorsCache.getAncestors(newParentId);
       SolrInputDocument aipDoc = SolrUtils.updateAIPParentId(aip.getId(), newParentId, topAncestors);
-      index.add(RodaConstants.INDEX_AIP, aipDoc);
+      indexer.add(RodaConstants.INDEX_AIP, aipDoc);
       updateRepresentationAndFileAncestors(aip, topAncestors);
+      updateDescendantsAncestors(aip);
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | NotFoundException e) {
+      LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
+    }
+  }
 
-      LOGGER.debug("Finding descendents of moved aip {}", aip.getId());
-      Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
-      SolrUtils.execute(index, IndexedAIP.class, filter, new IndexRunnable<IndexedAIP>() {
-
-        @Override
-        public void run(IndexedAIP item)
-          throws RequestNotValidException, GenericException, AuthorizationDeniedException {
-          SolrInputDocument descendantDoc;
-          try {
-            LOGGER.debug("Reindexing aip {} descendent {}", aip.getId(), item.getId());
-            List<String> ancestors = SolrUtils.getAncestors(item.getParentID(), model);
-            descendantDoc = SolrUtils.updateAIPAncestors(item.getId(), ancestors);
-            index.add(RodaConstants.INDEX_AIP, descendantDoc);
-
-            // update representation and file ancestors information
-            if (item.getHasRepresentations()) {
-              AIP aip = model.retrieveAIP(item.getId());
-              updateRepresentationAndFileAncestors(aip, ancestors);
-            }
-
-          } catch (SolrServerException | IOException | NotFoundException e) {
-            LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
+  private void updateDescendantsAncestors(AIP aip)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException {
+    LOGGER.debug("Finding descendents of moved aip {}", aip.getId());
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
+    SolrUtils.execute(index, IndexedAIP.class, filter, new IndexRunnable<IndexedAIP>() {
+
+      @Override
+      public void run(IndexedAIP item) throws RequestNotValidException, GenericException, AuthorizationDeniedException {
+        SolrInputDocument descendantDoc;
+        try {
+          LOGGER.debug("Reindexing aip {} descendent {}", aip.getId(), item.getId());
+          List<String> ancestors = ancestorsCache.getAncestors(item.getParentID());
+          descendantDoc = SolrUtils.updateAIPAncestors(item.getId(), ancestors);
+          indexer.add(RodaConstants.INDEX_AIP, descendantDoc);
+
+          // update representation and file ancestors information
+          if (item.getHasRepresentations()) {
+            AIP descendant = model.retrieveAIP(item.getId());
+            updateRepresentationAndFileAncestors(descendant, ancestors);
           }
-        }
-      });
 
-    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | SolrServerException
-      | IOException | NotFoundException e) {
-      LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
-    }
+        } catch (NotFoundException e) {
+          LOGGER.error("Error indexing moved AIP {} descendent {}", aip.getId(), item.getId(), e);
+        }
+      }
+    });
   }
 
-  private void updateRepresentationAndFileAncestors(AIP aip, List<String> ancestors) throws RequestNotValidException,
-    GenericException, AuthorizationDeniedException, SolrServerException, IOException, NotFoundException {
+  private void updateRepresentationAndFileAncestors(AIP aip, List<String> ancestors)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException {
     for (Representation representation : aip.getRepresentations()) {
       SolrInputDocument descendantRepresentationDoc = SolrUtils
         .updateRepresentationAncestors(IdUtils.getRepresentationId(representation), ancestors);
-      index.add(RodaConstants.INDEX_REPRESENTATION, descendantRepresentationDoc);
+      indexer.add(RodaConstants.INDEX_REPRESENTATION, descendantRepresentationDoc);
 
       CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(), representation.getId(),
         true);
@@ -501,7 +753,7 @@ public class IndexModelObserver implements ModelObserver {
         if (oFile.isPresent()) {
           File file = oFile.get();
           SolrInputDocument descendantFileDoc = SolrUtils.updateFileAncestors(IdUtils.getFileId(file), ancestors);
-          index.add(RodaConstants.INDEX_FILE, descendantFileDoc);
+          indexer.add(RodaConstants.INDEX_FILE, descendantFileDoc);
         }
       }
     }
@@ -509,6 +761,8 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public void aipDeleted(String aipId, boolean deleteIncidences) {
+    ancestorsCache.invalidate(aipId);
+    aipChanged(aipId);
     deleteDocumentFromIndex(IndexedAIP.class, aipId);
     deleteDocumentsFromIndex(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId);
     deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_AIPID, aipId);
@@ -524,7 +778,7 @@ public class IndexModelObserver implements ModelObserver {
     if (descriptiveMetadata.isFromAIP()) {
       try {
         AIP aip = model.retrieveAIP(descriptiveMetadata.getAipId());
-        List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
+        List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
         indexAIP(aip, ancestors);
       } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
         LOGGER.error("Error when descriptive metadata created on retrieving the full AIP", e);
@@ -537,7 +791,7 @@ public class IndexModelObserver implements ModelObserver {
     if (descriptiveMetadata.isFromAIP()) {
       try {
         AIP aip = model.retrieveAIP(descriptiveMetadata.getAipId());
-        List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
+        List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
         indexAIP(aip, ancestors);
       } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
         LOGGER.error("Error when descriptive metadata updated on retrieving the full AIP", e);
@@ -550,7 +804,7 @@ public class IndexModelObserver implements ModelObserver {
     if (representationId == null) {
       try {
         AIP aip = model.retrieveAIP(aipId);
-        List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
+        List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
         indexAIP(aip, ancestors);
       } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
         LOGGER.error("Error when descriptive metadata deleted on retrieving the full AIP", e);
@@ -562,7 +816,7 @@ public class IndexModelObserver implements ModelObserver {
   public void representationCreated(Representation representation) {
     try {
       AIP aip = model.retrieveAIP(representation.getAipId());
-      List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
+      List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
       indexRepresentation(aip, representation, ancestors);
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Cannot index representation: {}", representation, e);
@@ -594,7 +848,7 @@ public class IndexModelObserver implements ModelObserver {
     boolean recursive = true;
     try {
       AIP aip = model.retrieveAIP(file.getAipId());
-      List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
+      List<String> ancestors = ancestorsCache.getAncestors(aip.getParentId());
       indexFile(aip, file, ancestors, recursive);
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Error indexing file: {}", file, e);
@@ -622,7 +876,7 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public void logEntryCreated(LogEntry entry) {
-    addDocumentToIndex(LogEntry.class, entry);
+    indexer.add(RodaConstants.INDEX_ACTION_LOG, SolrUtils.logEntryToSolrDocument(entry));
   }
 
   @Override
@@ -690,11 +944,11 @@ public class IndexModelObserver implements ModelObserver {
         pm.getId(), binary);
       PreservationMetadataType type = pm.getType();
       if (PreservationMetadataType.EVENT.equals(type)) {
-        index.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisFileDocument);
+        indexer.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisFileDocument);
       } else if (PreservationMetadataType.AGENT.equals(type)) {
-        index.add(RodaConstants.INDEX_PRESERVATION_AGENTS, premisFileDocument);
+        indexer.add(RodaConstants.INDEX_PRESERVATION_AGENTS, premisFileDocument);
       }
-    } catch (IOException | SolrServerException | GenericException | RequestNotValidException | NotFoundException
+    } catch (GenericException | RequestNotValidException | NotFoundException
       | AuthorizationDeniedException e) {
       LOGGER.error("Error when preservation metadata created on retrieving the full AIP", e);
     }
@@ -722,9 +976,11 @@ public class IndexModelObserver implements ModelObserver {
     if (RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA.equalsIgnoreCase(otherMetadataBinary.getType())
       && RodaConstants.TIKA_FILE_SUFFIX_METADATA.equalsIgnoreCase(otherMetadataBinary.getFileSuffix())) {
       try {
+        // the indexed file is retrieved from Solr so it must be there already
+        indexer.flush(RodaConstants.INDEX_FILE);
         SolrInputDocument solrFile = SolrUtils.addOtherPropertiesToIndexedFile("tika_", otherMetadataBinary, model,
           index);
-        index.add(RodaConstants.INDEX_FILE, solrFile);
+        indexer.add(RodaConstants.INDEX_FILE, solrFile);
       } catch (SolrServerException | RequestNotValidException | GenericException | NotFoundException
         | AuthorizationDeniedException | XPathExpressionException | ParserConfigurationException | SAXException
         | IOException e) {
@@ -783,6 +1039,7 @@ public class IndexModelObserver implements ModelObserver {
   private <T extends IsIndexed> void addDocumentToIndex(Class<T> classToAdd, T instance) {
     try {
       SolrUtils.create(index, classToAdd, instance);
+      invalidateCachedResults(classToAdd);
     } catch (SolrException | GenericException e) {
       LOGGER.error("Error adding document to index", e);
     }
@@ -790,7 +1047,9 @@ public class IndexModelObserver implements ModelObserver {
 
   private <T extends IsIndexed> void deleteDocumentFromIndex(Class<T> classToDelete, String... ids) {
     try {
+      flush(classToDelete);
       SolrUtils.delete(index, classToDelete, Arrays.asList(ids));
+      invalidateCachedResults(classToDelete);
     } catch (GenericException e) {
       LOGGER.error("Error deleting document from index", e);
     }
@@ -799,15 +1058,57 @@ public class IndexModelObserver implements ModelObserver {
   private <T extends IsIndexed> void deleteDocumentsFromIndex(Class<T> classToDelete, String fieldName,
     String fieldValue) {
     try {
+      flush(classToDelete);
       SolrUtils.delete(index, classToDelete, new Filter(new SimpleFilterParameter(fieldName, fieldValue)));
+      invalidateCachedResults(classToDelete);
     } catch (GenericException | RequestNotValidException e) {
       LOGGER.error("Error deleting from index", e);
     }
   }
 
+  private <T extends IsIndexed> void flush(Class<T> indexedClass) throws GenericException {
+    for (String indexName : SolrUtils.getIndexName(indexedClass)) {
+      indexer.flush(indexName);
+    }
+  }
+
+  private <T extends IsIndexed> void commit(Class<T> indexedClass) throws GenericException {
+    SolrUtils.commit(index, indexedClass);
+    invalidateCachedResults(indexedClass);
+  }
+
+  private <T extends IsIndexed> void invalidateCachedResults(Class<T> indexedClass) throws GenericException {
+    for (String indexName : SolrUtils.getIndexName(indexedClass)) {
+      invalidateCachedResults(indexName);
+    }
+  }
+
+  /**
+   * Discards the cached query results of a collection, as its documents
+   * changed (or became visible).
+   */
+  public void invalidateCachedResults(String collection) {
+    if (resultCache != null) {
+      resultCache.invalidate(collection);
+    }
+  }
+
+  /**
+   * Sends to Solr all the documents that are still buffered.
+   */
+  public void flush() {
+    indexer.flush();
+  }
+
   @Override
   public void jobReportCreatedOrUpdated(Report jobReport) {
-    addDocumentToIndex(Report.class, jobReport);
+    // job reports are updated very often while jobs run, so they are indexed in
+    // batch
+    try {
+      indexer.add(RodaConstants.INDEX_JOB_REPORT, SolrUtils.toSolrInputDocument(Report.class, jobReport));
+    } catch (GenericException e) {
+      LOGGER.error("Error adding document to index", e);
+    }
   }
 
   @Override
@@ -817,13 +1118,10 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public void aipPermissionsUpdated(AIP aip) {
-    try {
-      // change AIP
-      SolrInputDocument aipDoc = SolrUtils.aipPermissionsUpdateToSolrDocument(aip);
-      index.add(RodaConstants.INDEX_AIP, aipDoc);
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot do a partial update", e);
-    }
+    aipChanged(aip.getId());
+    // change AIP
+    SolrInputDocument aipDoc = SolrUtils.aipPermissionsUpdateToSolrDocument(aip);
+    indexer.add(RodaConstants.INDEX_AIP, aipDoc);
 
     // change Representations and Files
     representationsPermissionsUpdated(aip);
@@ -843,7 +1141,7 @@ public class IndexModelObserver implements ModelObserver {
     try {
       SolrInputDocument repDoc = SolrUtils.representationPermissionsUpdateToSolrDocument(representation,
         aip.getPermissions());
-      index.add(RodaConstants.INDEX_REPRESENTATION, repDoc);
+      indexer.add(RodaConstants.INDEX_REPRESENTATION, repDoc);
       final boolean recursive = true;
       allFiles = model.listFilesUnder(representation.getAipId(), representation.getId(), recursive);
       for (OptionalWithCause<File> file : allFiles) {
@@ -855,7 +1153,7 @@ public class IndexModelObserver implements ModelObserver {
         }
       }
 
-    } catch (SolrServerException | AuthorizationDeniedException | IOException | NotFoundException | GenericException
+    } catch (AuthorizationDeniedException | NotFoundException | GenericException
       | RequestNotValidException e) {
       LOGGER.error("Cannot do a partial update", e);
     } finally {
@@ -865,12 +1163,7 @@ public class IndexModelObserver implements ModelObserver {
 
   private void filePermissionsUpdated(AIP aip, File file, boolean recursive) {
     SolrInputDocument fileDoc = SolrUtils.filePermissionsUpdateToSolrDocument(file, aip.getPermissions());
-    try {
-      index.add(RodaConstants.INDEX_FILE, fileDoc);
-
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot index file: {}", file, e);
-    }
+    indexer.add(RodaConstants.INDEX_FILE, fileDoc);
 
     if (recursive && file.isDirectory()) {
       try {
@@ -902,7 +1195,7 @@ public class IndexModelObserver implements ModelObserver {
           if (PreservationMetadataType.EVENT.equals(pm.getType())) {
             try {
               preservationEventPermissionsUpdated(pm, aip.getPermissions());
-            } catch (SolrServerException | IOException | RequestNotValidException | GenericException | NotFoundException
+            } catch (RequestNotValidException | GenericException | NotFoundException
               | AuthorizationDeniedException e) {
               LOGGER.error("Cannot index premis event", e);
             }
@@ -920,12 +1213,11 @@ public class IndexModelObserver implements ModelObserver {
   }
 
   private void preservationEventPermissionsUpdated(PreservationMetadata pm, Permissions permissions)
-    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
-    SolrServerException, IOException {
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
     SolrInputDocument premisEventDocument = SolrUtils.preservationEventPermissionsUpdateToSolrDocument(pm.getId(),
       pm.getAipId(), permissions);
 
-    index.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
+    indexer.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
   }
 
   public void riskCreatedOrUpdated(Risk risk, boolean commit) {
@@ -933,13 +1225,14 @@ public class IndexModelObserver implements ModelObserver {
 
     try {
       index.add(RodaConstants.INDEX_RISK, riskDoc);
+      invalidateCachedResults(RodaConstants.INDEX_RISK);
     } catch (SolrServerException | IOException e1) {
       LOGGER.error("Risk document was not added to index");
     }
 
     if (commit) {
       try {
-        SolrUtils.commit(index, IndexedRisk.class);
+        commit(IndexedRisk.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -952,7 +1245,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, IndexedRisk.class);
+        commit(IndexedRisk.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -964,7 +1257,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, RiskIncidence.class);
+        commit(RiskIncidence.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -976,7 +1269,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, RiskIncidence.class);
+        commit(RiskIncidence.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -988,7 +1281,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, Agent.class);
+        commit(Agent.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -1000,7 +1293,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, Agent.class);
+        commit(Agent.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -1012,7 +1305,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, Format.class);
+        commit(Format.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -1024,7 +1317,7 @@ public class IndexModelObserver implements ModelObserver {
 
     if (commit) {
       try {
-        SolrUtils.commit(index, Format.class);
+        commit(Format.class);
       } catch (GenericException e) {
         LOGGER.warn("Commit did not run as expected");
       }
@@ -13,20 +13,29 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.util.DateUtil;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.adapter.facet.Facets;
 import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.adapter.filter.OneOfManyFilterParameter;
 import org.roda.core.data.adapter.sort.Sorter;
 import org.roda.core.data.adapter.sublist.Sublist;
 import org.roda.core.data.common.RodaConstants;
@@ -47,6 +56,8 @@ import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationAgent;
@@ -59,6 +70,10 @@ import org.roda.core.data.v2.notifications.Notification;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.AIPAncestorsCache;
+import org.roda.core.index.utils.IndexResultCache;
+import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.index.utils.SolrBatchIndexer;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
@@ -69,28 +84,136 @@ import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 public class IndexService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexService.class);
 
+  private static final int DEFAULT_BATCH_SIZE = 500;
+  private static final int DEFAULT_BATCH_MAX_DELAY_IN_MS = 1000;
+  private static final int DEFAULT_ANCESTORS_CACHE_MAX_SIZE = 10000;
+  private static final int DEFAULT_BREADCRUMB_CACHE_TTL_IN_SECONDS = 10;
+  private static final int DEFAULT_BREADCRUMB_CACHE_MAX_SIZE = 1000;
+  private static final int DEFAULT_RESULT_CACHE_TTL_IN_MS = 5000;
+  private static final int DEFAULT_RESULT_CACHE_MAX_SIZE = 500;
+  private static final int DEFAULT_REINDEX_CHECKPOINT_INTERVAL = 1000;
+  private static final int PERMISSIONS_UPDATE_PAGE_SIZE = 1000;
+  private static final String REINDEX_CHECKPOINT_FOLDER = "reindex";
+  private static final String AIP_REINDEX_CHECKPOINT_FILE = "aip.checkpoint";
+
   private final SolrClient index;
   private final ModelService model;
+  private final SolrBatchIndexer indexer;
+  private final AIPAncestorsCache ancestorsCache;
+  private final Cache<String, IndexedAIP> breadcrumbCache;
+  private final IndexResultCache resultCache;
   private final IndexModelObserver observer;
+  private final AIPReindexer aipReindexer;
 
   public IndexService(SolrClient index, ModelService model) {
     super();
     this.index = index;
     this.model = model;
 
-    observer = new IndexModelObserver(this.index, this.model);
+    int batchSize = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BATCH_SIZE, "core", "index", "batch", "size");
+    int batchMaxDelay = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BATCH_MAX_DELAY_IN_MS, "core", "index",
+      "batch", "max_delay_in_ms");
+    indexer = new SolrBatchIndexer(this.index, batchSize, batchMaxDelay);
+
+    int ancestorsCacheMaxSize = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_ANCESTORS_CACHE_MAX_SIZE, "core",
+      "index", "ancestors_cache", "max_size");
+    ancestorsCache = new AIPAncestorsCache(this.model, ancestorsCacheMaxSize);
+
+    // indexed AIPs shown as ancestors (e.g. in breadcrumbs) of the AIPs being
+    // browsed are kept for a short while, as they are often the same
+    int breadcrumbCacheTTL = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BREADCRUMB_CACHE_TTL_IN_SECONDS, "core",
+      "index", "breadcrumb_cache", "ttl_in_seconds");
+    int breadcrumbCacheMaxSize = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BREADCRUMB_CACHE_MAX_SIZE, "core",
+      "index", "breadcrumb_cache", "max_size");
+    breadcrumbCache = CacheBuilder.newBuilder().expireAfterWrite(breadcrumbCacheTTL, TimeUnit.SECONDS)
+      .maximumSize(breadcrumbCacheMaxSize).build();
+
+    // results of the queries made on behalf of users (e.g. lists of the web
+    // interface) are reused for a few seconds, unless the collection changes
+    int resultCacheTTL = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_RESULT_CACHE_TTL_IN_MS, "core", "index",
+      "result_cache", "ttl_in_ms");
+    int resultCacheMaxSize = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_RESULT_CACHE_MAX_SIZE, "core", "index",
+      "result_cache", "max_size");
+    resultCache = resultCacheTTL > 0 && resultCacheMaxSize > 0
+      ? new IndexResultCache(resultCacheTTL, resultCacheMaxSize) : null;
+
+    observer = new IndexModelObserver(this.index, this.model, indexer, ancestorsCache, resultCache);
+    observer.setAIPChangedListener(aipId -> breadcrumbCache.invalidate(aipId));
     model.addModelObserver(observer);
+
+    int reindexThreads = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+      "index", "reindex", "threads");
+    int reindexCheckpointInterval = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_REINDEX_CHECKPOINT_INTERVAL,
+      "core", "index", "reindex", "checkpoint_interval");
+    // without a data folder, there is nowhere to keep the reindex checkpoint
+    Path dataPath = RodaCoreFactory.getDataPath();
+    if (dataPath != null) {
+      aipReindexer = new AIPReindexer(this, this.model, this.index, indexer,
+        dataPath.resolve(REINDEX_CHECKPOINT_FOLDER).resolve(AIP_REINDEX_CHECKPOINT_FILE), reindexThreads,
+        reindexCheckpointInterval);
+      aipReindexer.continueStampingIfInterrupted();
+    } else {
+      aipReindexer = null;
+    }
   }
 
   public IndexedAIP getParent(IndexedAIP aip) throws NotFoundException, GenericException {
     return SolrUtils.retrieve(index, IndexedAIP.class, aip.getParentID());
   }
 
+  /**
+   * Retrieves the ancestors of an AIP, starting with its parent.
+   * <p>
+   * As indexed AIPs already have the ids of all their ancestors, all the
+   * ancestors are retrieved at once (except the ones recently retrieved, which
+   * are cached for a short while, until they change). The ancestors returned
+   * are copies, which can be changed by the caller.
+   * </p>
+   */
   public List<IndexedAIP> retrieveAncestors(IndexedAIP aip) throws GenericException {
+    List<String> ancestorsIds = aip.getAncestors();
+    if (aip.getParentID() == null) {
+      return new ArrayList<>();
+    } else if (ancestorsIds == null || ancestorsIds.isEmpty() || !aip.getParentID().equals(ancestorsIds.get(0))) {
+      // ancestors ids are not (or not correctly) indexed
+      return retrieveAncestorsOneByOne(aip);
+    }
+
+    Map<String, IndexedAIP> ancestorsById = new HashMap<>(breadcrumbCache.getAllPresent(ancestorsIds));
+    List<String> missingIds = ancestorsIds.stream().filter(id -> !ancestorsById.containsKey(id)).distinct()
+      .collect(Collectors.toList());
+    if (!missingIds.isEmpty()) {
+      try {
+        for (IndexedAIP ancestor : SolrUtils.retrieve(index, IndexedAIP.class, missingIds)) {
+          ancestorsById.put(ancestor.getId(), ancestor);
+          breadcrumbCache.put(ancestor.getId(), ancestor);
+        }
+      } catch (NotFoundException e) {
+        LOGGER.warn("Ancestors not found: {}", missingIds);
+      }
+    }
+
+    List<IndexedAIP> ancestors = new ArrayList<>();
+    for (String ancestorId : ancestorsIds) {
+      IndexedAIP ancestor = ancestorsById.get(ancestorId);
+      if (ancestor == null) {
+        LOGGER.warn("Ancestor not found: {}", ancestorId);
+        break;
+      }
+      ancestors.add(new IndexedAIP(ancestor));
+    }
+    return ancestors;
+  }
+
+  private List<IndexedAIP> retrieveAncestorsOneByOne(IndexedAIP aip) throws GenericException {
     List<IndexedAIP> ancestors = new ArrayList<IndexedAIP>();
     IndexedAIP parent = null, actual = aip;
 
@@ -132,18 +255,74 @@ public class IndexService {
 
   public <T extends IsIndexed> IndexResult<T> find(Class<T> returnClass, Filter filter, Sorter sorter, Sublist sublist,
     Facets facets, User user, boolean justActive) throws GenericException, RequestNotValidException {
-    return SolrUtils.find(index, returnClass, filter, sorter, sublist, facets, user, justActive);
+    return find(returnClass, filter, sorter, sublist, facets, user, justActive, Collections.emptyList());
+  }
+
+  /**
+   * Finds objects with only the given fields set (an empty list sets all
+   * fields), which avoids transferring and deserializing fields that are not
+   * needed (e.g. by table views that only display a few of them).
+   */
+  public <T extends IsIndexed> IndexResult<T> find(Class<T> returnClass, Filter filter, Sorter sorter, Sublist sublist,
+    Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
+    SolrQuery query = SolrUtils.createFindQuery(returnClass, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
+    if (resultCache == null) {
+      return SolrUtils.find(index, returnClass, query, facets);
+    }
+
+    // the query (with the permissions of the user) identifies the result
+    String collection = SolrUtils.getIndexName(returnClass).get(0);
+    String key = query.toString();
+    long generation = resultCache.getGeneration(collection);
+    IndexResult<T> ret = resultCache.get(collection, key);
+    if (ret == null) {
+      ret = SolrUtils.find(index, returnClass, query, facets);
+      resultCache.put(collection, key, ret, generation);
+    }
+    return ret;
+  }
+
+  /**
+   * Iterates over all the objects that match the filter, which are retrieved
+   * from the index page by page (with the given size) as they are needed.
+   * Unlike {@link #find(Class, Filter, Sorter, Sublist)}, the cost of getting
+   * each page does not grow with the number of objects already iterated.
+   */
+  public <T extends IsIndexed> IterableIndexResult<T> findAll(Class<T> returnClass, Filter filter, int pageSize)
+    throws GenericException, RequestNotValidException {
+    return SolrUtils.findAll(index, returnClass, filter, pageSize, null, false);
+  }
+
+  public <T extends IsIndexed> IterableIndexResult<T> findAll(Class<T> returnClass, Filter filter, int pageSize,
+    User user, boolean justActive) throws GenericException, RequestNotValidException {
+    return SolrUtils.findAll(index, returnClass, filter, pageSize, user, justActive);
   }
 
   public <T extends IsIndexed> Long count(Class<T> returnClass, Filter filter, User user, boolean justActive)
     throws GenericException, RequestNotValidException {
-    return SolrUtils.count(index, returnClass, filter, user, justActive);
+    return find(returnClass, filter, null, new Sublist(0, 0), null, user, justActive).getTotalCount();
+  }
+
+  /**
+   * Counts the objects that match the filter on which the user does not have
+   * the given permission.
+   */
+  public <T extends IsIndexed> Long countWithoutPermission(Class<T> returnClass, Filter filter, User user,
+    PermissionType permissionType) throws GenericException, RequestNotValidException {
+    return SolrUtils.countWithoutPermission(index, returnClass, filter, user, permissionType);
   }
 
   public <T extends IsIndexed> T retrieve(Class<T> returnClass, String id) throws NotFoundException, GenericException {
     return SolrUtils.retrieve(index, returnClass, id);
   }
 
+  public <T extends IsIndexed> T retrieve(Class<T> returnClass, String id, List<String> fieldsToReturn)
+    throws NotFoundException, GenericException {
+    return SolrUtils.retrieve(index, returnClass, id, fieldsToReturn);
+  }
+
   public <T extends IsIndexed> List<T> retrieve(Class<T> returnClass, List<String> ids)
     throws NotFoundException, GenericException {
     return SolrUtils.retrieve(index, returnClass, ids);
@@ -151,28 +330,33 @@ public class IndexService {
 
   public void reindexAIPs()
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
-    CloseableIterable<OptionalWithCause<AIP>> aips = null;
-    try {
-      clearAIPs();
-      LOGGER.info("{} > Listing AIPs", new Date().getTime());
-      aips = model.listAIPs();
-      for (OptionalWithCause<AIP> aip : aips) {
-        if (aip.isPresent()) {
-          LOGGER.info("{} > Reindexing AIP {}", new Date().getTime(), aip.get().getId());
-          reindexAIP(aip.get());
-        } else {
-          LOGGER.error("{} > An error occurred. See log for more details.", new Date().getTime());
-        }
-      }
-      LOGGER.info("{} > Optimizing indexes", new Date().getTime());
-
-      reindexPreservationAgents();
-      commitAIPs();
-      optimizeAIPs();
-      LOGGER.info("{} > Done", new Date().getTime());
-    } finally {
-      IOUtils.closeQuietly(aips);
+    reindexAIPs(false, null);
+  }
+
+  /**
+   * Reindexes all AIPs (see {@link AIPReindexer}), keeping the index usable
+   * while doing it.
+   *
+   * @param resume
+   *          if true, an interrupted reindex is resumed
+   * @param listener
+   *          notified of the progress of the reindex (can be null)
+   * @throws GenericException
+   *           if there is no data folder (where the reindex is checkpointed),
+   *           or if the reindex could not be done
+   */
+  public AIPReindexer.Progress reindexAIPs(boolean resume, Consumer<AIPReindexer.Progress> listener)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    if (aipReindexer == null) {
+      throw new GenericException("Cannot reindex AIPs without a data folder to keep the reindex checkpoint");
     }
+    ancestorsCache.invalidateAll();
+    breadcrumbCache.invalidateAll();
+    AIPReindexer.Progress progress = aipReindexer.reindex(resume, listener);
+    LOGGER.info("{} > Optimizing indexes", new Date().getTime());
+    optimizeAIPs();
+    LOGGER.info("{} > Done", new Date().getTime());
+    return progress;
   }
 
   public void commitAIPs() throws GenericException {
@@ -181,6 +365,8 @@ public class IndexService {
   }
 
   public void clearAIPs() throws GenericException {
+    ancestorsCache.invalidateAll();
+    breadcrumbCache.invalidateAll();
     clearIndex(RodaConstants.INDEX_AIP);
     clearIndex(RodaConstants.INDEX_FILE);
     clearIndex(RodaConstants.INDEX_REPRESENTATION);
@@ -204,6 +390,51 @@ public class IndexService {
     observer.aipCreated(aip);
   }
 
+  /**
+   * Reindexes an AIP, failing if some of its documents could not be indexed
+   * (see {@link IndexModelObserver#aipReindexed(AIP)}).
+   */
+  void reindexAIPOrFail(AIP aip) throws GenericException {
+    observer.aipReindexed(aip);
+  }
+
+  /**
+   * Sets the permissions of some AIPs and of all their representations, files
+   * and preservation events in the index, with batched partial updates.
+   * <p>
+   * Unlike {@link IndexModelObserver#aipPermissionsUpdated(AIP)}, which lists
+   * the files and preservation metadata of each AIP from storage, the
+   * documents to update are found in the index (only retrieving their ids).
+   * </p>
+   */
+  public void updateAIPsPermissions(List<String> aipIds, Permissions permissions)
+    throws GenericException, RequestNotValidException {
+    if (aipIds.isEmpty()) {
+      return;
+    }
+
+    breadcrumbCache.invalidateAll(aipIds);
+    for (String aipId : aipIds) {
+      indexer.add(RodaConstants.INDEX_AIP,
+        SolrUtils.permissionsUpdateToSolrDocument(RodaConstants.AIP_ID, aipId, permissions));
+    }
+
+    SolrUtils.findAllIds(index, IndexedRepresentation.class,
+      new Filter(new OneOfManyFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipIds)),
+      PERMISSIONS_UPDATE_PAGE_SIZE, id -> indexer.add(RodaConstants.INDEX_REPRESENTATION,
+        SolrUtils.permissionsUpdateToSolrDocument(RodaConstants.REPRESENTATION_UUID, id, permissions)));
+
+    SolrUtils.findAllIds(index, IndexedFile.class,
+      new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIPID, aipIds)), PERMISSIONS_UPDATE_PAGE_SIZE,
+      id -> indexer.add(RodaConstants.INDEX_FILE,
+        SolrUtils.permissionsUpdateToSolrDocument(RodaConstants.FILE_UUID, id, permissions)));
+
+    SolrUtils.findAllIds(index, IndexedPreservationEvent.class,
+      new Filter(new OneOfManyFilterParameter(RodaConstants.PRESERVATION_EVENT_AIP_ID, aipIds)),
+      PERMISSIONS_UPDATE_PAGE_SIZE, id -> indexer.add(RodaConstants.INDEX_PRESERVATION_EVENTS,
+        SolrUtils.permissionsUpdateToSolrDocument(RodaConstants.PRESERVATION_EVENT_ID, id, permissions)));
+  }
+
   public void reindexPreservationAgents() {
     try {
       CloseableIterable<OptionalWithCause<PreservationMetadata>> iterable = model.listPreservationAgents();
@@ -384,13 +615,17 @@ public class IndexService {
     String query = RodaConstants.LOG_DATETIME + ":[* TO " + dateString + "]";
     index.deleteByQuery(RodaConstants.INDEX_ACTION_LOG, query);
     index.commit(RodaConstants.INDEX_ACTION_LOG);
+    observer.invalidateCachedResults(RodaConstants.INDEX_ACTION_LOG);
 
   }
 
   public void clearIndex(String indexName) throws GenericException {
+    // buffered documents would otherwise be added after the index is cleared
+    indexer.discard(indexName);
     try {
       index.deleteByQuery(indexName, "*:*");
       index.commit(indexName);
+      observer.invalidateCachedResults(indexName);
     } catch (SolrServerException | IOException e) {
       LOGGER.error("Error cleaning up index {}", indexName, e);
       throw new GenericException("Error cleaning up index " + indexName, e);
@@ -419,7 +654,66 @@ public class IndexService {
 
   @SafeVarargs
   public final void commit(Class<? extends IsIndexed>... classToCommit) throws GenericException {
+    // buffered documents must reach Solr before being committed
+    observer.flush();
     SolrUtils.commit(index, classToCommit);
+    for (Class<? extends IsIndexed> committedClass : classToCommit) {
+      observer.invalidateCachedResults(SolrUtils.getIndexName(committedClass).get(0));
+    }
+  }
+
+  /**
+   * Sends to Solr all the documents that are waiting to be indexed in batch,
+   * without committing them.
+   */
+  public void flush() {
+    observer.flush();
+  }
+
+  /**
+   * Sends to Solr the documents of a class that are waiting to be indexed in
+   * batch, without committing them.
+   */
+  public <T extends IsIndexed> void flush(Class<T> indexedClass) throws GenericException {
+    for (String indexName : SolrUtils.getIndexName(indexedClass)) {
+      indexer.flush(indexName);
+    }
+  }
+
+  /**
+   * @return the number of documents of a class indexed in batch and refused by
+   *         Solr so far, which can be compared before and after a flush
+   */
+  public <T extends IsIndexed> long getFailedDocumentCount(Class<T> indexedClass) throws GenericException {
+    long count = 0;
+    for (String indexName : SolrUtils.getIndexName(indexedClass)) {
+      count += indexer.getFailedDocumentCount(indexName);
+    }
+    return count;
+  }
+
+  /**
+   * Sends to Solr all the pending documents and stops the batch indexer.
+   */
+  public void shutdown() {
+    observer.shutdown();
+    indexer.shutdown();
+    LOGGER.info("AIP ancestors cache statistics: {}", ancestorsCache.getStats());
+    if (resultCache != null) {
+      LOGGER.info("Query result cache statistics: {}", resultCache.getStats());
+    }
+  }
+
+  public CacheStats getAncestorsCacheStats() {
+    return ancestorsCache.getStats();
+  }
+
+  /**
+   * @return the statistics (e.g. hit rate) of the query result cache of each
+   *         collection (empty if the cache is disabled)
+   */
+  public Map<String, CacheStats> getResultCacheStats() {
+    return resultCache != null ? resultCache.getStats() : Collections.emptyMap();
   }
 
   public <T extends IsIndexed> List<String> suggest(Class<T> returnClass, String field, String query)
@@ -434,7 +728,9 @@ public class IndexService {
 
   public <T extends IsIndexed> void delete(Class<T> classToRetrieve, List<String> ids)
     throws GenericException, RequestNotValidException {
+    observer.flush();
     SolrUtils.delete(index, classToRetrieve, ids);
+    observer.invalidateCachedResults(SolrUtils.getIndexName(classToRetrieve).get(0));
   }
 
   public <T extends IsIndexed> void deleteSilently(Class<T> classToRetrieve, List<String> ids) {
@@ -447,12 +743,23 @@ public class IndexService {
 
   public <T extends IsIndexed> void delete(Class<T> classToRetrieve, Filter filter)
     throws GenericException, RequestNotValidException {
+    observer.flush();
     SolrUtils.delete(index, classToRetrieve, filter);
+    observer.invalidateCachedResults(SolrUtils.getIndexName(classToRetrieve).get(0));
   }
 
   public <T extends IsIndexed> void create(Class<T> classToCreate, T instance)
     throws GenericException, RequestNotValidException {
     SolrUtils.create(index, classToCreate, instance);
+    observer.invalidateCachedResults(SolrUtils.getIndexName(classToCreate).get(0));
+  }
+
+  /**
+   * Adds an instance to the index in batch, i.e. it is only sent to Solr when
+   * its batch is full, on {@link #flush()} or on {@link #commit(Class...)}.
+   */
+  public <T extends IsIndexed> void createInBatch(Class<T> classToCreate, T instance) throws GenericException {
+    indexer.add(SolrUtils.getIndexName(classToCreate).get(0), SolrUtils.toSolrInputDocument(classToCreate, instance));
   }
 
 }
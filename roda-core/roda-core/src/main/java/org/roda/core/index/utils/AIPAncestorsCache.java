@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.model.ModelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded cache of the parent of each AIP, so that resolving the ancestors of
+ * an AIP does not need to retrieve every AIP up the hierarchy from storage.
+ * <p>
+ * The parent of an AIP changes when the AIP is moved or deleted, so
+ * {@link #invalidate(String)} must be invoked in those cases. As only the
+ * parent is cached, the ancestors of its descendants are resolved again
+ * through it.
+ * </p>
+ */
+public class AIPAncestorsCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AIPAncestorsCache.class);
+
+  private final ModelService model;
+  private final Cache<String, Optional<String>> parents;
+  private volatile long generation = 0;
+
+  public AIPAncestorsCache(ModelService model, long maximumSize) {
+    this.model = model;
+    this.parents = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Same as {@link SolrUtils#getAncestors(String, ModelService)}, but using
+   * (and filling) the cache.
+   *
+   * @param parentId
+   *          the id of the parent of the AIP whose ancestors are wanted
+   * @return the ancestors ids, starting with the parent id
+   */
+  public List<String> getAncestors(String parentId)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException {
+    List<String> ancestors = new ArrayList<>();
+    String nextAncestorId = parentId;
+    while (nextAncestorId != null) {
+      Optional<String> cachedParentId = parents.getIfPresent(nextAncestorId);
+      if (cachedParentId != null) {
+        ancestors.add(nextAncestorId);
+        nextAncestorId = cachedParentId.orElse(null);
+      } else {
+        try {
+          String ancestorParentId = retrieveParentId(nextAncestorId);
+          ancestors.add(nextAncestorId);
+          nextAncestorId = ancestorParentId;
+        } catch (NotFoundException e) {
+          LOGGER.warn("Could not find one AIP ancestor. Ancestor id: {}", nextAncestorId);
+          nextAncestorId = null;
+        }
+      }
+
+      if (ancestors.contains(nextAncestorId)) {
+        LOGGER.warn("Found a cyclic ancestor relationship on AIP {}", nextAncestorId);
+        nextAncestorId = null;
+      }
+    }
+
+    return ancestors;
+  }
+
+  private String retrieveParentId(String aipId)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    // the generation must be obtained before loading, so that a parent
+    // invalidated meanwhile is not cached
+    long loadGeneration = generation;
+    String parentId = model.retrieveAIP(aipId).getParentId();
+    synchronized (this) {
+      if (generation == loadGeneration) {
+        parents.put(aipId, Optional.ofNullable(parentId));
+      }
+    }
+    return parentId;
+  }
+
+  /**
+   * Removes the cached parent of an AIP, which also changes the ancestors of
+   * all its descendants.
+   */
+  public synchronized void invalidate(String aipId) {
+    generation++;
+    parents.invalidate(aipId);
+  }
+
+  /**
+   * Invalidates the cached parent of an AIP if it is not the given one.
+   */
+  public void invalidateIfParentChanged(String aipId, String parentId) {
+    Optional<String> cachedParentId = parents.getIfPresent(aipId);
+    if (cachedParentId != null && !Objects.equals(cachedParentId.orElse(null), parentId)) {
+      invalidate(aipId);
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    generation++;
+    parents.invalidateAll();
+  }
+
+  public CacheStats getStats() {
+    return parents.stats();
+  }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Short-lived, bounded cache of query results, per collection, so that
+ * identical queries issued within a few seconds (e.g. lists refreshed
+ * periodically by many users) are answered without querying Solr.
+ * <p>
+ * Results are kept serialized, so callers always get their own copy (and may
+ * change it, e.g. to translate facets). The results of a collection must be
+ * discarded ({@link #invalidate(String)}) whenever documents of that
+ * collection are sent to Solr, deleted or committed. A result loaded while
+ * that happens is not cached (see {@link #getGeneration(String)}).
+ * </p>
+ */
+public class IndexResultCache {
+
+  private final long ttlInMillis;
+  private final long maximumSizePerCollection;
+  private final Map<String, CollectionCache> caches = new ConcurrentHashMap<>();
+
+  public IndexResultCache(long ttlInMillis, long maximumSizePerCollection) {
+    this.ttlInMillis = ttlInMillis;
+    this.maximumSizePerCollection = maximumSizePerCollection;
+  }
+
+  /**
+   * @return the current generation of the collection, which must be obtained
+   *         before loading a result and then given to
+   *         {@link #put(String, String, Serializable, long)}
+   */
+  public long getGeneration(String collection) {
+    return getCache(collection).generation;
+  }
+
+  /**
+   * @return a copy of the cached result, or {@code null} if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T get(String collection, String key) {
+    byte[] result = getCache(collection).results.getIfPresent(key);
+    return result != null ? (T) SerializationUtils.deserialize(result) : null;
+  }
+
+  /**
+   * Caches a result, unless the collection changed since the given generation
+   * (i.e. the result may already be outdated).
+   */
+  public void put(String collection, String key, Serializable result, long generation) {
+    byte[] serialized = SerializationUtils.serialize(result);
+    CollectionCache cache = getCache(collection);
+    synchronized (cache) {
+      if (cache.generation == generation) {
+        cache.results.put(key, serialized);
+      }
+    }
+  }
+
+  public void invalidate(String collection) {
+    CollectionCache cache = caches.get(collection);
+    if (cache != null) {
+      synchronized (cache) {
+        cache.generation++;
+        cache.results.invalidateAll();
+      }
+    }
+  }
+
+  public void invalidateAll() {
+    for (String collection : caches.keySet()) {
+      invalidate(collection);
+    }
+  }
+
+  /**
+   * @return the statistics (e.g. hit rate) of each collection
+   */
+  public Map<String, CacheStats> getStats() {
+    Map<String, CacheStats> stats = new TreeMap<>();
+    for (Map.Entry<String, CollectionCache> entry : caches.entrySet()) {
+      stats.put(entry.getKey(), entry.getValue().results.stats());
+    }
+    return stats;
+  }
+
+  private CollectionCache getCache(String collection) {
+    return caches.computeIfAbsent(collection, c -> new CollectionCache());
+  }
+
+  private class CollectionCache {
+    private final Cache<String, byte[]> results = CacheBuilder.newBuilder()
+      .expireAfterWrite(ttlInMillis, TimeUnit.MILLISECONDS).maximumSize(maximumSizePerCollection).recordStats()
+      .build();
+    private volatile long generation = 0;
+  }
+
+}
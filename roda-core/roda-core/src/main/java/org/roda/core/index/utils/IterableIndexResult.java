@@ -0,0 +1,151 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.IsIndexed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over all the documents that match a query using Solr cursors
+ * (cursorMark), so that going through a whole collection costs linear time and
+ * only keeps one page of results in memory, no matter how deep it goes.
+ * <p>
+ * Results are sorted by the collection unique key (which is required by
+ * cursors) and documents added or removed while iterating do not cause other
+ * documents to be skipped or repeated.
+ * </p>
+ */
+public class IterableIndexResult<T extends IsIndexed> implements CloseableIterable<T> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(IterableIndexResult.class);
+
+  private final SolrClient index;
+  private final Class<T> classToRetrieve;
+  private final String indexName;
+  private final SolrQuery query;
+
+  private final long totalCount;
+  private List<T> firstPage;
+  private String firstNextCursorMark;
+
+  IterableIndexResult(SolrClient index, Class<T> classToRetrieve, SolrQuery query)
+    throws GenericException, RequestNotValidException {
+    this.index = index;
+    this.classToRetrieve = classToRetrieve;
+    this.indexName = SolrUtils.getIndexName(classToRetrieve).get(0);
+    this.query = query;
+
+    // first page is retrieved right away so that query errors are reported to
+    // the caller and the total count is known
+    QueryResponse response = query(CursorMarkParams.CURSOR_MARK_START);
+    this.totalCount = response.getResults().getNumFound();
+    this.firstPage = SolrUtils.queryResponseToList(response, classToRetrieve);
+    this.firstNextCursorMark = response.getNextCursorMark();
+  }
+
+  /**
+   * @return the number of documents that matched the query when the iteration
+   *         started
+   */
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  private QueryResponse query(String cursorMark) throws GenericException, RequestNotValidException {
+    SolrQuery pageQuery = query.getCopy();
+    pageQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+    try {
+      return index.query(indexName, pageQuery);
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not query index", e);
+    } catch (SolrException e) {
+      throw new RequestNotValidException(e.getMessage());
+    }
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    Iterator<T> ret;
+    if (firstPage != null) {
+      // the first iterator reuses the page fetched on creation
+      ret = new CursorIterator(CursorMarkParams.CURSOR_MARK_START, firstPage, firstNextCursorMark);
+      firstPage = null;
+      firstNextCursorMark = null;
+    } else {
+      ret = new CursorIterator(CursorMarkParams.CURSOR_MARK_START, null, null);
+    }
+    return ret;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // cursors hold no server side state, so there is nothing to release
+  }
+
+  private class CursorIterator implements Iterator<T> {
+    private String cursorMark;
+    private String nextCursorMark;
+    private Iterator<T> page;
+
+    public CursorIterator(String cursorMark, List<T> page, String nextCursorMark) {
+      this.cursorMark = cursorMark;
+      this.nextCursorMark = nextCursorMark;
+      this.page = page != null ? page.iterator() : null;
+    }
+
+    /**
+     * @throws RuntimeException
+     *           if the next page could not be retrieved from the index (with the
+     *           {@link GenericException} or {@link RequestNotValidException} as
+     *           cause)
+     */
+    @Override
+    public boolean hasNext() {
+      while (page == null || (!page.hasNext() && !cursorMark.equals(nextCursorMark))) {
+        if (page != null) {
+          cursorMark = nextCursorMark;
+        }
+        try {
+          QueryResponse response = query(cursorMark);
+          page = SolrUtils.queryResponseToList(response, classToRetrieve).iterator();
+          nextCursorMark = response.getNextCursorMark();
+        } catch (GenericException | RequestNotValidException e) {
+          // ending the iteration would make callers process only part of the
+          // results without knowing it
+          LOGGER.error("Error while iterating over index {} (cursor mark {})", indexName, cursorMark, e);
+          throw new RuntimeException("Error while iterating over index " + indexName, e);
+        }
+      }
+      return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+  }
+
+}
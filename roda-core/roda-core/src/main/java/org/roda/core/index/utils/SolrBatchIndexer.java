@@ -0,0 +1,345 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Buffers {@link SolrInputDocument}s per collection and sends them to Solr in
+ * batches (using {@link SolrClient#add(String, Collection)}), either when a
+ * collection buffer reaches the batch size or periodically, so that documents
+ * never wait more than the configured maximum delay.
+ * <p>
+ * Batches of the same collection are sent in the order they were buffered (one
+ * at a time) and the producer that fills a batch is the one sending it, which
+ * means that producers block while Solr is not able to keep up (back-pressure)
+ * and the number of buffered documents stays bounded.
+ * </p>
+ * <p>
+ * If Solr refuses a batch, its documents are sent one by one and the ones that
+ * are still refused are reported to the failure listeners and counted per
+ * collection, so that callers that need to know whether their documents were
+ * indexed can check it after flushing.
+ * </p>
+ */
+public class SolrBatchIndexer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrBatchIndexer.class);
+
+  private final SolrClient index;
+  private final int batchSize;
+  private final ScheduledExecutorService scheduler;
+
+  private final Map<String, CollectionBuffer> buffers = new ConcurrentHashMap<>();
+
+  // field added to all the documents of some collections (e.g. during reindex)
+  private volatile String stampField = null;
+  private volatile Object stampValue = null;
+  private volatile Set<String> stampCollections = Collections.emptySet();
+
+  // notified of the collections whose documents were sent to Solr
+  private volatile Consumer<String> sentListener = null;
+  // notified of the documents (and their collections) refused by Solr
+  private final List<BiConsumer<String, SolrInputDocument>> failureListeners = new CopyOnWriteArrayList<>();
+  private final Map<String, AtomicLong> failedDocumentCounts = new ConcurrentHashMap<>();
+
+  // statistics
+  private final AtomicLong flushCount = new AtomicLong(0);
+  private final AtomicLong documentCount = new AtomicLong(0);
+  private final AtomicLong failedDocumentCount = new AtomicLong(0);
+  private final AtomicLong maxBatchSize = new AtomicLong(0);
+  private final AtomicLong totalFlushTimeInMillis = new AtomicLong(0);
+  private final AtomicLong maxFlushTimeInMillis = new AtomicLong(0);
+
+  /**
+   * @param index
+   *          the Solr client to which batches are sent
+   * @param batchSize
+   *          number of documents that triggers the sending of a collection
+   *          buffer (values lower than 2 disable buffering)
+   * @param maxDelayInMillis
+   *          maximum time a document can wait in a buffer before being sent
+   *          (values lower than 1 disable the periodic flush)
+   */
+  public SolrBatchIndexer(SolrClient index, int batchSize, long maxDelayInMillis) {
+    this.index = index;
+    this.batchSize = batchSize;
+
+    if (batchSize > 1 && maxDelayInMillis > 0) {
+      ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("solr-batch-indexer-%d").setDaemon(true)
+        .build();
+      scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      scheduler.scheduleWithFixedDelay(() -> flush(), maxDelayInMillis, maxDelayInMillis, TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+
+    LOGGER.debug("Solr batch indexer using batches of {} documents and a max. delay of {} ms", batchSize,
+      maxDelayInMillis);
+  }
+
+  /**
+   * Adds a document (full or partial update) to the buffer of a collection,
+   * sending the buffer to Solr if it is full.
+   */
+  public void add(String collection, SolrInputDocument document) {
+    stamp(collection, document);
+    if (batchSize <= 1) {
+      List<SolrInputDocument> batch = new ArrayList<>(1);
+      batch.add(document);
+      send(collection, batch);
+    } else {
+      CollectionBuffer buffer = buffers.computeIfAbsent(collection, c -> new CollectionBuffer(c));
+      if (buffer.add(document) >= batchSize) {
+        buffer.flush();
+      }
+    }
+  }
+
+  /**
+   * Sets a listener that is invoked with the collection after each batch is
+   * sent to Solr (e.g. to discard cached results of that collection).
+   */
+  public void setSentListener(Consumer<String> sentListener) {
+    this.sentListener = sentListener;
+  }
+
+  /**
+   * Adds a listener that is invoked with the collection and the document each
+   * time Solr refuses a document (from the thread that sent it).
+   */
+  public void addFailureListener(BiConsumer<String, SolrInputDocument> listener) {
+    failureListeners.add(listener);
+  }
+
+  public void removeFailureListener(BiConsumer<String, SolrInputDocument> listener) {
+    failureListeners.remove(listener);
+  }
+
+  /**
+   * Sends to Solr all the documents buffered for a collection. This must be
+   * invoked before any operation that depends on the buffered documents being
+   * already in Solr (e.g. deletes, real-time gets or commits).
+   */
+  public void flush(String collection) {
+    CollectionBuffer buffer = buffers.get(collection);
+    if (buffer != null) {
+      buffer.flush();
+    }
+  }
+
+  /**
+   * Sends to Solr all the documents buffered for all collections.
+   */
+  public void flush() {
+    for (CollectionBuffer buffer : buffers.values()) {
+      buffer.flush();
+    }
+  }
+
+  /**
+   * Discards the documents buffered for a collection (e.g. because all its
+   * documents are being deleted).
+   */
+  public void discard(String collection) {
+    CollectionBuffer buffer = buffers.get(collection);
+    if (buffer != null) {
+      buffer.discard();
+    }
+  }
+
+  /**
+   * Starts adding a field, with the given value, to all the documents of the
+   * given collections (including partial updates, in which the field is set).
+   */
+  public void startStamping(String field, Object value, Collection<String> collections) {
+    stampCollections = Collections.emptySet();
+    stampField = field;
+    stampValue = value;
+    stampCollections = new HashSet<>(collections);
+  }
+
+  public void stopStamping() {
+    stampCollections = Collections.emptySet();
+  }
+
+  /**
+   * Adds the stamp field (if stamping) to a document that is sent to Solr
+   * without going through this indexer.
+   */
+  public SolrInputDocument stamp(String collection, SolrInputDocument document) {
+    if (stampCollections.contains(collection)) {
+      document.setField(stampField, stampValue);
+    }
+    return document;
+  }
+
+  public void shutdown() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+    flush();
+    LOGGER.info("Solr batch indexer statistics: {}", getStatistics());
+  }
+
+  public long getFlushCount() {
+    return flushCount.get();
+  }
+
+  public long getDocumentCount() {
+    return documentCount.get();
+  }
+
+  public long getFailedDocumentCount() {
+    return failedDocumentCount.get();
+  }
+
+  /**
+   * @return the number of documents of a collection refused by Solr so far,
+   *         which can be compared before and after a flush
+   */
+  public long getFailedDocumentCount(String collection) {
+    AtomicLong count = failedDocumentCounts.get(collection);
+    return count != null ? count.get() : 0;
+  }
+
+  public long getMaxBatchSize() {
+    return maxBatchSize.get();
+  }
+
+  public double getAverageBatchSize() {
+    long flushes = flushCount.get();
+    return flushes == 0 ? 0 : (double) documentCount.get() / flushes;
+  }
+
+  public long getMaxFlushTimeInMillis() {
+    return maxFlushTimeInMillis.get();
+  }
+
+  public double getAverageFlushTimeInMillis() {
+    long flushes = flushCount.get();
+    return flushes == 0 ? 0 : (double) totalFlushTimeInMillis.get() / flushes;
+  }
+
+  public String getStatistics() {
+    return String.format("flushes=%d; documents=%d; failed documents=%d; avg. batch size=%.1f; max. batch size=%d; "
+      + "avg. flush time=%.1f ms; max. flush time=%d ms", getFlushCount(), getDocumentCount(),
+      getFailedDocumentCount(), getAverageBatchSize(), getMaxBatchSize(), getAverageFlushTimeInMillis(),
+      getMaxFlushTimeInMillis());
+  }
+
+  private void send(String collection, List<SolrInputDocument> batch) {
+    long start = System.currentTimeMillis();
+    boolean sent;
+    try {
+      index.add(collection, batch);
+      sent = true;
+    } catch (SolrServerException | IOException | SolrException e) {
+      LOGGER.warn("Error sending batch of {} documents to collection {}, sending them one by one", batch.size(),
+        collection, e);
+      sendOneByOne(collection, batch);
+      sent = false;
+    }
+    long duration = System.currentTimeMillis() - start;
+
+    Consumer<String> listener = sentListener;
+    if (listener != null) {
+      listener.accept(collection);
+    }
+
+    // documents sent one by one are counted, but not as a flush
+    if (sent) {
+      flushCount.incrementAndGet();
+      documentCount.addAndGet(batch.size());
+      maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+      totalFlushTimeInMillis.addAndGet(duration);
+      maxFlushTimeInMillis.accumulateAndGet(duration, Math::max);
+    }
+    LOGGER.trace("Sent batch of {} documents to collection {} in {} ms", batch.size(), collection, duration);
+  }
+
+  private void sendOneByOne(String collection, List<SolrInputDocument> batch) {
+    for (SolrInputDocument document : batch) {
+      try {
+        index.add(collection, document);
+        documentCount.incrementAndGet();
+      } catch (SolrServerException | IOException | SolrException e) {
+        failedDocumentCount.incrementAndGet();
+        failedDocumentCounts.computeIfAbsent(collection, c -> new AtomicLong(0)).incrementAndGet();
+        LOGGER.error("Cannot index document in collection {}: {}", collection, document, e);
+        for (BiConsumer<String, SolrInputDocument> failureListener : failureListeners) {
+          failureListener.accept(collection, document);
+        }
+      }
+    }
+  }
+
+  private class CollectionBuffer {
+    private final String collection;
+    private final Object sendLock = new Object();
+    private List<SolrInputDocument> documents = new ArrayList<>();
+
+    public CollectionBuffer(String collection) {
+      this.collection = collection;
+    }
+
+    public synchronized int add(SolrInputDocument document) {
+      documents.add(document);
+      return documents.size();
+    }
+
+    private synchronized List<SolrInputDocument> take() {
+      List<SolrInputDocument> ret = documents;
+      documents = new ArrayList<>();
+      return ret;
+    }
+
+    public void flush() {
+      // only one batch per collection is sent at a time so order is kept
+      synchronized (sendLock) {
+        List<SolrInputDocument> batch = take();
+        if (!batch.isEmpty()) {
+          send(collection, batch);
+        }
+      }
+    }
+
+    public void discard() {
+      // waits for a batch being sent, which could otherwise be added after
+      synchronized (sendLock) {
+        take();
+      }
+    }
+  }
+
+}
@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,6 +22,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -166,11 +168,46 @@ public class SolrUtils {
     return find(index, classToRetrieve, filter, null, new Sublist(0, 0), null, user, justActive).getTotalCount();
   }
 
+  /**
+   * Counts the documents that match the filter on which the user does not have
+   * the given permission, using a single query (i.e. without retrieving the
+   * documents).
+   */
+  public static <T extends IsIndexed> Long countWithoutPermission(SolrClient index, Class<T> classToRetrieve,
+    Filter filter, User user, PermissionType permissionType) throws GenericException, RequestNotValidException {
+    SolrQuery query = new SolrQuery();
+    query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
+    parseAndConfigureFilter(filter, query);
+    query.setRows(0);
+    query.addFilterQuery("*:* -" + getPermissionQuery(user, permissionType));
+
+    try {
+      return index.query(getIndexName(classToRetrieve).get(0), query).getResults().getNumFound();
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not query index", e);
+    } catch (SolrException e) {
+      throw new RequestNotValidException(e.getMessage());
+    } catch (RuntimeException e) {
+      throw new GenericException("Unexpected exception while querying index", e);
+    }
+  }
+
   public static <T extends IsIndexed> T retrieve(SolrClient index, Class<T> classToRetrieve, String id)
     throws NotFoundException, GenericException {
+    return retrieve(index, classToRetrieve, id, Collections.emptyList());
+  }
+
+  /**
+   * Retrieves a document with only the given fields (and the unique key). An
+   * empty list retrieves all fields.
+   */
+  public static <T extends IsIndexed> T retrieve(SolrClient index, Class<T> classToRetrieve, String id,
+    List<String> fieldsToReturn) throws NotFoundException, GenericException {
     T ret;
     try {
-      SolrDocument doc = index.getById(getIndexName(classToRetrieve).get(0), id);
+      SolrQuery params = new SolrQuery();
+      parseAndConfigureFields(classToRetrieve, fieldsToReturn, params);
+      SolrDocument doc = index.getById(getIndexName(classToRetrieve).get(0), id, params);
       if (doc != null) {
         ret = solrDocumentTo(classToRetrieve, doc);
       } else {
@@ -206,7 +243,7 @@ public class SolrUtils {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    parseAndConfigureFilter(filter, query);
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
@@ -225,19 +262,52 @@ public class SolrUtils {
   public static <T extends IsIndexed> IndexResult<T> find(SolrClient index, Class<T> classToRetrieve, Filter filter,
     Sorter sorter, Sublist sublist, Facets facets, User user, boolean justActive)
     throws GenericException, RequestNotValidException {
+    return find(index, classToRetrieve, filter, sorter, sublist, facets, user, justActive, Collections.emptyList());
+  }
 
-    IndexResult<T> ret;
+  /**
+   * Same as {@link #find(SolrClient, Class, Filter, Sorter, Sublist, Facets)}
+   * with permissions, but only the given fields (and the unique key) are
+   * returned by Solr and set in the result objects. An empty list returns all
+   * fields.
+   */
+  public static <T extends IsIndexed> IndexResult<T> find(SolrClient index, Class<T> classToRetrieve, Filter filter,
+    Sorter sorter, Sublist sublist, Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
+    SolrQuery query = createFindQuery(classToRetrieve, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
+    return find(index, classToRetrieve, query, facets);
+  }
+
+  /**
+   * Creates the query used by
+   * {@link #find(SolrClient, Class, Filter, Sorter, Sublist, Facets, User, boolean, List)},
+   * whose parameters fully identify the request (e.g. to cache its results).
+   */
+  public static <T extends IsIndexed> SolrQuery createFindQuery(Class<T> classToRetrieve, Filter filter,
+    Sorter sorter, Sublist sublist, Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    parseAndConfigureFilter(filter, query);
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
     parseAndConfigureFacets(facets, query);
+    parseAndConfigureFields(classToRetrieve, fieldsToReturn, query);
     if (hasPermissionFilters(classToRetrieve)) {
       query.addFilterQuery(getFilterQueries(user, justActive));
     }
+    return query;
+  }
 
+  /**
+   * Runs a query created by
+   * {@link #createFindQuery(Class, Filter, Sorter, Sublist, Facets, User, boolean, List)}.
+   */
+  public static <T extends IsIndexed> IndexResult<T> find(SolrClient index, Class<T> classToRetrieve, SolrQuery query,
+    Facets facets) throws GenericException, RequestNotValidException {
+    IndexResult<T> ret;
     try {
       QueryResponse response = index.query(getIndexName(classToRetrieve).get(0), query);
       ret = queryResponseToIndexResult(response, classToRetrieve, facets);
@@ -252,11 +322,90 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Finds all the documents that match the filter, retrieving them from Solr
+   * in pages (using cursors) as the result is iterated.
+   *
+   * @param user
+   *          if not {@code null}, only the documents the user can read are
+   *          found
+   * @param justActive
+   *          if true, only the documents of active AIPs are found
+   */
+  public static <T extends IsIndexed> IterableIndexResult<T> findAll(SolrClient index, Class<T> classToRetrieve,
+    Filter filter, int pageSize, User user, boolean justActive) throws GenericException, RequestNotValidException {
+    return new IterableIndexResult<>(index, classToRetrieve,
+      createFindAllQuery(classToRetrieve, filter, pageSize, user, justActive));
+  }
+
+  private static <T extends IsIndexed> SolrQuery createFindAllQuery(Class<T> classToRetrieve, Filter filter,
+    int pageSize, User user, boolean justActive) throws GenericException, RequestNotValidException {
+    SolrQuery query = new SolrQuery();
+    query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
+    parseAndConfigureFilter(filter, query);
+    query.setSort(getUniqueKey(classToRetrieve), ORDER.asc);
+    query.setRows(pageSize);
+    if ((user != null || justActive) && hasPermissionFilters(classToRetrieve)) {
+      query.addFilterQuery(getFilterQueries(user, justActive));
+    }
+    return query;
+  }
+
+  /**
+   * Iterates over the unique keys of all the documents that match the filter,
+   * using cursors and retrieving nothing else (e.g. to do partial updates on
+   * all those documents).
+   */
+  public static <T extends IsIndexed> void findAllIds(SolrClient index, Class<T> classToRetrieve, Filter filter,
+    int pageSize, Consumer<String> consumer) throws GenericException, RequestNotValidException {
+    SolrQuery query = createFindAllQuery(classToRetrieve, filter, pageSize, null, false);
+    query.setFields(getUniqueKey(classToRetrieve));
+    try {
+      for (T item : new IterableIndexResult<>(index, classToRetrieve, query)) {
+        consumer.accept(item.getUUID());
+      }
+    } catch (RuntimeException e) {
+      // the iterator wraps the errors of the pages after the first one
+      if (e.getCause() instanceof GenericException) {
+        throw (GenericException) e.getCause();
+      } else if (e.getCause() instanceof RequestNotValidException) {
+        throw (RequestNotValidException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   /*
    * "Internal" helper methods
    * ____________________________________________________________________________________________________________________
    */
 
+  /**
+   * Sets the fields to return (always including the unique key), if any are
+   * given.
+   */
+  public static <T extends Serializable> void parseAndConfigureFields(Class<T> classToRetrieve,
+    List<String> fieldsToReturn, SolrQuery query) throws GenericException {
+    if (fieldsToReturn != null && !fieldsToReturn.isEmpty()) {
+      String uniqueKey = getUniqueKey(classToRetrieve);
+      query.setFields(fieldsToReturn.toArray(new String[fieldsToReturn.size()]));
+      if (!fieldsToReturn.contains(uniqueKey)) {
+        query.addField(uniqueKey);
+      }
+    }
+  }
+
+  private static <T extends Serializable> String getUniqueKey(Class<T> resultClass) throws GenericException {
+    // must be kept in sync with the uniqueKey of each collection schema
+    String indexName = getIndexName(resultClass).get(0);
+    if (RodaConstants.INDEX_FILE.equals(indexName) || RodaConstants.INDEX_REPRESENTATION.equals(indexName)
+      || RodaConstants.INDEX_TRANSFERRED_RESOURCE.equals(indexName)) {
+      return RodaConstants.INDEX_UUID;
+    } else {
+      return RodaConstants.INDEX_ID;
+    }
+  }
+
   private static <T> T solrDocumentTo(Class<T> resultClass, SolrDocument doc) throws GenericException {
     T ret;
     if (resultClass.equals(IndexedAIP.class)) {
@@ -569,6 +718,18 @@ public class SolrUtils {
     return new IndexResult<T>(offset, limit, totalCount, docs, facetResults);
   }
 
+  static <T extends Serializable> List<T> queryResponseToList(QueryResponse response, Class<T> responseClass)
+    throws GenericException {
+    final SolrDocumentList docList = response.getResults();
+    final List<T> docs = new ArrayList<T>();
+
+    for (SolrDocument doc : docList) {
+      docs.add(solrDocumentTo(responseClass, doc));
+    }
+
+    return docs;
+  }
+
   private static List<FacetFieldResult> processFacetFields(Facets facets, List<FacetField> facetFields) {
     List<FacetFieldResult> ret = new ArrayList<FacetFieldResult>();
     FacetFieldResult facetResult;
@@ -677,6 +838,54 @@ public class SolrUtils {
     return ret.toString();
   }
 
+  /**
+   * Sets the filter on the query. Cacheable parameters (see
+   * {@link #isCacheable(FilterParameter)}) are each added as a filter query,
+   * which does not score documents and is kept in Solr filterCache across
+   * requests (e.g. the parent of the AIPs being browsed or the AIP of the files
+   * being listed), while the others make up the main query.
+   */
+  public static void parseAndConfigureFilter(Filter filter, SolrQuery query) throws RequestNotValidException {
+    StringBuilder ret = new StringBuilder();
+
+    if (filter != null) {
+      for (FilterParameter parameter : filter.getParameters()) {
+        if (isCacheable(parameter)) {
+          StringBuilder filterQuery = new StringBuilder();
+          parseFilterParameter(filterQuery, parameter, false);
+          if (filterQuery.length() > 0) {
+            query.addFilterQuery(filterQuery.toString());
+          }
+        } else {
+          parseFilterParameter(ret, parameter, true);
+        }
+      }
+    }
+
+    if (ret.length() == 0) {
+      ret.append("*:*");
+    }
+
+    LOGGER.trace("Converting filter {} to query {} and filter queries {}", filter, ret,
+      Arrays.toString(query.getFilterQueries()));
+    query.setQuery(ret.toString());
+  }
+
+  private static boolean isCacheable(FilterParameter parameter) {
+    boolean cacheable;
+    if (parameter.getCacheable() != null) {
+      cacheable = parameter.getCacheable();
+    } else {
+      // full-text searches (and combinations that may contain them) are the
+      // ones that rank results
+      cacheable = parameter instanceof SimpleFilterParameter || parameter instanceof OneOfManyFilterParameter
+        || parameter instanceof NotSimpleFilterParameter || parameter instanceof EmptyKeyFilterParameter
+        || parameter instanceof DateRangeFilterParameter || parameter instanceof DateIntervalFilterParameter
+        || parameter instanceof LongRangeFilterParameter;
+    }
+    return cacheable;
+  }
+
   private static void parseFilterParameter(StringBuilder ret, FilterParameter parameter,
     boolean prefixWithANDOperatorIfBuilderNotEmpty) throws RequestNotValidException {
     if (parameter instanceof SimpleFilterParameter) {
@@ -1005,14 +1214,7 @@ public class SolrUtils {
 
     // TODO find a better way to define admin super powers
     if (user != null && !user.getName().equals("admin")) {
-      fq.append("(");
-      String usersKey = RodaConstants.INDEX_PERMISSION_USERS_PREFIX + PermissionType.READ;
-      appendExactMatch(fq, usersKey, user.getId(), true, false);
-
-      String groupsKey = RodaConstants.INDEX_PERMISSION_GROUPS_PREFIX + PermissionType.READ;
-      appendValuesUsingOROperatorForQuery(fq, groupsKey, new ArrayList<>(user.getGroups()), true);
-
-      fq.append(")");
+      fq.append(getPermissionQuery(user, PermissionType.READ));
     }
 
     if (justActive) {
@@ -1022,6 +1224,23 @@ public class SolrUtils {
     return fq.toString();
   }
 
+  /**
+   * @return a query matching the documents on which the user (or one of its
+   *         groups) has the given permission
+   */
+  private static String getPermissionQuery(User user, PermissionType permissionType) {
+    StringBuilder query = new StringBuilder();
+    query.append("(");
+    String usersKey = RodaConstants.INDEX_PERMISSION_USERS_PREFIX + permissionType;
+    appendExactMatch(query, usersKey, user.getId(), true, false);
+
+    String groupsKey = RodaConstants.INDEX_PERMISSION_GROUPS_PREFIX + permissionType;
+    appendValuesUsingOROperatorForQuery(query, groupsKey, new ArrayList<>(user.getGroups()), true);
+
+    query.append(")");
+    return query.toString();
+  }
+
   private static void appendValuesUsingOROperatorForQuery(StringBuilder ret, String key, List<String> values,
     boolean prependWithOrIfNeeded) {
     if (!values.isEmpty()) {
@@ -1085,6 +1304,19 @@ public class SolrUtils {
     }
   }
 
+  /**
+   * Converts an instance into the Solr document that is added to the index by
+   * {@link #create(SolrClient, Class, IsIndexed)}.
+   */
+  public static <T extends IsIndexed> SolrInputDocument toSolrInputDocument(Class<T> classToCreate, T instance)
+    throws GenericException {
+    try {
+      return toSolrDocument(classToCreate, instance);
+    } catch (NotSupportedException e) {
+      throw new GenericException("Cannot convert instance to a Solr document", e);
+    }
+  }
+
   /*
    * Crosswalks: RODA Objects <-> Apache Solr documents
    * ____________________________________________________________________________________________________________________
@@ -2081,6 +2313,19 @@ public class SolrUtils {
     return doc;
   }
 
+  public static SolrInputDocument representationInfoUpdateToSolrDocument(Representation representation) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.REPRESENTATION_UUID,
+      IdUtils.getRepresentationId(representation.getAipId(), representation.getId()));
+    doc.addField(RodaConstants.REPRESENTATION_ORIGINAL, set(representation.isOriginal()));
+    doc.addField(RodaConstants.REPRESENTATION_TYPE, set(representation.getType()));
+    return doc;
+  }
+
+  public static List<String> getAIPRepresentationIds(SolrDocument aipDoc) {
+    return objectToListString(aipDoc.get(RodaConstants.AIP_REPRESENTATION_ID));
+  }
+
   public static SolrInputDocument aipPermissionsUpdateToSolrDocument(AIP aip) {
     SolrInputDocument document = new SolrInputDocument();
     document.addField(RodaConstants.AIP_ID, aip.getId());
@@ -2111,6 +2356,17 @@ public class SolrUtils {
     return document;
   }
 
+  /**
+   * Partial update that sets the permissions of any indexed object (given the
+   * unique key field of its collection).
+   */
+  public static SolrInputDocument permissionsUpdateToSolrDocument(String uniqueKey, String id,
+    Permissions permissions) {
+    SolrInputDocument document = new SolrInputDocument();
+    document.addField(uniqueKey, id);
+    return permissionsUpdateToSolrDocument(document, permissions);
+  }
+
   private static SolrInputDocument permissionsUpdateToSolrDocument(SolrInputDocument doc, Permissions permissions) {
     for (Entry<PermissionType, Set<String>> entry : permissions.getUsers().entrySet()) {
       String key = RodaConstants.INDEX_PERMISSION_USERS_PREFIX + entry.getKey();
@@ -2361,21 +2617,10 @@ public class SolrUtils {
 
   public static <T extends IsIndexed> void execute(SolrClient index, Class<T> classToRetrieve, Filter filter,
     IndexRunnable<T> indexRunnable) throws GenericException, RequestNotValidException, AuthorizationDeniedException {
-
-    Sorter sorter = null;
-    int offset = 0;
     int pagesize = 1000;
-    boolean done = false;
-
-    do {
-      Sublist sublist = new Sublist(offset, pagesize);
-      IndexResult<T> find = SolrUtils.find(index, classToRetrieve, filter, sorter, sublist);
-      for (T target : find.getResults()) {
-        indexRunnable.run(target);
-      }
-      done = find.getResults().isEmpty();
-      offset += pagesize;
-    } while (!done);
+    for (T target : findAll(index, classToRetrieve, filter, pagesize, null, false)) {
+      indexRunnable.run(target);
+    }
   }
 
   private static SolrInputDocument solrDocumentToSolrInputDocument(SolrDocument d) {
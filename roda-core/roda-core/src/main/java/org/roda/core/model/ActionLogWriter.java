@@ -0,0 +1,256 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.log.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes action log entries asynchronously, so that registering an action does
+ * not cost the request thread more than putting the entry in a bounded queue.
+ * <p>
+ * A single writer thread drains the queue in batches, appends each batch to
+ * the daily log file (kept open between batches and rotated when the day
+ * changes), forces it to disk once per batch and only then notifies the model
+ * observers (i.e. indexes the entries), also in batch.
+ * </p>
+ * <p>
+ * When the queue is full, {@link #log(LogEntry)} either blocks until there is
+ * room for the entry or drops it (and counts it), depending on the configured
+ * policy.
+ * </p>
+ */
+public class ActionLogWriter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActionLogWriter.class);
+
+  private static final DateTimeFormatter LOG_FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+  private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 30;
+
+  private final ModelService model;
+  private final Path logDirectory;
+  private final BlockingQueue<LogEntry> queue;
+  private final int batchSize;
+  private final boolean blockWhenFull;
+  private final boolean fsync;
+  private final Thread writerThread;
+
+  private volatile boolean running = true;
+
+  // only accessed by the writer thread
+  private LocalDate logFileDate;
+  private Path logFile;
+  private FileChannel logFileChannel;
+
+  // statistics
+  private final AtomicLong writtenCount = new AtomicLong(0);
+  private final AtomicLong droppedCount = new AtomicLong(0);
+  private final AtomicLong failedCount = new AtomicLong(0);
+
+  /**
+   * @param model
+   *          the model service, used to archive old log files and to notify
+   *          observers of the written entries
+   * @param logDirectory
+   *          the directory where the daily log files are written
+   * @param queueSize
+   *          max number of entries waiting to be written
+   * @param batchSize
+   *          max number of entries written (and forced to disk) at once
+   * @param blockWhenFull
+   *          if true, callers wait while the queue is full, otherwise entries
+   *          that do not fit in the queue are dropped
+   * @param fsync
+   *          if true, the log file is forced to disk after each batch
+   */
+  public ActionLogWriter(ModelService model, Path logDirectory, int queueSize, int batchSize, boolean blockWhenFull,
+    boolean fsync) {
+    this.model = model;
+    this.logDirectory = logDirectory;
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+    this.batchSize = Math.max(1, batchSize);
+    this.blockWhenFull = blockWhenFull;
+    this.fsync = fsync;
+
+    this.writerThread = new Thread(this::run, "action-log-writer");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Queues a log entry to be written.
+   *
+   * @return false if the entry was dropped (queue full or writer shut down)
+   */
+  public boolean log(LogEntry logEntry) {
+    boolean queued = false;
+    if (running) {
+      if (blockWhenFull) {
+        try {
+          queue.put(logEntry);
+          queued = true;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      } else {
+        queued = queue.offer(logEntry);
+      }
+    }
+
+    if (!queued) {
+      long dropped = droppedCount.incrementAndGet();
+      LOGGER.warn("Action log entry dropped (actionComponent={}, actionMethod={}, total dropped={})",
+        logEntry.getActionComponent(), logEntry.getActionMethod(), dropped);
+    }
+    return queued;
+  }
+
+  /**
+   * Stops accepting entries, writes the ones still queued and closes the log
+   * file.
+   */
+  public void shutdown() {
+    running = false;
+    try {
+      writerThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_IN_SECONDS));
+      if (writerThread.isAlive()) {
+        LOGGER.warn("Action log writer did not finish in {} seconds ({} entries still queued)",
+          SHUTDOWN_TIMEOUT_IN_SECONDS, queue.size());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    LOGGER.info("Action log writer statistics: written={} dropped={} failed={}", writtenCount.get(),
+      droppedCount.get(), failedCount.get());
+  }
+
+  public long getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  private void run() {
+    List<LogEntry> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        LogEntry first = queue.poll(1, TimeUnit.SECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, batchSize - 1);
+          write(batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        LOGGER.warn("Action log writer interrupted");
+        running = false;
+      } catch (RuntimeException e) {
+        LOGGER.error("Unexpected error writing action log entries", e);
+        failedCount.addAndGet(batch.size());
+        batch.clear();
+      }
+    }
+    closeLogFile();
+  }
+
+  private void write(List<LogEntry> batch) {
+    StringBuilder json = new StringBuilder();
+    for (LogEntry logEntry : batch) {
+      json.append(JsonUtils.getJsonFromObject(logEntry)).append('\n');
+    }
+
+    try {
+      FileChannel channel = getLogFileChannel();
+      ByteBuffer buffer = ByteBuffer.wrap(json.toString().getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+      writtenCount.addAndGet(batch.size());
+    } catch (IOException e) {
+      LOGGER.error("Error writing {} action log entries to {}", batch.size(), logFile, e);
+      failedCount.addAndGet(batch.size());
+      closeLogFile();
+      return;
+    }
+
+    // only entries that are already on disk get indexed
+    for (LogEntry logEntry : batch) {
+      model.notifyLogEntryCreated(logEntry);
+    }
+  }
+
+  private FileChannel getLogFileChannel() throws IOException {
+    LocalDate today = LocalDate.now();
+
+    // the file might have been archived (e.g. by a synchronous log entry
+    // addition) while it was open
+    if (logFileChannel != null && (!today.equals(logFileDate) || !Files.exists(logFile))) {
+      closeLogFile();
+    }
+
+    if (logFileChannel == null) {
+      Path file = logDirectory.resolve(today.format(LOG_FILE_DATE_FORMAT) + ".log");
+      if (!Files.exists(file)) {
+        try {
+          model.findOldLogsAndMoveThemToStorage(logDirectory, file);
+        } catch (RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
+          LOGGER.error("Error archiving old action log files", e);
+        }
+      }
+      logFileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+      logFile = file;
+      logFileDate = today;
+    }
+    return logFileChannel;
+  }
+
+  private void closeLogFile() {
+    if (logFileChannel != null) {
+      try {
+        logFileChannel.close();
+      } catch (IOException e) {
+        LOGGER.warn("Error closing action log file {}", logFile, e);
+      }
+      logFileChannel = null;
+      logFile = null;
+      logFileDate = null;
+    }
+  }
+
+}
@@ -0,0 +1,382 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps the job reports being updated by running jobs, so that adding an item
+ * to a job report only appends it to a segment file of the job (one line per
+ * change) instead of rewriting (and reindexing) the whole job report.
+ * <p>
+ * The job reports changed since the last compaction are kept in memory, so
+ * {@link ModelService#retrieveJobReport(String, String)} keeps returning their
+ * latest state. They are periodically (and when too many changes are waiting)
+ * compacted: each changed job report is written to storage once, all of them
+ * are indexed in batch and the segment files are removed. Segment files left
+ * behind (e.g. RODA stopped abruptly) are replayed on start up; changes that
+ * were already compacted are recognised and not applied twice.
+ * </p>
+ */
+public class JobReportStore {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobReportStore.class);
+
+  private static final String SEGMENT_SUFFIX = ".segment";
+  private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 60;
+
+  private final ModelService model;
+  private final Path segmentsDirectory;
+  private final int compactionThreshold;
+  private final ScheduledExecutorService scheduler;
+
+  // job id > job report id > job report
+  private final Map<String, Map<String, Report>> changedJobReports = new HashMap<>();
+  private final Map<String, BufferedWriter> segmentWriters = new HashMap<>();
+  private int changeCount = 0;
+
+  /**
+   * @param model
+   *          the model service, used to read, write and index job reports
+   * @param segmentsDirectory
+   *          the directory where the segment files are written
+   * @param compactionThreshold
+   *          number of changes that triggers a compaction
+   * @param compactionIntervalInMillis
+   *          interval between periodic compactions (values lower than 1 only
+   *          compact when the threshold is reached and on shutdown)
+   */
+  public JobReportStore(ModelService model, Path segmentsDirectory, int compactionThreshold,
+    long compactionIntervalInMillis) throws IOException {
+    this.model = model;
+    this.segmentsDirectory = segmentsDirectory;
+    this.compactionThreshold = Math.max(1, compactionThreshold);
+
+    Files.createDirectories(segmentsDirectory);
+    replaySegments();
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("job-report-compactor").setDaemon(true).build());
+    if (compactionIntervalInMillis > 0) {
+      scheduler.scheduleWithFixedDelay(() -> compact(), compactionIntervalInMillis, compactionIntervalInMillis,
+        TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Adds an item to a job report (see
+   * {@link #addReportItem(Report, Report, boolean)}).
+   *
+   * @param newJobReport
+   *          creates the job report, including the item, if it does not exist
+   */
+  public synchronized void addReportItem(String jobId, String jobReportId, Report reportItem,
+    boolean replaceLastReportItemIfTheSame, Supplier<Report> newJobReport) throws GenericException {
+    Report jobReport = getChangedJobReport(jobId, jobReportId);
+    if (jobReport == null) {
+      try {
+        jobReport = model.readJobReport(jobId, jobReportId);
+      } catch (NotFoundException e) {
+        jobReport = null;
+      } catch (RequestNotValidException | AuthorizationDeniedException e) {
+        throw new GenericException("Error reading job report", e);
+      }
+    }
+
+    if (jobReport == null) {
+      jobReport = newJobReport.get();
+      addReportItem(jobReport, reportItem, replaceLastReportItemIfTheSame);
+      updateJobReport(jobReport);
+    } else {
+      // the caller may keep changing the item, which must only affect the job
+      // report when it is added again
+      Report item = new Report(reportItem);
+      addReportItem(jobReport, item, replaceLastReportItemIfTheSame);
+      append(jobId, new Change(jobReportId, null, item, replaceLastReportItemIfTheSame));
+      getChangedJobReports(jobId).put(jobReportId, jobReport);
+    }
+  }
+
+  /**
+   * Creates or replaces a whole job report.
+   */
+  public synchronized void updateJobReport(Report jobReport) throws GenericException {
+    append(jobReport.getJobId(), new Change(jobReport.getId(), jobReport, null, false));
+    getChangedJobReports(jobReport.getJobId()).put(jobReport.getId(), jobReport);
+  }
+
+  /**
+   * @return a copy of the latest state of a job report, or {@code null} if it
+   *         has not changed since the last compaction (i.e. it must be read
+   *         from storage)
+   */
+  public synchronized Report retrieveJobReport(String jobId, String jobReportId) throws GenericException {
+    Report jobReport = getChangedJobReport(jobId, jobReportId);
+    return jobReport != null ? JsonUtils.getObjectFromJson(JsonUtils.getJsonFromObject(jobReport), Report.class)
+      : null;
+  }
+
+  /**
+   * Writes all the changed job reports to storage, indexes them and removes
+   * the segment files.
+   */
+  public synchronized void compact() {
+    if (changeCount == 0) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    List<Report> written = new ArrayList<>();
+    for (String jobId : new ArrayList<>(changedJobReports.keySet())) {
+      Map<String, Report> jobReports = changedJobReports.get(jobId);
+      boolean allWritten = true;
+      for (Report jobReport : jobReports.values()) {
+        try {
+          model.writeJobReport(jobReport);
+          written.add(jobReport);
+        } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
+          LOGGER.error("Error writing job report {}, it will be retried", jobReport.getId(), e);
+          allWritten = false;
+        }
+      }
+
+      // the segment is kept until all its changes reach the storage
+      if (allWritten) {
+        IOUtils.closeQuietly(segmentWriters.remove(jobId));
+        FSUtils.deletePathQuietly(getSegmentFile(jobId));
+        changedJobReports.remove(jobId);
+      } else {
+        jobReports.values().removeAll(written);
+      }
+    }
+    changeCount = changedJobReports.values().stream().mapToInt(Map::size).sum();
+
+    for (Report jobReport : written) {
+      model.notifyJobReportCreatedOrUpdated(jobReport);
+    }
+    LOGGER.debug("Compacted {} job reports in {} ms", written.size(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Stops the periodic compactions and compacts everything.
+   */
+  public void shutdown() {
+    scheduler.shutdown();
+    try {
+      if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+        LOGGER.warn("Job report compaction did not finish in {} seconds", SHUTDOWN_TIMEOUT_IN_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    compact();
+    for (BufferedWriter writer : segmentWriters.values()) {
+      IOUtils.closeQuietly(writer);
+    }
+    segmentWriters.clear();
+  }
+
+  /**
+   * Adds an item to a job report, replacing its last item instead if
+   * requested and it was added by the same plugin.
+   */
+  public static void addReportItem(Report jobReport, Report reportItem, boolean replaceLastReportItemIfTheSame) {
+    if (!replaceLastReportItemIfTheSame) {
+      jobReport.addReport(reportItem);
+    } else {
+      List<Report> reportItems = jobReport.getReports();
+      Report report = reportItems.get(reportItems.size() - 1);
+      if (report.getPlugin().equalsIgnoreCase(reportItem.getPlugin())) {
+        reportItems.remove(reportItems.size() - 1);
+        jobReport.setStepsCompleted(jobReport.getStepsCompleted() - 1);
+        jobReport.addReport(reportItem);
+      }
+    }
+  }
+
+  private Map<String, Report> getChangedJobReports(String jobId) {
+    return changedJobReports.computeIfAbsent(jobId, k -> new LinkedHashMap<>());
+  }
+
+  private Report getChangedJobReport(String jobId, String jobReportId) {
+    Map<String, Report> jobReports = changedJobReports.get(jobId);
+    return jobReports != null ? jobReports.get(jobReportId) : null;
+  }
+
+  private Path getSegmentFile(String jobId) {
+    return segmentsDirectory.resolve(jobId + SEGMENT_SUFFIX);
+  }
+
+  private void append(String jobId, Change change) throws GenericException {
+    try {
+      BufferedWriter writer = segmentWriters.get(jobId);
+      if (writer == null) {
+        writer = Files.newBufferedWriter(getSegmentFile(jobId), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+        segmentWriters.put(jobId, writer);
+      }
+      writer.write(JsonUtils.getJsonFromObject(change));
+      writer.newLine();
+      writer.flush();
+    } catch (IOException e) {
+      IOUtils.closeQuietly(segmentWriters.remove(jobId));
+      throw new GenericException("Error appending to job report segment of job " + jobId, e);
+    }
+
+    changeCount++;
+    if (changeCount >= compactionThreshold) {
+      compact();
+    }
+  }
+
+  private void replaySegments() throws IOException {
+    try (DirectoryStream<Path> segments = Files.newDirectoryStream(segmentsDirectory, "*" + SEGMENT_SUFFIX)) {
+      for (Path segment : segments) {
+        String fileName = segment.getFileName().toString();
+        replaySegment(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()), segment);
+      }
+    }
+
+    if (changeCount > 0) {
+      LOGGER.info("Replayed {} job report changes left in {}", changeCount, segmentsDirectory);
+      compact();
+    }
+  }
+
+  private void replaySegment(String jobId, Path segment) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        try {
+          replay(jobId, JsonUtils.getObjectFromJson(line, Change.class));
+        } catch (GenericException e) {
+          // e.g. the last line was not completely written
+          LOGGER.warn("Ignoring invalid job report change of job {}: {}", jobId, line, e);
+        }
+      }
+    }
+  }
+
+  private void replay(String jobId, Change change) {
+    if (change.getJobReport() != null) {
+      getChangedJobReports(jobId).put(change.getJobReportId(), change.getJobReport());
+      changeCount++;
+      return;
+    }
+
+    Report jobReport = getChangedJobReport(jobId, change.getJobReportId());
+    if (jobReport == null) {
+      try {
+        jobReport = model.readJobReport(jobId, change.getJobReportId());
+      } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
+        LOGGER.warn("Cannot replay change of job report {}", change.getJobReportId(), e);
+        return;
+      }
+    }
+
+    Report reportItem = change.getReportItem();
+    if (!containsReportItem(jobReport, reportItem)) {
+      // keep the date of when the item was originally added
+      Date dateUpdated = reportItem.getDateUpdated();
+      addReportItem(jobReport, reportItem, change.isReplaceLastReportItemIfTheSame());
+      reportItem.setDateUpdated(dateUpdated);
+      jobReport.setDateUpdated(dateUpdated);
+    }
+    getChangedJobReports(jobId).put(change.getJobReportId(), jobReport);
+    changeCount++;
+  }
+
+  private static boolean containsReportItem(Report jobReport, Report reportItem) {
+    String json = JsonUtils.getJsonFromObject(reportItem);
+    return jobReport.getReports().stream().anyMatch(item -> json.equals(JsonUtils.getJsonFromObject(item)));
+  }
+
+  /**
+   * A line of a segment file: either a whole job report or an item added to
+   * it.
+   */
+  public static class Change {
+    private String jobReportId;
+    private Report jobReport;
+    private Report reportItem;
+    private boolean replaceLastReportItemIfTheSame;
+
+    public Change() {
+      // used by JSON deserialization
+    }
+
+    public Change(String jobReportId, Report jobReport, Report reportItem, boolean replaceLastReportItemIfTheSame) {
+      this.jobReportId = jobReportId;
+      this.jobReport = jobReport;
+      this.reportItem = reportItem;
+      this.replaceLastReportItemIfTheSame = replaceLastReportItemIfTheSame;
+    }
+
+    public String getJobReportId() {
+      return jobReportId;
+    }
+
+    public void setJobReportId(String jobReportId) {
+      this.jobReportId = jobReportId;
+    }
+
+    public Report getJobReport() {
+      return jobReport;
+    }
+
+    public void setJobReport(Report jobReport) {
+      this.jobReport = jobReport;
+    }
+
+    public Report getReportItem() {
+      return reportItem;
+    }
+
+    public void setReportItem(Report reportItem) {
+      this.reportItem = reportItem;
+    }
+
+    public boolean isReplaceLastReportItemIfTheSame() {
+      return replaceLastReportItemIfTheSame;
+    }
+
+    public void setReplaceLastReportItemIfTheSame(boolean replaceLastReportItemIfTheSame) {
+      this.replaceLastReportItemIfTheSame = replaceLastReportItemIfTheSame;
+    }
+  }
+
+}
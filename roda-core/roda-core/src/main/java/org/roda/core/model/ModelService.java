@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.RodaCoreFactory;
@@ -106,7 +107,8 @@ public class ModelService extends ModelObservable {
   private static final Logger LOGGER = LoggerFactory.getLogger(ModelService.class);
 
   private final StorageService storage;
-  private Path logFile;
+  private final Object logFileLock = new Object();
+  private JobReportStore jobReportStore = null;
   private static final boolean FAIL_IF_NO_DESCRIPTIVE_METADATA_SCHEMA = false;
 
   public ModelService(StorageService storage) {
@@ -1259,8 +1261,8 @@ public class ModelService extends ModelObservable {
     throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
     SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
     String datePlusExtension = sdf.format(new Date()) + ".log";
-    logFile = logDirectory.resolve(datePlusExtension);
-    synchronized (logFile) {
+    Path logFile = logDirectory.resolve(datePlusExtension);
+    synchronized (logFileLock) {
 
       // verify if file exists and if not, if older files exist (in that case,
       // move them to storage)
@@ -1392,6 +1394,7 @@ public class ModelService extends ModelObservable {
       }
 
       User updatedUser = UserUtility.getLdapUtility().modifyUser(user);
+      UserUtility.invalidateCachedUser(updatedUser.getId());
       if (notify) {
         notifyUserUpdated(updatedUser);
       }
@@ -1411,6 +1414,7 @@ public class ModelService extends ModelObservable {
     throws GenericException, AlreadyExistsException, NotFoundException, AuthorizationDeniedException {
     try {
       User updatedUser = UserUtility.getLdapUtility().modifySelfUser(user, password);
+      UserUtility.invalidateCachedUser(updatedUser.getId());
 
       if (notify) {
         notifyUserUpdated(updatedUser);
@@ -1431,6 +1435,7 @@ public class ModelService extends ModelObservable {
   public void deleteUser(String id, boolean notify) throws GenericException, AuthorizationDeniedException {
     try {
       UserUtility.getLdapUtility().removeUser(id);
+      UserUtility.invalidateCachedUser(id);
       if (notify) {
         notifyUserDeleted(id);
       }
@@ -1475,6 +1480,8 @@ public class ModelService extends ModelObservable {
     throws GenericException, NotFoundException, AuthorizationDeniedException {
     try {
       Group updatedGroup = UserUtility.getLdapUtility().modifyGroup(group);
+      // group roles are inherited by its members
+      UserUtility.invalidateCachedUsers();
       if (notify) {
         notifyGroupUpdated(updatedGroup);
       }
@@ -1492,6 +1499,7 @@ public class ModelService extends ModelObservable {
   public void deleteGroup(String id, boolean notify) throws GenericException, AuthorizationDeniedException {
     try {
       UserUtility.getLdapUtility().removeGroup(id);
+      UserUtility.invalidateCachedUsers();
       if (notify) {
         notifyGroupDeleted(id);
       }
@@ -1533,8 +1541,11 @@ public class ModelService extends ModelObservable {
       success = false;
       throw new InvalidTokenException("Token exception", e);
     }
-    if (success && user != null && notify) {
-      notifyUserUpdated(user);
+    if (success && user != null) {
+      UserUtility.invalidateCachedUser(user.getId());
+      if (notify) {
+        notifyUserUpdated(user);
+      }
     }
     return user;
   }
@@ -1558,8 +1569,11 @@ public class ModelService extends ModelObservable {
       success = false;
       throw new IllegalOperationException("Illegal operation", e);
     }
-    if (success && user != null && notify) {
-      notifyUserUpdated(user);
+    if (success && user != null) {
+      UserUtility.invalidateCachedUser(user.getId());
+      if (notify) {
+        notifyUserUpdated(user);
+      }
     }
     return user;
   }
@@ -1586,8 +1600,11 @@ public class ModelService extends ModelObservable {
       success = false;
       throw new IllegalOperationException("Illegal operation", e);
     }
-    if (success && user != null && notify) {
-      notifyUserUpdated(user);
+    if (success && user != null) {
+      UserUtility.invalidateCachedUser(user.getId());
+      if (notify) {
+        notifyUserUpdated(user);
+      }
     }
     return user;
   }
@@ -1651,9 +1668,27 @@ public class ModelService extends ModelObservable {
     notifyJobDeleted(jobId);
   }
 
+  /**
+   * Makes job reports be kept by a {@link JobReportStore}, which appends their
+   * changes to segment files and only writes them to storage from time to time
+   */
+  public void setJobReportStore(JobReportStore jobReportStore) {
+    this.jobReportStore = jobReportStore;
+  }
+
   public Report retrieveJobReport(String jobId, String aipId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
-    StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobId, IdUtils.getJobReportId(jobId, aipId));
+    String jobReportId = IdUtils.getJobReportId(jobId, aipId);
+    Report ret = jobReportStore != null ? jobReportStore.retrieveJobReport(jobId, jobReportId) : null;
+    if (ret == null) {
+      ret = readJobReport(jobId, jobReportId);
+    }
+    return ret;
+  }
+
+  Report readJobReport(String jobId, String jobReportId)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobId, jobReportId);
     Binary binary = storage.getBinary(jobReportPath);
     Report ret;
     InputStream inputStream = null;
@@ -1669,11 +1704,14 @@ public class ModelService extends ModelObservable {
   }
 
   public void createOrUpdateJobReport(Report jobReport) throws GenericException {
+    if (jobReportStore != null) {
+      jobReportStore.updateJobReport(jobReport);
+      return;
+    }
+
     // create job report in storage
     try {
-      String jobReportAsJson = JsonUtils.getJsonFromObject(jobReport);
-      StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobReport.getJobId(), jobReport.getId());
-      storage.updateBinaryContent(jobReportPath, new StringContentPayload(jobReportAsJson), false, true);
+      writeJobReport(jobReport);
     } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
       LOGGER.error("Error creating/updating job report in storage", e);
     }
@@ -1682,8 +1720,45 @@ public class ModelService extends ModelObservable {
     notifyJobReportCreatedOrUpdated(jobReport);
   }
 
+  /**
+   * Adds an item to the job report of an object, replacing its last item
+   * instead if requested and it was added by the same plugin.
+   * 
+   * @param newJobReport
+   *          creates the job report, already with the item, if it does not
+   *          exist
+   */
+  public void addJobReportItem(String jobId, String aipId, Report reportItem, boolean replaceLastReportItemIfTheSame,
+    Supplier<Report> newJobReport)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException {
+    if (jobReportStore != null) {
+      jobReportStore.addReportItem(jobId, IdUtils.getJobReportId(jobId, aipId), reportItem,
+        replaceLastReportItemIfTheSame, newJobReport);
+    } else {
+      Report jobReport;
+      try {
+        jobReport = retrieveJobReport(jobId, aipId);
+      } catch (NotFoundException e) {
+        jobReport = newJobReport.get();
+      }
+      JobReportStore.addReportItem(jobReport, reportItem, replaceLastReportItemIfTheSame);
+      createOrUpdateJobReport(jobReport);
+    }
+  }
+
+  void writeJobReport(Report jobReport)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    String jobReportAsJson = JsonUtils.getJsonFromObject(jobReport);
+    StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobReport.getJobId(), jobReport.getId());
+    storage.updateBinaryContent(jobReportPath, new StringContentPayload(jobReportAsJson), false, true);
+  }
+
   public void deleteJobReport(String jobId, String jobReportId)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
+    if (jobReportStore != null) {
+      // otherwise the compaction would write it again
+      jobReportStore.compact();
+    }
     StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobId, jobReportId);
 
     // remove it from storage
@@ -1694,11 +1769,24 @@ public class ModelService extends ModelObservable {
   }
 
   public void updateAIPPermissions(AIP aip, String updatedBy)
+    throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
+    boolean notify = true;
+    updateAIPPermissions(aip, updatedBy, notify);
+  }
+
+  /**
+   * @param notify
+   *          false if the index is updated by other means (e.g. in bulk, see
+   *          {@link org.roda.core.index.IndexService#updateAIPsPermissions(List, Permissions)})
+   */
+  public void updateAIPPermissions(AIP aip, String updatedBy, boolean notify)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
     aip.setUpdatedBy(updatedBy);
     aip.setUpdatedOn(new Date());
     updateAIPMetadata(aip);
-    notifyAipPermissionsUpdated(aip);
+    if (notify) {
+      notifyAipPermissionsUpdated(aip);
+    }
   }
 
   public void deleteTransferredResource(TransferredResource transferredResource) {
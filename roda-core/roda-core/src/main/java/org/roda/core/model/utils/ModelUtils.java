@@ -54,10 +54,13 @@ import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
 import org.roda.core.storage.fs.FSUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Iterables;
+
 /**
  * Model related utility class
  * 
@@ -68,6 +71,8 @@ public final class ModelUtils {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ModelUtils.class);
 
+  public static final String ZIP_ERROR_ENTRY_SUFFIX = ".error.txt";
+
   /**
    * Private empty constructor
    */
@@ -678,18 +683,23 @@ public final class ModelUtils {
   }
 
   /**
-   * @deprecated use DownloadUtils instead.
+   * Lists the zip entries of the given AIPs lazily, i.e. each AIP is only
+   * retrieved (and its entries listed) when the entries of the previous one
+   * were consumed. As the zip is already being sent when an AIP cannot be
+   * retrieved, an error entry ({@value #ZIP_ERROR_ENTRY_SUFFIX}) is added in its
+   * place.
    */
-  @Deprecated
-  public static List<ZipEntryInfo> zipIndexedAIP(List<IndexedAIP> aips)
-    throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
-    List<ZipEntryInfo> zipEntries = new ArrayList<ZipEntryInfo>();
+  public static Iterable<ZipEntryInfo> zipIndexedAIPs(Iterable<IndexedAIP> aips) {
     ModelService model = RodaCoreFactory.getModelService();
-    for (IndexedAIP aip : aips) {
-      AIP fullAIP = model.retrieveAIP(aip.getId());
-      zipEntries.addAll(aipToZipEntry(fullAIP));
-    }
-    return zipEntries;
+    return Iterables.concat(Iterables.<IndexedAIP, List<ZipEntryInfo>> transform(aips, aip -> {
+      try {
+        return aipToZipEntry(model.retrieveAIP(aip.getId()));
+      } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
+        LOGGER.error("Cannot zip AIP {}", aip.getId(), e);
+        return Arrays.asList(new ZipEntryInfo(aip.getId() + ZIP_ERROR_ENTRY_SUFFIX,
+          new StringContentPayload("Could not export AIP " + aip.getId() + ": " + e.getMessage() + "\n")));
+      }
+    }));
   }
 
   /**
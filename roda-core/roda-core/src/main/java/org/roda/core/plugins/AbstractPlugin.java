@@ -16,6 +16,8 @@ import org.roda.core.data.common.RodaConstants.PreservationAgentType;
 import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
 
 public abstract class AbstractPlugin<T extends IsRODAObject> implements Plugin<T> {
@@ -24,6 +26,7 @@ public abstract class AbstractPlugin<T extends IsRODAObject> implements Plugin<T
   private Map<String, String> parameterValues = new HashMap<String, String>();
   private String version = null;
   private JobPluginInfo jobPluginInfo;
+  private BlockContext blockContext = null;
 
   @Override
   public void injectJobPluginInfo(JobPluginInfo jobPluginInfo) {
@@ -35,6 +38,33 @@ public abstract class AbstractPlugin<T extends IsRODAObject> implements Plugin<T
     return jobPluginInfoClass.cast(jobPluginInfo);
   }
 
+  /**
+   * Starts sharing the job, agents, job reports and preservation events among
+   * all the objects of the block being executed, which must be followed by
+   * {@link #closeBlockContext()} when the block ends (see {@link BlockContext})
+   */
+  protected BlockContext openBlockContext(IndexService index, ModelService model) {
+    blockContext = new BlockContext(index, model);
+    return blockContext;
+  }
+
+  /**
+   * Saves everything kept by the block context and stops using it
+   */
+  protected void closeBlockContext() {
+    if (blockContext != null) {
+      blockContext.flush();
+      blockContext = null;
+    }
+  }
+
+  /**
+   * @return the block context being used, or {@code null} if none is open
+   */
+  public BlockContext getBlockContext() {
+    return blockContext;
+  }
+
   @Override
   public PreservationAgentType getAgentType() {
     return PreservationAgentType.SOFTWARE;
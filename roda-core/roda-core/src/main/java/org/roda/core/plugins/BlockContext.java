@@ -0,0 +1,132 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * State shared by all the objects of the block being processed by a plugin
+ * execution (see
+ * {@link AbstractPlugin#openBlockContext(IndexService, ModelService)}).
+ * <p>
+ * While a block context is open,
+ * {@link org.roda.core.plugins.plugins.PluginHelper} retrieves the job and
+ * creates the PREMIS agents only once per block, and job reports and
+ * preservation events are only written to storage and indexed when the block
+ * ends ({@link #flush()}), instead of once per object (or more, as job reports
+ * are usually updated more than once per object).
+ * </p>
+ */
+public class BlockContext {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BlockContext.class);
+
+  private final IndexService index;
+  private final ModelService model;
+
+  private Job job = null;
+  private boolean jobRetrieved = false;
+  private List<String> agentIds = null;
+  private final Map<String, Report> jobReports = new LinkedHashMap<>();
+  private final List<PreservationMetadata> events = new ArrayList<>();
+
+  public BlockContext(IndexService index, ModelService model) {
+    this.index = index;
+    this.model = model;
+  }
+
+  /**
+   * @return the job (retrieved from the index only once per block), or
+   *         {@code null} if it does not exist
+   */
+  public Job getJob(String jobId) throws GenericException {
+    if (!jobRetrieved) {
+      try {
+        job = jobId != null ? index.retrieve(Job.class, jobId) : null;
+      } catch (NotFoundException e) {
+        job = null;
+      }
+      jobRetrieved = true;
+    }
+    return job;
+  }
+
+  /**
+   * @return the ids of the agents of the preservation events, or {@code null}
+   *         if they were not yet set
+   */
+  public List<String> getAgentIds() {
+    return agentIds;
+  }
+
+  public void setAgentIds(List<String> agentIds) {
+    this.agentIds = agentIds;
+  }
+
+  /**
+   * @return the job report of an object, from the reports changed in this
+   *         block or else from the model
+   */
+  public Report retrieveJobReport(String jobId, String outcomeObjectId)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    Report jobReport = jobReports.get(outcomeObjectId);
+    if (jobReport == null) {
+      jobReport = model.retrieveJobReport(jobId, outcomeObjectId);
+    }
+    return jobReport;
+  }
+
+  /**
+   * Keeps a created or changed job report to be saved when the block ends.
+   */
+  public void updateJobReport(String outcomeObjectId, Report jobReport) {
+    jobReports.put(outcomeObjectId, jobReport);
+  }
+
+  /**
+   * Keeps a preservation event (already in storage) to be indexed when the
+   * block ends.
+   */
+  public void addEvent(PreservationMetadata event) {
+    events.add(event);
+  }
+
+  /**
+   * Saves the job reports and indexes the preservation events kept so far.
+   */
+  public void flush() {
+    for (Report jobReport : jobReports.values()) {
+      try {
+        model.createOrUpdateJobReport(jobReport);
+      } catch (GenericException e) {
+        LOGGER.error("Error while updating Job Report", e);
+      }
+    }
+    jobReports.clear();
+
+    for (PreservationMetadata event : events) {
+      model.notifyPreservationMetadataCreated(event);
+    }
+    events.clear();
+  }
+
+}
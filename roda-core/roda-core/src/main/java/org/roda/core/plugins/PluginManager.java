@@ -41,6 +41,7 @@ import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.jobs.PluginInfo;
 import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.util.ClassLoaderUtility;
+import org.roda.core.util.ToolInstancePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -294,6 +295,7 @@ public class PluginManager {
 
           LOGGER.debug("{} is not loaded or modification dates differ. Inspecting Jar...", jarFile.getFileName());
 
+          unloadPlugins(jarFile);
           List<Plugin<? extends IsRODAObject>> plugins = loadPlugin(jarFile, jarURLs);
 
           for (Plugin<? extends IsRODAObject> plugin : plugins) {
@@ -331,6 +333,32 @@ public class PluginManager {
     }
   }
 
+  /**
+   * Shuts down the plugins previously loaded from a jar file that changed, so
+   * the resources they hold (e.g. tool processes kept running) are released
+   * before the new version replaces them.
+   */
+  private void unloadPlugins(Path jarFile) {
+    JarPlugins jarPlugins;
+    synchronized (jarPluginCache) {
+      jarPlugins = jarPluginCache.remove(jarFile);
+    }
+
+    if (jarPlugins != null) {
+      for (Plugin<? extends IsRODAObject> plugin : jarPlugins.plugins) {
+        if (plugin != null) {
+          try {
+            plugin.shutdown();
+          } catch (RuntimeException e) {
+            LOGGER.error("Plugin {} failed to shutdown", plugin.getClass().getName(), e);
+          }
+        }
+      }
+      // the reloaded plugins create their tool instances again
+      ToolInstancePool.closeAll();
+    }
+  }
+
   @SuppressWarnings("rawtypes")
   private <T extends IsRODAObject> void loadInternalPlugins() {
     Reflections reflections = new Reflections(
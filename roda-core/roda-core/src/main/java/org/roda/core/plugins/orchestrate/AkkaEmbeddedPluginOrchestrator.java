@@ -20,8 +20,6 @@ import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.adapter.filter.Filter;
 import org.roda.core.data.adapter.filter.OneOfManyFilterParameter;
-import org.roda.core.data.adapter.sort.Sorter;
-import org.roda.core.data.adapter.sublist.Sublist;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -32,12 +30,12 @@ import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.common.OptionalWithCause;
-import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.Job.JOB_STATE;
 import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.Plugin;
@@ -130,23 +128,31 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
       ActorRef jobActor = (ActorRef) context;
       ActorRef jobStateInfoActor = getJobContextInformation(PluginHelper.getJobId(plugin));
       int blockSize = JobsHelper.getBlockSize();
-      IndexResult<T1> find;
-      int offset = 0;
       Plugin<T> innerPlugin;
       Class<T> modelClassToActOn = (Class<T>) ModelUtils.giveRespectiveModelClass(classToActOn);
 
       jobStateInfoActor.tell(new Messages.PluginBeforeAllExecuteIsReady<>(plugin), jobActor);
 
-      do {
-        find = RodaCoreFactory.getIndexService().find(classToActOn, filter, Sorter.NONE,
-          new Sublist(offset, blockSize));
-        innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, modelClassToActOn, (int) find.getLimit(),
-          jobActor);
-        offset += find.getLimit();
-        List<T> objects = JobsHelper.getObjectsFromIndexObjects(model, index, modelClassToActOn, find.getResults());
-        jobStateInfoActor.tell(new Messages.PluginExecuteIsReady<>(innerPlugin, objects), jobActor);
+      IterableIndexResult<T1> find = RodaCoreFactory.getIndexService().findAll(classToActOn, filter, blockSize);
+      List<T1> block = new ArrayList<>();
+      boolean sentAnyBlock = false;
+      for (T1 indexObject : find) {
+        block.add(indexObject);
+        if (block.size() == blockSize) {
+          innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, modelClassToActOn, block.size(), jobActor);
+          List<T> objects = JobsHelper.getObjectsFromIndexObjects(model, index, modelClassToActOn, block);
+          jobStateInfoActor.tell(new Messages.PluginExecuteIsReady<>(innerPlugin, objects), jobActor);
+          block = new ArrayList<>();
+          sentAnyBlock = true;
+        }
+      }
 
-      } while (find.getTotalCount() > find.getOffset() + find.getLimit());
+      // the last (possibly empty) block is always sent
+      if (!block.isEmpty() || !sentAnyBlock) {
+        innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, modelClassToActOn, block.size(), jobActor);
+        List<T> objects = JobsHelper.getObjectsFromIndexObjects(model, index, modelClassToActOn, block);
+        jobStateInfoActor.tell(new Messages.PluginExecuteIsReady<>(innerPlugin, objects), jobActor);
+      }
 
       jobStateInfoActor.tell(new Messages.JobInitEnded(), jobActor);
 
@@ -165,25 +171,37 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
       ActorRef jobActor = (ActorRef) context;
       ActorRef jobStateInfoActor = getJobContextInformation(PluginHelper.getJobId(plugin));
       int blockSize = JobsHelper.getBlockSize();
-      List<T> objects = JobsHelper.getObjectsFromUUID(model, index, objectClass, uuids);
-      Iterator<T> iter = objects.iterator();
       Plugin<T> innerPlugin;
 
+      // the first block whose objects can be retrieved is found before
+      // notifying the job state, so that a job none of whose objects can be
+      // retrieved fails right away
+      int blockStart = 0;
+      List<T> block = Collections.emptyList();
+      while (block.isEmpty() && blockStart < uuids.size()) {
+        block = getBlockOfObjects(objectClass, uuids, blockStart, blockSize);
+        blockStart += blockSize;
+      }
+
+      if (block.isEmpty() && !uuids.isEmpty()) {
+        throw new NotFoundException("Could not retrieve the " + objectClass.getSimpleName());
+      }
+
       jobStateInfoActor.tell(new Messages.PluginBeforeAllExecuteIsReady<>(plugin), jobActor);
 
-      List<T> block = new ArrayList<T>();
-      while (iter.hasNext()) {
-        if (block.size() == blockSize) {
-          innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, objectClass, blockSize, jobActor);
+      // the first (possibly empty) block is always sent
+      innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, objectClass, block.size(), jobActor);
+      jobStateInfoActor.tell(new Messages.PluginExecuteIsReady<>(innerPlugin, block), jobActor);
+
+      // the other objects are retrieved one block at a time, right before the
+      // block is sent to execution (which is asynchronous, so the next block is
+      // being retrieved while the previous ones are executing)
+      for (; blockStart < uuids.size(); blockStart += blockSize) {
+        block = getBlockOfObjects(objectClass, uuids, blockStart, blockSize);
+        if (!block.isEmpty()) {
+          innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, objectClass, block.size(), jobActor);
           jobStateInfoActor.tell(new Messages.PluginExecuteIsReady<>(innerPlugin, block), jobActor);
-          block = new ArrayList<>();
         }
-        block.add(iter.next());
-      }
-
-      if (!block.isEmpty()) {
-        innerPlugin = getNewPluginInstanceAndInitJobPluginInfo(plugin, objectClass, block.size(), jobActor);
-        jobStateInfoActor.tell(new Messages.PluginExecuteIsReady<>(innerPlugin, block), jobActor);
       }
 
       jobStateInfoActor.tell(new Messages.JobInitEnded(), jobActor);
@@ -195,6 +213,22 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
 
   }
 
+  /**
+   * @return the objects of the block of uuids starting at the given index that
+   *         could be retrieved (an empty list if none could)
+   */
+  private <T extends IsRODAObject> List<T> getBlockOfObjects(Class<T> objectClass, List<String> uuids, int blockStart,
+    int blockSize) throws GenericException {
+    List<String> blockUUIDs = uuids.subList(blockStart, Math.min(blockStart + blockSize, uuids.size()));
+    try {
+      return JobsHelper.getObjectsFromUUID(model, index, objectClass, blockUUIDs);
+    } catch (NotFoundException e) {
+      LOGGER.warn("Could not retrieve any of the {} {} of block starting at {}", blockUUIDs.size(),
+        objectClass.getSimpleName(), blockStart);
+      return Collections.emptyList();
+    }
+  }
+
   @Override
   public <T extends IsRODAObject> void runPluginOnAllObjects(Object context, Plugin<T> plugin, Class<T> objectClass) {
     try {
@@ -357,15 +391,11 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
   private List<Job> findUnfinishedJobs() {
     Filter filter = new Filter(new OneOfManyFilterParameter(RodaConstants.JOB_STATE,
       Arrays.asList(Job.JOB_STATE.STARTED.toString(), Job.JOB_STATE.CREATED.toString())));
-    Sublist sublist = new Sublist(0, RodaConstants.DEFAULT_PAGINATION_VALUE);
-    IndexResult<Job> jobs;
     List<Job> unfinishedJobs = new ArrayList<>();
     try {
-      do {
-        jobs = index.find(Job.class, filter, null, sublist);
-        unfinishedJobs.addAll(jobs.getResults());
-        sublist.setFirstElementIndex(sublist.getFirstElementIndex() + Math.toIntExact(jobs.getLimit()));
-      } while (jobs.getTotalCount() > jobs.getOffset() + jobs.getLimit());
+      for (Job job : index.findAll(Job.class, filter, RodaConstants.DEFAULT_PAGINATION_VALUE)) {
+        unfinishedJobs.add(job);
+      }
     } catch (GenericException | RequestNotValidException e) {
       LOGGER.error("Unable to find Jobs still to be cleaned", e);
     }
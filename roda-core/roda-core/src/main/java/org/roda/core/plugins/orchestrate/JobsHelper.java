@@ -60,6 +60,8 @@ public final class JobsHelper {
   private static final int DEFAULT_BLOCK_SIZE = 100;
   private static final String SYNC_TIMEOUT_PROPERTY = "core.orchestrator.sync_timeout";
   private static final int DEFAULT_SYNC_TIMEOUT = 600;
+  private static final String JOB_INFO_UPDATE_INTERVAL_PROPERTY = "core.orchestrator.job_info_update_interval_in_ms";
+  private static final int DEFAULT_JOB_INFO_UPDATE_INTERVAL = 1000;
 
   private JobsHelper() {
 
@@ -97,6 +99,20 @@ public final class JobsHelper {
     RodaCoreFactory.getRodaConfiguration().setProperty(SYNC_TIMEOUT_PROPERTY, syncTimeout);
   }
 
+  /**
+   * @return the min interval, in milliseconds, between two updates of the job
+   *         information (i.e. counters) in the model (0 or less means that
+   *         every update is persisted right away)
+   */
+  public static int getJobInfoUpdateInterval() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(JOB_INFO_UPDATE_INTERVAL_PROPERTY,
+      DEFAULT_JOB_INFO_UPDATE_INTERVAL);
+  }
+
+  public static void setJobInfoUpdateInterval(int jobInfoUpdateInterval) {
+    RodaCoreFactory.getRodaConfiguration().setProperty(JOB_INFO_UPDATE_INTERVAL_PROPERTY, jobInfoUpdateInterval);
+  }
+
   public static <T extends IsRODAObject> void updateJobState(Plugin<T> plugin, ModelService model, JOB_STATE state,
     Optional<String> stateDetails) {
     try {
@@ -8,6 +8,7 @@
 package org.roda.core.plugins.orchestrate.akka;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -29,9 +30,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.Props;
 import akka.actor.Terminated;
 import akka.routing.RoundRobinPool;
+import scala.concurrent.duration.Duration;
 
 public class AkkaJobStateInfoActor extends AkkaBaseActor {
   private static final Logger LOGGER = LoggerFactory.getLogger(AkkaJobStateInfoActor.class);
@@ -42,11 +45,19 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
   private ActorRef workersRouter;
   boolean stopping = false;
 
+  // job information updates are merged and persisted at most once per interval
+  private final long jobInfoUpdateInterval;
+  private Plugin<?> pendingJobInfoPlugin;
+  private JobPluginInfo pendingJobInfo;
+  private long lastJobInfoUpdate = 0;
+  private Cancellable jobInfoFlushTask;
+
   public AkkaJobStateInfoActor(Plugin<?> plugin, ActorRef jobCreator, int numberOfJobsWorkers) {
     super();
     jobInfo = new JobInfo();
     this.plugin = plugin;
     this.jobCreator = jobCreator;
+    this.jobInfoUpdateInterval = JobsHelper.getJobInfoUpdateInterval();
 
     LOGGER.debug("Starting AkkaJobStateInfoActor router with {} actors", numberOfJobsWorkers);
     Props workersProps = new RoundRobinPool(numberOfJobsWorkers).props(Props.create(AkkaWorkerActor.class));
@@ -64,6 +75,8 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
       handleJobSourceObjectsUpdated(msg);
     } else if (msg instanceof Messages.JobInfoUpdated) {
       handleJobInfoUpdated(msg);
+    } else if (msg instanceof Messages.JobInfoFlush) {
+      handleJobInfoFlush(msg);
     } else if (msg instanceof Messages.JobStop) {
       handleJobStop(msg);
     } else if (msg instanceof Terminated) {
@@ -97,6 +110,12 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
     } catch (NotFoundException | GenericException e) {
       LOGGER.warn("Unable to get Job from index to log its state change. Reason: {}", e.getMessage());
     }
+    // counters must be up to date before the state changes
+    flushJobInfo();
+    if (Job.isFinalState(message.getState())) {
+      // documents indexed by the job must be sent before it is marked as done
+      super.getIndex().flush();
+    }
     JobsHelper.updateJobState(p, super.getModel(), message.getState(), message.getStateDatails());
     if (Job.isFinalState(message.getState())) {
       // 20160817 hsilva: the following instruction is needed for the "sync"
@@ -139,10 +158,49 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
     jobInfo.put(message.getPlugin(), message.getJobPluginInfo());
     JobPluginInfo infoUpdated = message.getJobPluginInfo().processJobPluginInformation(message.getPlugin(), jobInfo);
     jobInfo.setObjectsCount(infoUpdated.getSourceObjectsCount());
-    JobsHelper.updateJobInformation(message.getPlugin(), super.getModel(), infoUpdated);
+
+    // only the most recent information matters, as it is computed from all the
+    // information received so far
+    pendingJobInfoPlugin = message.getPlugin();
+    pendingJobInfo = infoUpdated;
+    long elapsed = System.currentTimeMillis() - lastJobInfoUpdate;
+    if (elapsed >= jobInfoUpdateInterval) {
+      flushJobInfo();
+    } else if (jobInfoFlushTask == null) {
+      jobInfoFlushTask = getContext().system().scheduler().scheduleOnce(
+        Duration.create(jobInfoUpdateInterval - elapsed, TimeUnit.MILLISECONDS), getSelf(), new Messages.JobInfoFlush(),
+        getContext().dispatcher(), getSelf());
+    }
+    message.logProcessingEnded();
+  }
+
+  private void handleJobInfoFlush(Object msg) {
+    Messages.JobInfoFlush message = (Messages.JobInfoFlush) msg;
+    message.logProcessingStarted();
+    jobInfoFlushTask = null;
+    flushJobInfo();
     message.logProcessingEnded();
   }
 
+  private void flushJobInfo() {
+    if (jobInfoFlushTask != null) {
+      jobInfoFlushTask.cancel();
+      jobInfoFlushTask = null;
+    }
+    if (pendingJobInfo != null) {
+      JobsHelper.updateJobInformation(pendingJobInfoPlugin, super.getModel(), pendingJobInfo);
+      pendingJobInfoPlugin = null;
+      pendingJobInfo = null;
+      lastJobInfoUpdate = System.currentTimeMillis();
+    }
+  }
+
+  @Override
+  public void postStop() throws Exception {
+    flushJobInfo();
+    super.postStop();
+  }
+
   private void handleJobStop(Object msg) {
     Messages.JobStop message = (Messages.JobStop) msg;
     message.logProcessingStarted();
@@ -169,6 +169,19 @@ public class Messages {
     }
   }
 
+  public static class JobInfoFlush extends AbstractMessage {
+    private static final long serialVersionUID = 3914472236590452123L;
+
+    public JobInfoFlush() {
+      super();
+    }
+
+    @Override
+    public String toString() {
+      return "JobInfoFlush []";
+    }
+  }
+
   public static class JobStop extends AbstractMessage {
     private static final long serialVersionUID = -8806029242967727412L;
 
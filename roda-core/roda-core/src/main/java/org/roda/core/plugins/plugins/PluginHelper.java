@@ -18,6 +18,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -65,8 +66,10 @@ import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.index.IndexService;
+import org.roda.core.model.JobReportStore;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.BlockContext;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.orchestrate.IngestJobPluginInfo;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
@@ -167,10 +170,15 @@ public final class PluginHelper {
     }
     report.addReport(reportItem);
 
-    try {
-      model.createOrUpdateJobReport(report);
-    } catch (GenericException e) {
-      LOGGER.error("Error creating Job Report", e);
+    BlockContext blockContext = getBlockContext(plugin);
+    if (blockContext != null) {
+      blockContext.updateJobReport(reportPartialId, report);
+    } else {
+      try {
+        model.createOrUpdateJobReport(report);
+      } catch (GenericException e) {
+        LOGGER.error("Error creating Job Report", e);
+      }
     }
   }
 
@@ -178,9 +186,16 @@ public final class PluginHelper {
     AIPState newState) {
     try {
       String jobId = getJobId(plugin);
-      Report jobReport = model.retrieveJobReport(jobId, aipId);
-      jobReport.setOutcomeObjectState(newState);
-      model.createOrUpdateJobReport(jobReport);
+      BlockContext blockContext = getBlockContext(plugin);
+      if (blockContext != null) {
+        Report jobReport = blockContext.retrieveJobReport(jobId, aipId);
+        jobReport.setOutcomeObjectState(newState);
+        blockContext.updateJobReport(aipId, jobReport);
+      } else {
+        Report jobReport = model.retrieveJobReport(jobId, aipId);
+        jobReport.setOutcomeObjectState(newState);
+        model.createOrUpdateJobReport(jobReport);
+      }
     } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
       LOGGER.error("Error while updating Job Report", e);
     }
@@ -189,32 +204,31 @@ public final class PluginHelper {
   public static <T extends IsRODAObject> void updatePartialJobReport(Plugin<T> plugin, ModelService model,
     IndexService index, Report reportItem, boolean replaceLastReportItemIfTheSame) {
     String jobId = getJobId(plugin);
-    try {
-      Report jobReport;
-      try {
-        jobReport = model.retrieveJobReport(jobId, reportItem.getOutcomeObjectId());
-      } catch (NotFoundException e) {
-        jobReport = initPluginReportItem(plugin, reportItem.getOutcomeObjectId(), reportItem.getSourceObjectId())
-          .setSourceObjectClass(reportItem.getSourceObjectClass())
-          .setOutcomeObjectClass(reportItem.getOutcomeObjectClass());
+    BlockContext blockContext = getBlockContext(plugin);
+    Supplier<Report> newJobReport = () -> {
+      Report jobReport = initPluginReportItem(plugin, reportItem.getOutcomeObjectId(), reportItem.getSourceObjectId())
+        .setSourceObjectClass(reportItem.getSourceObjectClass())
+        .setOutcomeObjectClass(reportItem.getOutcomeObjectClass());
 
-        jobReport.setId(reportItem.getOutcomeObjectId());
-        jobReport.addReport(reportItem);
-      }
+      jobReport.setId(reportItem.getOutcomeObjectId());
+      jobReport.addReport(reportItem);
+      return jobReport;
+    };
 
-      if (!replaceLastReportItemIfTheSame) {
-        jobReport.addReport(reportItem);
-      } else {
-        List<Report> reportItems = jobReport.getReports();
-        Report report = reportItems.get(reportItems.size() - 1);
-        if (report.getPlugin().equalsIgnoreCase(reportItem.getPlugin())) {
-          reportItems.remove(reportItems.size() - 1);
-          jobReport.setStepsCompleted(jobReport.getStepsCompleted() - 1);
-          jobReport.addReport(reportItem);
+    try {
+      if (blockContext != null) {
+        Report jobReport;
+        try {
+          jobReport = blockContext.retrieveJobReport(jobId, reportItem.getOutcomeObjectId());
+        } catch (NotFoundException e) {
+          jobReport = newJobReport.get();
         }
+        JobReportStore.addReportItem(jobReport, reportItem, replaceLastReportItemIfTheSame);
+        blockContext.updateJobReport(reportItem.getOutcomeObjectId(), jobReport);
+      } else {
+        model.addJobReportItem(jobId, reportItem.getOutcomeObjectId(), reportItem, replaceLastReportItemIfTheSame,
+          newJobReport);
       }
-
-      model.createOrUpdateJobReport(jobReport);
     } catch (GenericException | RequestNotValidException | AuthorizationDeniedException e) {
       LOGGER.error("Error while updating Job Report", e);
     }
@@ -234,6 +248,14 @@ public final class PluginHelper {
     return plugin.getParameterValues().get(RodaConstants.PLUGIN_PARAMS_JOB_ID);
   }
 
+  /**
+   * @return the block context being used by the plugin (see
+   *         {@link AbstractPlugin#getBlockContext()}), or {@code null} if none
+   */
+  public static <T extends IsRODAObject> BlockContext getBlockContext(Plugin<T> plugin) {
+    return plugin instanceof AbstractPlugin ? ((AbstractPlugin<T>) plugin).getBlockContext() : null;
+  }
+
   /**
    * 20160329 hsilva: use this method only to get job information that most
    * certainly won't change in time (e.g. username, etc.)
@@ -241,7 +263,15 @@ public final class PluginHelper {
   public static <T extends IsRODAObject> Job getJob(Plugin<T> plugin, IndexService index)
     throws NotFoundException, GenericException {
     String jobId = getJobId(plugin);
-    if (jobId != null) {
+    BlockContext blockContext = getBlockContext(plugin);
+    if (blockContext != null) {
+      Job job = blockContext.getJob(jobId);
+      if (job != null) {
+        return job;
+      } else {
+        throw new NotFoundException("Job not found");
+      }
+    } else if (jobId != null) {
       return index.retrieve(Job.class, jobId);
     } else {
       throw new NotFoundException("Job not found");
@@ -266,14 +296,7 @@ public final class PluginHelper {
 
   public static <T extends IsRODAObject> String getJobUsername(Plugin<T> plugin, IndexService index)
     throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
-    String jobId = getJobId(plugin);
-    if (jobId != null) {
-      Job job = index.retrieve(Job.class, jobId);
-      return job.getUsername();
-    } else {
-      throw new NotFoundException("Job not found");
-    }
-
+    return getJob(plugin, index).getUsername();
   }
 
   public static <T extends IsRODAObject> String getJobUsername(Plugin<T> plugin, ModelService model)
@@ -556,6 +579,33 @@ public final class PluginHelper {
     String outcomeDetailExtension, boolean notify, Date startDate) throws RequestNotValidException, NotFoundException,
     GenericException, AuthorizationDeniedException, ValidationException, AlreadyExistsException {
 
+    BlockContext blockContext = getBlockContext(plugin);
+    List<String> agentIds = blockContext != null ? blockContext.getAgentIds() : null;
+    if (agentIds == null) {
+      agentIds = createPluginEventAgents(plugin, model, index);
+      if (blockContext != null) {
+        blockContext.setAgentIds(agentIds);
+      }
+    }
+
+    String id = IdUtils.createPreservationMetadataId(PreservationMetadataType.EVENT);
+    String outcomeDetailNote = (outcome == PluginState.SUCCESS) ? plugin.getPreservationEventSuccessMessage()
+      : plugin.getPreservationEventFailureMessage();
+    ContentPayload premisEvent = PremisV3Utils.createPremisEventBinary(id, startDate,
+      plugin.getPreservationEventType().toString(), plugin.getPreservationEventDescription(), sources, outcomes,
+      outcome.name(), outcomeDetailNote, outcomeDetailExtension, agentIds);
+    // within a block, events are indexed all together when it ends
+    boolean notifyEvent = notify && blockContext == null;
+    PreservationMetadata pm = model.createPreservationMetadata(PreservationMetadataType.EVENT, id, aipID,
+      representationID, filePath, fileID, premisEvent, notifyEvent);
+    if (notify && blockContext != null) {
+      blockContext.addEvent(pm);
+    }
+    return pm;
+  }
+
+  private static <T extends IsRODAObject> List<String> createPluginEventAgents(Plugin<T> plugin, ModelService model,
+    IndexService index) throws GenericException {
     List<String> agentIds = new ArrayList<>();
 
     try {
@@ -589,20 +639,7 @@ public final class PluginHelper {
         LOGGER.error("Error creating PREMIS agent", e);
       }
     }
-    String id = IdUtils.createPreservationMetadataId(PreservationMetadataType.EVENT);
-    String outcomeDetailNote = (outcome == PluginState.SUCCESS) ? plugin.getPreservationEventSuccessMessage()
-      : plugin.getPreservationEventFailureMessage();
-    ContentPayload premisEvent = PremisV3Utils.createPremisEventBinary(id, startDate,
-      plugin.getPreservationEventType().toString(), plugin.getPreservationEventDescription(), sources, outcomes,
-      outcome.name(), outcomeDetailNote, outcomeDetailExtension, agentIds);
-    model.createPreservationMetadata(PreservationMetadataType.EVENT, id, aipID, representationID, filePath, fileID,
-      premisEvent, notify);
-    PreservationMetadata pm = new PreservationMetadata();
-    pm.setId(id);
-    pm.setAipId(aipID);
-    pm.setRepresentationId(representationID);
-    pm.setType(PreservationMetadataType.EVENT);
-    return pm;
+    return agentIds;
   }
 
   public static LinkingIdentifier getLinkingIdentifier(TransferredResource transferredResource, String role) {
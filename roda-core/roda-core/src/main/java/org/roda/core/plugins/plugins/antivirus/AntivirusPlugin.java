@@ -7,8 +7,11 @@
  */
 package org.roda.core.plugins.plugins.antivirus;
 
+import java.io.Closeable;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.RodaCoreFactory;
@@ -44,6 +47,10 @@ import org.slf4j.LoggerFactory;
 public class AntivirusPlugin extends AbstractPlugin<AIP> {
   private static final Logger LOGGER = LoggerFactory.getLogger(AntivirusPlugin.class);
 
+  // shared by all instances and their clones, as some antiviruses keep
+  // connections open (see ClamdAntiVirus)
+  private static final Map<String, AntiVirus> ANTIVIRUSES = new HashMap<>();
+
   private String antiVirusClassName;
   private AntiVirus antiVirus = null;
 
@@ -54,7 +61,7 @@ public class AntivirusPlugin extends AbstractPlugin<AIP> {
 
     try {
       LOGGER.debug("Loading antivirus class {}", antiVirusClassName);
-      setAntiVirus((AntiVirus) Class.forName(antiVirusClassName).newInstance());
+      setAntiVirus(getSharedAntiVirus(antiVirusClassName));
       LOGGER.debug("Using antivirus {}", getAntiVirus().getClass().getName());
     } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
       LOGGER.warn("Error loading antivirus", e);
@@ -68,9 +75,33 @@ public class AntivirusPlugin extends AbstractPlugin<AIP> {
     LOGGER.debug("init OK");
   }
 
+  private static synchronized AntiVirus getSharedAntiVirus(String className)
+    throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+    AntiVirus antiVirus = ANTIVIRUSES.get(className);
+    if (antiVirus == null) {
+      antiVirus = (AntiVirus) Class.forName(className).newInstance();
+      ANTIVIRUSES.put(className, antiVirus);
+    }
+    return antiVirus;
+  }
+
+  /**
+   * Closes the antiviruses shared by the instances of this plugin. Only to be
+   * called when RODA shuts down, as the plugin is shut down after each
+   * execution.
+   */
+  public static synchronized void closeAntiViruses() {
+    for (AntiVirus antiVirus : ANTIVIRUSES.values()) {
+      if (antiVirus instanceof Closeable) {
+        IOUtils.closeQuietly((Closeable) antiVirus);
+      }
+    }
+    ANTIVIRUSES.clear();
+  }
+
   @Override
   public void shutdown() {
-    // do nothing
+    // the antivirus is shared, see closeAntiViruses
   }
 
   public static String getStaticName() {
@@ -0,0 +1,412 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.antivirus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.util.CommandException;
+import org.roda.core.util.ToolInstancePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AntiVirus} that uses a running ClamAV daemon (clamd), through its TCP
+ * socket, so that the signature database is loaded only once (by clamd)
+ * instead of once per AIP (by clamscan).
+ * <p>
+ * By default, the files are sent to clamd (<code>INSTREAM</code>), several at
+ * a time, over a pool of connections kept open (<code>IDSESSION</code>), so
+ * clamd does not need access to the storage. Alternatively, if clamd can read
+ * the storage, it can be asked to scan the whole directory itself
+ * (<code>MULTISCAN</code>).
+ * </p>
+ * <p>
+ * The connections are closed with {@link #close()}, which is done when RODA
+ * shuts down (see {@link AntivirusPlugin#closeAntiViruses()}).
+ * </p>
+ */
+public class ClamdAntiVirus implements AntiVirus, Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdAntiVirus.class);
+
+  public static final String MODE_INSTREAM = "instream";
+  public static final String MODE_MULTISCAN = "multiscan";
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final String REPLY_OK = "OK";
+  private static final String REPLY_FOUND = "FOUND";
+
+  private final String host;
+  private final int port;
+  private final int poolSize;
+  private final int timeoutInMillis;
+  private final boolean multiscan;
+  private final ToolInstancePool<ClamdSession> sessions;
+  private final ExecutorService executor;
+
+  public ClamdAntiVirus() {
+    this(RodaCoreFactory.getRodaConfiguration().getString("core.plugins.internal.virus_check.clamd.host", "localhost"),
+      RodaCoreFactory.getRodaConfiguration().getInt("core.plugins.internal.virus_check.clamd.port", 3310),
+      RodaCoreFactory.getRodaConfiguration().getInt("core.plugins.internal.virus_check.clamd.pool_size", 4),
+      RodaCoreFactory.getRodaConfiguration().getInt("core.plugins.internal.virus_check.clamd.timeout", 60000),
+      MODE_MULTISCAN.equals(RodaCoreFactory.getRodaConfiguration()
+        .getString("core.plugins.internal.virus_check.clamd.mode", MODE_INSTREAM)));
+  }
+
+  /**
+   * @param poolSize
+   *          the maximum number of connections to clamd, i.e. of files being
+   *          scanned at the same time.
+   * @param timeoutInMillis
+   *          how long to wait for clamd, when connecting or reading.
+   * @param multiscan
+   *          <code>true</code> to ask clamd to scan the path itself,
+   *          <code>false</code> to send it the content of each file.
+   */
+  public ClamdAntiVirus(String host, int port, int poolSize, int timeoutInMillis, boolean multiscan) {
+    this.host = host;
+    this.port = port;
+    this.poolSize = poolSize;
+    this.timeoutInMillis = timeoutInMillis;
+    this.multiscan = multiscan;
+    this.sessions = new ToolInstancePool<>("clamd", poolSize, new ToolInstancePool.Factory<ClamdSession>() {
+      @Override
+      public ClamdSession create() throws CommandException {
+        try {
+          return new ClamdSession(connect());
+        } catch (IOException e) {
+          throw new CommandException("Error connecting to clamd at " + host + ":" + port + " - " + e.getMessage(), e);
+        }
+      }
+
+      @Override
+      public boolean isAlive(ClamdSession session) {
+        return session.isOpen();
+      }
+
+      @Override
+      public void destroy(ClamdSession session) {
+        session.close();
+      }
+    });
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(poolSize, r -> {
+      Thread thread = new Thread(r, "clamd-scan-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Performs a virus check on the specified path.
+   *
+   * @param path
+   *          a path to scan.
+   *
+   * @return the results of the virus check as a {@link VirusCheckResult}.
+   *
+   * @throws RuntimeException
+   *           if clamd could not be used to scan all the files.
+   * @see AntiVirus
+   */
+  @Override
+  public VirusCheckResult checkForVirus(Path path) throws RuntimeException {
+    LOGGER.debug("Executing virus scan in {} using clamd", path);
+    try {
+      return multiscan ? multiscan(path) : instream(path);
+    } catch (IOException e) {
+      throw new RuntimeException("Error scanning " + path + " using clamd - " + e.getMessage(), e);
+    }
+  }
+
+  private VirusCheckResult instream(Path path) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(path)) {
+      files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    List<Future<String>> replies = new ArrayList<>();
+    for (Path file : files) {
+      replies.add(executor.submit(() -> scan(file)));
+    }
+
+    List<String> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        results.add(path.relativize(files.get(i)) + ": " + replies.get(i).get());
+      }
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for clamd", e);
+    } finally {
+      for (Future<String> reply : replies) {
+        reply.cancel(true);
+      }
+    }
+
+    return createResult(results, files.size());
+  }
+
+  /**
+   * Sends the file to clamd, on a connection of the pool. Connections closed
+   * by clamd while idle (see clamd <code>IdleTimeout</code>) are replaced; any
+   * other failure is not retried, as clamd may have already scanned the file.
+   */
+  private String scan(Path file) throws IOException {
+    // at most all idle connections may have been closed
+    for (int attempt = 0;; attempt++) {
+      ClamdSession session;
+      try {
+        session = sessions.borrow();
+      } catch (CommandException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+
+      boolean reused = session.hasReplied();
+      try {
+        String reply = session.instream(file);
+        if (reply.endsWith(REPLY_OK) || reply.endsWith(REPLY_FOUND)) {
+          sessions.release(session);
+        } else {
+          // e.g. size limit exceeded, after which clamd closes the connection
+          sessions.invalidate(session);
+        }
+        return reply;
+      } catch (ConnectionClosedException e) {
+        sessions.invalidate(session);
+        if (!reused || attempt >= poolSize) {
+          throw e;
+        }
+        LOGGER.debug("Idle connection to clamd was closed, retrying {} with another connection", file, e);
+      } catch (IOException | RuntimeException e) {
+        sessions.invalidate(session);
+        throw e;
+      }
+    }
+  }
+
+  private VirusCheckResult multiscan(Path path) throws IOException {
+    // clamd only replies with the infected files and the errors, or with a
+    // single OK for the whole path
+    long scanned;
+    try (Stream<Path> paths = Files.walk(path)) {
+      scanned = paths.filter(Files::isRegularFile).count();
+    }
+
+    List<String> results = new ArrayList<>();
+    // MULTISCAN cannot be sent within a session
+    try (Socket socket = connect()) {
+      sendCommand(new DataOutputStream(socket.getOutputStream()), "MULTISCAN " + path.toAbsolutePath());
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      String reply;
+      while ((reply = readReply(in)) != null) {
+        results.add(reply);
+      }
+    }
+    return createResult(results, scanned);
+  }
+
+  private static VirusCheckResult createResult(List<String> results, long scanned) {
+    StringBuilder report = new StringBuilder();
+    int infected = 0;
+    int errors = 0;
+    for (String result : results) {
+      if (result.endsWith(REPLY_FOUND)) {
+        infected++;
+        report.append(result).append("\n");
+      } else if (!result.endsWith(REPLY_OK)) {
+        errors++;
+        report.append(result).append("\n");
+      }
+    }
+
+    report.append("\n----------- SCAN SUMMARY -----------\n");
+    report.append("Scanned: ").append(scanned).append("\n");
+    report.append("Infected files: ").append(infected).append("\n");
+    if (errors > 0) {
+      report.append("Errors: ").append(errors).append("\n");
+    }
+
+    VirusCheckResult result = new VirusCheckResult();
+    result.setClean(infected == 0 && errors == 0);
+    result.setReport(report.toString());
+    return result;
+  }
+
+  @Override
+  public String getVersion() {
+    try (Socket socket = connect()) {
+      sendCommand(new DataOutputStream(socket.getOutputStream()), "VERSION");
+      String version = readReply(new BufferedInputStream(socket.getInputStream()));
+      return version != null ? version : "1.0";
+    } catch (IOException e) {
+      LOGGER.debug("Error getting clamd version", e);
+      return "1.0";
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    sessions.close();
+  }
+
+  private Socket connect() throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(host, port), timeoutInMillis);
+      socket.setSoTimeout(timeoutInMillis);
+      return socket;
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  private static void sendCommand(DataOutputStream out, String command) throws IOException {
+    out.write(("z" + command + "\0").getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  /**
+   * @return the next reply (replies end with a null character when using
+   *         "z" commands), or <code>null</code> if clamd closed the connection.
+   */
+  private static String readReply(InputStream in) throws IOException {
+    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) > 0) {
+      reply.write(b);
+    }
+    if (b < 0 && reply.size() == 0) {
+      return null;
+    }
+    return new String(reply.toByteArray(), StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * A connection to clamd on which several commands are sent, each one
+   * answered with a reply prefixed by its number.
+   */
+  private static class ClamdSession {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final InputStream in;
+    private int lastId = 0;
+
+    public ClamdSession(Socket socket) throws IOException {
+      this.socket = socket;
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      this.in = new BufferedInputStream(socket.getInputStream());
+      sendCommand(out, "IDSESSION");
+    }
+
+    public boolean isOpen() {
+      return !socket.isClosed();
+    }
+
+    /**
+     * @return <code>true</code> if clamd already answered on this connection,
+     *         which may since have been closed for being idle.
+     */
+    public boolean hasReplied() {
+      return lastId > 0;
+    }
+
+    public String instream(Path file) throws IOException {
+      lastId++;
+      try {
+        sendCommand(out, "INSTREAM");
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (InputStream content = Files.newInputStream(file)) {
+          int read;
+          while ((read = content.read(buffer)) > 0) {
+            out.writeInt(read);
+            out.write(buffer, 0, read);
+          }
+        }
+        out.writeInt(0);
+        out.flush();
+      } catch (IOException e) {
+        // clamd stops reading when the stream exceeds its size limit
+        // (StreamMaxLength), but replies before closing the connection
+        LOGGER.debug("Error sending {} to clamd, reading its reply", file, e);
+      }
+
+      String reply;
+      try {
+        reply = readReply(in);
+      } catch (SocketTimeoutException e) {
+        throw e;
+      } catch (IOException e) {
+        LOGGER.debug("Error reading reply from clamd", e);
+        reply = null;
+      }
+      if (reply == null) {
+        throw new ConnectionClosedException();
+      }
+
+      String prefix = lastId + ": ";
+      if (!reply.startsWith(prefix)) {
+        throw new IOException("Unexpected reply from clamd: " + reply);
+      }
+      return reply.substring(prefix.length());
+    }
+
+    public void close() {
+      try {
+        sendCommand(out, "END");
+      } catch (IOException e) {
+        LOGGER.debug("Error ending clamd session", e);
+      }
+      try {
+        socket.close();
+      } catch (IOException e) {
+        LOGGER.debug("Error closing connection to clamd", e);
+      }
+    }
+  }
+
+  /**
+   * clamd closed the connection without replying.
+   */
+  private static class ConnectionClosedException extends IOException {
+    private static final long serialVersionUID = -1544186183911738419L;
+
+    public ConnectionClosedException() {
+      super("clamd closed the connection");
+    }
+  }
+
+}
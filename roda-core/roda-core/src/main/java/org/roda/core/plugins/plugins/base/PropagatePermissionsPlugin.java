@@ -0,0 +1,280 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.data.adapter.filter.Filter;
+import org.roda.core.data.adapter.filter.SimpleFilterParameter;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.jobs.Report.PluginState;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
+import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets the permissions of all the descendants of AIPs, whose own permissions
+ * were already set (e.g. when the user changed them). Jobs are only created
+ * internally, so it is not listed with the other plugins.
+ * <p>
+ * Descendants are found in the index (using cursors) and processed in batches:
+ * the AIP metadata of each batch is rewritten in storage and then the index is
+ * updated for the whole batch at once (see
+ * {@link IndexService#updateAIPsPermissions(List, Permissions)}), instead of
+ * listing the files and preservation events of each AIP from storage.
+ * </p>
+ */
+public class PropagatePermissionsPlugin extends AbstractPlugin<AIP> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PropagatePermissionsPlugin.class);
+  private static final int BATCH_SIZE = 100;
+
+  private Permissions permissions = null;
+
+  private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
+  static {
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON,
+      new PluginParameter(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON, "Permissions", PluginParameterType.STRING, "",
+        true, false, "Permissions to set (in JSON)."));
+  }
+
+  @Override
+  public void init() throws PluginException {
+    // do nothing
+  }
+
+  @Override
+  public void shutdown() {
+    // do nothing
+  }
+
+  @Override
+  public String getName() {
+    return "Propagate permissions";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Sets the permissions of all the descendants of AIP(s).";
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public List<PluginParameter> getParameters() {
+    ArrayList<PluginParameter> parameters = new ArrayList<PluginParameter>();
+    parameters.add(pluginParameters.get(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON));
+    return parameters;
+  }
+
+  @Override
+  public void setParameterValues(Map<String, String> parameters) throws InvalidParameterException {
+    super.setParameterValues(parameters);
+    if (parameters != null && parameters.get(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON) != null) {
+      try {
+        permissions = JsonUtils.getObjectFromJson(parameters.get(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON),
+          Permissions.class);
+      } catch (GenericException e) {
+        throw new InvalidParameterException("Invalid permissions", e);
+      }
+    }
+  }
+
+  @Override
+  public Report execute(IndexService index, ModelService model, StorageService storage, List<AIP> list)
+    throws PluginException {
+    Report report = PluginHelper.initPluginReport(this);
+
+    try {
+      SimpleJobPluginInfo jobPluginInfo = PluginHelper.getInitialJobInformation(this, list.size());
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+
+      String username = PluginHelper.getJobUsername(this, index);
+      for (AIP aip : list) {
+        Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
+        // its own permissions were already set when the job was created
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+        try {
+          long failures = propagatePermissions(index, model, aip.getId(), username, jobPluginInfo);
+          if (failures == 0) {
+            reportItem.setPluginState(PluginState.SUCCESS)
+              .setPluginDetails("Permissions of the descendants of AIP " + aip.getId() + " were updated");
+          } else {
+            reportItem.setPluginState(PluginState.PARTIAL_SUCCESS).setPluginDetails(
+              "Permissions of the descendants of AIP " + aip.getId() + " were updated, except on " + failures
+                + " AIP(s)");
+          }
+        } catch (RODAException e) {
+          LOGGER.error("Error propagating permissions of AIP {}", aip.getId(), e);
+          reportItem.setPluginState(PluginState.FAILURE)
+            .setPluginDetails("Permissions of AIP " + aip.getId() + " were not propagated: " + e.getMessage());
+        }
+        report.addReport(reportItem);
+        PluginHelper.updatePartialJobReport(this, model, index, reportItem, true);
+      }
+
+      jobPluginInfo.finalizeInfo();
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+    } catch (RODAException e) {
+      LOGGER.error("Error propagating permissions", e);
+    }
+
+    return report;
+  }
+
+  /**
+   * @return the number of AIPs whose permissions could not be updated
+   */
+  private long propagatePermissions(IndexService index, ModelService model, String aipId, String username,
+    SimpleJobPluginInfo jobPluginInfo) throws RODAException {
+    long failures = 0;
+    List<String> batch = new ArrayList<>();
+
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aipId));
+    IterableIndexResult<IndexedAIP> descendants = index.findAll(IndexedAIP.class, filter, BATCH_SIZE);
+    try {
+      jobPluginInfo.setSourceObjectsCount(jobPluginInfo.getSourceObjectsCount() + (int) descendants.getTotalCount());
+      for (IndexedAIP descendant : descendants) {
+        batch.add(descendant.getId());
+        if (batch.size() >= BATCH_SIZE) {
+          failures += updatePermissions(index, model, batch, username, jobPluginInfo);
+          batch.clear();
+        }
+      }
+      failures += updatePermissions(index, model, batch, username, jobPluginInfo);
+    } finally {
+      IOUtils.closeQuietly(descendants);
+    }
+
+    index.commit(IndexedAIP.class, IndexedRepresentation.class, IndexedFile.class, IndexedPreservationEvent.class);
+    return failures;
+  }
+
+  private long updatePermissions(IndexService index, ModelService model, List<String> aipIds, String username,
+    SimpleJobPluginInfo jobPluginInfo) throws RODAException {
+    if (aipIds.isEmpty()) {
+      return 0;
+    }
+
+    List<String> updated = new ArrayList<>();
+    for (String aipId : aipIds) {
+      try {
+        AIP aip = model.retrieveAIP(aipId);
+        aip.setPermissions(permissions);
+        boolean notify = false;
+        model.updateAIPPermissions(aip, username, notify);
+        updated.add(aipId);
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+      } catch (RODAException | RuntimeException e) {
+        LOGGER.error("Error applying permissions to AIP {}", aipId, e);
+        jobPluginInfo.incrementObjectsProcessedWithFailure();
+      }
+    }
+
+    index.updateAIPsPermissions(updated, permissions);
+
+    try {
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+    } catch (JobException e) {
+      LOGGER.warn("Could not update permissions propagation progress", e);
+    }
+    return aipIds.size() - updated.size();
+  }
+
+  @Override
+  public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
+    throws PluginException {
+    // do nothing
+    return null;
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    // do nothing
+    return null;
+  }
+
+  @Override
+  public Plugin<AIP> cloneMe() {
+    return new PropagatePermissionsPlugin();
+  }
+
+  @Override
+  public PluginType getType() {
+    return PluginType.MISC;
+  }
+
+  @Override
+  public boolean areParameterValuesValid() {
+    return permissions != null;
+  }
+
+  // TODO FIX
+  @Override
+  public PreservationEventType getPreservationEventType() {
+    return null;
+  }
+
+  @Override
+  public String getPreservationEventDescription() {
+    return "Propagated permissions to descendant AIPs";
+  }
+
+  @Override
+  public String getPreservationEventSuccessMessage() {
+    return "Permissions were propagated successfully";
+  }
+
+  @Override
+  public String getPreservationEventFailureMessage() {
+    return "Permissions were not propagated";
+  }
+
+  @Override
+  public List<String> getCategories() {
+    return Arrays.asList(RodaConstants.PLUGIN_CATEGORY_NOT_LISTABLE);
+  }
+
+  @Override
+  public List<Class<AIP>> getObjectClasses() {
+    return Arrays.asList(AIP.class);
+  }
+
+}
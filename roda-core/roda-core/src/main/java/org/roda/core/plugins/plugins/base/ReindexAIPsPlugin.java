@@ -0,0 +1,193 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.Void;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.jobs.Report.PluginState;
+import org.roda.core.index.AIPReindexer;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
+import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reindexes all AIPs in parallel, without clearing the index first, and
+ * optionally resuming an interrupted reindex (see {@link AIPReindexer}).
+ */
+public class ReindexAIPsPlugin extends AbstractPlugin<Void> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReindexAIPsPlugin.class);
+  private boolean resume = false;
+
+  private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
+  static {
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_RESUME,
+      new PluginParameter(RodaConstants.PLUGIN_PARAMS_RESUME, "Resume", PluginParameterType.BOOLEAN, "false", false,
+        false, "Resume an interrupted reindex, skipping the AIPs that were already reindexed."));
+  }
+
+  @Override
+  public void init() throws PluginException {
+    // do nothing
+  }
+
+  @Override
+  public void shutdown() {
+    // do nothing
+  }
+
+  @Override
+  public String getName() {
+    return "Reindex all AIPs";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Recreates the index of all AIPs (and their representations, files and preservation metadata) from data "
+      + "existing in the storage, keeping the index available while doing it.";
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public List<PluginParameter> getParameters() {
+    ArrayList<PluginParameter> parameters = new ArrayList<PluginParameter>();
+    parameters.add(pluginParameters.get(RodaConstants.PLUGIN_PARAMS_RESUME));
+    return parameters;
+  }
+
+  @Override
+  public void setParameterValues(Map<String, String> parameters) throws InvalidParameterException {
+    super.setParameterValues(parameters);
+    if (parameters != null && parameters.get(RodaConstants.PLUGIN_PARAMS_RESUME) != null) {
+      resume = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_RESUME));
+    }
+  }
+
+  @Override
+  public Report execute(IndexService index, ModelService model, StorageService storage, List<Void> list)
+    throws PluginException {
+    Report pluginReport = PluginHelper.initPluginReport(this);
+
+    try {
+      SimpleJobPluginInfo jobPluginInfo = PluginHelper.getInitialJobInformation(this, 0);
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+
+      AIPReindexer.Progress progress = index.reindexAIPs(resume, p -> updateJobInformation(jobPluginInfo, p));
+
+      if (progress.isComplete()) {
+        pluginReport.setPluginState(PluginState.SUCCESS).setPluginDetails("AIPs reindexed: " + progress);
+      } else {
+        pluginReport.setPluginState(PluginState.PARTIAL_SUCCESS).setPluginDetails("AIPs reindexed: " + progress
+          + " (incomplete, outdated documents were kept; resume the reindex to retry the AIPs that failed)");
+      }
+      jobPluginInfo.finalizeInfo();
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+    } catch (RODAException e) {
+      LOGGER.error("Error reindexing AIPs", e);
+      pluginReport.setPluginState(PluginState.FAILURE).setPluginDetails("Reindex did not execute successfully");
+    }
+
+    return pluginReport;
+  }
+
+  private void updateJobInformation(SimpleJobPluginInfo jobPluginInfo, AIPReindexer.Progress progress) {
+    int success = (int) (progress.getReindexedCount() + progress.getSkippedCount());
+    int failure = (int) progress.getFailedCount();
+    jobPluginInfo.setSourceObjectsCount(success + failure);
+    jobPluginInfo.setSourceObjectsProcessedWithSuccess(success).setSourceObjectsProcessedWithFailure(failure);
+    try {
+      PluginHelper.updateJobInformation(this, jobPluginInfo);
+    } catch (JobException e) {
+      LOGGER.warn("Could not update reindex progress", e);
+    }
+  }
+
+  @Override
+  public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
+    throws PluginException {
+    // do nothing
+    return null;
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    // do nothing, indexes are optimized by the reindex
+    return null;
+  }
+
+  @Override
+  public Plugin<Void> cloneMe() {
+    return new ReindexAIPsPlugin();
+  }
+
+  @Override
+  public PluginType getType() {
+    return PluginType.MISC;
+  }
+
+  @Override
+  public boolean areParameterValuesValid() {
+    return true;
+  }
+
+  // TODO FIX
+  @Override
+  public PreservationEventType getPreservationEventType() {
+    return null;
+  }
+
+  @Override
+  public String getPreservationEventDescription() {
+    return "Reindex all AIPs";
+  }
+
+  @Override
+  public String getPreservationEventSuccessMessage() {
+    return "All AIPs were reindexed with success";
+  }
+
+  @Override
+  public String getPreservationEventFailureMessage() {
+    return "An error occured while reindexing all AIPs";
+  }
+
+  @Override
+  public List<String> getCategories() {
+    return Arrays.asList(RodaConstants.PLUGIN_CATEGORY_MANAGEMENT);
+  }
+
+  @Override
+  public List<Class<Void>> getObjectClasses() {
+    return Arrays.asList(Void.class);
+  }
+
+}
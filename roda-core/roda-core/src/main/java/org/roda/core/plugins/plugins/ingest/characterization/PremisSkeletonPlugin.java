@@ -93,6 +93,7 @@ public class PremisSkeletonPlugin extends AbstractPlugin<AIP> {
   public Report execute(IndexService index, ModelService model, StorageService storage, List<AIP> list)
     throws PluginException {
     Report report = PluginHelper.initPluginReport(this);
+    openBlockContext(index, model);
 
     try {
       SimpleJobPluginInfo jobPluginInfo = PluginHelper.getInitialJobInformation(this, list.size());
@@ -145,6 +146,8 @@ public class PremisSkeletonPlugin extends AbstractPlugin<AIP> {
       PluginHelper.updateJobInformation(this, jobPluginInfo);
     } catch (JobException e) {
       throw new PluginException("A job exception has occurred", e);
+    } finally {
+      closeBlockContext();
     }
 
     return report;
@@ -143,13 +143,13 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
 
     LOGGER.debug("Creating risk incidences");
     Report pluginReport = PluginHelper.initPluginReport(this);
+    openBlockContext(index, model);
 
     try {
       SimpleJobPluginInfo jobPluginInfo = PluginHelper.getInitialJobInformation(this, list.size());
       PluginHelper.updateJobInformation(this, jobPluginInfo);
 
-      String jobId = PluginHelper.getJobId(this);
-      Job job = index.retrieve(Job.class, jobId);
+      Job job = PluginHelper.getJob(this, index);
 
       if (!list.isEmpty() && riskIds != null) {
         List<String> risks = Arrays.asList(riskIds.split(","));
@@ -175,6 +175,8 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
       throw new PluginException("A job exception has occurred", e);
     } catch (NotFoundException | GenericException e) {
       LOGGER.error("Could not get job information when creating an incidence");
+    } finally {
+      closeBlockContext();
     }
 
     return pluginReport;
@@ -0,0 +1,187 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.util.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed store of binary version contents, which avoids keeping
+ * several copies of the same content in the history of the
+ * {@link FileStorageService}.
+ * <p>
+ * Each distinct content is kept once as a blob, named after its SHA-256
+ * digest, and every version file is a hard link to the blob with its content.
+ * The number of versions referencing a blob is therefore the number of links
+ * of the blob file minus one, and blobs with no other link are unreferenced.
+ * On file systems without hard links, version files fall back to copies of the
+ * blob (i.e. there is no deduplication but versions keep working).
+ * </p>
+ */
+class BinaryVersionBlobStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinaryVersionBlobStore.class);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String TEMP_PREFIX = "tmp-";
+  private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+
+  private final Path blobsPath;
+
+  public BinaryVersionBlobStore(Path blobsPath) {
+    this.blobsPath = blobsPath;
+  }
+
+  /**
+   * Stores the content of a file as a version file, linking the version to the
+   * blob with the same content (which is added to the store if needed).
+   *
+   * @param source
+   *          the file whose content will be stored
+   * @param version
+   *          the version file to create (must not exist)
+   */
+  public void store(Path source, Path version) throws IOException, GenericException {
+    // the content is digested while copied, so the blob is named after the
+    // content it actually has and the source is read only once
+    Path temp = Files.createTempFile(blobsPath, TEMP_PREFIX, null);
+    try {
+      String digest;
+      try (InputStream in = Files.newInputStream(source); OutputStream out = Files.newOutputStream(temp)) {
+        digest = FileUtility.copyAndChecksums(in, out, Collections.singletonList(DIGEST_ALGORITHM))
+          .get(DIGEST_ALGORITHM);
+      } catch (NoSuchAlgorithmException e) {
+        throw new GenericException("Could not compute the digest of " + source, e);
+      }
+
+      Path blob = getBlobPath(digest);
+      Files.createDirectories(blob.getParent());
+      publish(temp, blob);
+      link(blob, version);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Replaces a version file that is not yet in the store by a link to the blob
+   * with its content (the version file itself becomes the blob if there is no
+   * blob with the same content).
+   *
+   * @return true if the version content was already stored (i.e. the version
+   *         file no longer takes space of its own)
+   */
+  public boolean add(Path version) throws IOException, GenericException {
+    boolean deduplicated = false;
+    Path blob = getBlobPath(FSUtils.computeContentDigest(version, DIGEST_ALGORITHM));
+    Files.createDirectories(blob.getParent());
+
+    try {
+      Files.createLink(blob, version);
+    } catch (FileAlreadyExistsException e) {
+      Path temp = version.resolveSibling(TEMP_PREFIX + version.getFileName());
+      link(blob, temp);
+      Files.move(temp, version, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      deduplicated = true;
+    }
+    return deduplicated;
+  }
+
+  /**
+   * @return true if the file is one of the links of a blob
+   */
+  public boolean isStored(Path version) throws IOException {
+    return getLinkCount(version) > 1;
+  }
+
+  /**
+   * Deletes the blobs that are no longer referenced by any version (and
+   * leftovers of interrupted additions).
+   *
+   * @return the number of deleted blobs
+   */
+  public long deleteUnreferencedBlobs() throws IOException {
+    AtomicLong deleted = new AtomicLong(0);
+    if (Files.exists(blobsPath)) {
+      Files.walkFileTree(blobsPath, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (file.getFileName().toString().startsWith(TEMP_PREFIX) || getLinkCount(file) == 1) {
+            Files.delete(file);
+            deleted.incrementAndGet();
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+    return deleted.get();
+  }
+
+  /**
+   * Adds a blob without ever replacing an existing one, which has the same
+   * content but may already be linked to versions.
+   */
+  private void publish(Path temp, Path blob) throws IOException {
+    try {
+      Files.createLink(blob, temp);
+    } catch (FileAlreadyExistsException e) {
+      // already stored or added concurrently with the same content
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      LOGGER.debug("Could not link {} to {}, moving it instead", blob, temp, e);
+      try {
+        Files.move(temp, blob);
+      } catch (FileAlreadyExistsException e2) {
+        // added concurrently with the same content
+      }
+    }
+  }
+
+  private void link(Path blob, Path version) throws IOException {
+    try {
+      Files.createLink(version, blob);
+    } catch (FileAlreadyExistsException | NoSuchFileException e) {
+      throw e;
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      LOGGER.debug("Could not link {} to {}, copying it instead", version, blob, e);
+      Files.copy(blob, version);
+    }
+  }
+
+  private Path getBlobPath(String digest) {
+    String hex = digest.toLowerCase();
+    return blobsPath.resolve(hex.substring(0, 2)).resolve(hex);
+  }
+
+  private static int getLinkCount(Path path) throws IOException {
+    try {
+      return (Integer) Files.getAttribute(path, LINK_COUNT_ATTRIBUTE);
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      // without link counts, references cannot be known
+      return Integer.MAX_VALUE;
+    }
+  }
+
+}
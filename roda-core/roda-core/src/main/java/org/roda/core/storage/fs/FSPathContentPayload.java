@@ -9,10 +9,15 @@ package org.roda.core.storage.fs;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import org.roda.core.storage.ContentPayload;
 
@@ -44,4 +49,28 @@ public class FSPathContentPayload implements ContentPayload {
     return path.toUri();
   }
 
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Writes part of the content to an output stream, reading it from the given
+   * position (and letting the file channel transfer it directly to the output
+   * when possible).
+   */
+  public void transferTo(OutputStream out, long position, long count) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      WritableByteChannel target = Channels.newChannel(out);
+      long end = Math.min(position + count, channel.size());
+      long current = position;
+      while (current < end) {
+        long transferred = channel.transferTo(current, end - current, target);
+        if (transferred <= 0) {
+          break;
+        }
+        current += transferred;
+      }
+    }
+  }
+
 }
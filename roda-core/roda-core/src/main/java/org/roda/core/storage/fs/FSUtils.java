@@ -8,8 +8,6 @@
 package org.roda.core.storage.fs;
 
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
@@ -22,14 +20,15 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.UUID;
 import java.util.stream.Stream;
@@ -54,6 +53,7 @@ import org.roda.core.storage.DefaultContainer;
 import org.roda.core.storage.DefaultDirectory;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
+import org.roda.core.util.FileUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -689,43 +689,12 @@ public final class FSUtils {
   }
 
   public static String computeContentDigest(Path path, String algorithm) throws GenericException {
-    try (FileChannel fc = FileChannel.open(path)) {
-      final int bufferSize = 1073741824;
-      final long size = fc.size();
-      final MessageDigest hash = MessageDigest.getInstance(algorithm);
-      long position = 0;
-      while (position < size) {
-        final MappedByteBuffer data = fc.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, bufferSize));
-        if (!data.isLoaded()) {
-          data.load();
-        }
-        hash.update(data);
-        position += data.limit();
-        if (position >= size) {
-          break;
-        }
-      }
-
-      byte[] mdbytes = hash.digest();
-      StringBuilder hexString = new StringBuilder();
-
-      for (int i = 0; i < mdbytes.length; i++) {
-        String hexInt = Integer.toHexString((0xFF & mdbytes[i]));
-        if (hexInt.length() == 1) {
-          hexString.append('0');
-        }
-        hexString.append(hexInt);
-      }
-
-      return hexString.toString();
-
-    } catch (NoSuchAlgorithmException | IOException e) {
-      throw new GenericException("Cannot compute content digest for " + path + " using algorithm " + algorithm);
-    }
+    return generateContentDigest(path, algorithm).get(algorithm);
   }
 
   /**
-   * Method for computing one or more file content digests (a.k.a. hash's)
+   * Method for computing one or more file content digests (a.k.a. hash's),
+   * reading the file only once
    * 
    * @param path
    *          file which digests will be computed
@@ -734,9 +703,14 @@ public final class FSUtils {
   public static Map<String, String> generateContentDigest(Path path, String... algorithms) throws GenericException {
     Map<String, String> digests = new HashMap<String, String>();
 
-    for (String algorithm : algorithms) {
-      String digest = computeContentDigest(path, algorithm);
-      digests.put(algorithm, digest);
+    try {
+      for (Entry<String, String> checksum : FileUtility.checksums(path, Arrays.asList(algorithms)).entrySet()) {
+        // content digests are kept in lower case
+        digests.put(checksum.getKey(), checksum.getValue().toLowerCase());
+      }
+    } catch (NoSuchAlgorithmException | IOException e) {
+      throw new GenericException(
+        "Cannot compute content digest for " + path + " using algorithms " + Arrays.toString(algorithms), e);
     }
 
     return digests;
@@ -10,14 +10,18 @@ package org.roda.core.storage.fs;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
@@ -65,13 +69,16 @@ public class FileStorageService implements StorageService {
   public static final String HISTORY_SUFFIX = "-history";
   private static final String HISTORY_DATA_FOLDER = "data";
   private static final String HISTORY_METADATA_FOLDER = "metadata";
+  private static final String HISTORY_BLOBS_FOLDER = "blobs";
 
   private final Path rodaDataPath;
   private final Path basePath;
   private final Path historyPath;
   private final Path historyDataPath;
   private final Path historyMetadataPath;
+  private final Path historyBlobsPath;
   private final Path trashPath;
+  private final BinaryVersionBlobStore blobStore;
 
   public FileStorageService(Path basePath, String trashDirName) throws GenericException {
     this.basePath = basePath;
@@ -79,15 +86,27 @@ public class FileStorageService implements StorageService {
     historyPath = rodaDataPath.resolve(basePath.getFileName() + HISTORY_SUFFIX);
     historyDataPath = historyPath.resolve(HISTORY_DATA_FOLDER);
     historyMetadataPath = historyPath.resolve(HISTORY_METADATA_FOLDER);
+    historyBlobsPath = historyPath.resolve(HISTORY_BLOBS_FOLDER);
     trashPath = rodaDataPath.resolve(trashDirName == null ? "trash" : trashDirName);
+    blobStore = new BinaryVersionBlobStore(historyBlobsPath);
 
     initialize(basePath);
     initialize(historyPath);
     initialize(historyDataPath);
     initialize(historyMetadataPath);
+    initialize(historyBlobsPath);
     FSUtils.deletePathQuietly(trashPath);
     initialize(trashPath);
 
+    // versions deleted (i.e. moved to trash) are only gone after the trash
+    // cleanup, so that is when their contents can be released
+    try {
+      long deletedBlobs = blobStore.deleteUnreferencedBlobs();
+      LOGGER.debug("Deleted {} unreferenced binary version blobs", deletedBlobs);
+    } catch (IOException e) {
+      LOGGER.warn("Could not delete unreferenced binary version blobs", e);
+    }
+
   }
 
   public FileStorageService(Path basePath) throws GenericException {
@@ -596,8 +615,8 @@ public class FileStorageService implements StorageService {
         Files.createDirectories(parent);
       }
 
-      // writing file
-      Files.copy(binPath, dataPath);
+      // writing file (as a link to the stored content)
+      blobStore.store(binPath, dataPath);
 
       // Creating metadata
       DefaultBinaryVersion b = new DefaultBinaryVersion();
@@ -633,7 +652,8 @@ public class FileStorageService implements StorageService {
     }
 
     try {
-      // writing file
+      // writing file (a copy, as the version file is shared with other
+      // versions with the same content and must not be changed)
       Files.copy(binVersionPath, binPath, StandardCopyOption.REPLACE_EXISTING);
     } catch (IOException e) {
       throw new GenericException("Could not create binary", e);
@@ -655,6 +675,36 @@ public class FileStorageService implements StorageService {
     FSUtils.deleteEmptyAncestorsQuietly(metadataPath, historyMetadataPath);
   }
 
+  /**
+   * Moves the binary versions created before versions were stored by content
+   * (i.e. full copies) to the content-addressed store, so that versions with
+   * the same content share the same file.
+   *
+   * @return the number of versions whose content was already stored
+   */
+  public long deduplicateBinaryVersions() throws GenericException {
+    AtomicLong deduplicated = new AtomicLong(0);
+    try {
+      Files.walkFileTree(historyDataPath, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          try {
+            if (!blobStore.isStored(file) && blobStore.add(file)) {
+              deduplicated.incrementAndGet();
+            }
+          } catch (IOException | GenericException e) {
+            LOGGER.warn("Could not deduplicate binary version {}", file, e);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new GenericException("Error deduplicating binary versions", e);
+    }
+    LOGGER.info("Deduplicated {} binary versions", deduplicated.get());
+    return deduplicated.get();
+  }
+
   private void deleteAllBinaryVersionsUnder(StoragePath storagePath) {
     Path resourcePath = FSUtils.getEntityPath(basePath, storagePath);
 
@@ -59,7 +59,7 @@ public class ExifToolPlugin extends AbstractPlugin<AIP> {
 
   @Override
   public void shutdown() {
-    // do nothing
+    // the tool instances are shared, see ToolInstancePool.closeAll
   }
 
   @Override
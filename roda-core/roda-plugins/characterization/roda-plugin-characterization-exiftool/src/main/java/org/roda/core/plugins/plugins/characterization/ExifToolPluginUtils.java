@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -26,15 +27,24 @@ import org.roda.core.plugins.PluginException;
 import org.roda.core.storage.Binary;
 import org.roda.core.util.CommandException;
 import org.roda.core.util.CommandUtility;
+import org.roda.core.util.StayOpenProcess;
+import org.roda.core.util.ToolInstancePool;
 
 public class ExifToolPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(ExifToolPluginUtils.class);
 
+  private static final String STAY_OPEN_READY = "{ready}";
+  private static final String STAY_OPEN_EXECUTE = "-execute";
+  // written to the standard error after each request, so its errors can be
+  // told apart from those of the next one
+  private static final List<String> STAY_OPEN_ECHO_READY = Arrays.asList("-echo4", STAY_OPEN_READY);
+  private static final List<String> STAY_OPEN_EXIT = Arrays.asList("-stay_open", "False");
+
+  private static ToolInstancePool<StayOpenProcess> stayOpenPool = null;
+
   public static Path inspect(File f) throws PluginException {
     try {
-      List<String> command = getCommand();
-      command.add(f.getAbsolutePath());
-      String exifToolOutput = CommandUtility.execute(command);
+      String exifToolOutput = execute(Arrays.asList("-X", f.getAbsolutePath()));
       Path p = Files.createTempFile("exiftool", ".xml");
       Files.write(p, exifToolOutput.getBytes());
       return p;
@@ -45,7 +55,7 @@ public class ExifToolPluginUtils {
     }
   }
 
-  private static List<String> getCommand() {
+  private static String getExifToolBinary() {
     Path rodaHome = RodaCoreFactory.getRodaHomePath();
     Path exifToolHome = rodaHome
       .resolve(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "exiftool", "home"));
@@ -53,36 +63,49 @@ public class ExifToolPluginUtils {
     File EXIFTOOL_DIRECTORY = exifToolHome.toFile();
 
     String osName = System.getProperty("os.name");
-    List<String> command;
     if (osName.startsWith("Windows")) {
-      command = new ArrayList<String>(
-        Arrays.asList(EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool.exe", "-X"));
+      return EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool.exe";
     } else {
-      command = new ArrayList<String>(
-        Arrays.asList(EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool", "-X"));
+      return EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool";
     }
-    return command;
   }
 
-  private static List<String> getBatchCommand(Path sourceDirectory, Path exifToolOutputDirectory) {
-    Path rodaHome = RodaCoreFactory.getRodaHomePath();
-    Path exifToolHome = rodaHome
-      .resolve(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "exiftool", "home"));
-
-    File EXIFTOOL_DIRECTORY = exifToolHome.toFile();
-
-    String osName = System.getProperty("os.name");
-    List<String> command;
-    if (osName.startsWith("Windows")) {
-      command = new ArrayList<String>(Arrays.asList(
-        EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool.exe", "-X", "-w",
-        exifToolOutputDirectory.toFile().getAbsolutePath() + "/%f.%e.xml", sourceDirectory.toFile().getAbsolutePath()));
+  /**
+   * Executes ExifTool with the given arguments, on one of the ExifTool
+   * processes kept running in <code>-stay_open</code> mode or, if the pool is
+   * disabled (<code>core.tools.exiftool.pool_size = 0</code>), on a new
+   * process.
+   */
+  private static String execute(List<String> args) throws CommandException {
+    ToolInstancePool<StayOpenProcess> pool = getStayOpenPool();
+    if (pool != null) {
+      long timeout = TimeUnit.SECONDS
+        .toMillis(RodaCoreFactory.getRodaConfigurationAsInt(600, "core", "tools", "exiftool", "timeout"));
+      List<String> request = new ArrayList<>(args);
+      request.addAll(STAY_OPEN_ECHO_READY);
+      request.add(STAY_OPEN_EXECUTE);
+      return StayOpenProcess.execute(pool, request, timeout);
     } else {
-      command = new ArrayList<String>(Arrays.asList(EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool",
-        "-X", "-w", exifToolOutputDirectory.toFile().getAbsolutePath() + "/%f.%e.xml",
-        sourceDirectory.toFile().getAbsolutePath()));
+      List<String> command = new ArrayList<>();
+      command.add(getExifToolBinary());
+      command.addAll(args);
+      return CommandUtility.execute(command);
+    }
+  }
+
+  private static synchronized ToolInstancePool<StayOpenProcess> getStayOpenPool() {
+    // closed when RODA shuts down or plugins are reloaded
+    if (stayOpenPool == null || stayOpenPool.isClosed()) {
+      stayOpenPool = null;
+      int poolSize = RodaCoreFactory.getRodaConfigurationAsInt(2, "core", "tools", "exiftool", "pool_size");
+      if (poolSize > 0) {
+        LOGGER.debug("Using up to {} ExifTool processes in -stay_open mode", poolSize);
+        stayOpenPool = StayOpenProcess.createPool("ExifTool", poolSize,
+          Arrays.asList(getExifToolBinary(), "-stay_open", "True", "-@", "-"), STAY_OPEN_READY, STAY_OPEN_READY,
+          STAY_OPEN_EXIT);
+      }
     }
-    return command;
+    return stayOpenPool;
   }
 
   public static Path runExifTool(org.roda.core.data.v2.ip.File file, Binary binary, Map<String, String> parameterValues)
@@ -97,9 +120,8 @@ public class ExifToolPluginUtils {
   }
 
   public static String runExifToolOnPath(Path sourceDirectory, Path exifToolOutputDirectory) throws CommandException {
-    List<String> command = getBatchCommand(sourceDirectory, exifToolOutputDirectory);
-    String exifToolOutput = CommandUtility.execute(command);
-    return exifToolOutput;
+    return execute(Arrays.asList("-X", "-w", exifToolOutputDirectory.toFile().getAbsolutePath() + "/%f.%e.xml",
+      sourceDirectory.toFile().getAbsolutePath()));
   }
 
 }
@@ -59,7 +59,7 @@ public class FITSPlugin extends AbstractPlugin<AIP> {
 
   @Override
   public void shutdown() {
-    // do nothing
+    // the tool instances are shared, see ToolInstancePool.closeAll
   }
 
   @Override
@@ -11,12 +11,15 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 import org.jdom.JDOMException;
@@ -26,22 +29,32 @@ import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.storage.Binary;
 import org.roda.core.util.CommandException;
 import org.roda.core.util.CommandUtility;
+import org.roda.core.util.ToolInstancePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.harvard.hul.ois.fits.Fits;
 import edu.harvard.hul.ois.fits.FitsOutput;
 import edu.harvard.hul.ois.fits.exceptions.FitsException;
 
 public class FITSPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(FITSPluginUtils.class);
 
+  private static ToolInstancePool<Fits> fitsPool = null;
+
   public static Path inspect(File f) throws FitsException {
     try {
-      List<String> command = getCommand();
-      command.add(f.getAbsolutePath());
-      String fitsOutput = CommandUtility.execute(command);
-      fitsOutput = fitsOutput.substring(fitsOutput.indexOf("<?xml"));
-      FitsOutput output = new FitsOutput(fitsOutput);
+      FitsOutput output;
+      ToolInstancePool<Fits> pool = getFitsPool();
+      if (pool != null) {
+        output = examine(pool, f);
+      } else {
+        List<String> command = getCommand();
+        command.add(f.getAbsolutePath());
+        String fitsOutput = CommandUtility.execute(command);
+        fitsOutput = fitsOutput.substring(fitsOutput.indexOf("<?xml"));
+        output = new FitsOutput(fitsOutput);
+      }
       Path p = Files.createTempFile("fits", ".xml");
 
       new XMLOutputter().output(output.getFitsXml(), new FileOutputStream(p.toFile()));
@@ -55,6 +68,61 @@ public class FITSPluginUtils {
     }
   }
 
+  private static FitsOutput examine(ToolInstancePool<Fits> pool, File f) throws CommandException, FitsException {
+    Fits fits = pool.borrow();
+    try {
+      FitsOutput output = fits.examine(f);
+      pool.release(fits);
+      return output;
+    } catch (FitsException | RuntimeException e) {
+      pool.invalidate(fits);
+      throw e;
+    }
+  }
+
+  /**
+   * FITS, and the tools it wraps, can be initialized once per instance of the
+   * pool (bounded by <code>core.tools.fits.pool_size</code>) instead of
+   * starting <code>fits.sh</code> for each file or representation. The pool
+   * is disabled by default (<code>pool_size = 0</code>).
+   */
+  private static synchronized ToolInstancePool<Fits> getFitsPool() {
+    // closed when RODA shuts down or plugins are reloaded
+    if (fitsPool == null || fitsPool.isClosed()) {
+      fitsPool = null;
+      int poolSize = RodaCoreFactory.getRodaConfigurationAsInt(0, "core", "tools", "fits", "pool_size");
+      if (poolSize > 0) {
+        final String fitsHome = getFitsHome().toFile().getAbsolutePath();
+        fitsPool = new ToolInstancePool<>("FITS", poolSize, new ToolInstancePool.Factory<Fits>() {
+          @Override
+          public Fits create() throws CommandException {
+            try {
+              return new Fits(fitsHome);
+            } catch (FitsException e) {
+              throw new CommandException("Error initializing FITS", e);
+            }
+          }
+
+          @Override
+          public boolean isAlive(Fits instance) {
+            return true;
+          }
+
+          @Override
+          public void destroy(Fits instance) {
+            // nothing to release
+          }
+        });
+      }
+    }
+    return fitsPool;
+  }
+
+  private static Path getFitsHome() {
+    Path rodaHome = RodaCoreFactory.getRodaHomePath();
+    return rodaHome.resolve(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "fits", "home"));
+  }
+
   private static List<String> getCommand() {
     Path rodaHome = RodaCoreFactory.getRodaHomePath();
     Path fitsHome = rodaHome.resolve(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "fits", "home"));
@@ -105,10 +173,29 @@ public class FITSPluginUtils {
 
   public static String runFITSOnPath(Path sourceDirectory, Path outputDirectory) throws RODAException {
     try {
-      List<String> command = getBatchCommand(sourceDirectory, outputDirectory);
-      String fitsOutput = CommandUtility.execute(command);
-      return fitsOutput;
-    } catch (CommandException e) {
+      ToolInstancePool<Fits> pool = getFitsPool();
+      if (pool != null) {
+        // same output as fits.sh -i <directory>: one <file name>.fits.xml per
+        // file directly under the directory, as without -r sub-directories are
+        // not examined (and their files could have the same names)
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(sourceDirectory)) {
+          files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+          FitsOutput output = examine(pool, file.toFile());
+          try (OutputStream out = Files
+            .newOutputStream(outputDirectory.resolve(file.getFileName().toString() + ".fits.xml"))) {
+            new XMLOutputter().output(output.getFitsXml(), out);
+          }
+        }
+        return "";
+      } else {
+        List<String> command = getBatchCommand(sourceDirectory, outputDirectory);
+        String fitsOutput = CommandUtility.execute(command);
+        return fitsOutput;
+      }
+    } catch (CommandException | FitsException | IOException e) {
       throw new RODAException("Error while executing FITS command");
     }
   }
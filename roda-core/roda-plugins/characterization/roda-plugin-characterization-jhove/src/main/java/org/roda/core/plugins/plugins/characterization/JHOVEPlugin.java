@@ -55,7 +55,7 @@ public class JHOVEPlugin extends AbstractPlugin<AIP> {
 
   @Override
   public void shutdown() {
-    // do nothing
+    // the tool instances are shared, see ToolInstancePool.closeAll
   }
 
   @Override
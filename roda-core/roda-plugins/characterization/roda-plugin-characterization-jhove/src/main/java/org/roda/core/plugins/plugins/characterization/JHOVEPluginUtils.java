@@ -10,6 +10,7 @@ package org.roda.core.plugins.plugins.characterization;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Calendar;
@@ -18,18 +19,23 @@ import java.util.Map;
 import org.apache.commons.io.IOUtils;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.storage.Binary;
+import org.roda.core.util.CommandException;
 import org.roda.core.util.FileUtility;
+import org.roda.core.util.ToolInstancePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import edu.harvard.hul.ois.jhove.App;
 import edu.harvard.hul.ois.jhove.JhoveBase;
+import edu.harvard.hul.ois.jhove.JhoveException;
 import edu.harvard.hul.ois.jhove.Module;
 import edu.harvard.hul.ois.jhove.OutputHandler;
 
 public class JHOVEPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(JHOVEPluginUtils.class);
 
+  private static ToolInstancePool<JhoveBase> jhovePool = null;
+
   public static Path inspect(File targetFile) throws Exception {
 
     if (targetFile == null || !targetFile.isFile() || !targetFile.exists()) {
@@ -42,35 +48,79 @@ public class JHOVEPluginUtils {
     App app = new App(JHOVEPluginUtils.class.getSimpleName(), "1.0",
       new int[] {calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH)},
       "Format Identification Utility", "");
-    JhoveBase jhoveBase = new JhoveBase();
-
-    // FIXME why do we have to create a copy of jhove config file??? can this be
-    // optimized???
-    File configFile = File.createTempFile("jhove", "conf");
-    FileOutputStream fos = new FileOutputStream(configFile);
-    String jhoveConfigPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "jhove", "config");
-    IOUtils.copy(FileUtility.getConfigurationFile(RodaCoreFactory.getConfigPath(), jhoveConfigPath), fos);
-    fos.close();
-    // System.setProperty("edu.harvard.hul.ois.jhove.saxClass", );
-
-    jhoveBase.init(configFile.getAbsolutePath(), null);
 
     File outputFile = File.createTempFile("jhove", "output");
     LOGGER.debug("JHOVE output file {}", outputFile);
 
-    Module module = jhoveBase.getModule(null);
-    OutputHandler aboutHandler = jhoveBase.getHandler(null);
-    OutputHandler xmlHandler = jhoveBase.getHandler("XML");
-
-    LOGGER.debug("Calling JHOVE dispatch(...) on file {}", targetFile);
+    ToolInstancePool<JhoveBase> pool = getJhovePool();
+    JhoveBase jhoveBase = pool.borrow();
+    try {
+      Module module = jhoveBase.getModule(null);
+      OutputHandler aboutHandler = jhoveBase.getHandler(null);
+      OutputHandler xmlHandler = jhoveBase.getHandler("XML");
+
+      LOGGER.debug("Calling JHOVE dispatch(...) on file {}", targetFile);
+
+      jhoveBase.dispatch(app, module, aboutHandler, xmlHandler, outputFile.getAbsolutePath(),
+        new String[] {targetFile.getAbsolutePath()});
+      pool.release(jhoveBase);
+    } catch (Exception e) {
+      pool.invalidate(jhoveBase);
+      throw e;
+    }
 
-    jhoveBase.dispatch(app, module, aboutHandler, xmlHandler, outputFile.getAbsolutePath(),
-      new String[] {targetFile.getAbsolutePath()});
+    return outputFile.toPath();
 
-    configFile.delete();
+  }
 
-    return outputFile.toPath();
+  private static JhoveBase createJhoveBase() throws CommandException {
+    try {
+      JhoveBase jhoveBase = new JhoveBase();
+
+      // FIXME why do we have to create a copy of jhove config file??? can this be
+      // optimized???
+      File configFile = File.createTempFile("jhove", "conf");
+      FileOutputStream fos = new FileOutputStream(configFile);
+      String jhoveConfigPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "jhove", "config");
+      IOUtils.copy(FileUtility.getConfigurationFile(RodaCoreFactory.getConfigPath(), jhoveConfigPath), fos);
+      fos.close();
+      // System.setProperty("edu.harvard.hul.ois.jhove.saxClass", );
+
+      jhoveBase.init(configFile.getAbsolutePath(), null);
+      configFile.delete();
+      return jhoveBase;
+    } catch (IOException | JhoveException e) {
+      throw new CommandException("Error initializing JHOVE", e);
+    }
+  }
 
+  /**
+   * JHOVE is initialized once per instance of the pool (bounded by
+   * <code>core.tools.jhove.pool_size</code>), as a {@link JhoveBase} cannot be
+   * used by more than one file at a time.
+   */
+  private static synchronized ToolInstancePool<JhoveBase> getJhovePool() {
+    // closed when RODA shuts down or plugins are reloaded
+    if (jhovePool == null || jhovePool.isClosed()) {
+      int poolSize = RodaCoreFactory.getRodaConfigurationAsInt(4, "core", "tools", "jhove", "pool_size");
+      jhovePool = new ToolInstancePool<>("JHOVE", Math.max(1, poolSize), new ToolInstancePool.Factory<JhoveBase>() {
+        @Override
+        public JhoveBase create() throws CommandException {
+          return createJhoveBase();
+        }
+
+        @Override
+        public boolean isAlive(JhoveBase instance) {
+          return true;
+        }
+
+        @Override
+        public void destroy(JhoveBase instance) {
+          // nothing to release
+        }
+      });
+    }
+    return jhovePool;
   }
 
   public static Path runJhove(org.roda.core.data.v2.ip.File file, Binary binary, Map<String, String> parameterValues)
@@ -194,6 +194,13 @@ public class Browser extends RodaWuiController {
   public static <T extends IsIndexed> IndexResult<T> find(final Class<T> classToReturn, final Filter filter,
     final Sorter sorter, final Sublist sublist, final Facets facets, final User user, final boolean justActive)
     throws GenericException, AuthorizationDeniedException, RequestNotValidException {
+    return find(classToReturn, filter, sorter, sublist, facets, user, justActive, new ArrayList<>());
+  }
+
+  public static <T extends IsIndexed> IndexResult<T> find(final Class<T> classToReturn, final Filter filter,
+    final Sorter sorter, final Sublist sublist, final Facets facets, final User user, final boolean justActive,
+    final List<String> fieldsToReturn)
+    throws GenericException, AuthorizationDeniedException, RequestNotValidException {
     final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
 
     // check user permissions
@@ -202,7 +209,8 @@ public class Browser extends RodaWuiController {
     // TODO check permissions for each class
 
     // delegate
-    final IndexResult<T> ret = BrowserHelper.find(classToReturn, filter, sorter, sublist, facets, user, justActive);
+    final IndexResult<T> ret = BrowserHelper.find(classToReturn, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
 
     // register action
 
@@ -1325,9 +1333,11 @@ public class Browser extends RodaWuiController {
 
     for (IndexedAIP aip : aips) {
       UserUtility.checkObjectPermissions(user, aip, PermissionType.UPDATE);
-      BrowserHelper.updateAIPPermissions(user, aip, permissions, recursive);
     }
 
+    // delegate
+    BrowserHelper.updateAIPPermissions(user, aips, permissions, recursive);
+
     controllerAssistant.registerAction(user, LOG_ENTRY_STATE.SUCCESS, "aips", aips, "permissions", permissions);
   }
 
@@ -18,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -41,6 +42,7 @@ import org.custommonkey.xmlunit.Diff;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.BinaryConsumesOutputStream;
 import org.roda.core.common.ConsumesOutputStream;
 import org.roda.core.common.DownloadUtils;
 import org.roda.core.common.EntityResponse;
@@ -48,6 +50,8 @@ import org.roda.core.common.IdUtils;
 import org.roda.core.common.LdapUtilityException;
 import org.roda.core.common.Messages;
 import org.roda.core.common.PremisV3Utils;
+import org.roda.core.common.RangeConsumesOutputStream;
+import org.roda.core.common.RangeStreamResponse;
 import org.roda.core.common.RodaUtils;
 import org.roda.core.common.StreamResponse;
 import org.roda.core.common.UserUtility;
@@ -130,6 +134,7 @@ import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.plugins.plugins.base.PropagatePermissionsPlugin;
 import org.roda.core.plugins.plugins.ingest.AutoAcceptSIPPlugin;
 import org.roda.core.plugins.plugins.risks.RiskIncidenceRemoverPlugin;
 import org.roda.core.storage.Binary;
@@ -388,6 +393,13 @@ public class BrowserHelper {
     return RodaCoreFactory.getIndexService().find(returnClass, filter, sorter, sublist, facets, user, justActive);
   }
 
+  protected static <T extends IsIndexed> IndexResult<T> find(Class<T> returnClass, Filter filter, Sorter sorter,
+    Sublist sublist, Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
+    return RodaCoreFactory.getIndexService().find(returnClass, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
+  }
+
   protected static <T extends IsIndexed> Long count(Class<T> returnClass, Filter filter, User user)
     throws GenericException, RequestNotValidException {
     boolean justActive = false;
@@ -481,7 +493,12 @@ public class BrowserHelper {
   private static StreamResponse download(Resource resource) {
     ConsumesOutputStream download = DownloadUtils.download(RodaCoreFactory.getStorageService(), resource);
     StreamingOutput streamingOutput = new RodaStreamingOutput(download);
-    return new StreamResponse(download.getFileName(), download.getMediaType(), streamingOutput);
+    if (download instanceof RangeConsumesOutputStream) {
+      return new RangeStreamResponse(download.getFileName(), download.getMediaType(), streamingOutput,
+        (RangeConsumesOutputStream) download, null);
+    } else {
+      return new StreamResponse(download.getFileName(), download.getMediaType(), streamingOutput);
+    }
   }
 
   public static StreamResponse retrieveAIPRepresentationPart(IndexedRepresentation representation, String part)
@@ -1228,10 +1245,15 @@ public class BrowserHelper {
 
   // FIXME allow to create a zip without files/directories???
   private static StreamResponse createZipStreamResponse(List<ZipEntryInfo> zipEntries, String zipName) {
+    return createZipStreamResponse(zipEntries, zipName, true);
+  }
+
+  private static StreamResponse createZipStreamResponse(Iterable<ZipEntryInfo> zipEntries, String zipName,
+    boolean compress) {
     final StreamingOutput stream = new StreamingOutput() {
       @Override
       public void write(OutputStream os) throws IOException, WebApplicationException {
-        ZipTools.zip(zipEntries, os);
+        ZipTools.zip(zipEntries, os, compress);
       }
     };
 
@@ -1278,29 +1300,14 @@ public class BrowserHelper {
     IndexedFile iFile = RodaCoreFactory.getIndexService().retrieve(IndexedFile.class, fileUuid);
 
     if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_BIN.equals(acceptFormat)) {
-      final String filename;
-      final String mediaType;
-      final StreamingOutput stream;
-
       StorageService storage = RodaCoreFactory.getStorageService();
       Binary representationFileBinary = storage.getBinary(
         ModelUtils.getFileStoragePath(iFile.getAipId(), iFile.getRepresentationId(), iFile.getPath(), iFile.getId()));
-      filename = representationFileBinary.getStoragePath().getName();
-      mediaType = MediaType.WILDCARD;
-      stream = new StreamingOutput() {
-        @Override
-        public void write(OutputStream os) throws IOException, WebApplicationException {
-          InputStream fileInputStream = null;
-          try {
-            fileInputStream = representationFileBinary.getContent().createInputStream();
-            IOUtils.copy(fileInputStream, os);
-          } finally {
-            IOUtils.closeQuietly(fileInputStream);
-          }
-        }
-      };
+      RangeConsumesOutputStream content = new BinaryConsumesOutputStream(representationFileBinary,
+        MediaType.WILDCARD);
 
-      return new StreamResponse(filename, mediaType, stream);
+      return new RangeStreamResponse(content.getFileName(), content.getMediaType(), new RodaStreamingOutput(content),
+        content, getEntityTag(iFile, content));
     } else if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON.equals(acceptFormat)
       || RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_XML.equals(acceptFormat)) {
       File file = RodaCoreFactory.getModelService().retrieveFile(iFile.getAipId(), iFile.getRepresentationId(),
@@ -1311,6 +1318,22 @@ public class BrowserHelper {
     }
   }
 
+  /**
+   * The entity tag of a file is its (first) indexed fixity and size, or null if
+   * the file has no fixity information.
+   */
+  private static String getEntityTag(IndexedFile file, RangeConsumesOutputStream content) {
+    String entityTag = null;
+    if (file.getHash() != null && !file.getHash().isEmpty()) {
+      // fixity is indexed as "<digest> (<algorithm>[, <originator>])"
+      String digest = StringUtils.substringBefore(file.getHash().get(0), " ");
+      if (StringUtils.isNotBlank(digest)) {
+        entityTag = digest + "-" + content.getSize();
+      }
+    }
+    return entityTag;
+  }
+
   public static DescriptiveMetadata createOrUpdateAIPDescriptiveMetadataFile(String aipId, String representationId,
     String metadataId, String metadataType, String metadataVersion, String updateMessage, InputStream is,
     FormDataContentDisposition fileDetail, boolean create) throws GenericException, RequestNotValidException,
@@ -1736,35 +1759,47 @@ public class BrowserHelper {
     RodaCoreFactory.getStorageService().deleteBinaryVersion(storagePath, versionId);
   }
 
-  public static void updateAIPPermissions(User user, IndexedAIP indexedAIP, Permissions permissions, boolean recursive)
+  public static void updateAIPPermissions(User user, List<IndexedAIP> indexedAIPs, Permissions permissions,
+    boolean recursive)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
     final ModelService model = RodaCoreFactory.getModelService();
-    AIP aip = model.retrieveAIP(indexedAIP.getId());
-    aip.setPermissions(permissions);
-    model.updateAIPPermissions(aip, user.getName());
-
-    if (recursive) {
-      Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, indexedAIP.getId()));
-      RodaCoreFactory.getIndexService().execute(IndexedAIP.class, filter, new IndexRunnable<IndexedAIP>() {
+    Set<String> aipIds = new HashSet<>();
+    for (IndexedAIP indexedAIP : indexedAIPs) {
+      AIP aip = model.retrieveAIP(indexedAIP.getId());
+      aip.setPermissions(permissions);
+      model.updateAIPPermissions(aip, user.getName());
+      aipIds.add(aip.getId());
+    }
+
+    // the descendants of AIPs that are themselves descendants of other
+    // selected AIPs are propagated with those
+    List<String> topAIPIds = new ArrayList<>();
+    for (IndexedAIP indexedAIP : indexedAIPs) {
+      if (indexedAIP.getAncestors() == null || Collections.disjoint(indexedAIP.getAncestors(), aipIds)) {
+        topAIPIds.add(indexedAIP.getId());
+      }
+    }
 
-        @Override
-        public void run(IndexedAIP idescendant)
-          throws GenericException, RequestNotValidException, AuthorizationDeniedException {
-          AIP descendant;
-          try {
-            descendant = model.retrieveAIP(idescendant.getId());
-            descendant.setPermissions(permissions);
-            model.updateAIPPermissions(descendant, user.getName());
-          } catch (NotFoundException e) {
-            LOGGER.warn("Got an AIP from index which was not found in the model", e);
-          } catch (RuntimeException e) {
-            LOGGER.error("Error applying permissions", e);
-          }
+    if (recursive && !topAIPIds.isEmpty()) {
+      // descendants are updated in bulk by a job, as they can be many (the
+      // user permissions on the selected AIPs were already checked, so no job
+      // creation role is required)
+      Map<String, String> pluginParameters = new HashMap<>();
+      pluginParameters.put(RodaConstants.PLUGIN_PARAMS_PERMISSIONS_JSON, JsonUtils.getJsonFromObject(permissions));
 
-        }
-      });
+      try {
+        Job job = new Job();
+        job.setName(PropagatePermissionsPlugin.class.getSimpleName() + " " + job.getStartDate());
+        job.setPlugin(PropagatePermissionsPlugin.class.getName());
+        job.setPluginParameters(pluginParameters);
+        job.setSourceObjects(SelectedItemsList.create(AIP.class, topAIPIds));
+        JobsHelper.validateAndSetJobInformation(user, job);
+        JobsHelper.createJob(job);
+      } catch (JobAlreadyStartedException e) {
+        LOGGER.error("Could not propagate permissions to descendants", e);
+        throw new GenericException("Could not propagate permissions to descendants", e);
+      }
     }
-
   }
 
   public static Risk createRisk(Risk risk, User user, boolean commit)
@@ -2021,20 +2056,17 @@ public class BrowserHelper {
     throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException, IOException {
     IndexService index = RodaCoreFactory.getIndexService();
     if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_BIN.equals(acceptFormat)) {
-      List<ZipEntryInfo> zipEntries = new ArrayList<ZipEntryInfo>();
+      // AIPs are retrieved and zipped while the zip is being sent
+      Iterable<IndexedAIP> aips;
       if (selected instanceof SelectedItemsFilter) {
         SelectedItemsFilter<IndexedAIP> selectedItems = (SelectedItemsFilter<IndexedAIP>) selected;
-        long count = index.count(IndexedAIP.class, selectedItems.getFilter());
-        for (int i = 0; i < count; i += RodaConstants.DEFAULT_PAGINATION_VALUE) {
-          List<IndexedAIP> aips = index.find(IndexedAIP.class, selectedItems.getFilter(), null,
-            new Sublist(i, RodaConstants.DEFAULT_PAGINATION_VALUE), null).getResults();
-          zipEntries.addAll(ModelUtils.zipIndexedAIP(aips));
-        }
+        aips = index.findAll(IndexedAIP.class, selectedItems.getFilter(), RodaConstants.DEFAULT_PAGINATION_VALUE);
       } else {
         SelectedItemsList<IndexedAIP> selectedItems = (SelectedItemsList<IndexedAIP>) selected;
-        zipEntries.addAll(ModelUtils.zipIndexedAIP(ModelUtils.getIndexedAIPsFromObjectIds(selectedItems)));
+        aips = ModelUtils.getIndexedAIPsFromObjectIds(selectedItems);
       }
-      return createZipStreamResponse(zipEntries, "export");
+      boolean compress = RodaCoreFactory.getRodaConfigurationAsBoolean(true, "ui", "export", "zip", "compress");
+      return createZipStreamResponse(ModelUtils.zipIndexedAIPs(aips), "export", compress);
     } else if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON.equals(acceptFormat)) {
       throw new GenericException("Not yet supported: " + acceptFormat);
     } else {
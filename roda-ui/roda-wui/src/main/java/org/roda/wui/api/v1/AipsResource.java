@@ -23,6 +23,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.xml.transform.TransformerException;
 
@@ -95,8 +96,8 @@ public class AipsResource {
 
   public Response retrieveAIP(
     @ApiParam(value = "The ID of the AIP to retrieve.", required = true) @PathParam(RodaConstants.API_PATH_PARAM_AIP_ID) String aipId,
-    @ApiParam(value = "Choose format in which to get the AIP", allowableValues = RodaConstants.API_GET_LIST_MEDIA_TYPES, defaultValue = RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat)
-    throws RODAException {
+    @ApiParam(value = "Choose format in which to get the AIP", allowableValues = RodaConstants.API_GET_LIST_MEDIA_TYPES, defaultValue = RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @Context Request req) throws RODAException {
     String mediaType = ApiUtils.getMediaType(acceptFormat, request);
 
     // get user
@@ -109,7 +110,7 @@ public class AipsResource {
       ObjectResponse<AIP> aip = (ObjectResponse<AIP>) aipRepresentation;
       return Response.ok(aip.getObject(), mediaType).build();
     } else {
-      return ApiUtils.okResponse((StreamResponse) aipRepresentation);
+      return ApiUtils.okResponse((StreamResponse) aipRepresentation, req, request);
     }
   }
 
@@ -121,14 +122,14 @@ public class AipsResource {
 
   public Response retrieveAIPPart(
     @ApiParam(value = "The ID of the AIP to retrieve.", required = true) @PathParam(RodaConstants.API_PATH_PARAM_AIP_ID) String aipId,
-    @ApiParam(value = "The part of the AIP to download.", required = true) @PathParam(RodaConstants.API_PATH_PARAM_PART) String part)
-    throws RODAException {
+    @ApiParam(value = "The part of the AIP to download.", required = true) @PathParam(RodaConstants.API_PATH_PARAM_PART) String part,
+    @Context Request req) throws RODAException {
     // get user
     User user = UserUtility.getApiUser(request);
 
     // delegate action to controller
     StreamResponse aipRepresentation = Browser.retrieveAIPPart(user, aipId, part);
-    return ApiUtils.okResponse(aipRepresentation);
+    return ApiUtils.okResponse(aipRepresentation, req, request);
   }
 
   @PUT
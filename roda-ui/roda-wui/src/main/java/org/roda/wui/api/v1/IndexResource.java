@@ -88,6 +88,8 @@ public class IndexResource {
    *          Facets to return.
    * @param onlyActive
    *          Return only active resources?
+   * @param fieldsToReturn
+   *          Fields to return (all if none is given).
    * @param <T>
    *          Type of the resources to return.
    * @return a {@link Response} with the resources.
@@ -106,7 +108,8 @@ public class IndexResource {
     @ApiParam(value = "Facets to return", example = "formatPronom") @QueryParam(RodaConstants.API_QUERY_KEY_FACET) final List<String> facetAttributes,
     @ApiParam(value = "Facet limit", example = "100") @QueryParam(RodaConstants.API_QUERY_KEY_FACET_LIMIT) final Integer facetLimit,
     @ApiParam(value = "Language", example = "en", defaultValue = "en") @QueryParam(RodaConstants.API_QUERY_KEY_LANG) final String localeString,
-    @ApiParam(value = "Return only active resources?", defaultValue = "true") @QueryParam(RodaConstants.API_QUERY_KEY_ONLY_ACTIVE) final Boolean onlyActive)
+    @ApiParam(value = "Return only active resources?", defaultValue = "true") @QueryParam(RodaConstants.API_QUERY_KEY_ONLY_ACTIVE) final Boolean onlyActive,
+    @ApiParam(value = "Fields to return (all if none is given)", example = "uuid") @QueryParam(RodaConstants.API_QUERY_KEY_FIELD) final List<String> fieldsToReturn)
     throws RODAException {
     final String mediaType = ApiUtils.getMediaType(null, request);
     final User user = UserUtility.getApiUser(request);
@@ -146,7 +149,8 @@ public class IndexResource {
 
       final boolean paramOnlyActive = onlyActive == null ? DEFAULT_ONLY_ACTIVE : onlyActive;
 
-      IndexResult<T> indexResult = Browser.find(classToReturn, filter, sorter, sublist, facets, user, paramOnlyActive);
+      IndexResult<T> indexResult = Browser.find(classToReturn, filter, sorter, sublist, facets, user, paramOnlyActive,
+        fieldsToReturn);
       final IndexResult<T> result = I18nUtility.translate(indexResult, classToReturn, localeString);
 
       return Response.ok(result, mediaType).build();
@@ -181,7 +185,7 @@ public class IndexResource {
       final Class<T> classToReturn = (Class<T>) Class.forName(findRequest.classToReturn);
 
       final IndexResult<T> result = Browser.find(classToReturn, findRequest.filter, findRequest.sorter,
-        findRequest.sublist, findRequest.facets, user, findRequest.onlyActive);
+        findRequest.sublist, findRequest.facets, user, findRequest.onlyActive, findRequest.fieldsToReturn);
 
       return Response.ok(result, mediaType).build();
 
@@ -44,6 +44,7 @@ import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.plugins.plugins.base.ActionLogCleanerPlugin;
+import org.roda.core.plugins.plugins.base.ReindexAIPsPlugin;
 import org.roda.core.plugins.plugins.base.ReindexAllRodaEntitiesPlugin;
 import org.roda.core.plugins.plugins.base.ReindexRodaEntityPlugin;
 import org.roda.wui.api.controllers.Jobs;
@@ -70,14 +71,16 @@ public class ManagementTasksResource {
   @Path("/index/reindex")
   public Response executeIndexReindexTask(
     @ApiParam(value = "", allowableValues = "ALL,aip,job,risk,riskincidence,agent,format,notification,actionlogs,transferred_resources,users_and_groups", defaultValue = "aip") @QueryParam("entity") String entity,
-    @QueryParam("params") List<String> params) throws AuthorizationDeniedException {
+    @QueryParam("params") List<String> params,
+    @ApiParam(value = "Resume an interrupted reindex of all AIPs", defaultValue = "false") @QueryParam("resume") boolean resume)
+    throws AuthorizationDeniedException {
     ControllerAssistant controllerAssistant = new ControllerAssistant() {};
 
     // get user & check permissions
     User user = UserUtility.getApiUser(request);
 
     controllerAssistant.checkGroup(user, "administrators");
-    return executeReindex(user, controllerAssistant, entity, params);
+    return executeReindex(user, controllerAssistant, entity, params, resume);
   }
 
   @POST
@@ -96,9 +99,11 @@ public class ManagementTasksResource {
   }
 
   private Response executeReindex(User user, ControllerAssistant controllerAssistant, String entity,
-    List<String> params) {
+    List<String> params, boolean resume) {
     ApiResponseMessage response = new ApiResponseMessage(ApiResponseMessage.OK, "Action done!");
-    if ("aip".equals(entity)) {
+    if ("aip".equals(entity) && params.isEmpty()) {
+      response = createJobToReindexAllAIPs(user, controllerAssistant, resume);
+    } else if ("aip".equals(entity)) {
       response = createJobToReindex(user, controllerAssistant, params, AIP.class);
     } else if ("job".equals(entity)) {
       response = createJobToReindex(user, controllerAssistant, params, Job.class);
@@ -152,6 +157,19 @@ public class ManagementTasksResource {
     return response;
   }
 
+  private ApiResponseMessage createJobToReindexAllAIPs(User user, ControllerAssistant controllerAssistant,
+    boolean resume) {
+    ApiResponseMessage response = new ApiResponseMessage(ApiResponseMessage.OK, "Action done!");
+    Job job = new Job().setName("Management Task | Reindex 'All AIPs' job").setSourceObjects(SelectedItemsNone.create())
+      .setPlugin(ReindexAIPsPlugin.class.getName());
+    Map<String, String> pluginParameters = new HashMap<String, String>();
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_RESUME, Boolean.toString(resume));
+    job.setPluginParameters(pluginParameters);
+
+    createJobAndRegisterAction(user, controllerAssistant, response, job, "params", job.getPluginParameters());
+    return response;
+  }
+
   private ApiResponseMessage reindexUsersAndGroups(User user, ControllerAssistant controllerAssistant,
     List<String> params) {
     boolean success = true;
@@ -24,6 +24,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.xml.transform.TransformerException;
 
@@ -95,8 +96,8 @@ public class RepresentationsResource {
 
   public Response retrieveRepresentation(
     @ApiParam(value = "The ID of the existing representation", required = true) @PathParam(RodaConstants.API_PATH_PARAM_REPRESENTATION_UUID) String representationUUID,
-    @ApiParam(value = "Choose format in which to get the representation", allowableValues = RodaConstants.API_GET_LIST_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat)
-    throws RODAException {
+    @ApiParam(value = "Choose format in which to get the representation", allowableValues = RodaConstants.API_GET_LIST_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @Context Request req) throws RODAException {
     String mediaType = ApiUtils.getMediaType(acceptFormat, request);
 
     // get user
@@ -109,7 +110,7 @@ public class RepresentationsResource {
       ObjectResponse<Representation> rep = (ObjectResponse<Representation>) aipRepresentation;
       return Response.ok(rep.getObject(), mediaType).build();
     } else {
-      return ApiUtils.okResponse((StreamResponse) aipRepresentation);
+      return ApiUtils.okResponse((StreamResponse) aipRepresentation, req, request);
     }
   }
 
@@ -121,14 +122,14 @@ public class RepresentationsResource {
 
   public Response retrieveRepresentationPart(
     @ApiParam(value = "The ID of the existing representation", required = true) @PathParam(RodaConstants.API_PATH_PARAM_REPRESENTATION_UUID) String representationUUID,
-    @ApiParam(value = "The part of the representation to download", required = true, allowableValues = "data, metadata, documentation, schemas") @PathParam(RodaConstants.API_PATH_PARAM_PART) String part)
-    throws RODAException {
+    @ApiParam(value = "The part of the representation to download", required = true, allowableValues = "data, metadata, documentation, schemas") @PathParam(RodaConstants.API_PATH_PARAM_PART) String part,
+    @Context Request req) throws RODAException {
     // get user
     User user = UserUtility.getApiUser(request);
 
     // delegate action to controller
     StreamResponse aipRepresentation = Browser.retrieveAIPRepresentationPart(user, representationUUID, part);
-    return ApiUtils.okResponse(aipRepresentation);
+    return ApiUtils.okResponse(aipRepresentation, req, request);
   }
 
   @PUT
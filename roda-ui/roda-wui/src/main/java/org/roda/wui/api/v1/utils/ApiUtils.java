@@ -16,10 +16,16 @@ import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.xml.transform.TransformerException;
 
 import org.apache.commons.lang.StringUtils;
+import org.roda.core.common.RangeConsumesOutputStream;
+import org.roda.core.common.RangeStreamResponse;
 import org.roda.core.common.StreamResponse;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
@@ -36,6 +42,11 @@ public class ApiUtils {
   private static final String CONTENT_DISPOSITION_FILENAME_ARGUMENT = "filename=";
   private static final String CONTENT_DISPOSITION_INLINE = "inline; ";
   private static final String CONTENT_DISPOSITION_ATTACHMENT = "attachment; ";
+  private static final String HTTP_HEADER_RANGE = "Range";
+  private static final String HTTP_HEADER_IF_RANGE = "If-Range";
+  private static final String HTTP_HEADER_ACCEPT_RANGES = "Accept-Ranges";
+  private static final String HTTP_HEADER_CONTENT_RANGE = "Content-Range";
+  private static final String RANGE_UNIT = "bytes";
 
   /**
    * Get media type
@@ -148,6 +159,112 @@ public class ApiUtils {
       .build();
   }
 
+  /**
+   * Sends a stream response answering conditional (If-None-Match, If-Match)
+   * and single range (Range, If-Range) requests, if the stream response
+   * supports them.
+   */
+  public static Response okResponse(StreamResponse streamResponse, Request req, HttpServletRequest request) {
+    if (!(streamResponse instanceof RangeStreamResponse)
+      || ((RangeStreamResponse) streamResponse).getContent().getSize() < 0) {
+      return okResponse(streamResponse);
+    }
+
+    RangeStreamResponse rangeStreamResponse = (RangeStreamResponse) streamResponse;
+    RangeConsumesOutputStream content = rangeStreamResponse.getContent();
+    long size = content.getSize();
+    EntityTag tag = rangeStreamResponse.getEntityTag() != null ? new EntityTag(rangeStreamResponse.getEntityTag())
+      : null;
+
+    if (tag != null) {
+      ResponseBuilder builder = req.evaluatePreconditions(tag);
+      if (builder != null) {
+        return builder.tag(tag).build();
+      }
+    }
+
+    // ranges are only sent if the content did not change (i.e. If-Range
+    // has the current entity tag)
+    String ifRange = request.getHeader(HTTP_HEADER_IF_RANGE);
+    long[] range = null;
+    if (ifRange == null || (tag != null && ifRange.equals(tag.toString()))) {
+      range = parseRange(request.getHeader(HTTP_HEADER_RANGE), size);
+    }
+
+    ResponseBuilder builder;
+    if (range == null) {
+      builder = Response.ok(rangeStreamResponse.getStream(), rangeStreamResponse.getMediaType())
+        .header(HttpHeaders.CONTENT_LENGTH, size);
+    } else if (range.length == 0) {
+      return Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+        .header(HTTP_HEADER_CONTENT_RANGE, RANGE_UNIT + " */" + size).build();
+    } else {
+      final long start = range[0];
+      final long count = range[1] - range[0] + 1;
+      StreamingOutput partialStream = out -> content.consumeOutputStream(out, start, count);
+      builder = Response.status(Status.PARTIAL_CONTENT).entity(partialStream).type(rangeStreamResponse.getMediaType())
+        .header(HTTP_HEADER_CONTENT_RANGE, RANGE_UNIT + " " + range[0] + "-" + range[1] + "/" + size)
+        .header(HttpHeaders.CONTENT_LENGTH, count);
+    }
+
+    return builder.header(HTTP_HEADER_ACCEPT_RANGES, RANGE_UNIT)
+      .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(false) + CONTENT_DISPOSITION_FILENAME_ARGUMENT + "\""
+        + rangeStreamResponse.getFilename() + "\"")
+      .tag(tag).build();
+  }
+
+  /**
+   * Parses a single byte range (e.g. "bytes=0-99", "bytes=100-" or
+   * "bytes=-100").
+   * 
+   * @return the first and last positions of the range, an empty array if the
+   *         range cannot be satisfied or null if there is no range (or it is
+   *         not supported, e.g. multiple ranges) and the whole content should
+   *         be sent
+   */
+  static long[] parseRange(String rangeHeader, long size) {
+    if (rangeHeader == null || !rangeHeader.startsWith(RANGE_UNIT + "=") || rangeHeader.contains(",")) {
+      return null;
+    }
+
+    String range = rangeHeader.substring(RANGE_UNIT.length() + 1).trim();
+    int dashIndex = range.indexOf('-');
+    if (dashIndex < 0) {
+      return null;
+    }
+
+    long start;
+    long end;
+    try {
+      String first = range.substring(0, dashIndex).trim();
+      String last = range.substring(dashIndex + 1).trim();
+      if (first.isEmpty()) {
+        // suffix range, i.e. the last bytes
+        long suffixLength = Long.parseLong(last);
+        if (suffixLength <= 0) {
+          return new long[] {};
+        }
+        start = Math.max(0, size - suffixLength);
+        end = size - 1;
+      } else {
+        start = Long.parseLong(first);
+        end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+        if (end < start) {
+          // invalid range, ignored
+          return null;
+        }
+        end = Math.min(end, size - 1);
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (start >= size) {
+      return new long[] {};
+    }
+    return new long[] {start, end};
+  }
+
   private static String contentDisposition(boolean inline) {
     return inline ? CONTENT_DISPOSITION_INLINE : CONTENT_DISPOSITION_ATTACHMENT;
   }
@@ -7,6 +7,9 @@
  */
 package org.roda.wui.api.v1.utils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.roda.core.data.adapter.facet.Facets;
 import org.roda.core.data.adapter.filter.Filter;
 import org.roda.core.data.adapter.sort.Sorter;
@@ -29,6 +32,8 @@ public class FindRequest extends CountRequest {
   public Facets facets;
   /** Return only active resources? */
   public boolean onlyActive;
+  /** Fields to return (all if empty). */
+  public List<String> fieldsToReturn = new ArrayList<>();
 
   /**
    * Constructor.
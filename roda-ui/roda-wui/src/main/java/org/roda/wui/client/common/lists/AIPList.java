@@ -146,6 +146,14 @@ public class AIPList extends BasicAsyncTableCell<IndexedAIP> {
     emptyInfo.addStyleName("my-collections-empty-info");
   }
 
+  @Override
+  protected List<String> getFieldsToReturn() {
+    // only what the columns display, the selection is only used by its id
+    return Arrays.asList(RodaConstants.AIP_ID, RodaConstants.AIP_PARENT_ID, RodaConstants.STATE,
+      RodaConstants.AIP_LEVEL, RodaConstants.AIP_GHOST, RodaConstants.AIP_TITLE, RodaConstants.AIP_DATE_INITIAL,
+      RodaConstants.AIP_DATE_FINAL, RodaConstants.AIP_HAS_REPRESENTATIONS);
+  }
+
   @Override
   protected void getData(Sublist sublist, ColumnSortList columnSortList,
     AsyncCallback<IndexResult<IndexedAIP>> callback) {
@@ -160,7 +168,7 @@ public class AIPList extends BasicAsyncTableCell<IndexedAIP> {
     Sorter sorter = createSorter(columnSortList, columnSortingKeyMap);
 
     BrowserService.Util.getInstance().find(IndexedAIP.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), getFieldsToReturn(), callback);
   }
 
 }
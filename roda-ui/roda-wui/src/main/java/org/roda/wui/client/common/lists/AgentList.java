@@ -99,7 +99,7 @@ public class AgentList extends BasicAsyncTableCell<Agent> {
 
     boolean justActive = false;
     BrowserService.Util.getInstance().find(Agent.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 
   @Override
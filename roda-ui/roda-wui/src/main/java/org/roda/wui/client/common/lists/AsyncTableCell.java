@@ -420,6 +420,15 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
     refresh();
   }
 
+  /**
+   * @return the index fields the list needs (e.g. to display its columns), so
+   *         that only those are retrieved, or an empty list to retrieve all
+   *         fields
+   */
+  protected List<String> getFieldsToReturn() {
+    return new ArrayList<String>();
+  }
+
   public void set(Filter filter, boolean justActive, Facets facets) {
     this.filter = filter;
     this.justActive = justActive;
@@ -101,7 +101,7 @@ public class FormatList extends BasicAsyncTableCell<Format> {
 
     boolean justActive = false;
     BrowserService.Util.getInstance().find(Format.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 
   @Override
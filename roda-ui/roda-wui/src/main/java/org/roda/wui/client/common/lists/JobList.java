@@ -258,7 +258,7 @@ public class JobList extends BasicAsyncTableCell<Job> {
 
     boolean justActive = true;
     BrowserService.Util.getInstance().find(Job.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 
 }
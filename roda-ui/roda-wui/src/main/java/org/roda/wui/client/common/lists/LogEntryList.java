@@ -169,7 +169,7 @@ public class LogEntryList extends BasicAsyncTableCell<LogEntry> {
     // sublist, getFacets(), callback);
 
     BrowserService.Util.getInstance().find(LogEntry.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), getFieldsToReturn(), callback);
   }
 
   @Override
@@ -163,7 +163,7 @@ public class NotificationList extends BasicAsyncTableCell<Notification> {
 
     boolean justActive = false;
     BrowserService.Util.getInstance().find(Notification.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 
   @Override
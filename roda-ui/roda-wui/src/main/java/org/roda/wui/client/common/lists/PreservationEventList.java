@@ -147,7 +147,7 @@ public class PreservationEventList extends BasicAsyncTableCell<IndexedPreservati
 
     boolean justActive = false;
     BrowserService.Util.getInstance().find(IndexedPreservationEvent.class.getName(), filter, sorter, sublist,
-      getFacets(), LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      getFacets(), LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 
 }
@@ -186,7 +186,7 @@ public class RepresentationList extends BasicAsyncTableCell<IndexedRepresentatio
     Sorter sorter = createSorter(columnSortList, columnSortingKeyMap);
 
     BrowserService.Util.getInstance().find(IndexedRepresentation.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), getFieldsToReturn(), callback);
   }
 
 }
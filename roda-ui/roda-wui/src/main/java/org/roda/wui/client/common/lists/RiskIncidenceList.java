@@ -166,7 +166,7 @@ public class RiskIncidenceList extends BasicAsyncTableCell<RiskIncidence> {
     Sorter sorter = createSorter(columnSortList, columnSortingKeyMap);
 
     BrowserService.Util.getInstance().find(RiskIncidence.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), true, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), true, getFieldsToReturn(), callback);
   }
 
 }
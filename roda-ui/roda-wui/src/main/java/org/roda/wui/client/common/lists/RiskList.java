@@ -157,7 +157,7 @@ public class RiskList extends BasicAsyncTableCell<IndexedRisk> {
     Sorter sorter = createSorter(columnSortList, columnSortingKeyMap);
 
     BrowserService.Util.getInstance().find(IndexedRisk.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), getFieldsToReturn(), callback);
   }
 
   @Override
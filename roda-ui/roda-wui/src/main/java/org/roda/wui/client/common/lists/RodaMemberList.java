@@ -135,6 +135,6 @@ public class RodaMemberList extends BasicAsyncTableCell<RODAMember> {
     Sorter sorter = createSorter(columnSortList, columnSortingKeyMap);
 
     BrowserService.Util.getInstance().find(RODAMember.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), getJustActive(), getFieldsToReturn(), callback);
   }
 }
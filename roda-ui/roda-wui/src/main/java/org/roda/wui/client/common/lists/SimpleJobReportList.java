@@ -217,6 +217,6 @@ public class SimpleJobReportList extends BasicAsyncTableCell<Report> {
 
     boolean justActive = false;
     BrowserService.Util.getInstance().find(Report.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 }
@@ -142,7 +142,7 @@ public class TransferredResourceList extends BasicAsyncTableCell<TransferredReso
 
     boolean justActive = false;
     BrowserService.Util.getInstance().find(TransferredResource.class.getName(), filter, sorter, sublist, getFacets(),
-      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, callback);
+      LocaleInfo.getCurrentLocale().getLocaleName(), justActive, getFieldsToReturn(), callback);
   }
 
 }
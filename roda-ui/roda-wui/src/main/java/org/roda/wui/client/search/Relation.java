@@ -17,6 +17,7 @@ import org.roda.core.data.adapter.filter.FilterParameter;
 import org.roda.core.data.adapter.filter.SimpleFilterParameter;
 import org.roda.core.data.adapter.sort.Sorter;
 import org.roda.core.data.adapter.sublist.Sublist;
+import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.wui.client.browse.Browse;
@@ -86,7 +87,7 @@ public class Relation {
       Filter filter = new Filter(params);
 
       BrowserService.Util.getInstance().find(IndexedAIP.class.getName(), filter, Sorter.NONE, new Sublist(0, 1),
-        Facets.NONE, LocaleInfo.getCurrentLocale().getLocaleName(), false,
+        Facets.NONE, LocaleInfo.getCurrentLocale().getLocaleName(), false, Arrays.asList(RodaConstants.AIP_ID),
         new AsyncCallback<IndexResult<IndexedAIP>>() {
 
           @Override
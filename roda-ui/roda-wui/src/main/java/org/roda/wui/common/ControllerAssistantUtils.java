@@ -18,6 +18,7 @@ import org.roda.core.data.v2.log.LogEntry;
 import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
 import org.roda.core.data.v2.log.LogEntryParameter;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.model.ActionLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,11 +71,16 @@ public final class ControllerAssistantUtils {
   }
 
   private static void registerAction(LogEntry logEntry) {
-    try {
-      RodaCoreFactory.getModelService().addLogEntry(logEntry, RodaCoreFactory.getLogPath());
-    } catch (RODAException e) {
-      LOGGER.error("Error registering action (actionComponent={}, actionMethod={})", logEntry.getActionComponent(),
-        logEntry.getActionMethod(), e);
+    ActionLogWriter actionLogWriter = RodaCoreFactory.getActionLogWriter();
+    if (actionLogWriter != null) {
+      actionLogWriter.log(logEntry);
+    } else {
+      try {
+        RodaCoreFactory.getModelService().addLogEntry(logEntry, RodaCoreFactory.getLogPath());
+      } catch (RODAException e) {
+        LOGGER.error("Error registering action (actionComponent={}, actionMethod={})", logEntry.getActionComponent(),
+          logEntry.getActionMethod(), e);
+      }
     }
   }
 }
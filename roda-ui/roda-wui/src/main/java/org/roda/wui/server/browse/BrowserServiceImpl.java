@@ -183,12 +183,13 @@ public class BrowserServiceImpl extends RemoteServiceServlet implements BrowserS
 
   @Override
   public <T extends IsIndexed> IndexResult<T> find(String classNameToReturn, Filter filter, Sorter sorter,
-    Sublist sublist, Facets facets, String localeString, boolean justActive)
+    Sublist sublist, Facets facets, String localeString, boolean justActive, List<String> fieldsToReturn)
     throws GenericException, AuthorizationDeniedException, RequestNotValidException {
     try {
       User user = UserUtility.getUser(getThreadLocalRequest());
       Class<T> classToReturn = parseClass(classNameToReturn);
-      IndexResult<T> result = Browser.find(classToReturn, filter, sorter, sublist, facets, user, justActive);
+      IndexResult<T> result = Browser.find(classToReturn, filter, sorter, sublist, facets, user, justActive,
+        fieldsToReturn);
       return I18nUtility.translate(result, classToReturn, localeString);
     } catch (RuntimeException e) {
       LOGGER.error("Unexpected error in find", e);
@@ -0,0 +1,157 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.api.v1.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+import org.roda.core.common.RangeConsumesOutputStream;
+import org.roda.core.common.RangeStreamResponse;
+import org.roda.wui.common.server.RodaStreamingOutput;
+
+public class ApiUtilsTest extends JerseyTest {
+
+  private static final String ENDPOINT = "range";
+  private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+  private static final String ENTITY_TAG = "digest-" + CONTENT.length;
+
+  @Path(ENDPOINT)
+  public static class RangeResource {
+    @GET
+    public Response retrieve(@Context Request req, @Context HttpHeaders headers) {
+      RangeConsumesOutputStream content = new RangeConsumesOutputStream() {
+        @Override
+        public void consumeOutputStream(OutputStream out) throws IOException {
+          out.write(CONTENT);
+        }
+
+        @Override
+        public void consumeOutputStream(OutputStream out, long position, long count) throws IOException {
+          out.write(CONTENT, (int) position, (int) count);
+        }
+
+        @Override
+        public long getSize() {
+          return CONTENT.length;
+        }
+
+        @Override
+        public String getFileName() {
+          return "content.txt";
+        }
+
+        @Override
+        public String getMediaType() {
+          return MediaType.APPLICATION_OCTET_STREAM;
+        }
+      };
+
+      RangeStreamResponse response = new RangeStreamResponse(content.getFileName(), content.getMediaType(),
+        new RodaStreamingOutput(content), content, ENTITY_TAG);
+      return ApiUtils.okResponse(response, req, servletRequest(headers));
+    }
+
+    // only the request headers are used when answering range requests
+    private static HttpServletRequest servletRequest(HttpHeaders headers) {
+      return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class},
+        (proxy, method, args) -> "getHeader".equals(method.getName()) ? headers.getHeaderString((String) args[0])
+          : null);
+    }
+  }
+
+  @Override
+  protected Application configure() {
+    ResourceConfig resourceConfig = new ResourceConfig();
+    resourceConfig.register(RangeResource.class);
+    return resourceConfig;
+  }
+
+  @Test
+  public void testParseRange() {
+    assertArrayEquals(new long[] {0, 99}, ApiUtils.parseRange("bytes=0-99", 1000));
+    // open-ended ranges go up to the last byte
+    assertArrayEquals(new long[] {900, 999}, ApiUtils.parseRange("bytes=900-", 1000));
+    assertArrayEquals(new long[] {900, 999}, ApiUtils.parseRange("bytes=900-5000", 1000));
+    // suffix ranges are the last bytes
+    assertArrayEquals(new long[] {900, 999}, ApiUtils.parseRange("bytes=-100", 1000));
+    assertArrayEquals(new long[] {0, 999}, ApiUtils.parseRange("bytes=-5000", 1000));
+  }
+
+  @Test
+  public void testParseUnsatisfiableRange() {
+    assertEquals(0, ApiUtils.parseRange("bytes=1000-", 1000).length);
+    assertEquals(0, ApiUtils.parseRange("bytes=1000-1999", 1000).length);
+    assertEquals(0, ApiUtils.parseRange("bytes=-0", 1000).length);
+  }
+
+  @Test
+  public void testParseUnsupportedRange() {
+    assertNull(ApiUtils.parseRange(null, 1000));
+    assertNull(ApiUtils.parseRange("bytes=0-9,20-29", 1000));
+    assertNull(ApiUtils.parseRange("bytes=99-0", 1000));
+    assertNull(ApiUtils.parseRange("items=0-9", 1000));
+    assertNull(ApiUtils.parseRange("bytes=a-b", 1000));
+  }
+
+  @Test
+  public void testRangeRequest() {
+    Response response = target(ENDPOINT).request().header("Range", "bytes=-3").get();
+    assertEquals(Status.PARTIAL_CONTENT.getStatusCode(), response.getStatus());
+    assertEquals("bytes 7-9/10", response.getHeaderString("Content-Range"));
+    assertEquals("789", response.readEntity(String.class));
+  }
+
+  @Test
+  public void testUnsatisfiableRangeRequest() {
+    Response response = target(ENDPOINT).request().header("Range", "bytes=10-").get();
+    assertEquals(Status.REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode(), response.getStatus());
+    assertEquals("bytes */10", response.getHeaderString("Content-Range"));
+  }
+
+  @Test
+  public void testIfRangeWithAnotherEntityTagSendsTheWholeContent() {
+    Response response = target(ENDPOINT).request().header("Range", "bytes=0-1").header("If-Range", "\"other\"")
+      .get();
+    assertEquals(Status.OK.getStatusCode(), response.getStatus());
+    assertEquals("\"" + ENTITY_TAG + "\"", response.getHeaderString(HttpHeaders.ETAG));
+    assertArrayEquals(CONTENT, response.readEntity(String.class).getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testIfNoneMatch() {
+    Response response = target(ENDPOINT).request().header(HttpHeaders.IF_NONE_MATCH, "\"" + ENTITY_TAG + "\"").get();
+    assertEquals(Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+    assertEquals("\"" + ENTITY_TAG + "\"", response.getHeaderString(HttpHeaders.ETAG));
+
+    response = target(ENDPOINT).request().header(HttpHeaders.IF_NONE_MATCH, "\"other\"").get();
+    assertEquals(Status.OK.getStatusCode(), response.getStatus());
+    assertArrayEquals(CONTENT, response.readEntity(String.class).getBytes(StandardCharsets.US_ASCII));
+  }
+
+}